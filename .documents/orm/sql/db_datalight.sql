@@ -33,7 +33,8 @@ CREATE TABLE `t_dl_alert`  (
   `alert_rule_content` longtext CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '规则配置内容 Base64',
   `enabled` tinyint(1) NOT NULL DEFAULT 1 COMMENT '是否启用',
   `alert_version` bigint(20) NOT NULL DEFAULT 1 COMMENT '告警规则文件版本',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_alert_cluster`(`cluster_id`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci COMMENT = '告警配置信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -74,7 +75,9 @@ CREATE TABLE `t_dl_alert_handler_relation`  (
   `alert_id` bigint(20) NOT NULL COMMENT '告警 ID',
   `handler_id` bigint(20) NOT NULL COMMENT '处理信息 ID',
   `handler_type` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '告警触发时的处理手段类型 枚举：见代码',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_alert_handler_relation_alert`(`alert_id`) USING BTREE,
+  INDEX `idx_alert_handler_relation_handler`(`handler_id`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci COMMENT = '告警与处理告警信息关联表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -144,7 +147,10 @@ CREATE TABLE `t_dl_component`  (
   `component_state` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '组件状态',
   `priority` bigint(20) NOT NULL COMMENT '优先级 数字越小，优先级越高',
   `need_restart` tinyint(1) NOT NULL DEFAULT 0 COMMENT '是否需要重启 1：需要，0：不需要',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_component_cluster_service_state`(`cluster_id`, `service_name`, `component_state`) USING BTREE,
+  INDEX `idx_component_cluster_name_state`(`cluster_id`, `component_name`, `component_state`) USING BTREE,
+  INDEX `idx_component_node_service`(`node_id`, `service_name`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci COMMENT = '组件信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -163,7 +169,9 @@ CREATE TABLE `t_dl_config`  (
   `filename` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '配置文件名称',
   `config_path` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '配置文件路径',
   `config_version` bigint(20) NOT NULL DEFAULT 1 COMMENT '当前版本号',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_config_cluster_service_path`(`cluster_id`, `service_name`, `config_path`, `node_id`) USING BTREE,
+  INDEX `idx_config_node_service`(`node_id`, `service_name`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci COMMENT = '配置信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -179,7 +187,8 @@ CREATE TABLE `t_dl_config_content`  (
   `filename` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '配置文件名称',
   `config_data` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '配置文件内容 配置文件内容的 Base64',
   `sha256` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '文件内容摘要 256 位摘要算法，极低碰撞概率，用于比较文件内容是否相同(文件内容，也可考虑+文件绝对路径)',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_config_content_cluster_sha256`(`cluster_id`, `sha256`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci COMMENT = '配置文件内容信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -197,7 +206,8 @@ CREATE TABLE `t_dl_config_pre`  (
   `value` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '占位符修改后的值',
   `default_value` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '占位符的默认值',
   `templated_config_path` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '配置模板文件路径 绝对路径',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_config_pre_cluster_service`(`cluster_id`, `service_name`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci COMMENT = '服务组件预配置信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -215,7 +225,8 @@ CREATE TABLE `t_dl_init_procedure`  (
   `node_job_id` bigint(20) NULL DEFAULT NULL COMMENT '节点作业 ID',
   `node_info_list_base64` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL COMMENT '节点信息列表',
   `job_id` bigint(20) NULL DEFAULT NULL COMMENT '作业 ID',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_init_procedure_cluster`(`cluster_id`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci COMMENT = '初始化步骤缓存信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -256,7 +267,8 @@ CREATE TABLE `t_dl_job_log`  (
   `step_id` bigint(20) NULL DEFAULT NULL COMMENT 'Step ID',
   `log_stdout` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL COMMENT '标准日志',
   `log_errout` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL COMMENT '错误日志',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_job_log_job`(`job_id`, `node_id`, `stage_id`, `task_id`, `step_id`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci COMMENT = 'Job 工作日志信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -270,7 +282,8 @@ CREATE TABLE `t_dl_login_event`  (
   `version` bigint(20) NOT NULL DEFAULT 0 COMMENT '乐观锁版本',
   `user_id` bigint(20) NOT NULL COMMENT '用户 ID',
   `last_login` bigint(20) NOT NULL COMMENT '最近一次登录时间',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_login_event_user`(`user_id`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -319,7 +332,8 @@ CREATE TABLE `t_dl_node`  (
   `node_state` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '节点状态 状态枚举，见代码',
   `os_version` varchar(255) CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '系统版本',
   `serial_num` int(11) NOT NULL COMMENT '节点计数 当前为第几个增加的节点，唯一且仅递增，不可回退，同时用于部分组件唯一部署 ID',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_node_cluster_hostname`(`cluster_id`, `hostname`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci COMMENT = '节点信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -342,7 +356,8 @@ CREATE TABLE `t_dl_node_init`  (
   `disk` bigint(20) NOT NULL COMMENT '磁盘总容量 单位：K-bytes',
   `os_version` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '系统版本',
   `node_init_state` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '当前初始状态 枚举，见代码',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_node_init_cluster_hostname`(`cluster_id`, `hostname`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci COMMENT = '节点初始化信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -382,7 +397,8 @@ CREATE TABLE `t_dl_node_job_log`  (
   `node_step_id` bigint(20) NULL DEFAULT NULL COMMENT 'NodeStep ID',
   `log_stdout` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL COMMENT '标准日志',
   `log_errout` longtext CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NULL COMMENT '错误日志',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_node_job_log_node_job`(`node_job_id`, `node_id`, `node_task_id`, `node_step_id`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci COMMENT = 'Job 节点工作日志信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -418,7 +434,8 @@ CREATE TABLE `t_dl_node_step`  (
   `start_time` bigint(20) NULL DEFAULT NULL COMMENT '执行起始时间 毫秒时间戳',
   `end_time` bigint(20) NULL DEFAULT NULL COMMENT '执行结束时间 毫秒时间戳',
   `duration` bigint(20) NULL DEFAULT NULL COMMENT '耗时 毫秒时间戳',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_node_step_node_job`(`node_job_id`, `num`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci COMMENT = 'Step 节点步骤信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -450,7 +467,8 @@ CREATE TABLE `t_dl_node_task`  (
   `start_time` bigint(20) NULL DEFAULT NULL COMMENT '执行起始时间 毫秒时间戳',
   `end_time` bigint(20) NULL DEFAULT NULL COMMENT '执行结束时间 毫秒时间戳',
   `duration` bigint(20) NULL DEFAULT NULL COMMENT '耗时 毫秒时间戳',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_node_task_node_job`(`node_job_id`, `num`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci COMMENT = 'Task 节点任务信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -485,7 +503,9 @@ CREATE TABLE `t_dl_permission_role_relation`  (
   `version` bigint(20) NOT NULL DEFAULT 0 COMMENT '乐观锁版本',
   `permission_id` bigint(20) NOT NULL COMMENT '权限 ID',
   `role_id` bigint(20) NOT NULL COMMENT '角色 ID',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_permission_role_relation_role`(`role_id`) USING BTREE,
+  INDEX `idx_permission_role_relation_permission`(`permission_id`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci COMMENT = '权限角色信息映射表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -518,7 +538,9 @@ CREATE TABLE `t_dl_role_user_relation`  (
   `version` bigint(20) NOT NULL DEFAULT 0 COMMENT '乐观锁版本',
   `role_id` bigint(20) NOT NULL COMMENT '角色 ID',
   `user_id` bigint(20) NOT NULL COMMENT '绑定的用户 ID',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_role_user_relation_user`(`user_id`) USING BTREE,
+  INDEX `idx_role_user_relation_role`(`role_id`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci COMMENT = '角色绑定关系表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -548,7 +570,8 @@ CREATE TABLE `t_dl_service`  (
   `service_name` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '服务名称',
   `service_state` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '服务状态',
   `priority` bigint(20) NOT NULL COMMENT '优先级 数字越小，优先级越高',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_service_cluster_name`(`cluster_id`, `service_name`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci COMMENT = '服务信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -572,7 +595,8 @@ CREATE TABLE `t_dl_stage`  (
   `start_time` bigint(20) NULL DEFAULT NULL COMMENT '执行起始时间 毫秒时间戳',
   `end_time` bigint(20) NULL DEFAULT NULL COMMENT '执行结束时间 毫秒时间戳',
   `duration` bigint(20) NULL DEFAULT NULL COMMENT '耗时 毫秒时间戳',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_stage_job`(`job_id`, `num`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci COMMENT = 'Stage 信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -604,7 +628,8 @@ CREATE TABLE `t_dl_step`  (
   `start_time` bigint(20) NULL DEFAULT NULL COMMENT '执行起始时间 毫秒时间戳',
   `end_time` bigint(20) NULL DEFAULT NULL COMMENT '执行结束时间 毫秒时间戳',
   `duration` bigint(20) NULL DEFAULT NULL COMMENT '耗时 毫秒时间戳',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_step_job`(`job_id`, `num`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci COMMENT = 'Step 信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -641,7 +666,8 @@ CREATE TABLE `t_dl_task`  (
   `start_time` bigint(20) NULL DEFAULT NULL COMMENT '执行起始时间 毫秒时间戳',
   `end_time` bigint(20) NULL DEFAULT NULL COMMENT '执行结束时间 毫秒时间戳',
   `duration` bigint(20) NULL DEFAULT NULL COMMENT '耗时 毫秒时间戳',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_task_job`(`job_id`, `num`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci COMMENT = 'Task 信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -672,7 +698,9 @@ CREATE TABLE `t_dl_user_auth`  (
   `identity_type` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '账户类型 枚举：EMAIL, PHONE, USERNAME',
   `principal` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '认证主体 登录的账户名',
   `credential` varchar(255) CHARACTER SET utf8mb4 COLLATE utf8mb4_general_ci NOT NULL COMMENT '认证凭证 认证凭证，密码 或 Token',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_user_auth_principal`(`principal`) USING BTREE,
+  INDEX `idx_user_auth_user`(`user_id`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8mb4 COLLATE = utf8mb4_general_ci COMMENT = '用户认证信息表' ROW_FORMAT = DYNAMIC;
 
 -- ----------------------------
@@ -688,7 +716,8 @@ CREATE TABLE `t_dl_web_state`  (
   `user_id` bigint(20) NOT NULL COMMENT '用户 ID',
   `web_key` longtext CHARACTER SET utf8 COLLATE utf8_general_ci NOT NULL COMMENT '缓存键 Base64',
   `web_value` longtext CHARACTER SET utf8 COLLATE utf8_general_ci NULL COMMENT '缓存值 Base64',
-  PRIMARY KEY (`id`) USING BTREE
+  PRIMARY KEY (`id`) USING BTREE,
+  INDEX `idx_web_state_cluster_user`(`cluster_id`, `user_id`) USING BTREE
 ) ENGINE = InnoDB CHARACTER SET = utf8 COLLATE = utf8_general_ci COMMENT = '前端状态信息缓存表' ROW_FORMAT = DYNAMIC;
 
 SET FOREIGN_KEY_CHECKS = 1;
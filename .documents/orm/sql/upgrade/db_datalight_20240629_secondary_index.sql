@@ -0,0 +1,150 @@
+/*
+ Description: 为已部署的 db_datalight 补充二级索引，与 db_datalight.sql 中的索引定义保持一致
+ Target Server Type    : MySQL
+ Target Server Version : 50741
+ File Encoding         : 65001
+
+ 可重复执行：索引已存在时跳过
+*/
+
+SET NAMES utf8mb4;
+
+DROP PROCEDURE IF EXISTS `dl_add_index_if_absent`;
+
+DELIMITER ;;
+CREATE PROCEDURE `dl_add_index_if_absent`(IN p_table VARCHAR(64), IN p_index VARCHAR(64), IN p_columns VARCHAR(255))
+BEGIN
+    IF NOT EXISTS (
+        SELECT 1
+        FROM information_schema.STATISTICS
+        WHERE TABLE_SCHEMA = DATABASE()
+          AND TABLE_NAME = p_table
+          AND INDEX_NAME = p_index
+    ) THEN
+        SET @dl_add_index_sql = CONCAT('ALTER TABLE `', p_table, '` ADD INDEX `', p_index, '`(', p_columns, ') USING BTREE');
+        PREPARE dl_add_index_stmt FROM @dl_add_index_sql;
+        EXECUTE dl_add_index_stmt;
+        DEALLOCATE PREPARE dl_add_index_stmt;
+    END IF;
+END
+;;
+DELIMITER ;
+
+-- ----------------------------
+-- Indexes for t_dl_alert
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_alert', 'idx_alert_cluster', '`cluster_id`');
+
+-- ----------------------------
+-- Indexes for t_dl_alert_handler_relation
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_alert_handler_relation', 'idx_alert_handler_relation_alert', '`alert_id`');
+CALL `dl_add_index_if_absent`('t_dl_alert_handler_relation', 'idx_alert_handler_relation_handler', '`handler_id`');
+
+-- ----------------------------
+-- Indexes for t_dl_component
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_component', 'idx_component_cluster_service_state', '`cluster_id`, `service_name`, `component_state`');
+CALL `dl_add_index_if_absent`('t_dl_component', 'idx_component_cluster_name_state', '`cluster_id`, `component_name`, `component_state`');
+CALL `dl_add_index_if_absent`('t_dl_component', 'idx_component_node_service', '`node_id`, `service_name`');
+
+-- ----------------------------
+-- Indexes for t_dl_config
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_config', 'idx_config_cluster_service_path', '`cluster_id`, `service_name`, `config_path`, `node_id`');
+CALL `dl_add_index_if_absent`('t_dl_config', 'idx_config_node_service', '`node_id`, `service_name`');
+
+-- ----------------------------
+-- Indexes for t_dl_config_content
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_config_content', 'idx_config_content_cluster_sha256', '`cluster_id`, `sha256`');
+
+-- ----------------------------
+-- Indexes for t_dl_config_pre
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_config_pre', 'idx_config_pre_cluster_service', '`cluster_id`, `service_name`');
+
+-- ----------------------------
+-- Indexes for t_dl_init_procedure
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_init_procedure', 'idx_init_procedure_cluster', '`cluster_id`');
+
+-- ----------------------------
+-- Indexes for t_dl_job_log
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_job_log', 'idx_job_log_job', '`job_id`, `node_id`, `stage_id`, `task_id`, `step_id`');
+
+-- ----------------------------
+-- Indexes for t_dl_login_event
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_login_event', 'idx_login_event_user', '`user_id`');
+
+-- ----------------------------
+-- Indexes for t_dl_node
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_node', 'idx_node_cluster_hostname', '`cluster_id`, `hostname`');
+
+-- ----------------------------
+-- Indexes for t_dl_node_init
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_node_init', 'idx_node_init_cluster_hostname', '`cluster_id`, `hostname`');
+
+-- ----------------------------
+-- Indexes for t_dl_node_job_log
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_node_job_log', 'idx_node_job_log_node_job', '`node_job_id`, `node_id`, `node_task_id`, `node_step_id`');
+
+-- ----------------------------
+-- Indexes for t_dl_node_step
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_node_step', 'idx_node_step_node_job', '`node_job_id`, `num`');
+
+-- ----------------------------
+-- Indexes for t_dl_node_task
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_node_task', 'idx_node_task_node_job', '`node_job_id`, `num`');
+
+-- ----------------------------
+-- Indexes for t_dl_permission_role_relation
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_permission_role_relation', 'idx_permission_role_relation_role', '`role_id`');
+CALL `dl_add_index_if_absent`('t_dl_permission_role_relation', 'idx_permission_role_relation_permission', '`permission_id`');
+
+-- ----------------------------
+-- Indexes for t_dl_role_user_relation
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_role_user_relation', 'idx_role_user_relation_user', '`user_id`');
+CALL `dl_add_index_if_absent`('t_dl_role_user_relation', 'idx_role_user_relation_role', '`role_id`');
+
+-- ----------------------------
+-- Indexes for t_dl_service
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_service', 'idx_service_cluster_name', '`cluster_id`, `service_name`');
+
+-- ----------------------------
+-- Indexes for t_dl_stage
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_stage', 'idx_stage_job', '`job_id`, `num`');
+
+-- ----------------------------
+-- Indexes for t_dl_step
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_step', 'idx_step_job', '`job_id`, `num`');
+
+-- ----------------------------
+-- Indexes for t_dl_task
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_task', 'idx_task_job', '`job_id`, `num`');
+
+-- ----------------------------
+-- Indexes for t_dl_user_auth
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_user_auth', 'idx_user_auth_principal', '`principal`');
+CALL `dl_add_index_if_absent`('t_dl_user_auth', 'idx_user_auth_user', '`user_id`');
+
+-- ----------------------------
+-- Indexes for t_dl_web_state
+-- ----------------------------
+CALL `dl_add_index_if_absent`('t_dl_web_state', 'idx_web_state_cluster_user', '`cluster_id`, `user_id`');
+
+DROP PROCEDURE IF EXISTS `dl_add_index_if_absent`;
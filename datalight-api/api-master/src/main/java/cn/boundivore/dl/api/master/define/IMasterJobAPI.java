@@ -66,7 +66,7 @@ public interface IMasterJobAPI {
 
 
     @GetMapping(value = "/job/getJobLogList")
-    @ApiOperation(notes = "获取作业日志信息列表", value = "获取作业日志信息列表")
+    @ApiOperation(notes = "获取作业日志信息列表；按游标分页，未指定 LastJobLogId 时从第一条日志开始，日志内容超过上限时截断，完整内容通过作业日志详情接口获取", value = "获取作业日志信息列表")
     Result<AbstractJobVo.JobLogListVo> getJobLogList(
             @ApiParam(name = "ClusterId", value = "集群 ID")
             @RequestParam(value = "ClusterId", required = true)
@@ -94,7 +94,33 @@ public interface IMasterJobAPI {
 
             @ApiParam(name = "StepId", value = "步骤 ID")
             @RequestParam(value = "StepId", required = false)
-            Long stepId
+            Long stepId,
+
+            @ApiParam(name = "LastJobLogId", value = "游标，上一页返回的 NextJobLogId，为空时从第一条日志开始")
+            @RequestParam(value = "LastJobLogId", required = false)
+            Long lastJobLogId,
+
+            @ApiParam(name = "PageSize", value = "每页条目数，为空时使用默认值")
+            @RequestParam(value = "PageSize", required = false)
+            Long pageSize,
+
+            @ApiParam(name = "WithLog", value = "是否返回日志内容，为 false 时仅返回日志条目信息，默认为 true")
+            @RequestParam(value = "WithLog", required = false)
+            Boolean withLog
+    ) throws Exception;
+
+    @GetMapping(value = "/job/getJobLogDetail")
+    @ApiOperation(notes = "根据作业日志 ID 获取完整的日志内容", value = "根据作业日志 ID 获取完整的日志内容")
+    Result<AbstractJobVo.JobLogVo> getJobLogDetail(
+            @ApiParam(name = "ClusterId", value = "集群 ID")
+            @RequestParam(value = "ClusterId", required = true)
+            @NotNull(message = "集群 ID 不能为空")
+            Long clusterId,
+
+            @ApiParam(name = "JobLogId", value = "作业日志 ID")
+            @RequestParam(value = "JobLogId", required = true)
+            @NotNull(message = "作业日志 ID 不能为空")
+            Long jobLogId
     ) throws Exception;
 
 }
\ No newline at end of file
@@ -80,15 +80,58 @@ public interface IMasterLogFileReaderAPI {
             @NotNull(message = "文件绝对路径不能为空")
             String filePath,
 
-            @ApiParam(name = "StartOffset", value = "起始偏移量(包含)")
+            @ApiParam(name = "StartOffset", value = "起始字节偏移量(包含)")
             @RequestParam(value = "StartOffset", required = true)
             @NotNull(message = "起始偏移量不能为空")
             Long startOffset,
 
-            @ApiParam(name = "EndOffset", value = "结束偏移量(不包含)")
+            @ApiParam(name = "EndOffset", value = "结束字节偏移量(不包含)")
             @RequestParam(value = "EndOffset", required = true)
             @NotNull(message = "结束偏移量不能为空")
             Long endOffset
     ) throws Exception;
 
+    @GetMapping(value = "/log/file/tailFileContentWithNodeId")
+    @ApiOperation(notes = "根据节点 ID 加载文件末尾内容", value = "根据节点 ID 加载文件末尾内容")
+    Result<AbstractLogFileVo.LogFileContentVo> tailFileContentWithNodeId(
+            @ApiParam(name = "NodeId", value = "节点 ID")
+            @RequestParam(value = "NodeId", required = true)
+            @NotNull(message = "节点 ID 不能为空")
+            Long nodeId,
+
+            @ApiParam(name = "FilePath", value = "文件绝对路径")
+            @RequestParam(value = "FilePath", required = true)
+            @NotNull(message = "文件绝对路径不能为空")
+            String filePath,
+
+            @ApiParam(name = "TailBytes", value = "读取末尾的字节数")
+            @RequestParam(value = "TailBytes", required = true)
+            @NotNull(message = "读取末尾的字节数不能为空")
+            Long tailBytes
+    ) throws Exception;
+
+    @GetMapping(value = "/log/file/loadFileContentByLineWithNodeId")
+    @ApiOperation(notes = "根据节点 ID 从指定行开始加载文件内容", value = "根据节点 ID 从指定行开始加载文件内容")
+    Result<AbstractLogFileVo.LogFileContentVo> loadFileContentByLineWithNodeId(
+            @ApiParam(name = "NodeId", value = "节点 ID")
+            @RequestParam(value = "NodeId", required = true)
+            @NotNull(message = "节点 ID 不能为空")
+            Long nodeId,
+
+            @ApiParam(name = "FilePath", value = "文件绝对路径")
+            @RequestParam(value = "FilePath", required = true)
+            @NotNull(message = "文件绝对路径不能为空")
+            String filePath,
+
+            @ApiParam(name = "LineNumber", value = "起始行号(从 1 开始)")
+            @RequestParam(value = "LineNumber", required = true)
+            @NotNull(message = "起始行号不能为空")
+            Long lineNumber,
+
+            @ApiParam(name = "Length", value = "读取的字节数")
+            @RequestParam(value = "Length", required = true)
+            @NotNull(message = "读取的字节数不能为空")
+            Long length
+    ) throws Exception;
+
 }
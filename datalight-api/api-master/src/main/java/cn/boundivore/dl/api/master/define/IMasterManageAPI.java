@@ -16,6 +16,7 @@
  */
 package cn.boundivore.dl.api.master.define;
 
+import cn.boundivore.dl.base.request.impl.master.ExecOutputRequest;
 import cn.boundivore.dl.base.request.impl.master.HeartBeatRequest;
 import cn.boundivore.dl.base.response.impl.master.ConfigPreVo;
 import cn.boundivore.dl.base.result.Result;
@@ -38,9 +39,9 @@ import static cn.boundivore.dl.base.constants.IUrlPrefixConstants.MASTER_URL_PRE
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2023/6/19
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 新增接收 Worker 执行过程中推送的输出
+ * Modified by: Boundivore
+ * Modification time: 2024/6/25
  * Version: V1.0
  */
 @Api(value = "IMasterManageAPI", tags = {"Master 接口：管理相关"})
@@ -58,4 +59,12 @@ public interface IMasterManageAPI {
             @Valid
             HeartBeatRequest request
     ) throws Exception;
+
+    @PostMapping(value = "/manage/execOutput")
+    @ApiOperation(notes = "接收 Worker 端执行脚本过程中推送的输出", value = "接收 Worker 端执行脚本过程中推送的输出")
+    Result<String> execOutput(
+            @RequestBody
+            @Valid
+            ExecOutputRequest request
+    ) throws Exception;
 }
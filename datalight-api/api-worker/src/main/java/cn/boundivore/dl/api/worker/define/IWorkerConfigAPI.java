@@ -16,7 +16,9 @@
  */
 package cn.boundivore.dl.api.worker.define;
 
+import cn.boundivore.dl.base.request.impl.worker.ConfigFileDigestRequest;
 import cn.boundivore.dl.base.request.impl.worker.ConfigFileRequest;
+import cn.boundivore.dl.base.response.impl.common.AbstractConfigFileVo;
 import cn.boundivore.dl.base.result.Result;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -50,4 +52,11 @@ public interface IWorkerConfigAPI {
             @RequestBody
             ConfigFileRequest request
     );
+
+    @PostMapping(value = "/conf/digest")
+    @ApiOperation(notes = "获取配置文件摘要", value = "获取配置文件摘要")
+    Result<AbstractConfigFileVo.ConfigFileDigestVo> digest(
+            @RequestBody
+            ConfigFileDigestRequest request
+    );
 }
@@ -17,7 +17,9 @@
 package cn.boundivore.dl.api.worker.define;
 
 import cn.boundivore.dl.base.request.impl.common.TestRequest;
+import cn.boundivore.dl.base.request.impl.worker.ExecBatchRequest;
 import cn.boundivore.dl.base.request.impl.worker.ExecRequest;
+import cn.boundivore.dl.base.response.impl.common.AbstractExecVo;
 import cn.boundivore.dl.base.result.Result;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -25,6 +27,8 @@ import org.springframework.cloud.openfeign.FeignClient;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import javax.validation.Valid;
+
 import static cn.boundivore.dl.base.constants.IUrlPrefixConstants.WORKER_URL_PREFIX;
 
 
@@ -33,9 +37,9 @@ import static cn.boundivore.dl.base.constants.IUrlPrefixConstants.WORKER_URL_PRE
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2023/5/13
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 新增批量执行接口，同一节点上连续的多个脚本通过一次调用执行
+ * Modified by: Boundivore
+ * Modification time: 2024/6/26
  * Version: V1.0
  */
 @Api(value = "IWorkerExecAPI", tags = {"Worker 接口：调用相关"})
@@ -53,6 +57,14 @@ public interface IWorkerExecAPI {
             ExecRequest request
     );
 
+    @PostMapping(value = "/execBatch")
+    @ApiOperation(notes = "按顺序批量执行相关指令", value = "按顺序批量执行相关指令")
+    Result<AbstractExecVo.ExecBatchVo> execBatch(
+            @RequestBody
+            @Valid
+            ExecBatchRequest request
+    );
+
     @PostMapping(value = "/test")
     @ApiOperation(notes = "测试", value = "测试")
     Result<String> test(
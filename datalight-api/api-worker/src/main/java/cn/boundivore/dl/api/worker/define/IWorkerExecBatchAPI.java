@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.api.worker.define;
+
+import cn.boundivore.dl.base.request.impl.worker.ExecBatchRequest;
+import cn.boundivore.dl.base.response.impl.common.AbstractExecVo;
+import cn.boundivore.dl.base.result.Result;
+import feign.Request;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+
+
+/**
+ * Description: Master 调用 Worker 批量执行接口的客户端定义，与 IWorkerExecAPI 中的 execBatch 对应同一个接口；
+ * 批次的读取超时随 Step 数量与休眠时间变化，因此由调用方在每次调用时传入 Request.Options，
+ * 不注册为 FeignClient，仅由 RemoteInvokeWorkerService 构建
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/7/4
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+public interface IWorkerExecBatchAPI {
+
+    @PostMapping(value = "/execBatch")
+    Result<AbstractExecVo.ExecBatchVo> execBatch(
+            @RequestBody
+            ExecBatchRequest request,
+            Request.Options options
+    );
+
+}
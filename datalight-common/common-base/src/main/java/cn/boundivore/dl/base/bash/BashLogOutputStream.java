@@ -27,6 +27,7 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.IOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
+import java.util.function.Consumer;
 
 /**
  * Description: BashLogOutputStream
@@ -34,17 +35,20 @@ import java.io.PipedOutputStream;
  * E-mail: boundivore@foxmail.com
  * E-mail: boundivore@foxmail.com
  * Creation time: 2023/5/6
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 限制在内存中保留的输出长度，并支持逐行将输出转交给调用方（如实时推送至 Master）
+ * Modified by: Boundivore
+ * Modification time: 2024/6/25
  * Version: V1.0
  */
 @Slf4j
 @Data
 @EqualsAndHashCode(callSuper = false)
 public class BashLogOutputStream extends LogOutputStream {
-    // 保存输出的日志行
-    private StringBuilder outputLines = new StringBuilder();
+    // 保存输出的日志行，超出容量时仅保留最新的部分
+    private final BoundedOutputBuffer outputLines;
+
+    // 逐行接收输出，可为空
+    private final Consumer<String> lineConsumer;
 
     // 管道输入流
     private PipedInputStream pipedInputStream;
@@ -62,6 +66,22 @@ public class BashLogOutputStream extends LogOutputStream {
      * @throws IOException 如果创建管道输入/输出流时发生 I/O 异常
      */
     public BashLogOutputStream(String... interactArgs) throws IOException {
+        this(BoundedOutputBuffer.DEFAULT_MAX_CHARS, null, interactArgs);
+    }
+
+    /**
+     * 构造方法
+     *
+     * @param maxRetainedChars 内存中最多保留的输出字符数
+     * @param lineConsumer     逐行接收输出，可为空
+     * @param interactArgs     交互参数
+     * @throws IOException 如果创建管道输入/输出流时发生 I/O 异常
+     */
+    public BashLogOutputStream(int maxRetainedChars,
+                               Consumer<String> lineConsumer,
+                               String... interactArgs) throws IOException {
+        this.outputLines = new BoundedOutputBuffer(maxRetainedChars);
+        this.lineConsumer = lineConsumer;
         if (ArrayUtil.isNotEmpty(interactArgs)) {
             this.interactArgs = interactArgs;
             this.pipedInputStream = new PipedInputStream();  // 创建管道输入流
@@ -71,8 +91,18 @@ public class BashLogOutputStream extends LogOutputStream {
 
     @Override
     protected void processLine(String line, int logLevel) {
-        // 将日志行添加到输出行中
-        this.outputLines.append(line);
+        // 标准输出与错误输出可能由不同线程写入
+        synchronized (this.outputLines) {
+            // 将日志行添加到输出行中
+            this.outputLines.append(line);
+        }
+        if (this.lineConsumer != null) {
+            try {
+                this.lineConsumer.accept(line);
+            } catch (Exception e) {
+                log.error("转交输出时发生异常", e);
+            }
+        }
         if (log.isDebugEnabled()) {
             // 输出日志行到调试日志
             log.debug(line);
@@ -120,6 +150,24 @@ public class BashLogOutputStream extends LogOutputStream {
         }
     }
 
+    /**
+     * Description: 获取内存中保留的输出
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @return String 保留的输出，若曾丢弃输出，则在开头注明丢弃的字符数
+     */
+    public String getOutput() {
+        synchronized (this.outputLines) {
+            return this.outputLines.toString();
+        }
+    }
+
     @Override
     public void flush() {
         super.flush();
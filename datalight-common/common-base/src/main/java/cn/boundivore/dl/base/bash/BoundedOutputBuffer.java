@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.base.bash;
+
+/**
+ * Description: 容量有限的输出缓冲区，超出容量时丢弃最早的输出，仅保留最新的部分，
+ * 用于限制脚本输出在内存中的占用；非线程安全，由调用方保证同步
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/25
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+public class BoundedOutputBuffer {
+
+    // 默认最多保留的字符数
+    public static final int DEFAULT_MAX_CHARS = 1024 * 1024;
+
+    private final int maxChars;
+
+    private final StringBuilder buffer = new StringBuilder();
+
+    // 已丢弃的字符数
+    private long droppedChars;
+
+    public BoundedOutputBuffer() {
+        this(DEFAULT_MAX_CHARS);
+    }
+
+    public BoundedOutputBuffer(int maxChars) {
+        if (maxChars <= 0) throw new IllegalArgumentException("缓冲区容量必须大于 0");
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Description: 追加输出，超出容量时丢弃最早的输出。
+     * 允许暂时超出容量的 1/4 后再批量丢弃，避免每次追加都移动整个缓冲区
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param content 追加的输出
+     * @return BoundedOutputBuffer 当前缓冲区
+     */
+    public BoundedOutputBuffer append(CharSequence content) {
+        if (content == null || content.length() == 0) return this;
+
+        if (content.length() >= this.maxChars) {
+            this.droppedChars += this.buffer.length() + content.length() - this.maxChars;
+            this.buffer.setLength(0);
+            this.buffer.append(content, content.length() - this.maxChars, content.length());
+            return this;
+        }
+
+        this.buffer.append(content);
+        if (this.buffer.length() > this.maxChars + (this.maxChars >> 2)) this.trim();
+        return this;
+    }
+
+    private void trim() {
+        int overflow = this.buffer.length() - this.maxChars;
+        if (overflow <= 0) return;
+
+        this.buffer.delete(0, overflow);
+        this.droppedChars += overflow;
+    }
+
+    public long getDroppedChars() {
+        this.trim();
+        return this.droppedChars;
+    }
+
+    public int length() {
+        this.trim();
+        return this.buffer.length();
+    }
+
+    public boolean isEmpty() {
+        return this.buffer.length() == 0;
+    }
+
+    /**
+     * Description: 获取保留的输出，若曾丢弃输出，则在开头注明丢弃的字符数
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @return String 保留的输出
+     */
+    @Override
+    public String toString() {
+        this.trim();
+        if (this.droppedChars == 0) return this.buffer.toString();
+
+        return String.format(
+                "[... 已省略 %s 个字符 ...]\n%s",
+                this.droppedChars,
+                this.buffer
+        );
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.base.request.impl.master;
+
+import cn.boundivore.dl.base.request.IRequest;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Description: Worker 执行脚本过程中推送给 Master 的一段输出 请求体
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/25
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Accessors(chain = true)
+@Schema(name = "ExecOutputRequest", description = "Worker 执行脚本过程中推送给 Master 的一段输出 请求体")
+public class ExecOutputRequest implements IRequest {
+
+    private static final long serialVersionUID = -3470245731529617214L;
+
+    @Schema(name = "StreamId", title = "输出流标识", required = true)
+    @JsonProperty(value = "StreamId", required = true)
+    @NotNull(message = "输出流标识不能为空")
+    private String streamId;
+
+    @Schema(name = "Seq", title = "分块序号，从 0 开始递增", required = true)
+    @JsonProperty(value = "Seq", required = true)
+    @NotNull(message = "分块序号不能为空")
+    private Long seq;
+
+    @Schema(name = "DroppedChars", title = "推送积压时，在本分块之前被丢弃的字符数", required = true)
+    @JsonProperty(value = "DroppedChars", required = true)
+    private Long droppedChars;
+
+    @Schema(name = "Content", title = "输出内容", required = true)
+    @JsonProperty(value = "Content", required = true)
+    private String content;
+
+}
@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.base.request.impl.worker;
+
+import cn.boundivore.dl.base.request.IRequest;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * Description: 获取配置文件摘要请求体
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/16
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+
+@Data
+@Accessors(chain = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(name = "ConfigFileDigestRequest", description = "ConfigFileDigestRequest: 获取配置文件摘要请求体")
+public class ConfigFileDigestRequest implements IRequest {
+
+    private static final long serialVersionUID = 2914786507426035511L;
+
+    @Schema(name = "PathList", title = "配置文件路径列表", required = true)
+    @JsonProperty("PathList")
+    private List<String> pathList;
+}
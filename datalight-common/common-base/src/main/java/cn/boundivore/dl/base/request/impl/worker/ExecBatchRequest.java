@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.base.request.impl.worker;
+
+import cn.boundivore.dl.base.request.IRequest;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
+import java.util.List;
+
+/**
+ * Description: 在同一节点上按顺序批量执行脚本请求体，任一脚本执行失败时不再执行后续脚本
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/26
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Data
+@Accessors(chain = true)
+@AllArgsConstructor
+@NoArgsConstructor
+@Schema(name = "ExecBatchRequest", description = "ExecBatchRequest: 批量执行脚本请求体")
+public class ExecBatchRequest implements IRequest {
+
+    private static final long serialVersionUID = -6270186519382451207L;
+
+    @Schema(name = "ExecStepList", title = "按顺序执行的脚本列表", required = true)
+    @JsonProperty(value = "ExecStepList", required = true)
+    @NotEmpty(message = "执行列表不能为空")
+    @Valid
+    private List<ExecStep> execStepList;
+
+    @Data
+    @Accessors(chain = true)
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @Schema(name = "ExecBatchRequest.ExecStep", description = "ExecBatchRequest.ExecStep: 批次中的一个脚本")
+    public static class ExecStep implements IRequest {
+
+        private static final long serialVersionUID = 1829334752620385117L;
+
+        @Schema(name = "Exec", title = "执行脚本请求体", required = true)
+        @JsonProperty(value = "Exec", required = true)
+        @NotNull(message = "执行脚本请求体不能为空")
+        private ExecRequest exec;
+
+        @Schema(name = "Sleep", title = "执行结束后的休眠时间，单位：毫秒", required = false)
+        @JsonProperty("Sleep")
+        private Long sleep;
+    }
+}
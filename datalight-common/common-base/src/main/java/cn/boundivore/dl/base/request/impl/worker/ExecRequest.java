@@ -32,9 +32,9 @@ import lombok.experimental.Accessors;
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2023/5/5
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 新增 StreamId，用于执行过程中实时推送输出
+ * Modified by: Boundivore
+ * Modification time: 2024/6/25
  * Version: V1.0
  */
 @Data
@@ -76,6 +76,10 @@ public class ExecRequest implements IRequest {
     @JsonProperty("PrintLog")
     private Boolean printLog;
 
+    @Schema(name = "StreamId", title = "输出流标识，不为空时 Worker 在执行过程中将输出分块推送至 Master", required = false)
+    @JsonProperty("StreamId")
+    private String streamId;
+
 
     public ExecRequest(ExecTypeEnum execTypeEnum,
                        String name,
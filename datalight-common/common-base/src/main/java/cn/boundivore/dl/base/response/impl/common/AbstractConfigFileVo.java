@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.base.response.impl.common;
+
+import cn.boundivore.dl.base.response.IVo;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Description: 节点配置文件相关响应体
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/16
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+public abstract class AbstractConfigFileVo {
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(
+            name = "AbstractConfigFileVo.ConfigFileDigestVo",
+            description = "AbstractConfigFileVo.ConfigFileDigestVo 配置文件摘要响应体"
+    )
+    public final static class ConfigFileDigestVo implements IVo {
+
+        private static final long serialVersionUID = -3361907214880574129L;
+
+        @Schema(name = "PathSha256Map", title = "<配置文件路径, 文件内容 SHA256>，文件不存在或不是文件时不包含该路径", required = true)
+        @JsonProperty(value = "PathSha256Map", required = true)
+        private Map<String, String> pathSha256Map;
+
+    }
+}
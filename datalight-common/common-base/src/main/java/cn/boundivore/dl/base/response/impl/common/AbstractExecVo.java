@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.base.response.impl.common;
+
+import cn.boundivore.dl.base.response.IVo;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Description: 执行脚本相关响应体
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/26
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+public abstract class AbstractExecVo {
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(
+            name = "AbstractExecVo.ExecBatchVo",
+            description = "AbstractExecVo.ExecBatchVo 批量执行脚本响应体"
+    )
+    public final static class ExecBatchVo implements IVo {
+
+        private static final long serialVersionUID = 4528372098713260371L;
+
+        @Schema(name = "ExecResultList", title = "已执行脚本的结果，按执行顺序排列，因失败而未执行的脚本不包含在内", required = true)
+        @JsonProperty(value = "ExecResultList", required = true)
+        private List<ExecResultVo> execResultList;
+
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(
+            name = "AbstractExecVo.ExecResultVo",
+            description = "AbstractExecVo.ExecResultVo 单个脚本执行结果响应体"
+    )
+    public final static class ExecResultVo implements IVo {
+
+        private static final long serialVersionUID = -1093481738196342185L;
+
+        @Schema(name = "Name", title = "名称", required = true)
+        @JsonProperty(value = "Name", required = true)
+        private String name;
+
+        @Schema(name = "IsSuccess", title = "是否执行成功", required = true)
+        @JsonProperty(value = "IsSuccess", required = true)
+        private Boolean isSuccess;
+
+        @Schema(name = "Output", title = "执行成功时为执行输出，失败时为错误信息", required = true)
+        @JsonProperty(value = "Output", required = true)
+        private String output;
+
+        @Schema(name = "Duration", title = "执行耗时（包括执行后的休眠时间），单位：毫秒", required = true)
+        @JsonProperty(value = "Duration", required = true)
+        private Long duration;
+
+    }
+}
@@ -279,6 +279,14 @@ public abstract class AbstractJobVo {
         @JsonProperty(value = "JobLogList", required = true)
         private List<JobLogVo> jobLogList;
 
+        @Schema(name = "NextJobLogId", title = "下一页游标，作为下次请求的 LastJobLogId，本页无日志时与请求的游标相同", required = true)
+        @JsonProperty(value = "NextJobLogId", required = true)
+        private Long nextJobLogId;
+
+        @Schema(name = "HasMore", title = "是否存在下一页", required = true)
+        @JsonProperty(value = "HasMore", required = true)
+        private Boolean hasMore;
+
     }
 
     @Data
@@ -293,6 +301,10 @@ public abstract class AbstractJobVo {
 
         private static final long serialVersionUID = 7470475610362473548L;
 
+        @Schema(name = "JobLogId", title = "作业日志 ID，执行中 Step 的实时输出尚未入库，为空", required = true)
+        @JsonProperty(value = "JobLogId", required = true)
+        private Long jobLogId;
+
         @Schema(name = "JobId", title = "作业 ID", required = true)
         @JsonProperty(value = "JobId", required = true)
         private Long jobId;
@@ -321,5 +333,9 @@ public abstract class AbstractJobVo {
         @JsonProperty(value = "LogErrOut", required = true)
         private String logErrOut;
 
+        @Schema(name = "IsLogTruncated", title = "日志是否被截断，可根据 JobLogId 获取完整日志", required = true)
+        @JsonProperty(value = "IsLogTruncated", required = true)
+        private Boolean isLogTruncated;
+
     }
 }
@@ -19,6 +19,7 @@ package cn.boundivore.dl.boot.bash;
 import cn.boundivore.dl.base.bash.AutoFlushingPumpStreamHandler;
 import cn.boundivore.dl.base.bash.BashLogOutputStream;
 import cn.boundivore.dl.base.bash.BashResult;
+import cn.boundivore.dl.base.bash.BoundedOutputBuffer;
 import cn.boundivore.dl.base.bash.exec.*;
 import cn.hutool.core.exceptions.ExceptionUtil;
 import cn.hutool.core.util.ArrayUtil;
@@ -28,15 +29,16 @@ import org.springframework.stereotype.Component;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.function.Consumer;
 
 /**
  * Description: bash/shell 执行器
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2023/5/6
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 支持逐行转交执行过程中的输出，并限制内存中保留的输出长度
+ * Modified by: Boundivore
+ * Modification time: 2024/6/25
  * Version: V1.0
  */
 @Data
@@ -103,6 +105,42 @@ public class BashExecutor {
                               String[] cmdArgs,
                               String[] interactArgs,
                               boolean printLog) {
+        return this.execute(
+                cmd,
+                expectExitValue,
+                timeout,
+                cmdArgs,
+                interactArgs,
+                printLog,
+                null
+        );
+    }
+
+    /**
+     * Description: 直接执行一个 Bash 命令，并在执行过程中逐行转交输出
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     *
+     * @param cmd             shell 命令
+     * @param expectExitValue 指定正常退出的退出码，默认 0 判定为脚本正常执行完毕的退出
+     * @param timeout         执行超时时间
+     * @param cmdArgs         shell 参数
+     * @param interactArgs    交互参数，规则同上
+     * @param printLog        是否打印日志
+     * @param lineConsumer    逐行接收执行过程中的输出（包括标准输出与错误输出），可为空
+     * @return BashResult 执行结果，其中仅保留最新的 BoundedOutputBuffer.DEFAULT_MAX_CHARS 个字符的输出
+     */
+    public BashResult execute(String cmd,
+                              int expectExitValue,
+                              long timeout,
+                              String[] cmdArgs,
+                              String[] interactArgs,
+                              boolean printLog,
+                              Consumer<String> lineConsumer) {
         if (cmdArgs == null) cmdArgs = new String[0];
 
         CommandLine cmdLine = CommandLine.parse(cmd).addArguments(cmdArgs);
@@ -112,7 +150,8 @@ public class BashExecutor {
                 expectExitValue,
                 timeout,
                 interactArgs,
-                printLog
+                printLog,
+                lineConsumer
         );
     }
 
@@ -152,7 +191,8 @@ public class BashExecutor {
                 expectExitValue,
                 timeout,
                 interactArgs,
-                printLog
+                printLog,
+                null
         );
     }
 
@@ -215,13 +255,15 @@ public class BashExecutor {
      *                        当捕获到 "done." 时，会结束当前 channel，并返回。
      * @param printLog        是否打印日志
      * @param expectExitValue 指定正常退出的退出码，默认 0 判定为脚本正常执行完毕的退出
+     * @param lineConsumer    逐行接收执行过程中的输出，可为空
      * @return BashResult 执行结果
      */
     private BashResult result(CommandLine cmdLine,
                               int expectExitValue,
                               long timeout,
                               String[] interactArgs,
-                              boolean printLog) {
+                              boolean printLog,
+                              Consumer<String> lineConsumer) {
 
         String execLog = String.format(
                 "CommandLine: %s, ExpectExitValue: %s, ExpectTimeout: %s",
@@ -233,7 +275,11 @@ public class BashExecutor {
         DefaultExecutor executor = new DefaultExecutor();
 
         try {
-            BashLogOutputStream logOutputStream = new BashLogOutputStream(interactArgs);
+            BashLogOutputStream logOutputStream = new BashLogOutputStream(
+                    BoundedOutputBuffer.DEFAULT_MAX_CHARS,
+                    lineConsumer,
+                    interactArgs
+            );
 
             if (ArrayUtil.isEmpty(interactArgs)) {
                 executor.setStreamHandler(new AutoFlushingPumpStreamHandler(logOutputStream));
@@ -256,7 +302,7 @@ public class BashExecutor {
             executor.setExitValue(expectExitValue);
 
             int exitValue = executeCommand(executor, cmdLine);
-            String outResult = logOutputStream.getOutputLines().toString();
+            String outResult = logOutputStream.getOutput();
 
             BashResult bashResult = BashResult.builder()
                     .result(outResult)
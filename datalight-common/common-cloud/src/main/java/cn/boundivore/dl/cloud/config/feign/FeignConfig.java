@@ -22,6 +22,7 @@ import feign.codec.Encoder;
 import feign.okhttp.OkHttpClient;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
 import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -56,6 +57,12 @@ import java.util.concurrent.TimeUnit;
 @RequiredArgsConstructor
 public class FeignConfig {
 
+    // 连接池中最大空闲连接数，大致覆盖集群中所有 Worker 节点
+    private static final int MAX_IDLE_CONNECTIONS = 512;
+
+    // 空闲连接保活时长
+    private static final long KEEP_ALIVE_MINUTES = 5L;
+
     @Value("${feign.client.config.default.connectTimeout}")
     private long connectTimeout;
 
@@ -82,7 +89,19 @@ public class FeignConfig {
     @Bean
     @Primary
     public Client feignClient() {
-        return new OkHttpClient();
+        // 所有 Feign 实例共用同一个 OkHttp 连接池，保持到各个 Worker 的长连接，避免重复建立 TCP 连接
+        return new OkHttpClient(
+                new okhttp3.OkHttpClient.Builder()
+                        .connectionPool(
+                                new ConnectionPool(
+                                        MAX_IDLE_CONNECTIONS,
+                                        KEEP_ALIVE_MINUTES,
+                                        TimeUnit.MINUTES
+                                )
+                        )
+                        .retryOnConnectionFailure(true)
+                        .build()
+        );
     }
 
     @Bean
@@ -144,4 +144,117 @@ public interface ConfigNodeMapper extends BaseMapper<ConfigNodeDto> {
             @Param("configPath")
             String configPath
     );
+
+    /**
+     * Description: 返回配置、节点的关联信息以及配置文件内容的 SHA256，不包含配置文件内容。
+     * 同一节点上部署多个组件时，每个配置文件只返回一行，配置文件内容由调用方按 SHA256 读取一次
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/3
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param clusterId   集群 ID
+     * @param serviceName 指定服务
+     * @return ConfigNodeDto JOIN 后的详情，ConfigData 为空
+     */
+    @Select("SELECT\n" +
+            "    t1.hostname,\n" +
+            "    t1.ipv4,\n" +
+            "    t1.ipv6,\n" +
+            "    t1.ssh_port,\n" +
+            "    t1.cpu_arch,\n" +
+            "    t1.cpu_cores,\n" +
+            "    t1.ram,\n" +
+            "    t1.disk,\n" +
+            "    t1.node_state,\n" +
+            "    t1.os_version,\n" +
+            "    t2.id AS config_id,\n" +
+            "    t2.cluster_id AS cluster_id,\n" +
+            "    t2.node_id AS node_id,\n" +
+            "    t2.service_name,\n" +
+            "    t2.filename,\n" +
+            "    t2.config_content_id,\n" +
+            "    t2.config_path,\n" +
+            "    t2.config_version,\n" +
+            "    t4.sha256\n" +
+            "FROM\n" +
+            "    t_dl_node t1\n" +
+            "JOIN t_dl_config t2 ON t1.id = t2.node_id \n" +
+            "JOIN t_dl_config_content t4 ON t2.config_content_id = t4.id \n" +
+            "WHERE\n" +
+            "    t2.cluster_id = #{clusterId}\n" +
+            "    AND t2.service_name = #{serviceName}\n" +
+            "    AND EXISTS (\n" +
+            "        SELECT 1 FROM t_dl_component t6\n" +
+            "        WHERE t6.node_id = t2.node_id AND t6.service_name = t2.service_name\n" +
+            "    );")
+    List<ConfigNodeDto> selectConfigNodeDigestDto(
+            @Param("clusterId")
+            Long clusterId,
+
+            @Param("serviceName")
+            String serviceName
+    );
+
+    /**
+     * Description: 返回指定配置文件与节点的关联信息以及配置文件内容的 SHA256，不包含配置文件内容。
+     * 同一节点上部署多个组件时，每个配置文件只返回一行，配置文件内容由调用方按 SHA256 读取一次
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/3
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param clusterId   集群 ID
+     * @param serviceName 指定服务
+     * @param configPath  配置文件路径
+     * @return ConfigNodeDto JOIN 后的详情，ConfigData 为空
+     */
+    @Select("SELECT\n" +
+            "    t1.hostname,\n" +
+            "    t1.ipv4,\n" +
+            "    t1.ipv6,\n" +
+            "    t1.ssh_port,\n" +
+            "    t1.cpu_arch,\n" +
+            "    t1.cpu_cores,\n" +
+            "    t1.ram,\n" +
+            "    t1.disk,\n" +
+            "    t1.node_state,\n" +
+            "    t1.os_version,\n" +
+            "    t2.id AS config_id,\n" +
+            "    t2.cluster_id AS cluster_id,\n" +
+            "    t2.node_id AS node_id,\n" +
+            "    t2.service_name,\n" +
+            "    t2.filename,\n" +
+            "    t2.config_content_id,\n" +
+            "    t2.config_path,\n" +
+            "    t2.config_version,\n" +
+            "    t4.sha256\n" +
+            "FROM\n" +
+            "    t_dl_node t1\n" +
+            "JOIN t_dl_config t2 ON t1.id = t2.node_id \n" +
+            "JOIN t_dl_config_content t4 ON t2.config_content_id = t4.id \n" +
+            "WHERE\n" +
+            "    t2.cluster_id = #{clusterId}\n" +
+            "    AND t2.service_name = #{serviceName} \n" +
+            "    AND t2.config_path = #{configPath}\n" +
+            "    AND EXISTS (\n" +
+            "        SELECT 1 FROM t_dl_component t6\n" +
+            "        WHERE t6.node_id = t2.node_id AND t6.service_name = t2.service_name\n" +
+            "    );")
+    List<ConfigNodeDto> selectConfigNodeDigestDtoByConfigPath(
+            @Param("clusterId")
+            Long clusterId,
+
+            @Param("serviceName")
+            String serviceName,
+
+            @Param("configPath")
+            String configPath
+    );
 }
@@ -18,6 +18,8 @@ package cn.boundivore.dl.plugin.base.config;
 
 import cn.boundivore.dl.plugin.base.bean.PluginConfig;
 import cn.boundivore.dl.plugin.base.bean.PluginConfigResult;
+import cn.boundivore.dl.plugin.base.config.template.ConfigTemplate;
+import cn.boundivore.dl.plugin.base.config.template.ConfigTemplateCache;
 import cn.hutool.core.codec.Base64;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.lang.Assert;
@@ -241,26 +243,19 @@ public abstract class AbstractConfig implements IConfig {
         // <模板文件路径(templated-file-path), <{{占位符字串}}(placeholder), 执行部署前用户在页面提前设置的预配置内容>>
         final Map<String, Map<String, String>> configPreMap = this.currentMetaService.getConfigPreMap();
 
-        //读取模板内容
-        String replacedTemplate = FileUtil.readUtf8String(templatedFile);
+        //读取预编译的模板，模板文件未发生变化时不再重复读取与解析
+        final ConfigTemplate configTemplate = ConfigTemplateCache.get(templatedFile);
 
         //根据绝对路径获取当前占位符以及用户预配置内容 Map 集合
         final Map<String, String> placeholderValueMap = configPreMap.get(templatedFile.getAbsolutePath());
 
         //当前配置文件没有预配置选项，直接返回
         if (placeholderValueMap == null) {
-            return replacedTemplate;
+            return configTemplate.getContent();
         }
 
-        //使用 .replace() 方法替换 replacedTemplate 字符串中的相应占位符
-        return placeholderValueMap.entrySet()
-                .stream()
-                .reduce(replacedTemplate,
-                        (content, entry) -> content.replace(
-                                entry.getKey(),
-                                entry.getValue()
-                        ),
-                        (a, b) -> b);
+        //单次遍历替换模板中的相应占位符，结果与按 Map 顺序依次调用 .replace() 一致
+        return configTemplate.render(placeholderValueMap);
     }
 
     /**
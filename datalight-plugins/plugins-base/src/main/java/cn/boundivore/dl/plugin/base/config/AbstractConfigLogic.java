@@ -17,6 +17,7 @@
 package cn.boundivore.dl.plugin.base.config;
 
 import cn.boundivore.dl.plugin.base.bean.PluginConfig;
+import cn.boundivore.dl.plugin.base.config.template.PlaceholderReplacer;
 import cn.hutool.core.lang.Assert;
 import lombok.extern.slf4j.Slf4j;
 
@@ -55,6 +56,24 @@ public abstract class AbstractConfigLogic {
 
     public abstract String config(File file, String replacedTemplated);
 
+    /**
+     * Description: 创建占位符替换器，链式调用 .replace() 后通过 .render() 一次性完成替换，
+     * 避免每个占位符都完整复制一次配置文件内容
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/19
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param replacedTemplated 已完成预配置替换的模板内容
+     * @return PlaceholderReplacer 占位符替换器
+     */
+    protected PlaceholderReplacer replacer(String replacedTemplated) {
+        return new PlaceholderReplacer(replacedTemplated);
+    }
+
     /**
      * Description: 打印当前处理的配置文件名称
      * Created by: Boundivore
@@ -0,0 +1,241 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.plugin.base.config.template;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Description: 预编译的配置模板，将模板内容解析为 “字面量 + {{占位符}}” 片段，渲染时单次遍历即可完成所有占位符替换。
+ * 渲染结果与按照相同顺序依次调用 String.replace 的结果完全一致：
+ * 按顺序排在第 i 位的占位符，其替换值中出现的占位符仅会被排在 i 之后的占位符继续替换；
+ * 对于无法保证一致的情况（占位符不是 {{...}} 形式，或替换值与相邻内容拼接出新的占位符），则退化为依次 String.replace
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/19
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+public final class ConfigTemplate {
+
+    private static final String PLACEHOLDER_PREFIX = "{{";
+
+    // 与 String.replace 的匹配方式一致：占位符内部不包含花括号，因此任意一处占位符出现的位置都会被完整解析为一个片段
+    private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\{\\{[^{}]+}}");
+
+    private final String content;
+
+    // literals.length == placeholders.length + 1，渲染时交替拼接
+    private final String[] literals;
+
+    private final String[] placeholders;
+
+    private ConfigTemplate(String content, String[] literals, String[] placeholders) {
+        this.content = content;
+        this.literals = literals;
+        this.placeholders = placeholders;
+    }
+
+    /**
+     * Description: 解析模板内容
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/19
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param content 模板内容
+     * @return ConfigTemplate 预编译的模板
+     */
+    public static ConfigTemplate compile(String content) {
+        final List<String> literalList = new ArrayList<>();
+        final List<String> placeholderList = new ArrayList<>();
+
+        int start = 0;
+        if (content.contains(PLACEHOLDER_PREFIX)) {
+            Matcher matcher = PLACEHOLDER_PATTERN.matcher(content);
+            while (matcher.find()) {
+                literalList.add(content.substring(start, matcher.start()));
+                placeholderList.add(matcher.group());
+                start = matcher.end();
+            }
+        }
+        literalList.add(content.substring(start));
+
+        return new ConfigTemplate(
+                content,
+                literalList.toArray(new String[0]),
+                placeholderList.toArray(new String[0])
+        );
+    }
+
+    /**
+     * Description: 判断字符串是否为单个 {{...}} 形式的占位符
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/19
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param placeholder 占位符
+     * @return boolean 是否为 {{...}} 形式的占位符
+     */
+    public static boolean isPlaceholder(String placeholder) {
+        return PLACEHOLDER_PATTERN.matcher(placeholder).matches();
+    }
+
+    /**
+     * Description: 依次调用 String.replace 替换所有占位符，作为无法单次渲染时的兜底方式
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/19
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param content      原始内容
+     * @param placeholders 占位符，按替换顺序排列
+     * @param values       替换值，与占位符一一对应
+     * @return String 替换后的内容
+     */
+    public static String replaceInOrder(String content, String[] placeholders, String[] values) {
+        String replaced = content;
+        for (int i = 0; i < placeholders.length; i++) {
+            replaced = replaced.replace(placeholders[i], values[i]);
+        }
+        return replaced;
+    }
+
+    public String getContent() {
+        return this.content;
+    }
+
+    /**
+     * Description: 按照 Map 的遍历顺序替换模板中的占位符，结果与依次调用 String.replace 一致
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/19
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param placeholderValueMap <{{占位符}}, 替换值>，遍历顺序即替换顺序
+     * @return String 渲染后的内容
+     */
+    public String render(Map<String, String> placeholderValueMap) {
+        final String[] placeholders = new String[placeholderValueMap.size()];
+        final String[] values = new String[placeholderValueMap.size()];
+
+        int i = 0;
+        for (Map.Entry<String, String> entry : placeholderValueMap.entrySet()) {
+            placeholders[i] = entry.getKey();
+            values[i] = entry.getValue();
+            i++;
+        }
+
+        return this.render(placeholders, values);
+    }
+
+    /**
+     * Description: 按照数组顺序替换模板中的占位符，结果与依次调用 String.replace 一致
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/19
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: NullPointerException 占位符或替换值为 null，与 String.replace 保持一致
+     *
+     * @param placeholders 占位符，按替换顺序排列
+     * @param values       替换值，与占位符一一对应
+     * @return String 渲染后的内容
+     */
+    public String render(String[] placeholders, String[] values) {
+        // <{{占位符}}, 替换顺序>，同一占位符仅首次出现时生效，其后出现的同名占位符交由兜底校验处理
+        final Map<String, Integer> orderMap = new HashMap<>(placeholders.length * 2);
+        for (int i = 0; i < placeholders.length; i++) {
+            Objects.requireNonNull(values[i]);
+            if (!isPlaceholder(placeholders[i])) {
+                return replaceInOrder(this.content, placeholders, values);
+            }
+            orderMap.putIfAbsent(placeholders[i], i);
+        }
+
+        if (this.placeholders.length == 0 || orderMap.isEmpty()) return this.content;
+
+        final StringBuilder sb = new StringBuilder(this.content.length() + 256);
+        this.renderTo(sb, 0, orderMap, values);
+        final String rendered = sb.toString();
+
+        // 替换后仍残留占位符时，可能是替换值与相邻内容拼接出了新的占位符，此时以依次 String.replace 的结果为准
+        if (rendered.contains(PLACEHOLDER_PREFIX)) {
+            for (String placeholder : placeholders) {
+                if (rendered.contains(placeholder)) {
+                    return replaceInOrder(this.content, placeholders, values);
+                }
+            }
+        }
+
+        return rendered;
+    }
+
+    /**
+     * Description: 单次遍历模板片段进行渲染
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/19
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param sb        输出
+     * @param fromOrder 仅替换顺序不小于该值的占位符
+     * @param orderMap  <{{占位符}}, 替换顺序>
+     * @param values    替换值
+     */
+    private void renderTo(StringBuilder sb, int fromOrder, Map<String, Integer> orderMap, String[] values) {
+        for (int i = 0; i < this.placeholders.length; i++) {
+            sb.append(this.literals[i]);
+
+            final String placeholder = this.placeholders[i];
+            final Integer order = orderMap.get(placeholder);
+            if (order == null || order < fromOrder) {
+                sb.append(placeholder);
+                continue;
+            }
+
+            final String value = values[order];
+            if (value.contains(PLACEHOLDER_PREFIX)) {
+                // 替换值中的占位符，仅会被排在其后的占位符继续替换
+                compile(value).renderTo(sb, order + 1, orderMap, values);
+            } else {
+                sb.append(value);
+            }
+        }
+        sb.append(this.literals[this.literals.length - 1]);
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.plugin.base.config.template;
+
+import cn.hutool.core.io.FileUtil;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Description: 预编译模板缓存，以模板文件绝对路径为 Key，文件修改时间与大小均未变化时复用已解析的模板，
+ * 避免为每个节点生成配置文件时重复读取与解析模板文件
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/19
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+public final class ConfigTemplateCache {
+
+    // <模板文件绝对路径, 预编译模板>
+    private static final Map<String, CachedTemplate> TEMPLATE_MAP = new ConcurrentHashMap<>();
+
+    private ConfigTemplateCache() {
+    }
+
+    /**
+     * Description: 获取模板文件对应的预编译模板，模板文件发生变化时重新读取并解析
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/19
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param templatedFile 模板文件
+     * @return ConfigTemplate 预编译模板
+     */
+    public static ConfigTemplate get(File templatedFile) {
+        final String path = templatedFile.getAbsolutePath();
+        // 先于读取文件获取修改时间，读取期间文件若被修改，下次获取时将因修改时间不一致而重新读取
+        final long lastModified = templatedFile.lastModified();
+        final long length = templatedFile.length();
+
+        CachedTemplate cachedTemplate = TEMPLATE_MAP.get(path);
+        if (cachedTemplate != null && cachedTemplate.isValid(lastModified, length)) {
+            return cachedTemplate.configTemplate;
+        }
+
+        ConfigTemplate configTemplate = ConfigTemplate.compile(FileUtil.readUtf8String(templatedFile));
+        TEMPLATE_MAP.put(path, new CachedTemplate(lastModified, length, configTemplate));
+        return configTemplate;
+    }
+
+    public static void invalidate(File templatedFile) {
+        TEMPLATE_MAP.remove(templatedFile.getAbsolutePath());
+    }
+
+    public static void clear() {
+        TEMPLATE_MAP.clear();
+    }
+
+    private static final class CachedTemplate {
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final ConfigTemplate configTemplate;
+
+        private CachedTemplate(long lastModified, long length, ConfigTemplate configTemplate) {
+            this.lastModified = lastModified;
+            this.length = length;
+            this.configTemplate = configTemplate;
+        }
+
+        private boolean isValid(long lastModified, long length) {
+            return this.lastModified == lastModified && this.length == length;
+        }
+    }
+}
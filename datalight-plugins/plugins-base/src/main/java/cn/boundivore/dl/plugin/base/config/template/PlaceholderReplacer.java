@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.plugin.base.config.template;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Description: 收集链式调用的占位符替换，在 render() 时一次性完成替换，
+ * 结果与按相同顺序链式调用 String.replace 完全一致
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/19
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+public final class PlaceholderReplacer {
+
+    private final String content;
+
+    private final List<String> placeholderList = new ArrayList<>();
+
+    private final List<String> valueList = new ArrayList<>();
+
+    public PlaceholderReplacer(String content) {
+        this.content = Objects.requireNonNull(content);
+    }
+
+    /**
+     * Description: 记录一次占位符替换，与 String.replace 相同，占位符与替换值均不可为 null
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/19
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: NullPointerException 占位符或替换值为 null
+     *
+     * @param placeholder 占位符，如 {{JAVA_HOME}}
+     * @param value       替换值
+     * @return PlaceholderReplacer 当前对象
+     */
+    public PlaceholderReplacer replace(String placeholder, String value) {
+        this.placeholderList.add(Objects.requireNonNull(placeholder));
+        this.valueList.add(Objects.requireNonNull(value));
+        return this;
+    }
+
+    /**
+     * Description: 一次性完成所有占位符替换
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/19
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @return String 替换后的内容
+     */
+    public String render() {
+        if (this.placeholderList.isEmpty()) return this.content;
+
+        return ConfigTemplate.compile(this.content).render(
+                this.placeholderList.toArray(new String[0]),
+                this.valueList.toArray(new String[0])
+        );
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.plugin.base.config.template;
+
+import cn.hutool.core.io.FileUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Description: 校验预编译模板的渲染结果与依次调用 String.replace 完全一致，
+ * 并对比模拟 500 节点生成配置文件时，每次读取模板并依次替换与使用预编译模板单次渲染的耗时
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/19
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class ConfigTemplateTest {
+
+    private static final int NODE_COUNT = 500;
+
+    // 单个模板中的占位符数量，其中前一半为页面预配置，后一半由 ConfigLogic 替换
+    private static final int PLACEHOLDER_COUNT = 60;
+
+    private static File templatedFile;
+
+    @BeforeAll
+    public static void init() {
+        StringBuilder sb = new StringBuilder("<?xml version=\"1.0\"?>\n<configuration>\n");
+        for (int i = 0; i < 10; i++) {
+            for (int p = 0; p < PLACEHOLDER_COUNT; p++) {
+                sb.append("    <property>\n")
+                        .append("        <name>datalight.property.").append(i).append('.').append(p).append("</name>\n")
+                        .append("        <value>{{placeholder-").append(p).append("}}</value>\n")
+                        .append("    </property>\n");
+            }
+        }
+        sb.append("</configuration>\n");
+
+        templatedFile = FileUtil.file(System.getProperty("java.io.tmpdir"), "datalight-template-test", "yarn-site.xml");
+        FileUtil.writeUtf8String(sb.toString(), templatedFile);
+    }
+
+    @AfterAll
+    public static void destroy() {
+        ConfigTemplateCache.clear();
+        FileUtil.del(templatedFile.getParentFile());
+    }
+
+    @Test
+    public void renderEqualsReplaceInOrder() {
+        Random random = new Random(20240619L);
+        String[] fragments = {"a", "b", "{", "}", "{{", "}}", "{{x}}", "{{y}}", "{{z}}", "{{ x }}", "\n", "$1", "\\", ""};
+        String[] placeholders = {"{{x}}", "{{y}}", "{{z}}", "{{ x }}", "x}}", "{{y"};
+
+        for (int round = 0; round < 200_000; round++) {
+            String content = randomString(random, fragments, 12);
+
+            int count = random.nextInt(5);
+            String[] keys = new String[count];
+            String[] values = new String[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = placeholders[random.nextInt(placeholders.length)];
+                values[i] = randomString(random, fragments, 4);
+            }
+
+            String expected = ConfigTemplate.replaceInOrder(content, keys, values);
+
+            Assertions.assertEquals(expected, ConfigTemplate.compile(content).render(keys, values));
+
+            PlaceholderReplacer replacer = new PlaceholderReplacer(content);
+            for (int i = 0; i < count; i++) {
+                replacer.replace(keys[i], values[i]);
+            }
+            Assertions.assertEquals(expected, replacer.render());
+        }
+    }
+
+    @Test
+    public void renderFollowsReplaceOrder() {
+        ConfigTemplate configTemplate = ConfigTemplate.compile("{{a}}-{{b}}-{{c}}");
+
+        // 排在前面的替换值中的占位符会被后续替换，排在后面的替换值中的占位符不会被之前的替换处理
+        Map<String, String> placeholderValueMap = new LinkedHashMap<>();
+        placeholderValueMap.put("{{b}}", "{{c}}{{a}}");
+        placeholderValueMap.put("{{c}}", "C");
+        placeholderValueMap.put("{{a}}", "{{b}}");
+
+        Assertions.assertEquals("{{b}}-C{{b}}-C", configTemplate.render(placeholderValueMap));
+        Assertions.assertThrows(
+                NullPointerException.class,
+                () -> new PlaceholderReplacer("{{a}}").replace("{{a}}", null)
+        );
+    }
+
+    @Test
+    public void cacheReloadsModifiedTemplate() {
+        File file = FileUtil.file(templatedFile.getParentFile(), "hadoop-env.sh");
+        FileUtil.writeUtf8String("export JAVA_HOME={{JAVA_HOME}}", file);
+
+        ConfigTemplate configTemplate = ConfigTemplateCache.get(file);
+        Assertions.assertSame(configTemplate, ConfigTemplateCache.get(file));
+
+        FileUtil.writeUtf8String("export JAVA_HOME={{JAVA_HOME}}\nexport HADOOP_HOME={{HADOOP_HOME}}", file);
+        Assertions.assertTrue(file.setLastModified(file.lastModified() + 1000L));
+
+        ConfigTemplate modified = ConfigTemplateCache.get(file);
+        Assertions.assertNotSame(configTemplate, modified);
+        Assertions.assertEquals(FileUtil.readUtf8String(file), modified.getContent());
+    }
+
+    @Test
+    public void benchmarkReplaceVersusCompiled() {
+        // 预热
+        this.measure("预热", false);
+        this.measure("预热", true);
+
+        long replaceNanos = this.measure("每次读取模板并依次替换", false);
+        long compiledNanos = this.measure("预编译模板单次渲染", true);
+
+        log.info("模拟 {} 节点, 加速比: {}",
+                NODE_COUNT,
+                String.format("%.2f", replaceNanos * 1.0D / compiledNanos)
+        );
+
+        Assertions.assertTrue(compiledNanos < replaceNanos);
+    }
+
+    /**
+     * 模拟 AbstractConfig.configSelf() 为每个节点生成同一配置文件：先替换预配置占位符，再由 ConfigLogic 替换其余占位符
+     *
+     * @return 耗时(纳秒)
+     */
+    private long measure(String name, boolean isCompiled) {
+        Map<String, String> preConfigMap = new LinkedHashMap<>();
+        for (int p = 0; p < PLACEHOLDER_COUNT / 2; p++) {
+            preConfigMap.put("{{placeholder-" + p + "}}", "pre-config-value-" + p);
+        }
+
+        long startNanos = System.nanoTime();
+        long totalLength = 0L;
+
+        for (int node = 0; node < NODE_COUNT; node++) {
+            String replacedTemplate;
+            String configData;
+
+            if (isCompiled) {
+                replacedTemplate = ConfigTemplateCache.get(templatedFile).render(preConfigMap);
+
+                PlaceholderReplacer replacer = new PlaceholderReplacer(replacedTemplate);
+                for (int p = PLACEHOLDER_COUNT / 2; p < PLACEHOLDER_COUNT; p++) {
+                    replacer.replace("{{placeholder-" + p + "}}", "node-" + node + "-value-" + p);
+                }
+                configData = replacer.render();
+            } else {
+                replacedTemplate = FileUtil.readUtf8String(templatedFile);
+                for (Map.Entry<String, String> entry : preConfigMap.entrySet()) {
+                    replacedTemplate = replacedTemplate.replace(entry.getKey(), entry.getValue());
+                }
+
+                configData = replacedTemplate;
+                for (int p = PLACEHOLDER_COUNT / 2; p < PLACEHOLDER_COUNT; p++) {
+                    configData = configData.replace("{{placeholder-" + p + "}}", "node-" + node + "-value-" + p);
+                }
+            }
+
+            Assertions.assertFalse(configData.contains("{{"));
+            Assertions.assertTrue(configData.contains("node-" + node + "-value-" + (PLACEHOLDER_COUNT - 1)));
+            totalLength += configData.length();
+        }
+
+        long costNanos = System.nanoTime() - startNanos;
+
+        log.info("{}: 生成 {} 份配置文件, 共 {} 字符, 耗时: {} ms",
+                name,
+                NODE_COUNT,
+                totalLength,
+                costNanos / 1000_000
+        );
+
+        return costNanos;
+    }
+
+    private static String randomString(Random random, String[] fragments, int maxFragments) {
+        StringBuilder sb = new StringBuilder();
+        int count = random.nextInt(maxFragments + 1);
+        for (int i = 0; i < count; i++) {
+            sb.append(fragments[random.nextInt(fragments.length)]);
+        }
+        return sb.toString();
+    }
+}
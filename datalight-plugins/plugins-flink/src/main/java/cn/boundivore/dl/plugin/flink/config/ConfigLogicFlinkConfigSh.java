@@ -59,7 +59,7 @@ public class ConfigLogicFlinkConfigSh extends AbstractConfigLogic {
         String flinkHome = this.flinkHome();
 
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{DEFAULT_HADOOP_CONF_DIR}}",
                         defaultHadoopConfDir
@@ -84,7 +84,7 @@ public class ConfigLogicFlinkConfigSh extends AbstractConfigLogic {
                         "{{FLINK_HOME}}",
                         flinkHome
                 )
-                ;
+                .render();
     }
 
     /**
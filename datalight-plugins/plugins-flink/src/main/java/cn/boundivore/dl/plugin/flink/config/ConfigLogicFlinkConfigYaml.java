@@ -53,7 +53,7 @@ public class ConfigLogicFlinkConfigYaml extends AbstractConfigLogic {
         String historyServerArchiveFsDir = this.historyServerArchiveFsDir();
 
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{historyserver.web.address}}",
                         historyServerWebAddress
@@ -62,7 +62,7 @@ public class ConfigLogicFlinkConfigYaml extends AbstractConfigLogic {
                         "{{historyserver.archive.fs.dir}}",
                         historyServerArchiveFsDir
                 )
-                ;
+                .render();
     }
 
     /**
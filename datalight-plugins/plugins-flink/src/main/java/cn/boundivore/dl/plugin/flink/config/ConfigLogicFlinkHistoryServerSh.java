@@ -48,7 +48,7 @@ public class ConfigLogicFlinkHistoryServerSh extends AbstractConfigLogic {
         );
 
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{jmxRemotePort_FlinkHistoryServer}}",
                         PortConstants.getRemotePort(
@@ -63,7 +63,7 @@ public class ConfigLogicFlinkHistoryServerSh extends AbstractConfigLogic {
                                 "FlinkHistoryServer"
                         )
                 )
-                ;
+                .render();
     }
 
 }
@@ -48,7 +48,7 @@ public class ConfigLogicHBaseEnvSh extends AbstractConfigLogic {
         String hbaseLogDir = this.hbaseLogDir();
         String hbasePidDir = this.hbasePidDir();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{JAVA_HOME}}",
                         super.javaHomeDir()
@@ -106,7 +106,7 @@ public class ConfigLogicHBaseEnvSh extends AbstractConfigLogic {
                                 "HThriftServer2"
                         )
                 )
-                ;
+                .render();
     }
 
     /**
@@ -56,7 +56,7 @@ public class ConfigLogicHBaseSite extends AbstractConfigLogic {
         String hbaseTmpDir = this.hbaseTmpDir();
 
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{hbase.zookeeper.quorum}}",
                         hbaseZookeeperQuorum
@@ -69,7 +69,7 @@ public class ConfigLogicHBaseSite extends AbstractConfigLogic {
                         "{{hbase.tmp.dir}}",
                         hbaseTmpDir
                 )
-                ;
+                .render();
     }
 
     /**
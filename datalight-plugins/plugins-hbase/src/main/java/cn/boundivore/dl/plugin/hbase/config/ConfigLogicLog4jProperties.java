@@ -46,12 +46,12 @@ public class ConfigLogicLog4jProperties extends AbstractConfigLogic {
 
         String hbaseLogDir = this.hbaseLogDir();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{hbase.log.dir}}",
                         hbaseLogDir
                 )
-                ;
+                .render();
     }
 
     /**
@@ -65,7 +65,7 @@ public class ConfigLogicCoreSite extends AbstractConfigLogic {
         // 获取 {{ipc.client.connect.retry.interval}}
         String ipcClientConnectRetryInterval = this.ipcClientConnectRetryInterval();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{fs.defaultFS}}",
                         fsDefaultFS
@@ -90,7 +90,7 @@ public class ConfigLogicCoreSite extends AbstractConfigLogic {
                         "{{ipc.client.connect.retry.interval}}",
                         ipcClientConnectRetryInterval
                 )
-                ;
+                .render();
     }
 
     /**
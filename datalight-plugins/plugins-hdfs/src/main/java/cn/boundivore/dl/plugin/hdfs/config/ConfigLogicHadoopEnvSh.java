@@ -45,7 +45,7 @@ public class ConfigLogicHadoopEnvSh extends AbstractConfigLogic {
                 file
         );
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 // HDFS_DATANODE_SECURE_USER
                 .replace(
                         "{{HDFS_DATANODE_SECURE_USER}}",
@@ -126,7 +126,7 @@ public class ConfigLogicHadoopEnvSh extends AbstractConfigLogic {
                                 "HttpFS"
                         )
                 )
-                ;
+                .render();
     }
 
 }
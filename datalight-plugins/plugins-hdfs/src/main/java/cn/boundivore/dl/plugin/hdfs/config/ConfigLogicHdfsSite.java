@@ -69,7 +69,7 @@ public class ConfigLogicHdfsSite extends AbstractConfigLogic {
         // 获取 {{dfs.datanode.data.dir}}
         String dfsDataNodeDataDir = this.dfsDataNodeDataDir();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{dfs.nameservices}}",
                         dfsNameservices
@@ -98,7 +98,7 @@ public class ConfigLogicHdfsSite extends AbstractConfigLogic {
                         "{{dfs.datanode.data.dir}}",
                         dfsDataNodeDataDir
                 )
-                ;
+                .render();
     }
 
 
@@ -54,7 +54,7 @@ public class ConfigLogicCatalinaSh extends AbstractConfigLogic {
         // {{CATALINA_OUT}}
         String catalinaOut = this.catalinaOut();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{CATALINA_PID}}",
                         catalinaPid
@@ -79,7 +79,7 @@ public class ConfigLogicCatalinaSh extends AbstractConfigLogic {
                                 "TezUI"
                         )
                 )
-                ;
+                .render();
     }
 
     /**
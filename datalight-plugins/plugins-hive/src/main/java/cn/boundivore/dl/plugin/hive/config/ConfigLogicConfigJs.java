@@ -56,7 +56,7 @@ public class ConfigLogicConfigJs extends AbstractConfigLogic {
         String timeZone = this.timeZone();
 
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{timeline}}",
                         timeline
@@ -69,7 +69,7 @@ public class ConfigLogicConfigJs extends AbstractConfigLogic {
                         "{{timeZone}}",
                         timeZone
                 )
-                ;
+                .render();
     }
 
     /**
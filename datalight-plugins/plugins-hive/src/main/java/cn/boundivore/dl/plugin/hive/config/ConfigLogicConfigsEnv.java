@@ -56,7 +56,7 @@ public class ConfigLogicConfigsEnv extends AbstractConfigLogic {
         String timeZone = this.timeZone();
 
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{timeline}}",
                         timeline
@@ -69,7 +69,7 @@ public class ConfigLogicConfigsEnv extends AbstractConfigLogic {
                         "{{timeZone}}",
                         timeZone
                 )
-                ;
+                .render();
     }
 
     /**
@@ -60,7 +60,7 @@ public class ConfigLogicHiveEnv extends AbstractConfigLogic {
         // {{HIVE_AUX_JARS_PATH}}
         String hiveAuxJarsPath = this.hiveAuxJarsPath();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{HADOOP_HOME}}",
                         hadoopHome
@@ -108,7 +108,7 @@ public class ConfigLogicHiveEnv extends AbstractConfigLogic {
                                 "HiveServer2"
                         )
                 )
-                ;
+                .render();
     }
 
     /**
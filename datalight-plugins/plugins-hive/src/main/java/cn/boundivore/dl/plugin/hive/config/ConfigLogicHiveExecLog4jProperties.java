@@ -47,12 +47,12 @@ public class ConfigLogicHiveExecLog4jProperties extends AbstractConfigLogic {
 
         String propertyHiveLogDir = this.propertyHiveLogDir();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{property.hive.log.dir}}",
                         propertyHiveLogDir
                 )
-                ;
+                .render();
     }
 
     /**
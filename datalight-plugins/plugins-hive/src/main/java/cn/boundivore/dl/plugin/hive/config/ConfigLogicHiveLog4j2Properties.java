@@ -48,12 +48,12 @@ public class ConfigLogicHiveLog4j2Properties extends AbstractConfigLogic {
 
         String propertyHiveLogDir = this.propertyHiveLogDir();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{property.hive.log.dir}}",
                         propertyHiveLogDir
                 )
-                ;
+                .render();
     }
 
     /**
@@ -92,7 +92,7 @@ public class ConfigLogicHiveSite extends AbstractConfigLogic {
         String tezUIHistoryUrlBase = this.tezUIHistoryUrlBase();
 
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{property.hive.log.dir}}",
                         propertyHiveLogDir
@@ -158,7 +158,7 @@ public class ConfigLogicHiveSite extends AbstractConfigLogic {
                         "{{tez.tez-ui.history-url.base}}",
                         tezUIHistoryUrlBase
                 )
-                ;
+                .render();
     }
 
 
@@ -86,11 +86,12 @@ public class ConfigLogicJmxYaml extends AbstractConfigLogic {
         }
 
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{jmxRemotePort}}",
                         jmxRemotePort
-                );
+                )
+                .render();
     }
 
 }
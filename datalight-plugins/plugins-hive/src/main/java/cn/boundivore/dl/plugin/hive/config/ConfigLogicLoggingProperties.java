@@ -48,12 +48,12 @@ public class ConfigLogicLoggingProperties extends AbstractConfigLogic {
         // {{catalina.log.dir}}
         String catalinaLogDir = this.catalinaLogDir();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{catalina.log.dir}}",
                         catalinaLogDir
                 )
-                ;
+                .render();
     }
 
     /**
@@ -49,12 +49,12 @@ public class ConfigLogicServerXml extends AbstractConfigLogic {
         // {{tez.ui.port}}
         String tezUIPort = this.tezUIPort();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{tez.ui.port}}",
                         tezUIPort
                 )
-                ;
+                .render();
     }
 
     /**
@@ -49,12 +49,12 @@ public class ConfigLogicKafkaRunClassSh extends AbstractConfigLogic {
         // {{KAFKA_LOG_DIR}}
         String kafkaLogDir = this.kafkaLogDir();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{KAFKA_LOG_DIR}}",
                         kafkaLogDir
                 )
-                ;
+                .render();
     }
 
     /**
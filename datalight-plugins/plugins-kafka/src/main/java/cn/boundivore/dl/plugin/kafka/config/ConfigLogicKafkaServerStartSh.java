@@ -47,7 +47,7 @@ public class ConfigLogicKafkaServerStartSh extends AbstractConfigLogic {
                 file
         );
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{jmxRemotePort_KafkaBroker}}",
                         PortConstants.getRemotePort(
@@ -62,6 +62,6 @@ public class ConfigLogicKafkaServerStartSh extends AbstractConfigLogic {
                                 "KafkaBroker"
                         )
                 )
-                ;
+                .render();
     }
 }
@@ -61,7 +61,7 @@ public class ConfigLogicServerProperties extends AbstractConfigLogic {
         // {{zookeeper.connect}}
         String zookeeperConnect = this.zookeeperConnect();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{broker.id}}",
                         brokerId
@@ -78,7 +78,7 @@ public class ConfigLogicServerProperties extends AbstractConfigLogic {
                         "{{zookeeper.connect}}",
                         zookeeperConnect
                 )
-                ;
+                .render();
     }
 
     /**
@@ -51,7 +51,7 @@ public class ConfigLogicBinSh extends AbstractConfigLogic {
         // 获取 {{DATA_DIR}}
         String dataDir = super.dataDir();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{SERVICE_DIR}}",
                         serviceDir
@@ -64,7 +64,7 @@ public class ConfigLogicBinSh extends AbstractConfigLogic {
                         "{{LOG_DIR}}",
                         logDir()
                 )
-                ;
+                .render();
     }
 
 }
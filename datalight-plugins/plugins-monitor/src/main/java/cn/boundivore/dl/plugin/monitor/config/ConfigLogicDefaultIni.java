@@ -59,7 +59,7 @@ public class ConfigLogicDefaultIni extends AbstractConfigLogic {
         // 获取 {{LOG_DIR}}
         String logDir = super.logDir();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{default_home_dashboard_path}}",
                         grafanaHomeDashboardFilePath
@@ -76,7 +76,7 @@ public class ConfigLogicDefaultIni extends AbstractConfigLogic {
                         "{{LOG_DIR}}",
                         logDir
                 )
-                ;
+                .render();
     }
 
     /**
@@ -45,7 +45,7 @@ public class ConfigLogicMySQLCnf extends AbstractConfigLogic {
                 file
         );
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{mysql.host}}",
                         super.pluginConfig.getMysqlEnv().getDbHost()
@@ -62,7 +62,7 @@ public class ConfigLogicMySQLCnf extends AbstractConfigLogic {
                         "{{mysql.password}}",
                         super.pluginConfig.getMysqlEnv().getDbPassword()
                 )
-                ;
+                .render();
     }
 
 }
@@ -64,7 +64,7 @@ public class ConfigLogicSparkDefaults extends AbstractConfigLogic {
         // {{spark.yarn.stagingDir}}
         String sparkYarnStagingDir = this.sparkYarnStagingDir();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{spark.yarn.historyServer.address}}",
                         historyServerAddress
@@ -85,7 +85,7 @@ public class ConfigLogicSparkDefaults extends AbstractConfigLogic {
                         "{{spark.yarn.stagingDir}}",
                         sparkYarnStagingDir
                 )
-                ;
+                .render();
     }
 
 
@@ -65,7 +65,7 @@ public class ConfigLogicSparkEnvSh extends AbstractConfigLogic {
         // {{SPARK_LOCAL_DIRS}}
         String sparkLocalDirs = this.sparkLocalDirs();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{SPARK_LOG_DIR}}",
                         sparkLogDir
@@ -100,7 +100,7 @@ public class ConfigLogicSparkEnvSh extends AbstractConfigLogic {
                                 "SparkHistoryServer"
                         )
                 )
-                ;
+                .render();
     }
 
     /**
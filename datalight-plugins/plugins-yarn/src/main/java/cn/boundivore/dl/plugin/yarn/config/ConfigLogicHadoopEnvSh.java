@@ -47,7 +47,7 @@ public class ConfigLogicHadoopEnvSh extends AbstractConfigLogic {
                 file
         );
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 // ResourceManager
                 .replace(
                         "{{jmxRemotePort_ResourceManager}}",
@@ -108,7 +108,7 @@ public class ConfigLogicHadoopEnvSh extends AbstractConfigLogic {
                                 "HistoryServer"
                         )
                 )
-                ;
+                .render();
     }
 
 }
@@ -87,11 +87,12 @@ public class ConfigLogicJmxYaml extends AbstractConfigLogic {
         }
 
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{jmxRemotePort}}",
                         jmxRemotePort
-                );
+                )
+                .render();
     }
 
 }
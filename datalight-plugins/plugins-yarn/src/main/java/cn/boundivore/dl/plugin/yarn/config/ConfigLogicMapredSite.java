@@ -56,7 +56,7 @@ public class ConfigLogicMapredSite extends AbstractConfigLogic {
         String serviceDir = super.serviceDir();
 
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{yarn.app.mapreduce.am.staging-dir}}",
                         appMapReduceAmStagingDir
@@ -69,7 +69,7 @@ public class ConfigLogicMapredSite extends AbstractConfigLogic {
                         "{{SERVICE_DIR}}",
                         serviceDir
                 )
-                ;
+                .render();
     }
 
     /**
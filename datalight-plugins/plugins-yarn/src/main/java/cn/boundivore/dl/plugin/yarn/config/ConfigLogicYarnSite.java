@@ -81,7 +81,7 @@ public class ConfigLogicYarnSite extends AbstractConfigLogic {
         // 获取 {{yarn.nodemanager.local-dirs}}
         String nmLocalDirs = this.nmLocalDirs();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{yarn.resourcemanager.cluster-id}}",
                         rmClusterId
@@ -126,7 +126,7 @@ public class ConfigLogicYarnSite extends AbstractConfigLogic {
                         "{{yarn.nodemanager.local-dirs}}",
                         nmLocalDirs
                 )
-                ;
+                .render();
     }
 
 
@@ -54,7 +54,7 @@ public class ConfigLogicConfigCfg extends AbstractConfigLogic {
         String h2JdbcUrl = this.h2JdbcUrl();
 
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{zkServer}}",
                         zkServer
@@ -63,7 +63,7 @@ public class ConfigLogicConfigCfg extends AbstractConfigLogic {
                         "{{h2.jdbcUrl}}",
                         h2JdbcUrl
                 )
-                ;
+                .render();
     }
 
     /**
@@ -49,12 +49,12 @@ public class ConfigLogicLog4jProperties extends AbstractConfigLogic {
         // {{zkui.log.dir}}
         String zkuiLogDir = this.zkuiLogDir();
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{zkui.log.dir}}",
                         zkuiLogDir
                 )
-                ;
+                .render();
     }
 
     /**
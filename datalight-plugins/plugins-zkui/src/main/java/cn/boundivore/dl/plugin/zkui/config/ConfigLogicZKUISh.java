@@ -47,7 +47,7 @@ public class ConfigLogicZKUISh extends AbstractConfigLogic {
                 file
         );
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{jmxRemotePort_ZKUIServer}}",
                         PortConstants.getRemotePort(
@@ -62,7 +62,7 @@ public class ConfigLogicZKUISh extends AbstractConfigLogic {
                                 "ZKUIServer"
                         )
                 )
-                ;
+                .render();
     }
 
 
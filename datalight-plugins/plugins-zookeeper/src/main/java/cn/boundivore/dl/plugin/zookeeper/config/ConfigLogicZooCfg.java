@@ -71,7 +71,7 @@ public class ConfigLogicZooCfg extends AbstractConfigLogic {
                 );
 
 
-        return replacedTemplated
+        return super.replacer(replacedTemplated)
                 .replace(
                         "{{ZOOKEEPER_SERVERS}}",
                         serversSb.toString()
@@ -88,6 +88,7 @@ public class ConfigLogicZooCfg extends AbstractConfigLogic {
                         "{{exporterPort}}",
                         PortConstants.EXPORTER_PORT_MAP.get("ZOOKEEPER-QuarumPeermain")
 
-                );
+                )
+                .render();
     }
 }
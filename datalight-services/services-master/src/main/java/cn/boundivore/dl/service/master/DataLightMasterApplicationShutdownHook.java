@@ -1,40 +0,0 @@
-/**
- * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
- * <p>
- * This program is free software; you can redistribute it and/or
- * modify it under the terms of the Apache License, Version 2.0
- * as published by the Apache Software Foundation.
- * <p>
- * This program is distributed in the hope that it will be useful,
- * but WITHOUT ANY WARRANTY; without even the implied warranty of
- * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
- * Apache License, Version 2.0 for more details.
- * <p>
- * You should have received a copy of the Apache License, Version 2.0
- * along with this program; if not, you can obtain a copy at
- * http://www.apache.org/licenses/LICENSE-2.0.
- */
-package cn.boundivore.dl.service.master;
-
-import cn.boundivore.dl.service.master.logs.LogTraceCache;
-import org.springframework.beans.factory.DisposableBean;
-import org.springframework.stereotype.Component;
-
-/**
- * Description: SpringBoot 程序退出时，进行收尾工作
- * Created by: Boundivore
- * E-mail: boundivore@foxmail.com
- * Creation time: 2024/6/11
- * Modification description:
- * Modified by:
- * Modification time:
- * Version: V1.0
- */
-@Component
-public class DataLightMasterApplicationShutdownHook implements DisposableBean {
-
-    @Override
-    public void destroy() throws Exception {
-        LogTraceCache.shutdown();
-    }
-}
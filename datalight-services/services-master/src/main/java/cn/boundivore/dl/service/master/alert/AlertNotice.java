@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.alert;
+
+import cn.boundivore.dl.base.enumeration.impl.AlertHandlerTypeEnum;
+import cn.boundivore.dl.base.request.impl.common.AlertWebhookPayloadRequest;
+import cn.boundivore.dl.orm.po.single.TDlAlert;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+/**
+ * Description: 同一告警规则、同一通知渠道、同一通知目标下合并后的一次告警通知
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/20
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Getter
+@ToString
+public class AlertNotice {
+
+    // 通知渠道
+    private final AlertHandlerTypeEnum channel;
+
+    // 通知目标，如接口地址、邮箱地址，日志渠道为 null
+    private final String target;
+
+    // 告警自定义规则数据库实体
+    private final TDlAlert tDlAlert;
+
+    // 本次通知包含的告警，逐条投递的渠道在投递成功后移除对应告警，重试时不会重复投递
+    private final List<AlertWebhookPayloadRequest.Alert> alertList;
+
+    // 本次通知中最早进入管道的告警的进入时间，用于统计投递延迟
+    private volatile long intakeNanos;
+
+    // 已重试次数
+    private volatile int retryCount;
+
+    public AlertNotice(AlertHandlerTypeEnum channel,
+                       String target,
+                       TDlAlert tDlAlert,
+                       List<AlertWebhookPayloadRequest.Alert> alertList) {
+        this.channel = channel;
+        this.target = target;
+        this.tDlAlert = tDlAlert;
+        this.alertList = alertList;
+        this.intakeNanos = System.nanoTime();
+    }
+
+    void setIntakeNanos(long intakeNanos) {
+        this.intakeNanos = intakeNanos;
+    }
+
+    int incrementRetryCount() {
+        return ++this.retryCount;
+    }
+}
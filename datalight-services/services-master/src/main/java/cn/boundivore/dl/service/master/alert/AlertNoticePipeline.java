@@ -0,0 +1,438 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.alert;
+
+import cn.boundivore.dl.base.enumeration.impl.AlertHandlerTypeEnum;
+import cn.boundivore.dl.base.request.impl.common.AlertWebhookPayloadRequest;
+import cn.hutool.core.exceptions.ExceptionUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Description: 异步告警通知管道：Webhook 请求线程仅将告警按指纹去重后放入有界的待分组集合并立即返回；
+ * 分组线程每隔 groupWaitMillis 将积压的告警按告警规则与通知目标合并为通知，交由各渠道的投递线程，
+ * 投递线程按渠道限流投递，失败时按指数退避重试
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/20
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class AlertNoticePipeline implements Closeable {
+
+    @FunctionalInterface
+    public interface Deliverer {
+        /**
+         * 投递一次通知，抛出异常视为投递失败
+         */
+        void deliver(AlertNotice alertNotice) throws Exception;
+    }
+
+    // 投递线程等待新通知的最长时间，用于及时感知管道关闭，单位：毫秒
+    private static final long POLL_TIMEOUT_MILLIS = 200L;
+
+    private final int capacity;
+
+    private final double ratePerSecond;
+
+    private final int deliveryThreads;
+
+    private final int maxRetries;
+
+    private final long retryBackoffMillis;
+
+    private final long dedupeWindowMillis;
+
+    // 将一批告警按告警规则与通知目标合并为通知
+    private final Function<List<AlertWebhookPayloadRequest.Alert>, List<AlertNotice>> router;
+
+    private final Deliverer deliverer;
+
+    // <指纹, 待分组告警>，同一指纹仅保留最新一条
+    private final Map<String, PendingAlert> pendingMap = new ConcurrentHashMap<>();
+
+    // <指纹|状态|开始时间, 最近一次接收时间(毫秒)>，用于过滤 AlertManager 超时后重复发送的同一告警
+    private final Map<String, Long> seenMap = new ConcurrentHashMap<>();
+
+    private final Map<AlertHandlerTypeEnum, ChannelLane> channelLaneMap = new ConcurrentHashMap<>();
+
+    private final LongAdder intakeCount = new LongAdder();
+
+    private final LongAdder dedupeCount = new LongAdder();
+
+    private final LongAdder dropCount = new LongAdder();
+
+    private final ScheduledExecutorService scheduler;
+
+    private volatile boolean isRunning = true;
+
+    /**
+     * Description: 创建告警通知管道并启动分组线程，各渠道的投递线程在该渠道首次出现通知时启动
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/20
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param capacity           待分组告警与每个渠道待投递通知的容量上限
+     * @param groupWaitMillis    分组间隔，同一间隔内到达的告警合并通知，单位：毫秒
+     * @param ratePerSecond      每个渠道每秒最多投递的通知数
+     * @param deliveryThreads    每个渠道的投递线程数
+     * @param maxRetries         投递失败后的最大重试次数
+     * @param retryBackoffMillis 首次重试的等待时间，此后每次翻倍，单位：毫秒
+     * @param dedupeWindowMillis 相同指纹、状态、开始时间的告警在该时间内重复到达时直接忽略，单位：毫秒
+     * @param router             将一批告警合并为通知
+     * @param deliverer          投递通知
+     */
+    public AlertNoticePipeline(int capacity,
+                               long groupWaitMillis,
+                               double ratePerSecond,
+                               int deliveryThreads,
+                               int maxRetries,
+                               long retryBackoffMillis,
+                               long dedupeWindowMillis,
+                               Function<List<AlertWebhookPayloadRequest.Alert>, List<AlertNotice>> router,
+                               Deliverer deliverer) {
+        this.capacity = capacity;
+        this.ratePerSecond = ratePerSecond;
+        this.deliveryThreads = deliveryThreads;
+        this.maxRetries = maxRetries;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.dedupeWindowMillis = dedupeWindowMillis;
+        this.router = router;
+        this.deliverer = deliverer;
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "AlertNoticeDispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleWithFixedDelay(
+                this::dispatch,
+                groupWaitMillis,
+                groupWaitMillis,
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Description: 接收一批告警，不会阻塞：
+     * 相同指纹、状态、开始时间的告警在去重时间窗口内重复到达时直接忽略；
+     * 尚未分组的同一指纹的告警仅保留最新一条；待分组告警已满时丢弃新指纹的告警
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/20
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param alertList 告警列表
+     */
+    public void offer(List<AlertWebhookPayloadRequest.Alert> alertList) {
+        final long nowMillis = System.currentTimeMillis();
+        final long nowNanos = System.nanoTime();
+
+        for (AlertWebhookPayloadRequest.Alert alert : alertList) {
+            this.intakeCount.increment();
+
+            final String fingerprint = alert.getFingerprint() != null ?
+                    alert.getFingerprint() :
+                    String.valueOf(alert.getLabels());
+
+            final String dedupeKey = String.format("%s|%s|%s", fingerprint, alert.getStatus(), alert.getStartsAt());
+            final Long seenMillis = this.seenMap.put(dedupeKey, nowMillis);
+            if (seenMillis != null && nowMillis - seenMillis < this.dedupeWindowMillis) {
+                this.dedupeCount.increment();
+                continue;
+            }
+
+            if (this.pendingMap.size() >= this.capacity && !this.pendingMap.containsKey(fingerprint)) {
+                this.dropCount.increment();
+                this.seenMap.remove(dedupeKey, nowMillis);
+                continue;
+            }
+
+            final PendingAlert pendingAlert = new PendingAlert(alert, nowNanos);
+            final PendingAlert previous = this.pendingMap.put(fingerprint, pendingAlert);
+            if (previous != null) {
+                // 合并后的告警沿用最早的进入时间
+                pendingAlert.intakeNanos = previous.intakeNanos;
+                this.dedupeCount.increment();
+            }
+        }
+    }
+
+    /**
+     * Description: 分组线程：取出全部待分组告警，合并为通知后交由各渠道投递；合并失败时放回，等待下一次分组
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/20
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    private void dispatch() {
+        this.evictSeen();
+
+        if (this.pendingMap.isEmpty()) return;
+
+        // remove 为原子操作，取出后才到达的告警将进入下一次分组
+        final Map<String, PendingAlert> drainMap = new LinkedHashMap<>();
+        for (String fingerprint : this.pendingMap.keySet()) {
+            PendingAlert pendingAlert = this.pendingMap.remove(fingerprint);
+            if (pendingAlert != null) drainMap.put(fingerprint, pendingAlert);
+        }
+
+        if (drainMap.isEmpty()) return;
+
+        // <告警, 进入时间>，按对象标识统计每条通知的投递延迟
+        final Map<AlertWebhookPayloadRequest.Alert, Long> intakeNanosMap = new IdentityHashMap<>();
+        final List<AlertWebhookPayloadRequest.Alert> alertList = new ArrayList<>(drainMap.size());
+        drainMap.values().forEach(i -> {
+            intakeNanosMap.put(i.alert, i.intakeNanos);
+            alertList.add(i.alert);
+        });
+
+        final List<AlertNotice> alertNoticeList;
+        try {
+            alertNoticeList = this.router.apply(alertList);
+        } catch (Exception e) {
+            log.error("合并 {} 条告警失败: {}", drainMap.size(), ExceptionUtil.stacktraceToString(e));
+            drainMap.forEach(this.pendingMap::putIfAbsent);
+            return;
+        }
+
+        alertNoticeList.forEach(alertNotice -> {
+            alertNotice.setIntakeNanos(
+                    alertNotice.getAlertList()
+                            .stream()
+                            .map(intakeNanosMap::get)
+                            .filter(Objects::nonNull)
+                            .min(Long::compare)
+                            .orElse(alertNotice.getIntakeNanos())
+            );
+            this.enqueue(alertNotice);
+        });
+    }
+
+    private void evictSeen() {
+        final long expiredMillis = System.currentTimeMillis() - this.dedupeWindowMillis;
+        this.seenMap.entrySet().removeIf(i -> i.getValue() < expiredMillis);
+    }
+
+    private void enqueue(AlertNotice alertNotice) {
+        ChannelLane channelLane = this.channelLaneMap.computeIfAbsent(
+                alertNotice.getChannel(),
+                ChannelLane::new
+        );
+
+        if (!channelLane.queue.offer(alertNotice)) {
+            log.warn("{} 渠道待投递通知已满，丢弃通知: {}", alertNotice.getChannel(), alertNotice);
+            channelLane.failedCount.increment();
+        }
+    }
+
+    /**
+     * Description: 投递一次通知，失败时按指数退避延迟放回队列，重试次数耗尽后记录为失败
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/20
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param channelLane 通知所属渠道
+     * @param alertNotice 通知
+     */
+    private void deliver(ChannelLane channelLane, AlertNotice alertNotice) {
+        try {
+            this.deliverer.deliver(alertNotice);
+
+            long latencyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - alertNotice.getIntakeNanos());
+            channelLane.deliveredCount.increment();
+            channelLane.latencyTotalMillis.add(latencyMillis);
+            channelLane.latencyMaxMillis.accumulateAndGet(latencyMillis, Math::max);
+        } catch (Exception e) {
+            if (alertNotice.getRetryCount() < this.maxRetries && this.isRunning) {
+                int retryCount = alertNotice.incrementRetryCount();
+                long backoffMillis = this.retryBackoffMillis << Math.min(retryCount - 1, 16);
+                log.warn("投递告警通知失败，{} ms 后进行第 {} 次重试: {}, {}",
+                        backoffMillis,
+                        retryCount,
+                        alertNotice,
+                        e.getMessage()
+                );
+
+                channelLane.retryCount.increment();
+                try {
+                    this.scheduler.schedule(() -> this.enqueue(alertNotice), backoffMillis, TimeUnit.MILLISECONDS);
+                    return;
+                } catch (RejectedExecutionException ignored) {
+                    // 管道已关闭，不再重试
+                }
+            }
+
+            log.error("投递告警通知失败: {}, {}", alertNotice, ExceptionUtil.stacktraceToString(e));
+            channelLane.failedCount.increment();
+        }
+    }
+
+    public AlertPipelineStats getStats() {
+        AlertPipelineStats alertPipelineStats = new AlertPipelineStats()
+                .setIntakeCount(this.intakeCount.sum())
+                .setDedupeCount(this.dedupeCount.sum())
+                .setDropCount(this.dropCount.sum())
+                .setPendingDepth(this.pendingMap.size());
+
+        this.channelLaneMap.forEach((channel, channelLane) ->
+                alertPipelineStats.getChannelStatsMap().put(channel.name(), channelLane.getStats())
+        );
+
+        return alertPipelineStats;
+    }
+
+    /**
+     * Description: 获取指定渠道的统计信息，渠道尚未出现过通知时各项均为 0
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/20
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param channel 通知渠道
+     * @return AlertPipelineStats.ChannelStats 渠道统计信息
+     */
+    public AlertPipelineStats.ChannelStats getChannelStats(AlertHandlerTypeEnum channel) {
+        ChannelLane channelLane = this.channelLaneMap.get(channel);
+        return channelLane == null ? new AlertPipelineStats.ChannelStats() : channelLane.getStats();
+    }
+
+    /**
+     * Description: 停止接收重试，将积压的告警分组后等待各渠道投递完成，最多等待 1 分钟
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/20
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    @Override
+    public void close() {
+        this.isRunning = false;
+        this.scheduler.shutdownNow();
+        this.dispatch();
+
+        final long deadlineMillis = System.currentTimeMillis() + TimeUnit.MINUTES.toMillis(1);
+        for (ChannelLane channelLane : this.channelLaneMap.values()) {
+            for (Thread thread : channelLane.threadList) {
+                try {
+                    thread.join(Math.max(1L, deadlineMillis - System.currentTimeMillis()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt(); // 重设中断状态
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class PendingAlert {
+
+        private final AlertWebhookPayloadRequest.Alert alert;
+
+        private volatile long intakeNanos;
+
+        PendingAlert(AlertWebhookPayloadRequest.Alert alert, long intakeNanos) {
+            this.alert = alert;
+            this.intakeNanos = intakeNanos;
+        }
+    }
+
+    /**
+     * 单个渠道的待投递队列、限流器与投递线程，不同渠道之间互不影响
+     */
+    private class ChannelLane {
+
+        private final BlockingQueue<AlertNotice> queue = new LinkedBlockingQueue<>(capacity);
+
+        private final AlertRateLimiter rateLimiter = new AlertRateLimiter(
+                ratePerSecond,
+                (int) Math.ceil(ratePerSecond)
+        );
+
+        private final List<Thread> threadList = new ArrayList<>();
+
+        private final LongAdder deliveredCount = new LongAdder();
+
+        private final LongAdder failedCount = new LongAdder();
+
+        private final LongAdder retryCount = new LongAdder();
+
+        private final LongAdder latencyTotalMillis = new LongAdder();
+
+        private final AtomicLong latencyMaxMillis = new AtomicLong();
+
+        ChannelLane(AlertHandlerTypeEnum channel) {
+            for (int i = 0; i < deliveryThreads; i++) {
+                Thread thread = new Thread(this::deliverLoop, String.format("AlertNotice-%s-%s", channel, i));
+                thread.setDaemon(true);
+                thread.start();
+                this.threadList.add(thread);
+            }
+        }
+
+        private void deliverLoop() {
+            try {
+                while (isRunning || !this.queue.isEmpty()) {
+                    AlertNotice alertNotice = this.queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (alertNotice == null) continue;
+
+                    this.rateLimiter.acquire();
+                    deliver(this, alertNotice);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // 重设中断状态
+            }
+        }
+
+        private AlertPipelineStats.ChannelStats getStats() {
+            return new AlertPipelineStats.ChannelStats()
+                    .setQueueDepth(this.queue.size())
+                    .setDeliveredCount(this.deliveredCount.sum())
+                    .setFailedCount(this.failedCount.sum())
+                    .setRetryCount(this.retryCount.sum())
+                    .setLatencyTotalMillis(this.latencyTotalMillis.sum())
+                    .setLatencyMaxMillis(this.latencyMaxMillis.get());
+        }
+    }
+}
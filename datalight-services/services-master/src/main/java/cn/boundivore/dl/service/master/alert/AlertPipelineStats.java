@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.alert;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Description: 告警通知管道统计信息快照
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/20
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Data
+@Accessors(chain = true)
+public class AlertPipelineStats {
+
+    // 累计接收的告警数量
+    private long intakeCount;
+
+    // 按指纹去重或合并的告警数量
+    private long dedupeCount;
+
+    // 积压已满时被丢弃的告警数量
+    private long dropCount;
+
+    // 等待分组的告警数量
+    private int pendingDepth;
+
+    // <通知渠道, 渠道统计信息>
+    private Map<String, ChannelStats> channelStatsMap = new LinkedHashMap<>();
+
+    @Data
+    @Accessors(chain = true)
+    public static class ChannelStats {
+
+        // 等待投递的通知数量
+        private int queueDepth;
+
+        // 投递成功的通知数量
+        private long deliveredCount;
+
+        // 重试次数耗尽后仍投递失败的通知数量
+        private long failedCount;
+
+        // 累计重试次数
+        private long retryCount;
+
+        // 从告警进入管道到投递成功的累计延迟，单位：毫秒
+        private long latencyTotalMillis;
+
+        // 从告警进入管道到投递成功的最大延迟，单位：毫秒
+        private long latencyMaxMillis;
+
+        public long getLatencyAvgMillis() {
+            return this.deliveredCount == 0 ? 0L : this.latencyTotalMillis / this.deliveredCount;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.alert;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: 令牌桶限流器，按固定间隔发放许可，空闲时最多积累 burst 个许可用于突发
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/20
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+public class AlertRateLimiter {
+
+    // 相邻两个许可的间隔
+    private final long intervalNanos;
+
+    // 空闲时最多积累的许可对应的时长
+    private final long maxBurstNanos;
+
+    // 下一个许可可用的时间点
+    private long nextFreeNanos;
+
+    /**
+     * Description: 创建限流器
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/20
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param permitsPerSecond 每秒发放的许可数
+     * @param burst            空闲时最多积累的许可数
+     */
+    public AlertRateLimiter(double permitsPerSecond, int burst) {
+        this.intervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.maxBurstNanos = this.intervalNanos * Math.max(0, burst - 1);
+        this.nextFreeNanos = System.nanoTime() - this.maxBurstNanos;
+    }
+
+    /**
+     * Description: 获取一个许可，许可不足时阻塞至下一个许可可用
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/20
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: InterruptedException 等待许可时被中断
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long nowNanos = System.nanoTime();
+            // 空闲期间积累的许可不超过 burst 个
+            long permitNanos = Math.max(this.nextFreeNanos, nowNanos - this.maxBurstNanos);
+            this.nextFreeNanos = permitNanos + this.intervalNanos;
+            waitNanos = permitNanos - nowNanos;
+        }
+
+        if (waitNanos > 0) TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+}
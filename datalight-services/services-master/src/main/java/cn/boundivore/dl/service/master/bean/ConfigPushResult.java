@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.bean;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+/**
+ * Description: 配置文件下发到各节点的结果
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/16
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Data
+@Accessors(chain = true)
+public class ConfigPushResult {
+
+    // 本次下发总耗时，单位：毫秒
+    private Long costMillis;
+
+    // 各节点下发结果
+    private List<NodeOutcome> nodeOutcomeList;
+
+    public boolean isSuccess() {
+        return this.nodeOutcomeList.stream().allMatch(NodeOutcome::getSuccess);
+    }
+
+    // 所有节点实际下发的配置文件数量
+    public int getPushedCount() {
+        return this.nodeOutcomeList.stream().mapToInt(NodeOutcome::getPushedCount).sum();
+    }
+
+    // 所有节点跳过下发的配置文件数量
+    public int getSkippedCount() {
+        return this.nodeOutcomeList.stream().mapToInt(NodeOutcome::getSkippedCount).sum();
+    }
+
+    @Data
+    @Accessors(chain = true)
+    public static class NodeOutcome {
+
+        private Long nodeId;
+
+        private String hostname;
+
+        private String ipv4;
+
+        private Boolean success;
+
+        // 文件摘要与目标不一致，实际下发的配置文件数量
+        private Integer pushedCount;
+
+        // 文件摘要与目标一致，跳过下发的配置文件数量
+        private Integer skippedCount;
+
+        // 该节点下发耗时，单位：毫秒
+        private Long costMillis;
+
+        // 失败原因
+        private String message;
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.boardcast;
+
+import cn.boundivore.dl.plugin.base.bean.PluginConfigEvent;
+import cn.hutool.core.exceptions.ExceptionUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Description: 配置变更事件分发：按 “集群 + 服务” 划分通道，不同服务的事件并发处理，同一服务的事件串行处理；
+ * 由于事件中携带的是该服务当前全部的配置文件，处理期间同一服务再次到达的事件只保留最新的一个，
+ * 较旧的事件被直接覆盖。延迟从被覆盖的最早事件的发布时间开始计算
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/23
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class ConfigEventDispatcher implements Closeable {
+
+    private final Consumer<ConfigEvent> handler;
+
+    private final ExecutorService executor;
+
+    // <ClusterId:ServiceName, Lane>
+    private final Map<String, Lane> laneMap = new ConcurrentHashMap<>();
+
+    private final LongAdder offeredCount = new LongAdder();
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+    private final LongAdder processedCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private final AtomicInteger activeServiceCount = new AtomicInteger();
+
+    private final LongAdder lagTotalMillis = new LongAdder();
+
+    private final AtomicLong lagMaxMillis = new AtomicLong();
+
+    private volatile long lagLastMillis;
+
+    /**
+     * Description: 创建配置变更事件分发器
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/23
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param parallelism 同时处理事件的服务数上限
+     * @param handler     事件处理逻辑
+     */
+    public ConfigEventDispatcher(int parallelism, Consumer<ConfigEvent> handler) {
+        this.handler = handler;
+
+        final AtomicInteger threadNum = new AtomicInteger();
+        // 每个通道同一时刻最多提交一个任务，因此队列长度不超过服务数量
+        this.executor = new ThreadPoolExecutor(
+                parallelism,
+                parallelism,
+                60L,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "ConfigEventDispatcher-" + threadNum.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+    }
+
+    private static class Lane {
+
+        // 等待处理的最新事件，仅在持有 Lane 监视器时访问
+        private ConfigEvent pendingEvent;
+
+        // 等待处理的事件中，最早的事件的发布时间
+        private long pendingSinceNanos;
+
+        // 是否已有线程负责处理该通道
+        private boolean isRunning;
+    }
+
+    /**
+     * Description: 提交配置变更事件，立即返回
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/23
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param configEvent 配置变更事件
+     */
+    public void offer(ConfigEvent configEvent) {
+        final PluginConfigEvent pluginConfigEvent = configEvent.getPluginConfigEvent();
+        final String laneKey = pluginConfigEvent.getClusterId() + ":" + pluginConfigEvent.getServiceName();
+        final Lane lane = this.laneMap.computeIfAbsent(laneKey, k -> new Lane());
+
+        this.offeredCount.increment();
+
+        final boolean isSubmit;
+        synchronized (lane) {
+            if (lane.pendingEvent != null) {
+                this.coalescedCount.increment();
+            } else {
+                lane.pendingSinceNanos = System.nanoTime();
+            }
+            lane.pendingEvent = configEvent;
+
+            isSubmit = !lane.isRunning;
+            lane.isRunning = true;
+        }
+
+        if (isSubmit) {
+            this.activeServiceCount.incrementAndGet();
+            this.executor.execute(() -> this.drain(laneKey, lane));
+        }
+    }
+
+    /**
+     * Description: 依次处理通道中的最新事件，直到通道中没有等待处理的事件
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/23
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param laneKey 通道标识
+     * @param lane    通道
+     */
+    private void drain(String laneKey, Lane lane) {
+        while (true) {
+            final ConfigEvent configEvent;
+            final long sinceNanos;
+            synchronized (lane) {
+                configEvent = lane.pendingEvent;
+                sinceNanos = lane.pendingSinceNanos;
+                lane.pendingEvent = null;
+
+                if (configEvent == null) {
+                    lane.isRunning = false;
+                    this.activeServiceCount.decrementAndGet();
+                    return;
+                }
+            }
+
+            final long lagMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sinceNanos);
+            this.lagLastMillis = lagMillis;
+            this.lagTotalMillis.add(lagMillis);
+            this.lagMaxMillis.accumulateAndGet(lagMillis, Math::max);
+
+            try {
+                this.handler.accept(configEvent);
+            } catch (Exception e) {
+                this.failedCount.increment();
+                log.error("处理配置变更事件失败: {}, {}", laneKey, ExceptionUtil.stacktraceToString(e));
+            } finally {
+                this.processedCount.increment();
+            }
+        }
+    }
+
+    public ConfigEventStats getStats() {
+        return new ConfigEventStats()
+                .setOfferedCount(this.offeredCount.sum())
+                .setCoalescedCount(this.coalescedCount.sum())
+                .setProcessedCount(this.processedCount.sum())
+                .setFailedCount(this.failedCount.sum())
+                .setActiveServiceCount(this.activeServiceCount.get())
+                .setLagTotalMillis(this.lagTotalMillis.sum())
+                .setLagMaxMillis(this.lagMaxMillis.get())
+                .setLagLastMillis(this.lagLastMillis);
+    }
+
+    @Override
+    public void close() {
+        this.executor.shutdownNow();
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.boardcast;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Description: 配置变更事件分发统计信息快照
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/23
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Data
+@Accessors(chain = true)
+public class ConfigEventStats {
+
+    // 累计接收的事件数量
+    private long offeredCount;
+
+    // 被同一服务更新的事件覆盖、无需处理的事件数量
+    private long coalescedCount;
+
+    // 处理完成的事件数量
+    private long processedCount;
+
+    // 处理失败的事件数量
+    private long failedCount;
+
+    // 等待处理或正在处理事件的服务数量
+    private int activeServiceCount;
+
+    // 从事件发布到开始处理的累计延迟，单位：毫秒
+    private long lagTotalMillis;
+
+    // 从事件发布到开始处理的最大延迟，单位：毫秒
+    private long lagMaxMillis;
+
+    // 最近一次处理的事件延迟，单位：毫秒
+    private long lagLastMillis;
+
+    public long getLagAvgMillis() {
+        return this.processedCount == 0 ? 0L : this.lagTotalMillis / this.processedCount;
+    }
+}
@@ -25,7 +25,9 @@ import cn.boundivore.dl.plugin.base.bean.PluginConfigEvent;
 import cn.boundivore.dl.plugin.base.bean.PluginConfigResult;
 import cn.boundivore.dl.plugin.base.bean.PluginConfigSelf;
 import cn.boundivore.dl.plugin.base.config.event.IConfigEventHandler;
+import cn.boundivore.dl.service.master.cache.PluginCache;
 import cn.boundivore.dl.service.master.env.DataLightEnv;
+import cn.boundivore.dl.service.master.gauge.ConfigEventCollector;
 import cn.boundivore.dl.service.master.handler.RemoteInvokePrometheusHandler;
 import cn.boundivore.dl.service.master.resolver.ResolverYamlServiceDetail;
 import cn.boundivore.dl.service.master.resolver.ResolverYamlServiceManifest;
@@ -35,20 +37,23 @@ import cn.boundivore.dl.service.master.service.MasterClusterService;
 import cn.boundivore.dl.service.master.service.MasterConfigService;
 import cn.boundivore.dl.service.master.service.MasterConfigSyncService;
 import cn.boundivore.dl.service.master.service.MasterServiceService;
+import cn.boundivore.dl.service.master.utils.StripedLock;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.lang.Assert;
 import cn.hutool.core.lang.Pair;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.*;
 import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
-import java.net.MalformedURLException;
-import java.net.URL;
-import java.net.URLClassLoader;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -57,9 +62,11 @@ import java.util.stream.Stream;
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2023/6/20
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 不同服务的配置变更事件并发处理，同一服务的事件合并后仅处理最新的一个；
+ * 联动修改同一受影响服务的配置时互斥；缓存受影响服务列表，批量读取受影响的配置文件；
+ * 通过 PluginCache 复用插件类加载器与插件实例
+ * Modified by: Boundivore
+ * Modification time: 2024/6/24
  * Version: V1.0
  */
 @Component
@@ -79,6 +86,21 @@ public class ConfigEventSubscriber {
 
     private final ComponentNodeMapper componentNodeMapper;
 
+    private final PluginCache pluginCache;
+
+    private final Optional<MeterRegistry> meterRegistry;
+
+    @Value("${server.datalight.config.event-parallelism:8}")
+    private int eventParallelism;
+
+    // 不同事件可能联动修改同一服务的配置，读取、修改、保存期间需要互斥，<ClusterId:ServiceName>
+    private final StripedLock relativeServiceLock = new StripedLock(64);
+
+    // <ServiceName, 依赖该服务以及该服务会影响的服务名称列表>，按优先级排序，服务清单在启动时加载，无需每次事件重新计算
+    private final Map<String, List<String>> relativeServiceNameMap = new ConcurrentHashMap<>();
+
+    private ConfigEventDispatcher configEventDispatcher;
+
     @Data
     @AllArgsConstructor
     @NoArgsConstructor
@@ -92,6 +114,45 @@ public class ConfigEventSubscriber {
         private String serviceName;
     }
 
+    @PostConstruct
+    public void init() {
+        this.configEventDispatcher = new ConfigEventDispatcher(
+                this.eventParallelism,
+                this::processTopicEvent
+        );
+
+        this.meterRegistry.ifPresent(registry ->
+                new ConfigEventCollector(this.configEventDispatcher, registry).register()
+        );
+    }
+
+    @PreDestroy
+    public void destroy() {
+        this.configEventDispatcher.close();
+        log.info("配置变更事件分发器已关闭: {}", this.configEventDispatcher.getStats());
+    }
+
+    /**
+     * Description: 接收配置变更事件，交由 ConfigEventDispatcher 按服务分发后立即返回
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2023/8/11
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param event 当前变更的配置文件
+     */
+    @EventListener
+    public void handleTopicEvent(ConfigEvent event) {
+        this.configEventDispatcher.offer(event);
+    }
+
+    public ConfigEventStats getConfigEventStats() {
+        return this.configEventDispatcher.getStats();
+    }
+
 
     /**
      * Description: 以下逻辑要充分考虑几个要素：
@@ -112,9 +173,7 @@ public class ConfigEventSubscriber {
      *
      * @param event 当前变更的配置文件
      */
-    @EventListener
-    @Async("commonExecutor")
-    public synchronized void handleTopicEvent(ConfigEvent event) {
+    private void processTopicEvent(ConfigEvent event) {
 
         final Long currentClusterId = event.getPluginConfigEvent().getClusterId();
 
@@ -123,8 +182,59 @@ public class ConfigEventSubscriber {
 
         log.info("发现服务 {} 中发生文件变动, Thread Id: {}", serviceName, Thread.currentThread().getId());
 
-        // 读取当前服务配置中，依赖当前服务的服务列表，以及该服务可能会影响的服务列表
-        List<RelativeService> relativeServiceList = Stream.concat(
+        // 获取当前集群的类型
+        final ClusterTypeEnum currentClusterTypeEnum = this.masterClusterService.getClusterById(currentClusterId)
+                .getData()
+                .getClusterTypeEnum();
+
+        // 依赖当前服务的服务，以及该服务可能会影响的服务，在当前集群以及关联集群中的部署情况
+        List<RelativeService> relativeServiceList = this.relativeServiceNameMap
+                .computeIfAbsent(serviceName, this::relativeServiceNameList)
+                .stream()
+                .flatMap(i -> this.relativeServiceList(currentClusterId, currentClusterTypeEnum, i).stream())
+                .collect(Collectors.toList());
+
+        // 调用受影响服务插件，联动修改受影响的服务的配置
+        relativeServiceList.forEach(i -> {
+
+                    YamlServiceDetail.Service service = ResolverYamlServiceDetail.SERVICE_MAP.get(i.getServiceName());
+                    String jar = service.getConfigEventHandlerJar();
+                    String clazzName = service.getConfigEventHandlerClazz();
+
+                    this.relativeServiceLock.execute(
+                            Collections.singletonList(i.getClusterId() + ":" + i.getServiceName()),
+                            () -> {
+                                this.invokeJar(
+                                        i.getClusterId(),
+                                        pluginConfigEvent,
+                                        i.getServiceName(),
+                                        jar,
+                                        clazzName
+                                );
+                                return null;
+                            }
+                    );
+
+                }
+        );
+
+    }
+
+    /**
+     * Description: 读取服务清单中，依赖当前服务的服务列表，以及该服务可能会影响的服务列表，按照优先级排序
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/23
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param serviceName 配置文件发生变动的服务
+     * @return 受影响的服务名称列表
+     */
+    private List<String> relativeServiceNameList(String serviceName) {
+        return Stream.concat(
                         // 读取依赖当前服务的服务名称
                         ResolverYamlServiceManifest.MANIFEST_SERVICE_MAP.keySet()
                                 .stream()
@@ -142,27 +252,7 @@ public class ConfigEventSubscriber {
                 .map(ResolverYamlServiceManifest.MANIFEST_SERVICE_MAP::get)
                 .sorted(Comparator.comparing(YamlServiceManifest.Service::getPriority))
                 .map(YamlServiceManifest.Service::getName)
-                .flatMap(i -> this.relativeServiceList(currentClusterId, i).stream())
                 .collect(Collectors.toList());
-
-        // 调用受影响服务插件，联动修改受影响的服务的配置
-        relativeServiceList.forEach(i -> {
-
-                    YamlServiceDetail.Service service = ResolverYamlServiceDetail.SERVICE_MAP.get(i.getServiceName());
-                    String jar = service.getConfigEventHandlerJar();
-                    String clazzName = service.getConfigEventHandlerClazz();
-
-                    this.invokeJar(
-                            i.getClusterId(),
-                            pluginConfigEvent,
-                            i.getServiceName(),
-                            jar,
-                            clazzName
-                    );
-
-                }
-        );
-
     }
 
     /**
@@ -198,75 +288,53 @@ public class ConfigEventSubscriber {
                            String serviceName,
                            String jar,
                            String clazzName) {
-        try {
-            String jarParentPath = String.format(
-                    "file:%s/%s/jars/%s",
-                    DataLightEnv.PLUGINS_DIR_LOCAL,
-                    serviceName,
-                    jar
-            );
-            log.info("Loading jar: {}", jarParentPath);
-
-            URL url = new URL(jarParentPath);
-            try (URLClassLoader ucl = new URLClassLoader(
-                    new URL[]{url},
-                    Thread.currentThread().getContextClassLoader())) {
-
-                Class<?> clazz = ucl.loadClass(clazzName);
-
-                if (IConfigEventHandler.class.isAssignableFrom(clazz)) {
-                    IConfigEventHandler iConfigEventHandler = (IConfigEventHandler) clazz.getDeclaredConstructor().newInstance();
-                    // 传递当前变动的事件
-                    // TODO 反射实例此处可以通过 ThreadLocal 或其他方式缓存，降低开销
-                    iConfigEventHandler.init(pluginConfigEvent);
-
-                    // 读取受影响服务本次涉及修改的配置文件列表
-                    List<String> relativeConfigPathList = iConfigEventHandler.getRelativeConfigPathList(
-                            this.masterConfigService.getConfigPathList(
-                                    relativeClusterId,
-                                    serviceName
-                            )
-                    );
+        final File jarFile = new File(
+                String.format(
+                        "%s/%s/jars/%s",
+                        DataLightEnv.PLUGINS_DIR_LOCAL,
+                        serviceName,
+                        jar
+                )
+        );
 
-                    // 通过插件修改受影响服务的配置文件
-                    PluginConfigResult pluginConfigResult = iConfigEventHandler.configByEvent(
-                            // 封装受影响服务自己的配置文件信息
-                            this.assemblePluginConfigEventSelf(
-                                    relativeClusterId,
-                                    serviceName,
-                                    relativeConfigPathList
-                            )
-                    );
+        // 同一版本的插件 Jar 包只加载一次，插件实例用完后归还复用
+        try (PluginCache.PluginLease<IConfigEventHandler> pluginLease = this.pluginCache.borrow(
+                jarFile,
+                clazzName,
+                IConfigEventHandler.class
+        )) {
+            IConfigEventHandler iConfigEventHandler = pluginLease.get();
+            // 传递当前变动的事件
+            iConfigEventHandler.init(pluginConfigEvent);
+
+            // 读取受影响服务本次涉及修改的配置文件列表
+            List<String> relativeConfigPathList = iConfigEventHandler.getRelativeConfigPathList(
+                    this.masterConfigService.getConfigPathList(
+                            relativeClusterId,
+                            serviceName
+                    )
+            );
 
-                    // 判断如果为有效的配置修改，则发送修改配置请求
-                    if (!pluginConfigResult.getConfigMap().isEmpty()) {
-                        Assert.isTrue(
-                                this.masterConfigSyncService.saveConfigOrUpdateBatch(pluginConfigResult),
-                                () -> new BException("订阅者修改配置失败")
-                        );
-
-                        // 重载 Prometheus 配置
-                        this.reloadIfPrometheus(relativeClusterId, serviceName);
-                    }
-
-                } else {
-                    throw new BException(
-                            String.format(
-                                    "该 class 未实现 %s %s %s 接口",
-                                    "datalight-plugins",
-                                    "plugin-base",
-                                    "cn.boundivore.dl.plugin.base.config.event.IConfigEventHandler"
-                            )
+            // 通过插件修改受影响服务的配置文件
+            PluginConfigResult pluginConfigResult = iConfigEventHandler.configByEvent(
+                    // 封装受影响服务自己的配置文件信息
+                    this.assemblePluginConfigEventSelf(
+                            relativeClusterId,
+                            serviceName,
+                            relativeConfigPathList
+                    )
+            );
 
-                    );
-                }
+            // 判断如果为有效的配置修改，则发送修改配置请求
+            if (!pluginConfigResult.getConfigMap().isEmpty()) {
+                Assert.isTrue(
+                        this.masterConfigSyncService.saveConfigOrUpdateBatch(pluginConfigResult),
+                        () -> new BException("订阅者修改配置失败")
+                );
 
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+                // 重载 Prometheus 配置
+                this.reloadIfPrometheus(relativeClusterId, serviceName);
             }
-
-        } catch (MalformedURLException e) {
-            throw new RuntimeException(e);
         }
     }
 
@@ -280,18 +348,16 @@ public class ConfigEventSubscriber {
      * Modification time:
      * Throws:
      *
-     * @param currentClusterId    当前配置发生变动的集群
-     * @param relativeServiceName 关联的服务
+     * @param currentClusterId       当前配置发生变动的集群
+     * @param currentClusterTypeEnum 当前配置发生变动的集群的类型
+     * @param relativeServiceName    关联的服务
      * @return 受影响的服务以及所在的集群
      */
-    private List<RelativeService> relativeServiceList(Long currentClusterId, String relativeServiceName) {
+    private List<RelativeService> relativeServiceList(Long currentClusterId,
+                                                      ClusterTypeEnum currentClusterTypeEnum,
+                                                      String relativeServiceName) {
         List<RelativeService> relativeServiceList = new ArrayList<>();
 
-        // 获取当前集群的类型
-        final ClusterTypeEnum currentClusterTypeEnum = this.masterClusterService.getClusterById(currentClusterId)
-                .getData()
-                .getClusterTypeEnum();
-
         // 当前集群为 COMPUTE 或 MIXED 集群时，为当前集群自己添加受影响的服务列表
         // 获取当前集群中指定服务状态
         SCStateEnum serviceStateInCurrentCluster = this.masterServiceService.getServiceState(
@@ -358,17 +424,15 @@ public class ConfigEventSubscriber {
                                                            String serviceName,
                                                            List<String> configRelativePath) {
 
-        // 组装配置文件分布情况
-        List<PluginConfigSelf.ConfigSelfData> configSelfDataList = configRelativePath.stream()
-                .flatMap(i -> this.masterConfigService.getConfigListByGroup(
-                                        clusterId,
-                                        serviceName,
-                                        i
-                                )
-                                .getData()
-                                .getConfigGroupList()
-                                .stream()
+        // 组装配置文件分布情况，一次性读取全部受影响的配置文件
+        List<PluginConfigSelf.ConfigSelfData> configSelfDataList = this.masterConfigService.getConfigListByGroup(
+                        clusterId,
+                        serviceName,
+                        configRelativePath
                 )
+                .getData()
+                .getConfigGroupList()
+                .stream()
                 .map(i -> {
                             List<PluginConfigSelf.ConfigSelfNode> configSelfNodeList = i.getConfigNodeList()
                                     .stream()
@@ -18,25 +18,31 @@ package cn.boundivore.dl.service.master.cache;
 
 import cn.boundivore.dl.base.constants.Constants;
 import cn.boundivore.dl.orm.po.single.TDlNode;
-import lombok.*;
-import lombok.experimental.Accessors;
+import cn.hutool.core.exceptions.ExceptionUtil;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
  * Description: Worker 心跳包缓存
+ * 每个节点的心跳状态仅在首次收到心跳时创建，此后收到心跳时原地更新时间戳；
+ * 心跳超时由 HeartBeatTimeoutWheel 按截止时间检测，无需周期性遍历全部节点
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2023/8/2
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 心跳状态原地更新，使用时间轮检测心跳超时
+ * Modified by: Boundivore
+ * Modification time: 2024/6/21
  * Version: V1.0
  */
 @Component
@@ -44,29 +50,146 @@ import java.util.stream.Collectors;
 @Slf4j
 public class HeartBeatCache {
 
+    // 时间轮刻度，心跳超时后最迟在该时间内被标记，单位：毫秒
+    private static final long TICK_MILLIS = 1000L;
 
     //<Ip, WorkerHeartBeat>
     @Getter
     private ConcurrentHashMap<String, WorkerHeartBeat> heartBeatMap;
 
+    //<Ip, WorkerHeartBeat> 已被标记为超时的节点
+    private final Map<String, WorkerHeartBeat> timeoutHeartBeatMap = new ConcurrentHashMap<>();
+
+    private HeartBeatTimeoutWheel heartBeatTimeoutWheel;
+
+    // 节点被标记为超时后的回调，在时间轮线程中执行
+    private volatile Consumer<List<WorkerHeartBeat>> timeoutListener;
+
     @PostConstruct
     public void init() {
         this.heartBeatMap = new ConcurrentHashMap<>();
+
+        this.heartBeatTimeoutWheel = new HeartBeatTimeoutWheel(
+                Constants.HEART_BEAT_TIMEOUT,
+                TICK_MILLIS,
+                System.currentTimeMillis(),
+                this::onTimeout
+        );
+        this.heartBeatTimeoutWheel.start();
+    }
+
+    @PreDestroy
+    public void destroy() {
+        this.heartBeatTimeoutWheel.close();
     }
 
-    @Data
-    @AllArgsConstructor
-    @NoArgsConstructor
-    @Accessors(chain = true)
     public static class WorkerHeartBeat {
 
-        private String ip;
+        enum MarkResult {
+            // 已标记为超时
+            TIMEOUT,
+            // 标记期间收到心跳，需要继续监听
+            ALIVE,
+            // 已移除，或心跳线程已重新注册，无需处理
+            NONE
+        }
+
+        private static final int WATCHING = 0;
+
+        private static final int TIMEOUT = 1;
+
+        private static final int REMOVED = 2;
+
+        @Getter
+        private final String ip;
 
-        private long lastHeartBeatTs = 0L;
+        @Getter
+        private volatile long lastHeartBeatTs;
+
+        private final AtomicInteger state = new AtomicInteger(WATCHING);
+
+        public WorkerHeartBeat(String ip, long lastHeartBeatTs) {
+            this.ip = ip;
+            this.lastHeartBeatTs = lastHeartBeatTs;
+        }
 
         public boolean isTimeout() {
             return System.currentTimeMillis() - lastHeartBeatTs > Constants.HEART_BEAT_TIMEOUT;
         }
+
+        public boolean isTimeoutMarked() {
+            return this.state.get() == TIMEOUT;
+        }
+
+        boolean isRemoved() {
+            return this.state.get() == REMOVED;
+        }
+
+        void remove() {
+            this.state.set(REMOVED);
+        }
+
+        /**
+         * 原地更新心跳时间戳，返回 true 表示该节点此前已被标记为超时，需要重新注册到时间轮
+         */
+        boolean beat(long nowMillis) {
+            this.lastHeartBeatTs = nowMillis;
+            return this.state.get() == TIMEOUT && this.state.compareAndSet(TIMEOUT, WATCHING);
+        }
+
+        /**
+         * 由时间轮线程标记超时。先标记、再复查时间戳，与 beat() 先写时间戳、再读状态的顺序相反，
+         * 因此并发收到心跳时，时间轮线程与心跳线程中恰好有一方负责继续监听
+         */
+        MarkResult markTimeout(long nowMillis, long timeoutMillis) {
+            if (!this.state.compareAndSet(WATCHING, TIMEOUT)) return MarkResult.NONE;
+
+            if (this.lastHeartBeatTs + timeoutMillis > nowMillis) {
+                return this.state.compareAndSet(TIMEOUT, WATCHING) ? MarkResult.ALIVE : MarkResult.NONE;
+            }
+
+            return MarkResult.TIMEOUT;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("WorkerHeartBeat(ip=%s, lastHeartBeatTs=%s)", this.ip, this.lastHeartBeatTs);
+        }
+    }
+
+    /**
+     * Description: 设置节点被标记为超时后的回调
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/21
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param timeoutListener 回调，参数为本次新超时的节点心跳状态
+     */
+    public void setTimeoutListener(Consumer<List<WorkerHeartBeat>> timeoutListener) {
+        this.timeoutListener = timeoutListener;
+    }
+
+    private void onTimeout(List<WorkerHeartBeat> timeoutList) {
+        timeoutList.forEach(i -> this.timeoutHeartBeatMap.put(i.getIp(), i));
+
+        log.warn("心跳超时的 Worker: {}",
+                timeoutList.stream()
+                        .map(WorkerHeartBeat::getIp)
+                        .collect(Collectors.toList())
+        );
+
+        Consumer<List<WorkerHeartBeat>> listener = this.timeoutListener;
+        if (listener == null) return;
+
+        try {
+            listener.accept(timeoutList);
+        } catch (Exception e) {
+            log.error(ExceptionUtil.stacktraceToString(e));
+        }
     }
 
     /**
@@ -98,11 +221,15 @@ public class HeartBeatCache {
      * @param ip IP 地址
      */
     public void removeHeartBeat(String ip) {
-        this.heartBeatMap.remove(ip);
+        WorkerHeartBeat workerHeartBeat = this.heartBeatMap.remove(ip);
+        if (workerHeartBeat != null) {
+            workerHeartBeat.remove();
+            this.timeoutHeartBeatMap.remove(ip, workerHeartBeat);
+        }
     }
 
     /**
-     * Description: 更新心跳包
+     * Description: 更新心跳包，节点的心跳状态仅在首次收到心跳时创建并注册到时间轮，此后原地更新时间戳
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2023/8/2
@@ -114,34 +241,39 @@ public class HeartBeatCache {
      * @param ip Worker 节点 IP
      */
     public void updateHeartBeat(String ip) {
+        this.updateHeartBeat(ip, System.currentTimeMillis());
+    }
 
+    void updateHeartBeat(String ip, long currentTs) {
+        WorkerHeartBeat workerHeartBeat = this.heartBeatMap.get(ip);
 
-        WorkerHeartBeat newWorkerBeat = this.heartBeatMap
-                .getOrDefault(
-                        ip,
-                        new WorkerHeartBeat()
-                );
-
-        long currentTs = System.currentTimeMillis();
-        long lastTs = newWorkerBeat.getLastHeartBeatTs();
-        long deltaTs = lastTs == 0L ? lastTs : currentTs - lastTs;
-
-        newWorkerBeat.setIp(ip);
-        newWorkerBeat.setLastHeartBeatTs(currentTs);
+        if (workerHeartBeat == null) {
+            WorkerHeartBeat newWorkerHeartBeat = new WorkerHeartBeat(ip, currentTs);
+            workerHeartBeat = this.heartBeatMap.putIfAbsent(ip, newWorkerHeartBeat);
+            if (workerHeartBeat == null) {
+                this.heartBeatTimeoutWheel.register(newWorkerHeartBeat);
 
+                if (log.isDebugEnabled()) {
+                    log.debug("接收并更新心跳包, 来自 ({}), 首次心跳", ip);
+                }
+                return;
+            }
+        }
 
         if (log.isDebugEnabled()) {
-            log.debug("接收并更新心跳包, 来自 ({}), 距上次 {} ms", ip, deltaTs);
+            log.debug("接收并更新心跳包, 来自 ({}), 距上次 {} ms", ip, currentTs - workerHeartBeat.getLastHeartBeatTs());
         }
 
-        log.info("接收并更新心跳包, 来自 ({}), 距上次 {} ms", ip, deltaTs);
-
-        this.heartBeatMap.put(ip, newWorkerBeat);
-
+        if (workerHeartBeat.beat(currentTs)) {
+            // 超时后恢复心跳，重新监听
+            this.timeoutHeartBeatMap.remove(ip, workerHeartBeat);
+            this.heartBeatTimeoutWheel.register(workerHeartBeat);
+            log.info("Worker 恢复心跳: {}", ip);
+        }
     }
 
     /**
-     * Description: 获取心跳包过期的 Worker 列表
+     * Description: 获取心跳包过期的 Worker 列表，即已被时间轮标记为超时、且此后未恢复心跳的 Worker
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2023/8/2
@@ -153,10 +285,10 @@ public class HeartBeatCache {
      * @return List<WorkerHeartBeat>
      */
     public List<WorkerHeartBeat> getTimeoutWorkerHeartBeatList() {
-        return this.heartBeatMap
+        return this.timeoutHeartBeatMap
                 .values()
                 .stream()
-                .filter(WorkerHeartBeat::isTimeout)
+                .filter(WorkerHeartBeat::isTimeoutMarked)
                 .collect(Collectors.toList());
     }
 
@@ -182,7 +314,7 @@ public class HeartBeatCache {
 
         if (!invalidHearBeatIpList.isEmpty()) {
             log.info("清理过期心跳包: {}", invalidHearBeatIpList);
-            invalidHearBeatIpList.forEach(ip -> this.heartBeatMap.remove(ip));
+            invalidHearBeatIpList.forEach(this::removeHeartBeat);
         }
 
     }
@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.cache;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Description: 心跳超时时间轮：每个心跳状态按其截止时间放入对应的槽位，每个刻度仅检查到期槽位中的心跳状态。
+ * 收到心跳时只更新心跳状态中的时间戳，不移动槽位；到期检查时若截止时间已被推后，则放入新截止时间对应的槽位，
+ * 因此每个存活节点在每个超时周期内仅被检查一次，节点失联后最迟在 “超时时间 + 一个刻度” 内被标记为超时，与集群规模无关。
+ * 槽位仅由时间轮线程访问，无需加锁
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/21
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class HeartBeatTimeoutWheel implements Closeable {
+
+    private final long timeoutMillis;
+
+    private final long tickMillis;
+
+    // 槽位覆盖的时间跨度大于超时时间，截止时间总是落在一圈之内，无需记录圈数
+    private final List<HeartBeatCache.WorkerHeartBeat>[] slots;
+
+    // 新注册的心跳状态，由时间轮线程在下一个刻度放入槽位
+    private final Queue<HeartBeatCache.WorkerHeartBeat> registerQueue = new ConcurrentLinkedQueue<>();
+
+    private final Consumer<List<HeartBeatCache.WorkerHeartBeat>> timeoutListener;
+
+    // 到期槽位的心跳状态被取出后，与该列表交换，避免每个刻度分配新的列表
+    private List<HeartBeatCache.WorkerHeartBeat> spareSlot = new ArrayList<>();
+
+    // 已处理到的刻度，刻度 = 时间戳 / tickMillis
+    private long currentTick;
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Description: 创建时间轮，调用 start() 后开始按刻度推进
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/21
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param timeoutMillis   心跳超时时间，单位：毫秒
+     * @param tickMillis      刻度间隔，单位：毫秒
+     * @param nowMillis       当前时间戳
+     * @param timeoutListener 每个刻度内新超时的心跳状态，在时间轮线程中回调
+     */
+    @SuppressWarnings("unchecked")
+    public HeartBeatTimeoutWheel(long timeoutMillis,
+                                 long tickMillis,
+                                 long nowMillis,
+                                 Consumer<List<HeartBeatCache.WorkerHeartBeat>> timeoutListener) {
+        this.timeoutMillis = timeoutMillis;
+        this.tickMillis = tickMillis;
+        this.timeoutListener = timeoutListener;
+        this.currentTick = nowMillis / tickMillis;
+
+        int slotCount = (int) (timeoutMillis / tickMillis) + 2;
+        this.slots = new List[slotCount];
+        for (int i = 0; i < slotCount; i++) {
+            this.slots[i] = new ArrayList<>();
+        }
+    }
+
+    public void start() {
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "HeartBeatTimeoutWheel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.scheduler.scheduleAtFixedRate(
+                () -> {
+                    try {
+                        this.advance(System.currentTimeMillis());
+                    } catch (Exception e) {
+                        log.error(ExceptionUtil.stacktraceToString(e));
+                    }
+                },
+                this.tickMillis,
+                this.tickMillis,
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    /**
+     * Description: 注册心跳状态，可由任意线程调用
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/21
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param workerHeartBeat 心跳状态
+     */
+    public void register(HeartBeatCache.WorkerHeartBeat workerHeartBeat) {
+        this.registerQueue.offer(workerHeartBeat);
+    }
+
+    /**
+     * Description: 推进时间轮至指定时间，检查所有经过的槽位，仅由时间轮线程调用
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/21
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param nowMillis 当前时间戳
+     * @return int 本次检查的心跳状态数量
+     */
+    int advance(long nowMillis) {
+        HeartBeatCache.WorkerHeartBeat registered;
+        while ((registered = this.registerQueue.poll()) != null) {
+            this.schedule(registered);
+        }
+
+        final long targetTick = nowMillis / this.tickMillis;
+        // 落后超过一圈时，每个槽位只需检查一次
+        if (targetTick - this.currentTick > this.slots.length) {
+            this.currentTick = targetTick - this.slots.length;
+        }
+
+        int checkCount = 0;
+        List<HeartBeatCache.WorkerHeartBeat> timeoutList = null;
+
+        while (this.currentTick < targetTick) {
+            this.currentTick++;
+
+            final int index = (int) (this.currentTick % this.slots.length);
+            final List<HeartBeatCache.WorkerHeartBeat> dueSlot = this.slots[index];
+            if (dueSlot.isEmpty()) continue;
+
+            this.slots[index] = this.spareSlot;
+            this.spareSlot = dueSlot;
+
+            for (HeartBeatCache.WorkerHeartBeat workerHeartBeat : dueSlot) {
+                checkCount++;
+                if (workerHeartBeat.isRemoved()) continue;
+
+                if (this.deadline(workerHeartBeat) > nowMillis) {
+                    // 到期前收到过心跳，放入新截止时间对应的槽位
+                    this.schedule(workerHeartBeat);
+                    continue;
+                }
+
+                switch (workerHeartBeat.markTimeout(nowMillis, this.timeoutMillis)) {
+                    case TIMEOUT:
+                        if (timeoutList == null) timeoutList = new ArrayList<>();
+                        timeoutList.add(workerHeartBeat);
+                        break;
+                    case ALIVE:
+                        // 标记超时的同时收到了心跳，继续监听
+                        this.schedule(workerHeartBeat);
+                        break;
+                    default:
+                        // 已移除，或已由心跳线程重新注册
+                        break;
+                }
+            }
+            dueSlot.clear();
+        }
+
+        if (timeoutList != null) this.timeoutListener.accept(timeoutList);
+
+        return checkCount;
+    }
+
+    private long deadline(HeartBeatCache.WorkerHeartBeat workerHeartBeat) {
+        return workerHeartBeat.getLastHeartBeatTs() + this.timeoutMillis;
+    }
+
+    private void schedule(HeartBeatCache.WorkerHeartBeat workerHeartBeat) {
+        // 截止时间向上取整到刻度，保证到期检查时截止时间已过；已过期的放入下一个刻度
+        long deadlineTick = (this.deadline(workerHeartBeat) + this.tickMillis - 1) / this.tickMillis;
+        long tick = Math.max(deadlineTick, this.currentTick + 1);
+        this.slots[(int) (tick % this.slots.length)].add(workerHeartBeat);
+    }
+
+    @Override
+    public void close() {
+        if (this.scheduler != null) this.scheduler.shutdownNow();
+    }
+}
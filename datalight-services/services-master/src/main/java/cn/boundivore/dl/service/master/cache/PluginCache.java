@@ -0,0 +1,314 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.cache;
+
+import cn.boundivore.dl.exception.BException;
+import cn.hutool.core.exceptions.ExceptionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Description: 插件缓存：每个插件 Jar 包的每个版本（以文件修改时间与大小区分）只创建一个类加载器，
+ * 插件实例创建后放回实例池复用。插件实例在 init() 时重置全部状态，但并非线程安全，因此同一时刻只借给一个调用方。
+ * Jar 包发生变化时重新加载，旧版本的类加载器在所有借出的实例归还后关闭
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/24
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Component
+@Slf4j
+public class PluginCache {
+
+    // <Jar 包绝对路径, 当前版本>
+    private final Map<String, PluginJar> pluginJarMap = new ConcurrentHashMap<>();
+
+    /**
+     * Description: 借出插件实例，使用完毕后须关闭 PluginLease 以归还实例
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/24
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: BException Jar 包不存在、类加载失败或未实现指定接口时抛出
+     *
+     * @param jarFile   插件 Jar 包
+     * @param clazzName 插件入口类全类名
+     * @param type      插件需要实现的接口
+     * @return PluginLease<T> 借出的插件实例
+     */
+    public <T> PluginLease<T> borrow(File jarFile, String clazzName, Class<T> type) throws BException {
+        if (!jarFile.isFile()) {
+            throw new BException(String.format("插件 Jar 包不存在: %s", jarFile.getAbsolutePath()));
+        }
+
+        while (true) {
+            final PluginJar pluginJar = this.currentPluginJar(jarFile);
+
+            // 获取后、借出前，该版本可能恰好被替换并关闭，此时重新获取
+            if (!pluginJar.retain()) continue;
+
+            try {
+                final PluginPool pluginPool = pluginJar.pluginPool(clazzName);
+                if (!type.isAssignableFrom(pluginPool.clazz)) {
+                    throw new BException(
+                            String.format(
+                                    "该 class 未实现 %s %s %s 接口",
+                                    "datalight-plugins",
+                                    "plugin-base",
+                                    type.getName()
+                            )
+                    );
+                }
+
+                return new PluginLease<>(pluginJar, pluginPool, type.cast(pluginPool.borrow()));
+            } catch (Exception e) {
+                pluginJar.release();
+                if (e instanceof BException) throw (BException) e;
+                throw new BException(
+                        String.format(
+                                "加载插件失败: %s %s, %s",
+                                jarFile.getAbsolutePath(),
+                                clazzName,
+                                ExceptionUtil.getMessage(e)
+                        )
+                );
+            }
+        }
+    }
+
+    /**
+     * Description: 获取 Jar 包的当前版本，Jar 包发生变化时创建新的类加载器并淘汰旧版本
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/24
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param jarFile 插件 Jar 包
+     * @return PluginJar Jar 包的当前版本
+     */
+    private PluginJar currentPluginJar(File jarFile) {
+        final long lastModified = jarFile.lastModified();
+        final long length = jarFile.length();
+
+        final PluginJar current = this.pluginJarMap.get(jarFile.getAbsolutePath());
+        if (current != null && current.isVersion(lastModified, length)) return current;
+
+        return this.pluginJarMap.compute(jarFile.getAbsolutePath(), (k, old) -> {
+            if (old != null && old.isVersion(lastModified, length)) return old;
+
+            if (old != null) {
+                log.info("插件 Jar 包已变化，重新加载: {}", k);
+                old.retire();
+            } else {
+                log.info("Loading jar: {}", k);
+            }
+
+            return new PluginJar(jarFile, lastModified, length);
+        });
+    }
+
+    /**
+     * Description: 淘汰全部 Jar 包的缓存，下次借出时重新加载
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/24
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    @PreDestroy
+    public void invalidateAll() {
+        this.pluginJarMap.keySet().forEach(k -> {
+            PluginJar pluginJar = this.pluginJarMap.remove(k);
+            if (pluginJar != null) pluginJar.retire();
+        });
+    }
+
+    /**
+     * Description: 借出的插件实例
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/24
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Version: V1.0
+     */
+    public static class PluginLease<T> implements AutoCloseable {
+
+        private final PluginJar pluginJar;
+
+        private final PluginPool pluginPool;
+
+        private final T plugin;
+
+        private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+        private PluginLease(PluginJar pluginJar, PluginPool pluginPool, T plugin) {
+            this.pluginJar = pluginJar;
+            this.pluginPool = pluginPool;
+            this.plugin = plugin;
+        }
+
+        public T get() {
+            return this.plugin;
+        }
+
+        @Override
+        public void close() {
+            if (!this.isClosed.compareAndSet(false, true)) return;
+
+            // 已淘汰的版本不再回收实例
+            if (!this.pluginJar.isRetired()) this.pluginPool.giveBack(this.plugin);
+            this.pluginJar.release();
+        }
+    }
+
+    /**
+     * 某个版本的 Jar 包，持有该版本的类加载器以及各插件类的实例池
+     */
+    private static class PluginJar {
+
+        private final String path;
+
+        private final long lastModified;
+
+        private final long length;
+
+        private final URLClassLoader classLoader;
+
+        // <全类名, 实例池>
+        private final Map<String, PluginPool> pluginPoolMap = new ConcurrentHashMap<>();
+
+        // 借出未归还的实例数量
+        private final AtomicInteger leaseCount = new AtomicInteger();
+
+        private volatile boolean isRetired;
+
+        private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+        PluginJar(File jarFile, long lastModified, long length) {
+            this.path = jarFile.getAbsolutePath();
+            this.lastModified = lastModified;
+            this.length = length;
+
+            try {
+                this.classLoader = new URLClassLoader(
+                        new URL[]{jarFile.toURI().toURL()},
+                        Thread.currentThread().getContextClassLoader()
+                );
+            } catch (IOException e) {
+                throw new BException(String.format("插件 Jar 包路径错误: %s", this.path));
+            }
+        }
+
+        boolean isVersion(long lastModified, long length) {
+            return this.lastModified == lastModified && this.length == length;
+        }
+
+        boolean isRetired() {
+            return this.isRetired;
+        }
+
+        PluginPool pluginPool(String clazzName) {
+            return this.pluginPoolMap.computeIfAbsent(clazzName, k -> {
+                try {
+                    return new PluginPool(this.classLoader.loadClass(k));
+                } catch (ReflectiveOperationException e) {
+                    throw new BException(String.format("加载插件类失败: %s %s", this.path, k));
+                }
+            });
+        }
+
+        boolean retain() {
+            this.leaseCount.incrementAndGet();
+            if (this.isRetired) {
+                this.release();
+                return false;
+            }
+            return true;
+        }
+
+        void release() {
+            if (this.leaseCount.decrementAndGet() == 0 && this.isRetired) this.close();
+        }
+
+        void retire() {
+            this.isRetired = true;
+            if (this.leaseCount.get() == 0) this.close();
+        }
+
+        private void close() {
+            if (!this.isClosed.compareAndSet(false, true)) return;
+
+            this.pluginPoolMap.clear();
+            try {
+                this.classLoader.close();
+            } catch (IOException e) {
+                log.error(ExceptionUtil.stacktraceToString(e));
+            }
+        }
+    }
+
+    /**
+     * 某个插件类的空闲实例池，实例借出时由借用方独占
+     */
+    private static class PluginPool {
+
+        private final Class<?> clazz;
+
+        private final Constructor<?> constructor;
+
+        private final Queue<Object> idleQueue = new ConcurrentLinkedQueue<>();
+
+        PluginPool(Class<?> clazz) throws NoSuchMethodException {
+            this.clazz = clazz;
+            this.constructor = clazz.getDeclaredConstructor();
+        }
+
+        Object borrow() throws ReflectiveOperationException {
+            Object plugin = this.idleQueue.poll();
+            return plugin != null ? plugin : this.constructor.newInstance();
+        }
+
+        void giveBack(Object plugin) {
+            this.idleQueue.offer(plugin);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.cache;
+
+import cn.boundivore.dl.base.bash.BoundedOutputBuffer;
+import cn.boundivore.dl.base.request.impl.master.ExecOutputRequest;
+import cn.boundivore.dl.service.master.manage.service.bean.StepMeta;
+import cn.boundivore.dl.service.master.manage.service.bean.TaskMeta;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Description: 执行中 Step 的实时输出：Worker 执行脚本过程中分块推送输出，Master 按 Step 追加到内存中，
+ * 每个 Step 仅保留最新的 MAX_RETAINED_CHARS 个字符。Step 结束后，完整结果由 JobService.saveLog 写入数据库，此处随即移除
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/25
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Component
+@Slf4j
+public class StepOutputCache {
+
+    // 每个 Step 在内存中最多保留的输出字符数
+    public static final int MAX_RETAINED_CHARS = 256 * 1024;
+
+    // <StreamId, 执行中 Step 的输出>
+    private final Map<String, StepOutput> stepOutputMap = new ConcurrentHashMap<>();
+
+    /**
+     * Description: Step 开始远程执行前登记输出流
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param stepMeta Step 元数据信息
+     * @return String 输出流标识，随执行请求发送给 Worker
+     */
+    public String open(StepMeta stepMeta) {
+        final String streamId = String.valueOf(stepMeta.getId());
+        this.stepOutputMap.put(streamId, new StepOutput(stepMeta));
+        return streamId;
+    }
+
+    /**
+     * Description: 追加 Worker 推送的一段输出，已结束或未登记的输出流将被忽略
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param request Worker 推送的输出
+     * @return boolean 是否已追加
+     */
+    public boolean append(ExecOutputRequest request) {
+        final StepOutput stepOutput = this.stepOutputMap.get(request.getStreamId());
+        if (stepOutput == null) return false;
+
+        return stepOutput.append(
+                request.getSeq(),
+                request.getDroppedChars() == null ? 0L : request.getDroppedChars(),
+                request.getContent()
+        );
+    }
+
+    /**
+     * Description: Step 执行结束后移除输出流
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param streamId 输出流标识
+     */
+    public void close(String streamId) {
+        if (streamId != null) this.stepOutputMap.remove(streamId);
+    }
+
+    /**
+     * Description: 获取某个 Job 下所有执行中 Step 的输出
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param jobId Job ID
+     * @return List<StepOutput> 执行中 Step 的输出
+     */
+    public List<StepOutput> getStepOutputList(Long jobId) {
+        return this.stepOutputMap.values()
+                .stream()
+                .filter(i -> i.getJobId().equals(jobId))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 执行中 Step 的输出
+     */
+    public static class StepOutput {
+
+        @Getter
+        private final Long jobId;
+
+        @Getter
+        private final Long nodeId;
+
+        @Getter
+        private final Long stageId;
+
+        @Getter
+        private final Long taskId;
+
+        @Getter
+        private final Long stepId;
+
+        private final BoundedOutputBuffer outputBuffer = new BoundedOutputBuffer(MAX_RETAINED_CHARS);
+
+        // 期望收到的下一个分块序号
+        private long nextSeq;
+
+        StepOutput(StepMeta stepMeta) {
+            final TaskMeta taskMeta = stepMeta.getTaskMeta();
+
+            this.jobId = taskMeta.getStageMeta().getJobMeta().getId();
+            this.nodeId = taskMeta.getNodeId();
+            this.stageId = taskMeta.getStageMeta().getId();
+            this.taskId = taskMeta.getId();
+            this.stepId = stepMeta.getId();
+        }
+
+        synchronized boolean append(long seq, long droppedChars, String content) {
+            // 重复推送的分块
+            if (seq < this.nextSeq) return false;
+
+            if (droppedChars > 0) {
+                this.outputBuffer.append(String.format("[... Worker 推送积压, 已丢弃 %s 个字符 ...]\n", droppedChars));
+            } else if (seq > this.nextSeq) {
+                this.outputBuffer.append(String.format("[... 缺失 %s 个分块 ...]\n", seq - this.nextSeq));
+            }
+
+            this.outputBuffer.append(content);
+            this.nextSeq = seq + 1;
+            return true;
+        }
+
+        /**
+         * 获取当前已收到的输出
+         */
+        public synchronized String getOutput() {
+            return this.outputBuffer.toString();
+        }
+    }
+}
@@ -17,19 +17,19 @@
 package cn.boundivore.dl.service.master.config;
 
 import cn.boundivore.dl.base.enumeration.impl.StaticRoleTypeEnum;
-import cn.boundivore.dl.service.master.bean.PermissionBean;
 import cn.boundivore.dl.service.master.service.MasterPermissionHandlerService;
 import cn.boundivore.dl.service.master.utils.SaTokenCheckUtil;
+import cn.dev33.satoken.context.SaHolder;
 import cn.dev33.satoken.interceptor.SaInterceptor;
 import cn.dev33.satoken.router.SaRouter;
 import cn.dev33.satoken.stp.StpUtil;
-import cn.hutool.core.collection.CollUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
-import java.util.Map;
+import java.util.Collections;
+import java.util.List;
 
 import static cn.boundivore.dl.base.constants.IUrlPrefixConstants.MASTER_URL_PREFIX;
 
@@ -47,6 +47,8 @@ import static cn.boundivore.dl.base.constants.IUrlPrefixConstants.MASTER_URL_PRE
 @RequiredArgsConstructor
 public class SaTokenConfigure implements WebMvcConfigurer {
 
+    private static final List<String> ADMIN_ROLE_LIST = Collections.singletonList(StaticRoleTypeEnum.ADMIN.name());
+
     private final MasterPermissionHandlerService masterPermissionHandlerService;
 
     /**
@@ -54,9 +56,9 @@ public class SaTokenConfigure implements WebMvcConfigurer {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2024/4/10
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 通过预先构建的路由表查找当前请求路径对应的接口权限，不再逐个匹配所有接口权限
+     * Modified by: Boundivore
+     * Modification time: 2024/6/30
      * Throws:
      *
      * @param registry 映射拦截器
@@ -73,20 +75,14 @@ public class SaTokenConfigure implements WebMvcConfigurer {
                                     r -> StpUtil.checkLogin()
                             );
 
-                            // <PermissionCode, PermissionBean> 动态加载当前所有接口权限
-                            Map<String, PermissionBean> permissionTemplatedMap = this.masterPermissionHandlerService.getPermissionBeanMap();
-
-                            // 遍历添加权限校检
-                            permissionTemplatedMap.forEach((permissionCode, permissionBean) -> {
-                                        SaRouter.match(
-                                                permissionBean.getPath(),
-                                                r -> SaTokenCheckUtil.checkRoleOrPermission(
-                                                        CollUtil.newArrayList(StaticRoleTypeEnum.ADMIN.name()),
-                                                        CollUtil.newArrayList(permissionBean.getCode())
-                                                )
-                                        );
-                                    }
-                            );
+                            // 查找当前请求路径对应的接口权限并校验
+                            this.masterPermissionHandlerService.getPermissionRouteMatcher()
+                                    .match(SaHolder.getRequest().getRequestPath())
+                                    .forEach(permissionBean -> SaTokenCheckUtil.checkRoleOrPermission(
+                                                    ADMIN_ROLE_LIST,
+                                                    Collections.singletonList(permissionBean.getCode())
+                                            )
+                                    );
                         })
                 ).addPathPatterns("/**");
     }
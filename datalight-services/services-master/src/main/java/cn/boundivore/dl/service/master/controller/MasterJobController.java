@@ -65,16 +65,27 @@ public class MasterJobController implements IMasterJobAPI {
                                                             Long nodeId,
                                                             Long stageId,
                                                             Long taskId,
-                                                            Long stepId) throws Exception {
+                                                            Long stepId,
+                                                            Long lastJobLogId,
+                                                            Long pageSize,
+                                                            Boolean withLog) throws Exception {
         return this.masterJobService.getJobLogList(
                 clusterId,
                 jobId,
                 nodeId,
                 stageId,
                 taskId,
-                stepId
+                stepId,
+                lastJobLogId,
+                pageSize,
+                withLog
         );
     }
 
+    @Override
+    public Result<AbstractJobVo.JobLogVo> getJobLogDetail(Long clusterId, Long jobLogId) throws Exception {
+        return this.masterJobService.getJobLogDetail(clusterId, jobLogId);
+    }
+
 
 }
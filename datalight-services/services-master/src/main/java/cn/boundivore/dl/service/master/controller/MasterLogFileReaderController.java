@@ -69,4 +69,28 @@ public class MasterLogFileReaderController implements IMasterLogFileReaderAPI {
                 endOffset
         );
     }
+
+    @Override
+    public Result<AbstractLogFileVo.LogFileContentVo> tailFileContentWithNodeId(Long nodeId,
+                                                                                String filePath,
+                                                                                Long tailBytes) throws Exception {
+        return this.masterLogFileReaderService.tailFileContentWithNodeId(
+                nodeId,
+                filePath,
+                tailBytes
+        );
+    }
+
+    @Override
+    public Result<AbstractLogFileVo.LogFileContentVo> loadFileContentByLineWithNodeId(Long nodeId,
+                                                                                      String filePath,
+                                                                                      Long lineNumber,
+                                                                                      Long length) throws Exception {
+        return this.masterLogFileReaderService.loadFileContentByLineWithNodeId(
+                nodeId,
+                filePath,
+                lineNumber,
+                length
+        );
+    }
 }
@@ -18,6 +18,7 @@ package cn.boundivore.dl.service.master.controller;
 
 import cn.boundivore.dl.api.master.define.IMasterManageAPI;
 import cn.boundivore.dl.base.enumeration.impl.LogTypeEnum;
+import cn.boundivore.dl.base.request.impl.master.ExecOutputRequest;
 import cn.boundivore.dl.base.request.impl.master.HeartBeatRequest;
 import cn.boundivore.dl.base.result.Result;
 import cn.boundivore.dl.service.master.logs.Logs;
@@ -49,4 +50,9 @@ public class MasterManageController implements IMasterManageAPI {
     public Result<String> heartBeat(HeartBeatRequest request) throws Exception {
         return this.masterManageService.heartBeat(request);
     }
+
+    @Override
+    public Result<String> execOutput(ExecOutputRequest request) throws Exception {
+        return this.masterManageService.execOutput(request);
+    }
 }
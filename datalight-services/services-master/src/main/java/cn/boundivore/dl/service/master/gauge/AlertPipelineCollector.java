@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.gauge;
+
+import cn.boundivore.dl.base.enumeration.impl.AlertHandlerTypeEnum;
+import cn.boundivore.dl.service.master.alert.AlertNoticePipeline;
+import cn.boundivore.dl.service.master.alert.AlertPipelineStats;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Description: AlertPipelineCollector 负责将告警通知管道的接收量、积压量以及各渠道的投递延迟注册到 MeterRegistry 中。
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/20
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ */
+public class AlertPipelineCollector {
+
+    private static final String LABEL_NAME = "channel";
+
+    private final AlertNoticePipeline pipeline;
+
+    private final MeterRegistry registry;
+
+    /**
+     * Description: 构造一个 AlertPipelineCollector，包含告警通知管道和 MeterRegistry。
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/20
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param pipeline 告警通知管道
+     * @param registry 注册指标的 MeterRegistry
+     */
+    public AlertPipelineCollector(AlertNoticePipeline pipeline, MeterRegistry registry) {
+        this.pipeline = pipeline;
+        this.registry = registry;
+    }
+
+    /**
+     * Description: 注册管道指标，接收速率可通过 datalight_alert_intake_total 计算
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/20
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    public void register() {
+        FunctionCounter.builder("datalight_alert_intake_total", this.pipeline, p -> p.getStats().getIntakeCount())
+                .description("Alert intake count")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_alert_dedupe_total", this.pipeline, p -> p.getStats().getDedupeCount())
+                .description("Alert dedupe count")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_alert_drop_total", this.pipeline, p -> p.getStats().getDropCount())
+                .description("Alert drop count")
+                .register(this.registry);
+        Gauge.builder("datalight_alert_pending_depth", this.pipeline, p -> p.getStats().getPendingDepth())
+                .description("Alert pending depth")
+                .register(this.registry);
+
+        for (AlertHandlerTypeEnum channel : AlertHandlerTypeEnum.values()) {
+            if (channel == AlertHandlerTypeEnum.ALERT_IGNORE) continue;
+
+            createGauge(channel, "datalight_alert_channel_queue_depth", "Channel queue depth", AlertPipelineStats.ChannelStats::getQueueDepth);
+            createGauge(channel, "datalight_alert_channel_latency_avg_millis", "Channel delivery latency avg millis", AlertPipelineStats.ChannelStats::getLatencyAvgMillis);
+            createGauge(channel, "datalight_alert_channel_latency_max_millis", "Channel delivery latency max millis", AlertPipelineStats.ChannelStats::getLatencyMaxMillis);
+            createCounter(channel, "datalight_alert_channel_delivered_total", "Channel delivered count", AlertPipelineStats.ChannelStats::getDeliveredCount);
+            createCounter(channel, "datalight_alert_channel_failed_total", "Channel failed count", AlertPipelineStats.ChannelStats::getFailedCount);
+            createCounter(channel, "datalight_alert_channel_retry_total", "Channel retry count", AlertPipelineStats.ChannelStats::getRetryCount);
+            createCounter(channel, "datalight_alert_channel_latency_millis_total", "Channel delivery latency total millis", AlertPipelineStats.ChannelStats::getLatencyTotalMillis);
+        }
+    }
+
+    private void createGauge(AlertHandlerTypeEnum channel, String metric, String help, ToDoubleFunction<AlertPipelineStats.ChannelStats> measure) {
+        Gauge.builder(metric, this.pipeline, p -> measure.applyAsDouble(p.getChannelStats(channel)))
+                .description(help)
+                .tag(LABEL_NAME, channel.name())
+                .register(this.registry);
+    }
+
+    private void createCounter(AlertHandlerTypeEnum channel, String metric, String help, ToDoubleFunction<AlertPipelineStats.ChannelStats> measure) {
+        FunctionCounter.builder(metric, this.pipeline, p -> measure.applyAsDouble(p.getChannelStats(channel)))
+                .description(help)
+                .tag(LABEL_NAME, channel.name())
+                .register(this.registry);
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.gauge;
+
+import cn.boundivore.dl.service.master.boardcast.ConfigEventDispatcher;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Description: ConfigEventCollector 负责将配置变更事件的处理量、合并量以及事件延迟注册到 MeterRegistry 中。
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/23
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ */
+public class ConfigEventCollector {
+
+    private final ConfigEventDispatcher dispatcher;
+
+    private final MeterRegistry registry;
+
+    /**
+     * Description: 构造一个 ConfigEventCollector，包含配置变更事件分发器和 MeterRegistry。
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/23
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param dispatcher 配置变更事件分发器
+     * @param registry   注册指标的 MeterRegistry
+     */
+    public ConfigEventCollector(ConfigEventDispatcher dispatcher, MeterRegistry registry) {
+        this.dispatcher = dispatcher;
+        this.registry = registry;
+    }
+
+    /**
+     * Description: 注册配置变更事件指标，平均延迟可通过 datalight_config_event_lag_millis_total 与 datalight_config_event_processed_total 计算
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/23
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    public void register() {
+        FunctionCounter.builder("datalight_config_event_offered_total", this.dispatcher, d -> d.getStats().getOfferedCount())
+                .description("Config event offered count")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_config_event_coalesced_total", this.dispatcher, d -> d.getStats().getCoalescedCount())
+                .description("Config event coalesced count")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_config_event_processed_total", this.dispatcher, d -> d.getStats().getProcessedCount())
+                .description("Config event processed count")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_config_event_failed_total", this.dispatcher, d -> d.getStats().getFailedCount())
+                .description("Config event failed count")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_config_event_lag_millis_total", this.dispatcher, d -> d.getStats().getLagTotalMillis())
+                .description("Config event lag total millis")
+                .register(this.registry);
+        Gauge.builder("datalight_config_event_active_services", this.dispatcher, d -> d.getStats().getActiveServiceCount())
+                .description("Services with pending or running config events")
+                .register(this.registry);
+        Gauge.builder("datalight_config_event_lag_max_millis", this.dispatcher, d -> d.getStats().getLagMaxMillis())
+                .description("Config event lag max millis")
+                .register(this.registry);
+        Gauge.builder("datalight_config_event_lag_last_millis", this.dispatcher, d -> d.getStats().getLagLastMillis())
+                .description("Config event lag of the latest processed event")
+                .register(this.registry);
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.gauge;
+
+import cn.boundivore.dl.service.master.logs.LogTracePipeline;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Description: LogTraceCollector 负责将审计日志管道的队列深度、丢弃量、溢写量以及导出耗时注册到 MeterRegistry 中。
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/17
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ */
+public class LogTraceCollector {
+
+    private final LogTracePipeline pipeline;
+
+    private final MeterRegistry registry;
+
+    /**
+     * Description: 构造一个 LogTraceCollector，包含审计日志管道和 MeterRegistry。
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/17
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param pipeline 审计日志管道
+     * @param registry 注册指标的 MeterRegistry
+     */
+    public LogTraceCollector(LogTracePipeline pipeline, MeterRegistry registry) {
+        this.pipeline = pipeline;
+        this.registry = registry;
+    }
+
+    /**
+     * Description: 注册审计日志管道指标，平均导出耗时可通过 datalight_audit_log_export_millis_total 与 datalight_audit_log_export_batches_total 计算
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/17
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    public void register() {
+        FunctionCounter.builder("datalight_audit_log_offered_total", this.pipeline, p -> p.getStats().getOfferCount())
+                .description("Audit log offered count")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_audit_log_dropped_total", this.pipeline, p -> p.getStats().getDropCount())
+                .description("Audit log dropped count")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_audit_log_spilled_total", this.pipeline, p -> p.getStats().getSpillCount())
+                .description("Audit log spilled to file count")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_audit_log_exported_total", this.pipeline, p -> p.getStats().getExportCount())
+                .description("Audit log exported count")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_audit_log_export_batches_total", this.pipeline, p -> p.getStats().getExportBatchCount())
+                .description("Audit log export batch count")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_audit_log_export_failed_batches_total", this.pipeline, p -> p.getStats().getExportFailBatchCount())
+                .description("Audit log export failed batch count")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_audit_log_export_millis_total", this.pipeline, p -> p.getStats().getExportTotalMillis())
+                .description("Audit log export total millis")
+                .register(this.registry);
+        Gauge.builder("datalight_audit_log_queue_depth", this.pipeline, p -> p.getStats().getQueueDepth())
+                .description("Audit logs waiting in the buffer")
+                .register(this.registry);
+        Gauge.builder("datalight_audit_log_export_max_millis", this.pipeline, p -> p.getStats().getExportMaxMillis())
+                .description("Audit log export max millis")
+                .register(this.registry);
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.gauge;
+
+import cn.boundivore.dl.ssh.tools.SshConnectionPool;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Description: SshPoolCollector 负责将 SSH 连接池的复用次数、新建连接数、握手耗时以及当前连接与会话数注册到 MeterRegistry 中。
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/7/8
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ */
+public class SshPoolCollector {
+
+    private final SshConnectionPool pool;
+
+    private final MeterRegistry registry;
+
+    /**
+     * Description: 构造一个 SshPoolCollector，包含 SSH 连接池和 MeterRegistry。
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/8
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param pool     SSH 连接池
+     * @param registry 注册指标的 MeterRegistry
+     */
+    public SshPoolCollector(SshConnectionPool pool, MeterRegistry registry) {
+        this.pool = pool;
+        this.registry = registry;
+    }
+
+    /**
+     * Description: 注册 SSH 连接池指标，平均握手耗时可通过 datalight_ssh_pool_handshake_millis_total 与 datalight_ssh_pool_created_total 计算
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/8
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    public void register() {
+        FunctionCounter.builder("datalight_ssh_pool_hit_total", this.pool, p -> p.getStats().getHitCount())
+                .description("SSH borrows served by a pooled connection")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_ssh_pool_miss_total", this.pool, p -> p.getStats().getMissCount())
+                .description("SSH borrows that required a new connection")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_ssh_pool_created_total", this.pool, p -> p.getStats().getCreatedCount())
+                .description("SSH connections created")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_ssh_pool_handshake_failed_total", this.pool, p -> p.getStats().getHandshakeFailCount())
+                .description("SSH connection handshakes failed")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_ssh_pool_handshake_millis_total", this.pool, p -> p.getStats().getHandshakeTotalMillis())
+                .description("SSH connection handshake total millis")
+                .register(this.registry);
+        FunctionCounter.builder("datalight_ssh_pool_evicted_total", this.pool, p -> p.getStats().getEvictCount())
+                .description("SSH connections closed as idle or dead")
+                .register(this.registry);
+        Gauge.builder("datalight_ssh_pool_handshake_max_millis", this.pool, p -> p.getStats().getHandshakeMaxMillis())
+                .description("SSH connection handshake max millis")
+                .register(this.registry);
+        Gauge.builder("datalight_ssh_pool_open_connections", this.pool, p -> p.getStats().getOpenConnections())
+                .description("SSH connections currently open")
+                .register(this.registry);
+        Gauge.builder("datalight_ssh_pool_active_sessions", this.pool, p -> p.getStats().getActiveSessions())
+                .description("SSH sessions currently in use")
+                .register(this.registry);
+    }
+}
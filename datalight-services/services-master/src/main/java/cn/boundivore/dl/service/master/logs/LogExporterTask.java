@@ -67,7 +67,7 @@ public class LogExporterTask extends AbstractTask<String> {
      * Modification time:
      * Throws:
      *
-     * @return Result<String> 成功或失败
+     * @return Result<String> 成功或失败，写入数据库失败时返回失败，由调用方决定溢写或丢弃
      */
     @Override
     protected Result<String> run() {
@@ -104,6 +104,7 @@ public class LogExporterTask extends AbstractTask<String> {
 
         } catch (Exception e) {
             log.error(ExceptionUtil.stacktraceToString(e));
+            return Result.fail();
         }
 
         return Result.success();
@@ -16,54 +16,122 @@
  */
 package cn.boundivore.dl.service.master.logs;
 
+import cn.boundivore.dl.base.result.Result;
+import cn.boundivore.dl.exception.BException;
+import cn.boundivore.dl.service.master.gauge.LogTraceCollector;
 import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.lang.Assert;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.*;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
- * Description: Log 缓存类，用于缓存 LogTrace 对象，并定时或在达到一定数量时批量写入数据库。
+ * Description: Log 缓存类，请求线程将 LogTrace 对象放入非阻塞的审计日志管道，由管道按批次异步写入数据库；
+ * 数据库写入缓慢或失败时，积压的日志溢写到本地文件，请求线程不会因此阻塞；
+ * 溢写的日志由定时任务重新写入数据库，写入失败时保留在文件中等待下次重放，进程在重放中途退出时可能重复写入少量日志。
+ * 管道与定时任务随容器启动与关闭，溢写文件路径由 datalight.audit.spill-file 配置，管道统计信息同时注册为 Micrometer 指标
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2024/6/11
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 管道与定时任务由容器管理，溢写的日志定时重放到数据库
+ * Modified by: Boundivore
+ * Modification time: 2024/7/8
  * Version: V1.0
  */
+@Component
 @Slf4j
+@RequiredArgsConstructor
 public class LogTraceCache {
 
-    // 最大缓存大小
-    private static final int MAX_CACHE_SIZE = 10;
-    // 预留空间大小
-    private static final int RESERVED_SPACE = 10;
-    // 最大缓存时间（秒）
-    private static final long MAX_CACHE_TIME = 30;
+    // 缓冲区容量
+    private static final int CAPACITY = 4096;
+    // 每批次写入数据库的最大数量
+    private static final int BATCH_SIZE = 200;
+    // 最大缓存时间（毫秒）
+    private static final long MAX_CACHE_TIME_MILLIS = 1000L;
+    // 溢出策略
+    private static final LogTracePipeline.OverflowPolicy OVERFLOW_POLICY = LogTracePipeline.OverflowPolicy.SPILL_TO_FILE;
+    // 默认溢写文件，与应用日志位于同一目录
+    private static final String DEFAULT_SPILL_FILE = "/data/datalight/logs/app/audit-spill.log";
+    // 正在重放的溢写文件后缀，重放期间新的溢写写入原文件
+    private static final String REPLAY_SUFFIX = ".replay";
+    // 输出统计信息以及重放溢写文件的间隔（秒）
+    private static final long STATS_INTERVAL = 60;
 
-    // 线程安全的阻塞队列，用于存储 LogTrace 对象
-    private static final BlockingQueue<LogTrace> logTraceQueue = new LinkedBlockingQueue<>(MAX_CACHE_SIZE + RESERVED_SPACE);
+    // 容器中的实例，供 LogAspect 通过静态方法写入
+    private static volatile LogTraceCache instance;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    // 溢写与切换重放文件互斥，避免切换时仍有日志写入被重放的文件
+    private final Object spillLock = new Object();
+
+    private final Optional<MeterRegistry> meterRegistry;
+
+    @Value("${datalight.audit.spill-file:" + DEFAULT_SPILL_FILE + "}")
+    private String spillFile;
+
+    private LogTracePipeline pipeline;
 
     // 定时任务调度器
-    private static final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        this.pipeline = new LogTracePipeline(
+                CAPACITY,
+                BATCH_SIZE,
+                MAX_CACHE_TIME_MILLIS,
+                OVERFLOW_POLICY,
+                this::batchWriteToDatabase,
+                this::spillToFile
+        );
 
-    // 批量写入执行器
-    private static final ThreadPoolExecutor executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "LogTraceStats");
+            thread.setDaemon(true);
+            return thread;
+        });
 
-    static {
-        // 每隔 MAX_CACHE_TIME 秒执行一次 flushCache 方法
-        scheduler.scheduleAtFixedRate(
-                LogTraceCache::flushCache,
-                MAX_CACHE_TIME,
-                MAX_CACHE_TIME,
+        // 每隔 STATS_INTERVAL 秒输出一次统计信息，并重放溢写的日志
+        this.scheduler.scheduleWithFixedDelay(
+                () -> {
+                    log.info("审计日志管道状态: {}", this.pipeline.getStats());
+                    this.replaySpillFile();
+                },
+                STATS_INTERVAL,
+                STATS_INTERVAL,
                 TimeUnit.SECONDS
         );
+
+        this.meterRegistry.ifPresent(registry ->
+                new LogTraceCollector(this.pipeline, registry).register()
+        );
+
+        instance = this;
     }
 
     /**
-     * Description: 添加 LogTrace 对象到缓存队列。当队列达到指定大小时，触发批量写入操作。
+     * Description: 添加 LogTrace 对象到审计日志管道，不会阻塞请求线程；容器启动前或关闭后的日志将被忽略
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2024/6/11
@@ -74,41 +142,28 @@ public class LogTraceCache {
      * @param logTrace 要添加的 LogTrace 对象
      */
     public static void putLogTrace(LogTrace logTrace) {
-        try {
-            // 阻塞直到有空间可用
-            logTraceQueue.put(logTrace);
-        } catch (InterruptedException e) {
-            log.error(ExceptionUtil.stacktraceToString(e));
-            Thread.currentThread().interrupt(); // 重设中断状态
+        LogTraceCache logTraceCache = instance;
+        if (logTraceCache == null) {
+            log.debug("审计日志管道未启动, 忽略 LogTrace: {}", logTrace.getLogName());
+            return;
         }
 
-        if (logTraceQueue.size() >= MAX_CACHE_SIZE) {
-            flushCache();
-        }
+        logTraceCache.pipeline.offer(logTrace);
     }
 
     /**
-     * Description: 刷新缓存，将缓存中的 LogTrace 对象批量写入数据库。
+     * Description: 获取审计日志管道的统计信息：队列深度、丢弃数量、溢写数量以及导出耗时等
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2024/6/11
+     * Creation time: 2024/6/17
      * Modification description:
      * Modified by:
      * Modification time:
+     *
+     * @return LogTraceStats 统计信息快照
      */
-    private static void flushCache() {
-        List<LogTrace> batch = new ArrayList<>();
-        logTraceQueue.drainTo(batch, MAX_CACHE_SIZE); // 一次性取出最多 MAX_CACHE_SIZE 个元素
-        if (!batch.isEmpty()) {
-            // 使用 CompletableFuture 异步执行批量写入操作，避免阻塞新的缓存入队请求
-            CompletableFuture.runAsync(() -> batchWriteToDatabase(batch), executor)
-                    .handle((result, ex) -> {
-                        if (ex != null) {
-                            log.error("写入日志到数据库时出错: {}", ExceptionUtil.stacktraceToString(ex));
-                        }
-                        return null;
-                    });
-        }
+    public LogTraceStats getStats() {
+        return this.pipeline.getStats();
     }
 
     /**
@@ -122,34 +177,140 @@ public class LogTraceCache {
      *
      * @param logTraces 要写入的 LogTrace 对象列表
      */
-    private static void batchWriteToDatabase(List<LogTrace> logTraces) {
-        log.info("批量写入 {} 个 LogTrace 对象到数据库", logTraces.size());
-        new LogExporterTask("批量日志导出", logTraces).run();
+    private void batchWriteToDatabase(List<LogTrace> logTraces) {
+        log.debug("批量写入 {} 个 LogTrace 对象到数据库", logTraces.size());
+        Result<String> result = new LogExporterTask("批量日志导出", logTraces).run();
+        Assert.isTrue(
+                result.isSuccess(),
+                () -> new BException("写入日志到数据库失败")
+        );
     }
 
     /**
-     * Description: 关闭定时任务调度器和批量写入执行器。
+     * Description: 以每行一个 JSON 的形式追加写入本地溢写文件
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2024/6/11
+     * Creation time: 2024/6/17
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     *
+     * @param logTraces 要溢写的 LogTrace 对象列表
+     */
+    private void spillToFile(List<LogTrace> logTraces) {
+        List<String> lines = logTraces.stream()
+                .map(logTrace -> {
+                    try {
+                        return this.objectMapper.writeValueAsString(logTrace);
+                    } catch (JsonProcessingException e) {
+                        log.error(ExceptionUtil.stacktraceToString(e));
+                        return null;
+                    }
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+
+        synchronized (this.spillLock) {
+            FileUtil.appendUtf8Lines(lines, this.spillFile);
+        }
+        log.warn("审计日志积压, 已溢写 {} 个 LogTrace 对象到文件: {}", lines.size(), this.spillFile);
+    }
+
+    /**
+     * Description: 将溢写文件中的日志按批次重新写入数据库。
+     * 溢写文件先切换为重放文件，重放期间新的溢写仍写入原文件；某一批次写入失败时，剩余日志写回重放文件，等待下次重放
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/8
      * Modification description:
      * Modified by:
      * Modification time:
      */
-    public static void shutdown() {
-        scheduler.shutdown();
-        executor.shutdown();
+    private void replaySpillFile() {
         try {
-            if (!scheduler.awaitTermination(1, TimeUnit.MINUTES)) {
-                scheduler.shutdownNow();
+            final File replayFile = new File(this.spillFile + REPLAY_SUFFIX);
+
+            synchronized (this.spillLock) {
+                if (!replayFile.exists()) {
+                    File spill = new File(this.spillFile);
+                    if (!spill.exists() || spill.length() == 0) {
+                        return;
+                    }
+                    FileUtil.rename(spill, replayFile.getName(), true);
+                }
             }
-            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
-                executor.shutdownNow();
+
+            final List<String> lines = FileUtil.readUtf8Lines(replayFile);
+            int replayed = 0;
+            for (int from = 0; from < lines.size(); from += BATCH_SIZE) {
+                List<String> batchLines = lines.subList(from, Math.min(from + BATCH_SIZE, lines.size()));
+                try {
+                    this.batchWriteToDatabase(this.parseLogTraces(batchLines));
+                    replayed += batchLines.size();
+                } catch (BException e) {
+                    FileUtil.writeUtf8Lines(new ArrayList<>(lines.subList(from, lines.size())), replayFile);
+                    log.warn("重放溢写的审计日志失败, 已重放 {} 个, 剩余 {} 个等待下次重放", replayed, lines.size() - from);
+                    return;
+                }
+            }
+
+            FileUtil.del(replayFile);
+            log.info("已重放 {} 个溢写的审计日志到数据库", replayed);
+        } catch (Exception e) {
+            log.error(ExceptionUtil.stacktraceToString(e));
+        }
+    }
+
+    /**
+     * Description: 解析溢写文件中的日志，无法解析的行将被跳过
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/8
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     *
+     * @param lines 溢写文件中的行，每行一个 JSON
+     * @return List<LogTrace> 解析后的 LogTrace 对象列表
+     */
+    private List<LogTrace> parseLogTraces(List<String> lines) {
+        return lines.stream()
+                .map(line -> {
+                    try {
+                        return this.objectMapper.readValue(line, LogTrace.class);
+                    } catch (JsonProcessingException e) {
+                        log.error("无法解析溢写的审计日志, 已跳过: {}", line);
+                        return null;
+                    }
+                })
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Description: 关闭定时任务调度器，并等待审计日志管道导出剩余日志。
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/11
+     * Modification description: 由容器在关闭时调用
+     * Modified by: Boundivore
+     * Modification time: 2024/7/8
+     */
+    @PreDestroy
+    public void destroy() {
+        instance = null;
+
+        this.scheduler.shutdown();
+        try {
+            if (!this.scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                this.scheduler.shutdownNow();
             }
         } catch (InterruptedException e) {
-            scheduler.shutdownNow();
-            executor.shutdownNow();
-            Thread.currentThread().interrupt(); // 重设中断状态
+            this.scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
         }
+
+        this.pipeline.close();
+        log.info("审计日志管道已关闭: {}", this.pipeline.getStats());
     }
 }
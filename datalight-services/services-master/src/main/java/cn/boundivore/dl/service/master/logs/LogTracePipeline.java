@@ -0,0 +1,295 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.logs;
+
+import cn.hutool.core.exceptions.ExceptionUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Description: 非阻塞的审计日志管道：请求线程仅将日志放入无锁的有界缓冲区，由独立的导出线程按批次异步导出。
+ * 缓冲区已满时丢弃最旧的日志，请求线程永远不会因导出缓慢而阻塞；
+ * 溢写策略下，由独立的溢写线程在积压超过高水位时，将最旧的日志以及导出失败的批次写入本地文件
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/17
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class LogTracePipeline implements Closeable {
+
+    public enum OverflowPolicy {
+        // 缓冲区已满时丢弃最旧的日志
+        DROP_OLDEST,
+        // 积压超过高水位或导出失败时溢写到本地文件，缓冲区已满时仍丢弃最旧的日志
+        SPILL_TO_FILE
+    }
+
+    // 溢写线程检查积压的间隔，单位：毫秒
+    private static final long SPILL_CHECK_INTERVAL_MILLIS = 100L;
+
+    private final int capacity;
+
+    private final int batchSize;
+
+    private final long flushIntervalNanos;
+
+    private final OverflowPolicy overflowPolicy;
+
+    private final Consumer<List<LogTrace>> exporter;
+
+    private final Consumer<List<LogTrace>> spiller;
+
+    // 无锁队列，配合 depth 计数实现有界
+    private final Queue<LogTrace> buffer = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger depth = new AtomicInteger();
+
+    private final LongAdder offerCount = new LongAdder();
+
+    private final LongAdder dropCount = new LongAdder();
+
+    private final LongAdder spillCount = new LongAdder();
+
+    private final LongAdder exportCount = new LongAdder();
+
+    private final LongAdder exportFailBatchCount = new LongAdder();
+
+    private final LongAdder exportBatchCount = new LongAdder();
+
+    private final LongAdder exportTotalMillis = new LongAdder();
+
+    private final AtomicLong exportMaxMillis = new AtomicLong();
+
+    private final Thread exportThread;
+
+    private final ScheduledExecutorService spillScheduler;
+
+    private volatile boolean isRunning = true;
+
+    /**
+     * Description: 创建审计日志管道并启动导出线程
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/17
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param capacity            缓冲区容量
+     * @param batchSize           每批次导出的最大数量，积压达到该数量时立即导出
+     * @param flushIntervalMillis 积压不足一个批次时的最长等待时间，单位：毫秒
+     * @param overflowPolicy      溢出策略
+     * @param exporter            批量导出，抛出异常视为导出失败
+     * @param spiller             批量溢写，仅在 SPILL_TO_FILE 策略下使用
+     */
+    public LogTracePipeline(int capacity,
+                            int batchSize,
+                            long flushIntervalMillis,
+                            OverflowPolicy overflowPolicy,
+                            Consumer<List<LogTrace>> exporter,
+                            Consumer<List<LogTrace>> spiller) {
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.overflowPolicy = overflowPolicy;
+        this.exporter = exporter;
+        this.spiller = spiller;
+
+        this.exportThread = new Thread(this::exportLoop, "LogTraceExporter");
+        this.exportThread.setDaemon(true);
+        this.exportThread.start();
+
+        if (overflowPolicy == OverflowPolicy.SPILL_TO_FILE) {
+            this.spillScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "LogTraceSpiller");
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.spillScheduler.scheduleWithFixedDelay(
+                    this::spillIfNecessary,
+                    SPILL_CHECK_INTERVAL_MILLIS,
+                    SPILL_CHECK_INTERVAL_MILLIS,
+                    TimeUnit.MILLISECONDS
+            );
+        } else {
+            this.spillScheduler = null;
+        }
+    }
+
+    /**
+     * Description: 放入一条日志，不会阻塞；缓冲区已满时丢弃最旧的日志
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/17
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param logTrace 日志埋点信息
+     */
+    public void offer(LogTrace logTrace) {
+        this.buffer.offer(logTrace);
+        this.offerCount.increment();
+
+        int currentDepth = this.depth.incrementAndGet();
+        if (currentDepth > this.capacity && this.poll() != null) {
+            this.dropCount.increment();
+        }
+
+        // 积压恰好达到一个批次时唤醒导出线程，超过时导出线程本身不会等待
+        if (currentDepth == this.batchSize) {
+            LockSupport.unpark(this.exportThread);
+        }
+    }
+
+    private LogTrace poll() {
+        LogTrace logTrace = this.buffer.poll();
+        if (logTrace != null) this.depth.decrementAndGet();
+        return logTrace;
+    }
+
+    private List<LogTrace> drain(int maxSize) {
+        List<LogTrace> list = new ArrayList<>(Math.min(maxSize, this.batchSize));
+        LogTrace logTrace;
+        while (list.size() < maxSize && (logTrace = this.poll()) != null) {
+            list.add(logTrace);
+        }
+        return list;
+    }
+
+    /**
+     * Description: 导出线程：积压达到一个批次或等待超时后导出一批，关闭后导出剩余的全部日志再退出
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/17
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    private void exportLoop() {
+        while (this.isRunning || this.depth.get() > 0) {
+            if (this.isRunning && this.depth.get() < this.batchSize) {
+                LockSupport.parkNanos(this, this.flushIntervalNanos);
+            }
+
+            List<LogTrace> batch = this.drain(this.batchSize);
+            if (!batch.isEmpty()) this.export(batch);
+        }
+    }
+
+    private void export(List<LogTrace> batch) {
+        long startMillis = System.currentTimeMillis();
+        try {
+            this.exporter.accept(batch);
+            this.exportCount.add(batch.size());
+        } catch (Exception e) {
+            log.error("导出 {} 条审计日志失败: {}", batch.size(), ExceptionUtil.stacktraceToString(e));
+            this.exportFailBatchCount.increment();
+            if (this.overflowPolicy == OverflowPolicy.SPILL_TO_FILE) {
+                this.spill(batch);
+            } else {
+                this.dropCount.add(batch.size());
+            }
+        } finally {
+            long costMillis = System.currentTimeMillis() - startMillis;
+            this.exportBatchCount.increment();
+            this.exportTotalMillis.add(costMillis);
+            this.exportMaxMillis.accumulateAndGet(costMillis, Math::max);
+        }
+    }
+
+    /**
+     * Description: 积压超过缓冲区容量的 3/4 时，将超出部分中最旧的日志溢写到本地文件，避免导出缓慢时丢弃日志
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/17
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    private void spillIfNecessary() {
+        int excess = this.depth.get() - this.capacity * 3 / 4;
+        if (excess <= 0) return;
+
+        List<LogTrace> list = this.drain(excess);
+        if (!list.isEmpty()) this.spill(list);
+    }
+
+    private void spill(List<LogTrace> list) {
+        try {
+            this.spiller.accept(list);
+            this.spillCount.add(list.size());
+        } catch (Exception e) {
+            log.error("溢写 {} 条审计日志失败: {}", list.size(), ExceptionUtil.stacktraceToString(e));
+            this.dropCount.add(list.size());
+        }
+    }
+
+    public LogTraceStats getStats() {
+        return new LogTraceStats()
+                .setQueueDepth(Math.max(0, this.depth.get()))
+                .setOfferCount(this.offerCount.sum())
+                .setDropCount(this.dropCount.sum())
+                .setSpillCount(this.spillCount.sum())
+                .setExportCount(this.exportCount.sum())
+                .setExportFailBatchCount(this.exportFailBatchCount.sum())
+                .setExportBatchCount(this.exportBatchCount.sum())
+                .setExportTotalMillis(this.exportTotalMillis.sum())
+                .setExportMaxMillis(this.exportMaxMillis.get());
+    }
+
+    /**
+     * Description: 停止接收新的导出周期，等待导出线程将剩余日志全部导出，最多等待 1 分钟
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/17
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    @Override
+    public void close() {
+        this.isRunning = false;
+        if (this.spillScheduler != null) this.spillScheduler.shutdownNow();
+
+        LockSupport.unpark(this.exportThread);
+        try {
+            this.exportThread.join(TimeUnit.MINUTES.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // 重设中断状态
+        }
+    }
+}
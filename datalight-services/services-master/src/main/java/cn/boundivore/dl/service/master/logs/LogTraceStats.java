@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.logs;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Description: 审计日志管道统计信息快照
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/17
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Data
+@Accessors(chain = true)
+public class LogTraceStats {
+
+    // 当前缓冲区中待导出的日志数量
+    private int queueDepth;
+
+    // 累计进入缓冲区的日志数量
+    private long offerCount;
+
+    // 缓冲区已满时被丢弃的最旧日志数量
+    private long dropCount;
+
+    // 溢写到本地文件的日志数量
+    private long spillCount;
+
+    // 成功导出的日志数量
+    private long exportCount;
+
+    // 导出失败的批次数
+    private long exportFailBatchCount;
+
+    // 导出的批次数
+    private long exportBatchCount;
+
+    // 批量导出的累计耗时，单位：毫秒
+    private long exportTotalMillis;
+
+    // 批量导出的最大耗时，单位：毫秒
+    private long exportMaxMillis;
+
+    public long getExportAvgMillis() {
+        return this.exportBatchCount == 0 ? 0L : this.exportTotalMillis / this.exportBatchCount;
+    }
+}
@@ -70,6 +70,8 @@ public class NodeJob extends Thread {
 
     private final NodeJobService nodeJobService = SpringContextUtil.getBean(NodeJobService.class);
 
+    private final NodePushDistributor nodePushDistributor = SpringContextUtil.getBean(NodePushDistributor.class);
+
     private final INodeStepConverter iNodeStepConverter = SpringContextUtil.getBean(INodeStepConverter.class);
 
     private boolean isInit;
@@ -446,6 +448,7 @@ public class NodeJob extends Thread {
         try {
             this.execute();
         } finally {
+            this.nodePushDistributor.release(this.nodeJobMeta.getId());
             NodeJobCacheUtil.getInstance().releaseActiveNodeJobId();
         }
     }
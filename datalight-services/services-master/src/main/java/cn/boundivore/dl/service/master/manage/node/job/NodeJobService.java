@@ -33,27 +33,31 @@ import cn.boundivore.dl.orm.service.single.impl.TDlNodeJobLogServiceImpl;
 import cn.boundivore.dl.orm.service.single.impl.TDlNodeJobServiceImpl;
 import cn.boundivore.dl.orm.service.single.impl.TDlNodeStepServiceImpl;
 import cn.boundivore.dl.orm.service.single.impl.TDlNodeTaskServiceImpl;
+import cn.boundivore.dl.service.master.gauge.SshPoolCollector;
 import cn.boundivore.dl.service.master.manage.node.bean.*;
 import cn.boundivore.dl.service.master.service.MasterClusterService;
 import cn.boundivore.dl.service.master.service.MasterNodeInitService;
 import cn.boundivore.dl.service.master.service.MasterNodeService;
 import cn.boundivore.dl.ssh.bean.TransferProgress;
 import cn.boundivore.dl.ssh.service.SshService;
+import cn.boundivore.dl.ssh.tools.SshConnectionPool;
 import cn.boundivore.dl.ssh.tools.SshTool;
 import cn.hutool.core.lang.Assert;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import net.schmizz.sshj.SSHClient;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PostConstruct;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -90,6 +94,14 @@ public class NodeJobService {
 
     private final SshService sshService;
 
+    private final Optional<MeterRegistry> meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        this.meterRegistry.ifPresent(registry ->
+                new SshPoolCollector(this.sshService.sshConnectionPool(), registry).register()
+        );
+    }
 
     /**
      * Description: 提交异步任务到线程池
@@ -385,25 +397,52 @@ public class NodeJobService {
                                    String cmd,
                                    long timeout,
                                    TimeUnit timeUnit) throws IOException {
+        return this.exec(host, sshPort, privateKeyPath, cmd, timeout, timeUnit, null);
+    }
+
+    /**
+     * Description: 代理执行远程脚本，执行过程中逐行回调脚本输出
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/28
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param host           节点地址（IP或主机名）
+     * @param sshPort        ssh 端口号
+     * @param privateKeyPath 远程节点私钥路径
+     * @param cmd            待执行脚本的绝对路径
+     * @param timeout        超时时间
+     * @param timeUnit       超时单位
+     * @param lineConsumer   脚本输出行回调，为 null 时不回调
+     * @return 脚本执行结果
+     */
+    public SshTool.ExecResult exec(String host,
+                                   int sshPort,
+                                   String privateKeyPath,
+                                   String cmd,
+                                   long timeout,
+                                   TimeUnit timeUnit,
+                                   Consumer<String> lineConsumer) throws IOException {
 
         SshTool sshTool = this.sshService.sshTool();
 
-        SSHClient sshClient = sshTool.connect(
+        try (SshConnectionPool.Lease lease = this.sshService.sshConnectionPool().borrow(
                 host,
                 sshPort,
                 "root",
                 privateKeyPath
-        );
-        SshTool.ExecResult execResult = sshTool.exec(
-                sshClient,
-                cmd,
-                timeout,
-                timeUnit
-        );
-
-        sshTool.disconnect(sshClient);
-
-        return execResult;
+        )) {
+            return sshTool.exec(
+                    lease.getSshClient(),
+                    cmd,
+                    timeout,
+                    timeUnit,
+                    lineConsumer
+            );
+        }
     }
 
     /**
@@ -428,20 +467,20 @@ public class NodeJobService {
 
         SshTool sshTool = sshService.sshTool();
 
-        SSHClient sshClient = sshTool.connect(
+        try (SshConnectionPool.Lease lease = this.sshService.sshConnectionPool().borrow(
                 hostname,
                 sshPort,
                 "root",
                 privateKeyPath
-        );
-        sshTool.exec(
-                sshClient,
-                String.format(
-                        "mkdir -p %s",
-                        remoteDirPath
-                )
-        );
-        sshTool.disconnect(sshClient);
+        )) {
+            sshTool.exec(
+                    lease.getSshClient(),
+                    String.format(
+                            "mkdir -p %s",
+                            remoteDirPath
+                    )
+            );
+        }
     }
 
     /**
@@ -466,20 +505,20 @@ public class NodeJobService {
 
         SshTool sshTool = sshService.sshTool();
 
-        SSHClient sshClient = sshTool.connect(
+        try (SshConnectionPool.Lease lease = this.sshService.sshConnectionPool().borrow(
                 hostname,
                 sshPort,
                 "root",
                 privateKeyPath
-        );
-        sshTool.exec(
-                sshClient,
-                String.format(
-                        "rm -rf %s",
-                        remotePath
-                )
-        );
-        sshTool.disconnect(sshClient);
+        )) {
+            sshTool.exec(
+                    lease.getSshClient(),
+                    String.format(
+                            "rm -rf %s",
+                            remotePath
+                    )
+            );
+        }
     }
 
     /**
@@ -509,7 +548,8 @@ public class NodeJobService {
     }
 
     /**
-     * Description: 初始化节点传输进度, 此方法用于通过SSH连接到指定的主机，并初始化传输进度对象。
+     * Description: 初始化节点传输进度, 此方法用于通过SSH连接到指定的主机，对比本地与远端文件的 sha256，
+     * 仅将远端缺失或内容不一致的文件计入传输进度对象。
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2023/7/7
@@ -521,27 +561,37 @@ public class NodeJobService {
      * @param hostname       主机名或 IP 地址
      * @param sshPort        SSH端口号
      * @param privateKeyPath 私钥文件的路径
-     * @param transferPath   传输路径
+     * @param transferPath   本地传输路径
+     * @param remotePath     远端路径，为 null 时不对比远端文件，统计整个本地目录
      * @return TransferProgress - 初始化的传输进度对象
      */
     public TransferProgress initNodeTransferProgress(NodeStepMeta nodeStepMeta,
                                                      String hostname,
                                                      int sshPort,
                                                      String privateKeyPath,
-                                                     String transferPath) throws IOException {
+                                                     String transferPath,
+                                                     String remotePath) throws IOException {
         SshTool sshTool = sshService.sshTool();
 
-        SSHClient sshClient = sshTool.connect(
-                hostname,
-                sshPort,
-                "root",
-                privateKeyPath
-        );
+        List<String> transferFileList = null;
+        if (remotePath != null) {
+            try (SshConnectionPool.Lease lease = this.sshService.sshConnectionPool().borrow(
+                    hostname,
+                    sshPort,
+                    "root",
+                    privateKeyPath
+            )) {
+                transferFileList = sshTool.diffManifest(
+                        lease.getSshClient(),
+                        sshTool.sha256Manifest(transferPath),
+                        remotePath
+                );
+            }
+        }
 
         TransferProgress transferProgress = sshTool.initNodePushProgress(
                 transferPath,
-                sshClient,
-                true
+                transferFileList
         );
 
         // 设置数据库更新回调
@@ -552,8 +602,6 @@ public class NodeJobService {
                 )
         );
 
-        sshClient.disconnect();
-
         return transferProgress;
     }
 
@@ -608,22 +656,20 @@ public class NodeJobService {
 
         SshTool sshTool = sshService.sshTool();
 
-        SSHClient sshClient = sshTool.connect(
+        try (SshConnectionPool.Lease lease = this.sshService.sshConnectionPool().borrow(
                 hostname,
                 sshPort,
                 "root",
                 privateKeyPath
-        );
-
-        sshTool.transfer(
-                transferProgress,
-                sshClient,
-                localPath,
-                remotePath,
-                true
-        );
-
-        sshClient.disconnect();
+        )) {
+            sshTool.transfer(
+                    transferProgress,
+                    lease.getSshClient(),
+                    localPath,
+                    remotePath,
+                    true
+            );
+        }
     }
 
     /**
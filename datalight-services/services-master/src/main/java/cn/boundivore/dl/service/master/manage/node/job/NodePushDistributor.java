@@ -0,0 +1,333 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.manage.node.job;
+
+import cn.boundivore.dl.exception.BException;
+import cn.boundivore.dl.service.master.manage.node.bean.NodeStepMeta;
+import cn.boundivore.dl.service.master.manage.node.bean.NodeTaskMeta;
+import cn.boundivore.dl.ssh.bean.TransferProgress;
+import cn.boundivore.dl.ssh.service.SshService;
+import cn.boundivore.dl.ssh.tools.SshConnectionPool;
+import cn.boundivore.dl.ssh.tools.SshTool;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.lang.Assert;
+import cn.hutool.core.util.StrUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: 以分层扇出的方式向节点分发安装包：
+ * Master 只直接推送给少量节点，已接收完成的节点通过节点间 SSH 继续转发给其他节点，每一跳完成后均按 sha256 清单校验；
+ * 若节点间转发失败（如节点之间未配置 SSH 免密，或目标节点主机公钥不在 known_hosts 中），则本次 NodeJob 退化为全部由 Master 推送
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/15
+ * Modification description: 节点间转发改为默认关闭，转发时校验目标节点主机公钥，并逐个文件更新转发进度
+ * Modified by: Boundivore
+ * Modification time: 2024/7/6
+ * Version: V1.0
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class NodePushDistributor {
+
+    private final NodeJobService nodeJobService;
+
+    private final SshService sshService;
+
+    @Value("${server.datalight.push.relay-enabled:false}")
+    private boolean isRelayEnabled;
+
+    @Value("${server.datalight.push.relay-known-hosts:/root/.ssh/known_hosts}")
+    private String relayKnownHosts;
+
+    @Value("${server.datalight.push.fan-out:2}")
+    private int fanOut;
+
+    // <NodeJobId, 分发源调度>
+    private final Map<Long, NodePushSwarm> swarmMap = new ConcurrentHashMap<>();
+
+    /**
+     * Description: 推送安装包到 NodeTask 对应的节点，进度记录到 TransferProgress 中
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: Exception 推送或校验失败
+     *
+     * @param nodeTaskMeta     NodeTask 元数据信息
+     * @param nodeStepMeta     NodeStep 元数据信息
+     * @param transferProgress 进度信息封装
+     * @param localPath        本地目录
+     * @param remotePath       远端目录
+     */
+    public void push(NodeTaskMeta nodeTaskMeta,
+                     NodeStepMeta nodeStepMeta,
+                     TransferProgress transferProgress,
+                     String localPath,
+                     String remotePath) throws Exception {
+
+        final String hostname = nodeTaskMeta.getHostname();
+        final int sshPort = nodeTaskMeta.getSshPort();
+        final String privateKeyPath = nodeTaskMeta.getPrivateKeyPath();
+
+        final NodePushSwarm swarm = this.isRelayEnabled ?
+                this.swarmMap.computeIfAbsent(
+                        nodeTaskMeta.getNodeJobMeta().getId(),
+                        k -> new NodePushSwarm(this.fanOut)
+                ) :
+                null;
+
+        // 节点上的文件与本地完全一致，无需传输
+        final List<String> transferFileList = transferProgress.getTransferFileList();
+        if (transferFileList != null && transferFileList.isEmpty()) {
+            transferProgress.complete();
+            if (swarm != null) swarm.offerSeed(new NodePushSwarm.Source(hostname, sshPort, privateKeyPath));
+            return;
+        }
+
+        if (swarm == null) {
+            this.nodeJobService.push(transferProgress, hostname, sshPort, privateKeyPath, localPath, remotePath);
+            return;
+        }
+
+        final String manifest = this.sshService.sshTool().sha256Manifest(localPath);
+        final long timeout = nodeStepMeta.getTimeout();
+
+        final NodePushSwarm.Source source = swarm.acquire(timeout, TimeUnit.SECONDS);
+        NodePushSwarm.Source seed = null;
+        try {
+            boolean isReceived = false;
+
+            if (!source.isMaster()) {
+                try {
+                    this.relay(
+                            source,
+                            hostname,
+                            sshPort,
+                            transferProgress,
+                            localPath,
+                            remotePath,
+                            transferFileList != null ?
+                                    transferFileList :
+                                    this.sshService.sshTool().manifestPathList(manifest),
+                            timeout
+                    );
+                    this.verify(hostname, sshPort, privateKeyPath, manifest, remotePath, timeout);
+                    transferProgress.complete();
+                    transferProgress.updateDatabase(transferProgress);
+                    isReceived = true;
+
+                    log.info("节点 {} 已由 {} 转发安装包", hostname, source.getHostname());
+                } catch (Exception e) {
+                    log.warn("节点 {} 转发安装包到 {} 失败，后续改由 Master 推送: {}",
+                            source.getHostname(),
+                            hostname,
+                            e.getMessage()
+                    );
+                    swarm.disableRelay();
+                }
+            }
+
+            if (!isReceived) {
+                this.nodeJobService.push(transferProgress, hostname, sshPort, privateKeyPath, localPath, remotePath);
+                this.verify(hostname, sshPort, privateKeyPath, manifest, remotePath, timeout);
+            }
+
+            seed = new NodePushSwarm.Source(hostname, sshPort, privateKeyPath);
+        } finally {
+            swarm.release(source, seed);
+        }
+    }
+
+    /**
+     * Description: NodeJob 结束时释放分发会话
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param nodeJobId NodeJob ID
+     */
+    public void release(long nodeJobId) {
+        this.swarmMap.remove(nodeJobId);
+    }
+
+    /**
+     * Description: 在种子节点上打包需要传输的文件，并通过节点间 SSH 直接解压到目标节点；
+     * 打包时不递归目录，列出的空目录同样会在目标节点创建。
+     * 节点间 SSH 仅信任 known_hosts 中已有的主机公钥，目标节点每解压一个文件即更新一次进度
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description: 校验目标节点主机公钥，并逐个文件更新进度
+     * Modified by: Boundivore
+     * Modification time: 2024/7/6
+     * Throws: IOException 转发失败
+     *
+     * @param source           种子节点
+     * @param hostname         目标节点主机名
+     * @param sshPort          目标节点 SSH 端口号
+     * @param transferProgress 进度信息封装
+     * @param localPath        本地目录，用于定位进度信息中的文件
+     * @param remotePath       远端目录
+     * @param transferFileList 需要传输的目录与文件相对路径，通过标准输入交给 tar
+     * @param timeout          超时时间，单位：秒
+     */
+    private void relay(NodePushSwarm.Source source,
+                       String hostname,
+                       int sshPort,
+                       TransferProgress transferProgress,
+                       String localPath,
+                       String remotePath,
+                       List<String> transferFileList,
+                       long timeout) throws IOException {
+
+        final String cmd = String.format(
+                "set -o pipefail; cd %s && tar --no-recursion -cf - -T - "
+                        + "| ssh -p %s -o BatchMode=yes -o StrictHostKeyChecking=yes -o UserKnownHostsFile=%s "
+                        + "-o ConnectTimeout=10 root@%s 'mkdir -p %s && tar -C %s -xvf -'",
+                remotePath,
+                sshPort,
+                this.relayKnownHosts,
+                hostname,
+                remotePath,
+                remotePath
+        );
+
+        // <tar 输出的相对路径, 进度信息中的文件路径>，目录不在进度信息中
+        final Map<String, TransferProgress.FilePath> filePathMap = new HashMap<>();
+        for (String relativePath : transferFileList) {
+            File file = FileUtil.file(localPath, relativePath);
+            if (file.isFile()) {
+                filePathMap.put(
+                        StrUtil.removePrefix(relativePath, "./"),
+                        new TransferProgress.FilePath(
+                                this.sshService.sshTool().convertPath(file.getParent()) + "/",
+                                file.getName()
+                        )
+                );
+            }
+        }
+
+        final SshTool.ExecResult execResult;
+        try (SshConnectionPool.Lease lease = this.sshService.sshConnectionPool().borrow(
+                source.getHostname(),
+                source.getSshPort(),
+                "root",
+                source.getPrivateKeyPath()
+        )) {
+            execResult = this.sshService.sshTool().exec(
+                    lease.getSshClient(),
+                    cmd,
+                    String.join("\n", transferFileList) + "\n",
+                    timeout,
+                    TimeUnit.SECONDS,
+                    line -> {
+                        TransferProgress.FilePath filePath = filePathMap.get(StrUtil.removePrefix(line.trim(), "./"));
+                        if (filePath == null) return;
+
+                        // 标准输出与标准错误在不同线程中回调
+                        synchronized (transferProgress) {
+                            if (transferProgress.completeFile(filePath) != null) {
+                                transferProgress.updateDatabase(transferProgress);
+                            }
+                        }
+                    }
+            );
+        }
+
+        Assert.isTrue(
+                execResult.getExitCode() != null && execResult.getExitCode() == 0,
+                () -> new IOException(execResult.getOutput())
+        );
+    }
+
+    /**
+     * Description: 在目标节点按校验清单校验已接收的文件，清单中的目录条目不参与 sha256sum 校验
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description: 校验前去除目录条目
+     * Modified by: Boundivore
+     * Modification time: 2024/7/4
+     * Throws: IOException 连接失败；BException 校验不通过
+     *
+     * @param hostname       目标节点主机名
+     * @param sshPort        目标节点 SSH 端口号
+     * @param privateKeyPath 私钥文件地址
+     * @param manifest       校验清单
+     * @param remotePath     远端目录
+     * @param timeout        超时时间，单位：秒
+     */
+    private void verify(String hostname,
+                        int sshPort,
+                        String privateKeyPath,
+                        String manifest,
+                        String remotePath,
+                        long timeout) throws IOException {
+
+        final String cmd = String.format(
+                "set -o pipefail; cd %s && grep -v '^%s' | sha256sum --quiet -c -",
+                remotePath,
+                SshTool.MANIFEST_DIRECTORY_PREFIX
+        );
+
+        final SshTool.ExecResult execResult;
+        try (SshConnectionPool.Lease lease = this.sshService.sshConnectionPool().borrow(
+                hostname,
+                sshPort,
+                "root",
+                privateKeyPath
+        )) {
+            execResult = this.sshService.sshTool().exec(
+                    lease.getSshClient(),
+                    cmd,
+                    manifest,
+                    timeout,
+                    TimeUnit.SECONDS
+            );
+        }
+
+        Assert.isTrue(
+                execResult.getExitCode() != null && execResult.getExitCode() == 0,
+                () -> new BException(
+                        String.format(
+                                "节点 %s 安装包校验失败: %s",
+                                hostname,
+                                execResult.getOutput()
+                        )
+                )
+        );
+    }
+}
@@ -0,0 +1,181 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.manage.node.job;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: 一次 NodeJob 推送安装包时的分发源调度。
+ * 起初只有 Master 可作为分发源，节点接收并校验完成后成为新的分发源（种子节点），
+ * 每个分发源同时最多向 fanOut 个节点分发，因此可分发的节点数逐轮翻倍，总耗时随节点数呈对数增长
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/15
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+public class NodePushSwarm {
+
+    private final int fanOut;
+
+    private final Source master = new Source(null, null, null);
+
+    // 已接收并校验完成的节点
+    private final List<Source> seedList = new ArrayList<>();
+
+    // 节点间转发不可用时，退化为全部由 Master 推送，且不再限制 Master 的并发
+    private boolean isRelayDisabled;
+
+    public NodePushSwarm(int fanOut) {
+        this.fanOut = Math.max(1, fanOut);
+    }
+
+    /**
+     * Description: 获取当前负载最低且未达到分发上限的分发源，负载相同时优先使用种子节点，以便为 Master 保留带宽；
+     * 若所有分发源均已达到上限，则阻塞等待
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: InterruptedException 等待时被中断
+     *
+     * @param timeout 最长等待时间
+     * @param unit    时间单位
+     * @return Source 分发源，等待超时后返回 Master
+     */
+    public synchronized Source acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+
+        while (true) {
+            Source picked = null;
+            for (Source seed : this.seedList) {
+                if (seed.activeCount < this.fanOut && (picked == null || seed.activeCount < picked.activeCount)) {
+                    picked = seed;
+                }
+            }
+
+            if (this.isRelayDisabled
+                    || (this.master.activeCount < this.fanOut && (picked == null || this.master.activeCount < picked.activeCount))) {
+                picked = this.master;
+            }
+
+            long waitMillis = deadline - System.currentTimeMillis();
+            if (picked == null && waitMillis <= 0) {
+                picked = this.master;
+            }
+
+            if (picked != null) {
+                picked.activeCount++;
+                return picked;
+            }
+
+            this.wait(waitMillis);
+        }
+    }
+
+    /**
+     * Description: 归还分发源，若目标节点已接收并校验完成，则将其加入种子节点
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param source 分发源
+     * @param seed   已接收完成的目标节点，为 null 时表示目标节点未能成功接收
+     */
+    public synchronized void release(Source source, Source seed) {
+        source.activeCount--;
+
+        if (seed != null && !this.isRelayDisabled) {
+            this.seedList.add(seed);
+        }
+
+        this.notifyAll();
+    }
+
+    /**
+     * Description: 直接加入种子节点，用于节点上的文件本身已是最新、无需任何传输的场景
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param seed 已是最新的节点
+     */
+    public synchronized void offerSeed(Source seed) {
+        if (!this.isRelayDisabled) {
+            this.seedList.add(seed);
+            this.notifyAll();
+        }
+    }
+
+    /**
+     * Description: 禁用节点间转发，例如节点之间未配置 SSH 免密时
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    public synchronized void disableRelay() {
+        this.isRelayDisabled = true;
+        this.seedList.clear();
+        this.notifyAll();
+    }
+
+    public synchronized boolean isRelayDisabled() {
+        return this.isRelayDisabled;
+    }
+
+    @Getter
+    public static class Source {
+
+        private final String hostname;
+
+        private final Integer sshPort;
+
+        private final String privateKeyPath;
+
+        private int activeCount;
+
+        public Source(String hostname, Integer sshPort, String privateKeyPath) {
+            this.hostname = hostname;
+            this.sshPort = sshPort;
+            this.privateKeyPath = privateKeyPath;
+        }
+
+        public boolean isMaster() {
+            return this.hostname == null;
+        }
+    }
+}
@@ -24,6 +24,7 @@ import cn.boundivore.dl.service.master.manage.node.bean.NodeResources;
 import cn.boundivore.dl.service.master.manage.node.bean.NodeStepMeta;
 import cn.boundivore.dl.service.master.manage.node.bean.NodeTaskMeta;
 import cn.boundivore.dl.service.master.manage.node.job.NodeJobService;
+import cn.boundivore.dl.service.master.manage.node.job.NodePushDistributor;
 import cn.boundivore.dl.ssh.bean.TransferProgress;
 import cn.boundivore.dl.ssh.tools.SshTool;
 import cn.hutool.core.exceptions.ExceptionUtil;
@@ -55,6 +56,8 @@ public abstract class AbstractNodeTask implements INodeTask {
 
     protected final NodeJobService nodeJobService = SpringContextUtil.getBean(NodeJobService.class);
 
+    protected final NodePushDistributor nodePushDistributor = SpringContextUtil.getBean(NodePushDistributor.class);
+
     public AbstractNodeTask(@NotNull NodeTaskMeta nodeTaskMeta) {
         this.nodeTaskMeta = nodeTaskMeta;
         this.nodeJobService.updateNodeTaskDatabase(this.nodeTaskMeta);
@@ -221,13 +224,13 @@ public abstract class AbstractNodeTask implements INodeTask {
     }
 
     /**
-     * Description: 执行命令并返回脚本执行结果字符串
+     * Description: 执行命令并返回脚本执行结果字符串，执行过程中逐行输出脚本的输出
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2023/7/5
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 执行过程中逐行输出脚本的输出
+     * Modified by: Boundivore
+     * Modification time: 2024/6/28
      * Throws:
      *
      * @param nodeStepMeta 节点步骤的元数据信息
@@ -247,7 +250,8 @@ public abstract class AbstractNodeTask implements INodeTask {
                 this.nodeTaskMeta.getPrivateKeyPath(),
                 intactCmd.toString().trim(),
                 nodeStepMeta.getTimeout(),
-                TimeUnit.SECONDS
+                TimeUnit.SECONDS,
+                line -> log.info("[{}] {}: {}", this.nodeTaskMeta.getHostname(), nodeStepMeta.getName(), line)
         );
     }
 
@@ -440,37 +444,28 @@ public abstract class AbstractNodeTask implements INodeTask {
         Integer sshPort = nodeTaskMeta.getSshPort();
         String privateKeyPath = nodeTaskMeta.getPrivateKeyPath();
 
+        // 目标为当前 Master 节点时无需对比远端文件
         TransferProgress transferProgress = this.nodeJobService.initNodeTransferProgress(
                 nodeStepMeta,
                 hostname,
                 sshPort,
                 privateKeyPath,
-                DataLightEnv.APP_PARENT_ROOT_DIR_LOCAL
+                DataLightEnv.APP_PARENT_ROOT_DIR_LOCAL,
+                this.isMasterNode(hostname) ? null : DataLightEnv.APP_PARENT_ROOT_DIR_REMOTE
         );
         nodeStepMeta.setTransferProgress(transferProgress);
 
 
         if (this.isMasterNode(this.nodeTaskMeta.getHostname())) {
 
-            //如果要推送的目标地址为当前节点，则跳过推送，并将总进度更新为 100
-            transferProgress.setTotalProgress(100);
-            transferProgress.getTotalTransferBytes().set(transferProgress.getTotalBytes());
-
-            transferProgress.setTotalFileCountProgress(100);
-            transferProgress.getTotalTransferFileCount().set(transferProgress.getTotalFileCount());
-
-            //各个文件进度更新为 100
-            transferProgress.getFileProgressMap().forEach((filePath, fileProgress) -> {
-                        fileProgress.setFileProgress(100);
-                        fileProgress.getFileTransferBytes().set(fileProgress.getFileBytes());
-                    }
-            );
+            //如果要推送的目标地址为当前节点，则跳过推送，并将总进度与各个文件进度更新为 100
+            transferProgress.complete();
         } else {
-            this.nodeJobService.push(
+            //由 Master 或已接收完成的节点分发
+            this.nodePushDistributor.push(
+                    this.nodeTaskMeta,
+                    nodeStepMeta,
                     transferProgress,
-                    hostname,
-                    sshPort,
-                    privateKeyPath,
                     DataLightEnv.APP_PARENT_ROOT_DIR_LOCAL,
                     DataLightEnv.APP_PARENT_ROOT_DIR_REMOTE
             );
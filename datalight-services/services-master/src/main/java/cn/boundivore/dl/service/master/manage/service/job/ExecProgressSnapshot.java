@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.manage.service.job;
+
+import cn.boundivore.dl.base.enumeration.impl.ExecStateEnum;
+import cn.boundivore.dl.base.response.impl.master.AbstractJobVo;
+import cn.boundivore.dl.service.master.manage.service.bean.JobMeta;
+import cn.boundivore.dl.service.master.manage.service.bean.StepMeta;
+import cn.boundivore.dl.service.master.manage.service.bean.TaskMeta;
+
+import java.util.*;
+
+/**
+ * Description: 以节点维度维护 Job 的执行进度快照，Step 状态变更时仅重建所在节点的快照，
+ * 轮询进度时直接返回当前快照，无需加锁，也无需遍历 Stage、Task、Step 树
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/27
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+public class ExecProgressSnapshot {
+
+    // 按照 Hostname 字母自然排序的节点进度
+    private final List<NodeProgress> nodeProgressList;
+
+    // <StepId, 所在节点进度>
+    private final Map<Long, NodeProgress> stepIdNodeProgressMap;
+
+    /**
+     * Description: 根据 JobMeta 构建每个节点的进度快照，节点上的 Step 按照执行顺序排列
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/27
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param jobMeta Job 元数据信息
+     */
+    public ExecProgressSnapshot(JobMeta jobMeta) {
+        // <Hostname, NodeProgress>
+        final TreeMap<String, NodeProgress> hostnameNodeProgressMap = new TreeMap<>();
+        this.stepIdNodeProgressMap = new HashMap<>();
+
+        jobMeta.getStageMetaMap().forEach(
+                (stageId, stageMeta) ->
+                        stageMeta.getTaskMetaMap().forEach(
+                                (taskId, taskMeta) -> {
+                                    NodeProgress nodeProgress = hostnameNodeProgressMap.computeIfAbsent(
+                                            taskMeta.getHostname(),
+                                            k -> new NodeProgress(taskMeta)
+                                    );
+
+                                    taskMeta.getStepMetaMap().values().forEach(stepMeta -> {
+                                        nodeProgress.stepMetaList.add(stepMeta);
+                                        this.stepIdNodeProgressMap.put(stepMeta.getId(), nodeProgress);
+                                    });
+                                }
+                        )
+        );
+
+        hostnameNodeProgressMap.values().forEach(NodeProgress::rebuild);
+        this.nodeProgressList = new ArrayList<>(hostnameNodeProgressMap.values());
+    }
+
+    /**
+     * Description: Step 状态变更后调用，重建该 Step 所在节点的进度快照
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/27
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param stepMeta 状态已变更的 Step
+     */
+    public void update(StepMeta stepMeta) {
+        NodeProgress nodeProgress = this.stepIdNodeProgressMap.get(stepMeta.getId());
+        if (nodeProgress != null) {
+            nodeProgress.rebuild();
+        }
+    }
+
+    /**
+     * Description: 获取每个节点的执行进度，返回的 Vo 为只读快照，调用方不应修改
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/27
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @return List<AbstractJobVo.ExecProgressPerNodeVo> 每个节点进度信息
+     */
+    public List<AbstractJobVo.ExecProgressPerNodeVo> getExecProgressPerNodeList() {
+        List<AbstractJobVo.ExecProgressPerNodeVo> execProgressPerNodeList = new ArrayList<>(this.nodeProgressList.size());
+        for (NodeProgress nodeProgress : this.nodeProgressList) {
+            execProgressPerNodeList.add(nodeProgress.execProgressPerNodeVo);
+        }
+        return execProgressPerNodeList;
+    }
+
+    /**
+     * Description: 单个节点的进度，状态变更时整体替换快照，读取方始终看到完整一致的节点进度
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/27
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Version: V1.0
+     */
+    private static final class NodeProgress {
+
+        private final long nodeId;
+
+        private final String hostname;
+
+        private final String nodeIp;
+
+        private final List<StepMeta> stepMetaList = new ArrayList<>();
+
+        private volatile AbstractJobVo.ExecProgressPerNodeVo execProgressPerNodeVo;
+
+        NodeProgress(TaskMeta taskMeta) {
+            this.nodeId = taskMeta.getNodeId();
+            this.hostname = taskMeta.getHostname();
+            this.nodeIp = taskMeta.getNodeIp();
+        }
+
+        /**
+         * 根据节点上每个 Step 的最新状态重建快照，同一节点的变更串行执行，不同节点互不阻塞
+         */
+        synchronized void rebuild() {
+            final List<AbstractJobVo.ExecProgressStepVo> execProgressStepList = new ArrayList<>(this.stepMetaList.size());
+
+            int execCurrent = 0;
+            for (StepMeta stepMeta : this.stepMetaList) {
+                ExecStateEnum execStateEnum = stepMeta.getExecStateEnum();
+                if (execStateEnum == ExecStateEnum.OK) {
+                    execCurrent++;
+                }
+
+                execProgressStepList.add(
+                        new AbstractJobVo.ExecProgressStepVo(
+                                stepMeta.getType(),
+                                stepMeta.getId(),
+                                stepMeta.getName(),
+                                execStateEnum
+                        )
+                );
+            }
+
+            int execTotal = this.stepMetaList.size();
+
+            this.execProgressPerNodeVo = new AbstractJobVo.ExecProgressPerNodeVo(
+                    this.nodeId,
+                    this.hostname,
+                    this.nodeIp,
+                    execTotal,
+                    execCurrent,
+                    execTotal == 0 ? 0 : execCurrent * 100 / execTotal,
+                    Collections.unmodifiableList(execProgressStepList)
+            );
+        }
+    }
+}
@@ -31,6 +31,7 @@ import cn.boundivore.dl.service.master.manage.service.stage.impl.Stage;
 import cn.boundivore.dl.service.master.manage.service.task.ITask;
 import cn.boundivore.dl.service.master.manage.service.task.impl.Task;
 import cn.boundivore.dl.service.master.resolver.ResolverYamlServiceDetail;
+import cn.boundivore.dl.service.master.resolver.ResolverYamlServiceManifest;
 import cn.boundivore.dl.service.master.resolver.yaml.YamlServiceDetail;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.exceptions.ExceptionUtil;
@@ -459,6 +460,9 @@ public class Job extends Thread {
      */
     public void plan(JobMeta jobMeta) {
 
+        // 已加入计划的 StageMeta，用于推导后续 Stage 的上游依赖
+        final List<StageMeta> plannedStageMetaList = new ArrayList<>();
+
         jobMeta.getStageMetaMap()
                 .forEach((kStage, vStage) -> {
                             log.info(
@@ -486,11 +490,44 @@ public class Job extends Thread {
                                                 this.plan.planProgress();
                                             }
                                     );
-                            this.plan.offerStage(iStage);
+                            this.plan.offerStage(
+                                    iStage,
+                                    this.upstreamStageIdSet(vStage, plannedStageMetaList)
+                            );
+                            plannedStageMetaList.add(vStage);
                         }
                 );
     }
 
+    /**
+     * Description: 推导当前 Stage 在依赖图中的上游 Stage：
+     * 在意图中排在当前 Stage 之前（已按优先级正序或逆序排列），且与当前服务存在依赖路径或关联关系的 Stage，必须先执行完毕；
+     * 彼此不相关的 Stage 可并发执行。逐个执行（isOneByOne）时，仍然保持所有 Stage 串行
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/12
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param stageMeta            当前 Stage 元数据信息
+     * @param plannedStageMetaList 已加入计划的 Stage 元数据信息
+     * @return Set<Long> 上游 StageId 集合
+     */
+    private Set<Long> upstreamStageIdSet(StageMeta stageMeta, List<StageMeta> plannedStageMetaList) {
+        if (this.intention.isOneByOne()) {
+            return plannedStageMetaList.isEmpty() ?
+                    Collections.emptySet() :
+                    Collections.singleton(plannedStageMetaList.get(plannedStageMetaList.size() - 1).getId());
+        }
+
+        return plannedStageMetaList.stream()
+                .filter(i -> ResolverYamlServiceManifest.isRelated(i.getServiceName(), stageMeta.getServiceName()))
+                .map(StageMeta::getId)
+                .collect(Collectors.toSet());
+    }
+
     /**
      * Description: 执行当前 Job
      * Created by: Boundivore
@@ -507,22 +544,19 @@ public class Job extends Thread {
         //更新当前 Job 执行状态到内存缓存和数据库
         this.updateJobExecutionStatus(ExecStateEnum.RUNNING);
 
-        // 依次执行每一个 Stage 并得到 StageResult 多个 Stage 为串行
+        // 按照依赖图执行 Stage 并得到 StageResult，存在依赖关系的 Stage 串行，互不相关的 Stage 并行
         // Stage 中的多个 Task 为并行或串行（取决于组件之间的依赖关系，同一 priority 为并发，不同 priority 为串行）
         // Task 中的多个 Step 为串行
-        for (IStage stage : this.plan.getStages()) {
-            try {
-                StageMeta stageMeta = this.jobService.submit(stage).get();
-                this.jobMeta.getJobResult().setSuccess(
-                        stageMeta.getStageResult().isSuccess()
-                );
-
-                //如果中途出现任何的失败，则终止整个 Job，防止强制执行后整个集群出现过多异常，增加回滚成本
-                if (!this.jobMeta.getJobResult().isSuccess()) break;
-
-            } catch (Exception e) {
-                log.error(ExceptionUtil.stacktraceToString(e));
-            }
+        try {
+            this.jobMeta.getJobResult().setSuccess(
+                    new StageScheduler(
+                            this.plan,
+                            this.jobService.newCompletionService()
+                    ).schedule()
+            );
+        } catch (Exception e) {
+            log.error(ExceptionUtil.stacktraceToString(e));
+            this.jobMeta.getJobResult().setSuccess(false);
         }
 
         ExecStateEnum execStateEnum;
@@ -595,6 +629,8 @@ public class Job extends Thread {
         try {
             this.execute();
         } finally {
+            // Job 结束时，确保所有状态快照均已写入数据库
+            this.jobService.flushJobState();
             JobCacheUtil.getInstance().releaseActiveJobId();
         }
     }
@@ -33,7 +33,10 @@ import cn.boundivore.dl.plugin.base.bean.PluginClusterMeta;
 import cn.boundivore.dl.plugin.base.bean.PluginConfig;
 import cn.boundivore.dl.plugin.base.bean.PluginConfigResult;
 import cn.boundivore.dl.service.master.cache.MySQLCache;
+import cn.boundivore.dl.service.master.cache.PluginCache;
+import cn.boundivore.dl.service.master.cache.StepOutputCache;
 import cn.boundivore.dl.service.master.env.DataLightEnv;
+import cn.boundivore.dl.service.master.manage.service.bean.JobCacheBean;
 import cn.boundivore.dl.service.master.manage.service.bean.JobMeta;
 import cn.boundivore.dl.service.master.manage.service.bean.StageMeta;
 import cn.boundivore.dl.service.master.manage.service.bean.StepMeta;
@@ -51,6 +54,8 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
@@ -83,16 +88,14 @@ public class JobService {
 
     public final MasterConfigSyncService masterConfigSyncService;
 
-    //获取自定义耗时异步任务线程池
-    private final CustomThreadPoolTaskExecutor customExecutor;
-
-    private final TDlJobServiceImpl tDlJobService;
+    public final PluginCache pluginCache;
 
-    private final TDlStageServiceImpl tDlStageService;
+    public final StepOutputCache stepOutputCache;
 
-    private final TDlTaskServiceImpl tDlTaskService;
+    //获取自定义耗时异步任务线程池
+    private final CustomThreadPoolTaskExecutor customExecutor;
 
-    private final TDlStepServiceImpl tDlStepService;
+    private final JobStateFlusher jobStateFlusher;
 
     private final TDlJobLogServiceImpl tDlJobLogService;
 
@@ -114,6 +117,22 @@ public class JobService {
         return this.customExecutor.submit(callable);
     }
 
+    /**
+     * Description: 创建基于异步任务线程池的 CompletionService，用于按完成顺序获取并发提交的异步任务结果
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/12
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @return CompletionService<T>
+     */
+    public <T> CompletionService<T> newCompletionService() {
+        return new ExecutorCompletionService<>(this.customExecutor);
+    }
+
     /**
      * Description: 代理调用
      * Created by: Boundivore
@@ -218,19 +237,12 @@ public class JobService {
      *
      * @param jobMeta Job 元数据信息
      */
-    @Transactional(
-            timeout = ICommonConstant.TIMEOUT_TRANSACTION_SECONDS,
-            rollbackFor = DatabaseException.class
-    )
     public void updateJobDatabase(JobMeta jobMeta) {
         // 注意：执行更新数据库前，务必先更新内存，例如： this.updateJobMemory()
         // 此时会从内存中最新的元数据状态更新到数据库
-        TDlJob tDlJob = this.tDlJobService.getById(jobMeta.getId());
-
-        if (tDlJob == null) {
-            tDlJob = new TDlJob();
-            tDlJob.setVersion(0L).setId(jobMeta.getId());
-        }
+        // 仅生成当前状态快照，由 JobStateFlusher 合并后批量写入
+        TDlJob tDlJob = new TDlJob();
+        tDlJob.setId(jobMeta.getId());
 
         tDlJob.setJobActionType(jobMeta.getActionTypeEnum())
                 .setTag(jobMeta.getTag())
@@ -241,10 +253,7 @@ public class JobService {
                 .setEndTime(jobMeta.getEndTime())
                 .setDuration(jobMeta.getDuration());
 
-        Assert.isTrue(
-                this.tDlJobService.saveOrUpdate(tDlJob),
-                () -> new DatabaseException("保存或更新 Job 到数据库失败")
-        );
+        this.jobStateFlusher.offerJob(tDlJob);
     }
 
 
@@ -278,22 +287,14 @@ public class JobService {
      *
      * @param stageMeta Stage 元数据信息
      */
-    @Transactional(
-            timeout = ICommonConstant.TIMEOUT_TRANSACTION_SECONDS,
-            rollbackFor = DatabaseException.class
-    )
     public void updateStageDatabase(StageMeta stageMeta) {
         // 注意：执行更新数据库前，务必先更新内存，例如： this.updateStageMemory()
         // 此时会从内存中最新的元数据状态更新到数据库
         JobMeta jobMeta = stageMeta.getJobMeta();
 
-        TDlStage tDlStage = this.tDlStageService.getById(stageMeta.getId());
-
-        if (tDlStage == null) {
-            tDlStage = new TDlStage();
-            tDlStage.setVersion(0L).setId(stageMeta.getId());
-        }
-
+        // 仅生成当前状态快照，由 JobStateFlusher 合并后批量写入
+        TDlStage tDlStage = new TDlStage();
+        tDlStage.setId(stageMeta.getId());
 
         tDlStage.setNum(stageMeta.getNum())
                 .setClusterId(jobMeta.getClusterMeta().getCurrentClusterId())
@@ -308,10 +309,7 @@ public class JobService {
                 .setEndTime(stageMeta.getEndTime())
                 .setDuration(stageMeta.getDuration());
 
-        Assert.isTrue(
-                this.tDlStageService.saveOrUpdate(tDlStage),
-                () -> new DatabaseException("保存或更新 Stage 到数据库失败")
-        );
+        this.jobStateFlusher.offerStage(tDlStage);
     }
 
 
@@ -342,10 +340,6 @@ public class JobService {
      *
      * @param taskMeta Task 元数据信息
      */
-    @Transactional(
-            timeout = ICommonConstant.TIMEOUT_TRANSACTION_SECONDS,
-            rollbackFor = DatabaseException.class
-    )
     public void updateTaskDatabase(TaskMeta taskMeta) {
 
         //注意：执行更新数据库前，务必先更新内存，例如： this.updateTaskMemory()
@@ -353,12 +347,9 @@ public class JobService {
         JobMeta jobMeta = taskMeta.getStageMeta().getJobMeta();
         StageMeta stageMeta = taskMeta.getStageMeta();
 
-        TDlTask tDlTask = this.tDlTaskService.getById(taskMeta.getId());
-
-        if (tDlTask == null) {
-            tDlTask = new TDlTask();
-            tDlTask.setVersion(0L).setId(taskMeta.getId());
-        }
+        // 仅生成当前状态快照，由 JobStateFlusher 合并后批量写入
+        TDlTask tDlTask = new TDlTask();
+        tDlTask.setId(taskMeta.getId());
 
         tDlTask.setNum(taskMeta.getNum())
                 .setClusterId(jobMeta.getClusterMeta().getCurrentClusterId())
@@ -386,10 +377,7 @@ public class JobService {
                 .setEndTime(taskMeta.getEndTime())
                 .setDuration(taskMeta.getDuration());
 
-        Assert.isTrue(
-                this.tDlTaskService.saveOrUpdate(tDlTask),
-                () -> new DatabaseException("保存或更新 Task 到数据库失败")
-        );
+        this.jobStateFlusher.offerTask(tDlTask);
     }
 
     /**
@@ -397,15 +385,22 @@ public class JobService {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2023/6/7 10:48
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 同步更新所在节点的执行进度快照
+     * Modified by: Boundivore
+     * Modification time: 2024/6/27
      *
      * @param stepMeta      Step 元数据信息
      * @param execStateEnum 执行状态
      */
     public void updateStepMemory(StepMeta stepMeta, ExecStateEnum execStateEnum) {
         stepMeta.setExecStateEnum(execStateEnum);
+
+        JobCacheBean jobCacheBean = JobCacheUtil.getInstance().get(
+                stepMeta.getTaskMeta().getStageMeta().getJobMeta().getId()
+        );
+        if (jobCacheBean != null) {
+            jobCacheBean.getPlan().updateExecProgressSnapshot(stepMeta);
+        }
     }
 
 
@@ -420,10 +415,6 @@ public class JobService {
      *
      * @param stepMeta Step 元数据信息
      */
-    @Transactional(
-            timeout = ICommonConstant.TIMEOUT_TRANSACTION_SECONDS,
-            rollbackFor = DatabaseException.class
-    )
     public void updateStepDatabase(StepMeta stepMeta) {
 
         //注意：执行更新数据库前，务必先更新内存，例如： this.updateStepMemory()，
@@ -432,12 +423,9 @@ public class JobService {
         StageMeta stageMeta = taskMeta.getStageMeta();
         JobMeta jobMeta = stageMeta.getJobMeta();
 
-        TDlStep tDlStep = this.tDlStepService.getById(stepMeta.getId());
-
-        if (tDlStep == null) {
-            tDlStep = new TDlStep();
-            tDlStep.setVersion(0L).setId(stepMeta.getId());
-        }
+        // 仅生成当前状态快照，由 JobStateFlusher 合并后批量写入
+        TDlStep tDlStep = new TDlStep();
+        tDlStep.setId(stepMeta.getId());
 
         tDlStep.setNum(stepMeta.getNum())
                 .setClusterId(jobMeta.getClusterMeta().getCurrentClusterId())
@@ -460,10 +448,22 @@ public class JobService {
                 .setEndTime(stepMeta.getEndTime())
                 .setDuration(stepMeta.getDuration());
 
-        Assert.isTrue(
-                this.tDlStepService.saveOrUpdate(tDlStep),
-                () -> new DatabaseException("保存或更新 Step 到数据库失败")
-        );
+        this.jobStateFlusher.offerStep(tDlStep);
+    }
+
+
+    /**
+     * Description: 立即将积压的 Job、Stage、Task、Step 状态写入数据库，Job 结束时调用
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/13
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    public void flushJobState() {
+        this.jobStateFlusher.flush();
     }
 
 
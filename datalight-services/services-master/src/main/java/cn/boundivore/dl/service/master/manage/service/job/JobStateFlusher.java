@@ -0,0 +1,238 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.manage.service.job;
+
+import cn.boundivore.dl.exception.DatabaseException;
+import cn.boundivore.dl.orm.po.TBasePo;
+import cn.boundivore.dl.orm.po.single.TDlJob;
+import cn.boundivore.dl.orm.po.single.TDlStage;
+import cn.boundivore.dl.orm.po.single.TDlStep;
+import cn.boundivore.dl.orm.po.single.TDlTask;
+import cn.boundivore.dl.orm.service.single.impl.TDlJobServiceImpl;
+import cn.boundivore.dl.orm.service.single.impl.TDlStageServiceImpl;
+import cn.boundivore.dl.orm.service.single.impl.TDlStepServiceImpl;
+import cn.boundivore.dl.orm.service.single.impl.TDlTaskServiceImpl;
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.lang.Assert;
+import com.baomidou.mybatisplus.extension.service.IService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Description: Job、Stage、Task、Step 状态的延迟批量写入（Write-Behind）
+ * 状态变更时仅在内存中按 ID 合并为最新快照，由定时任务或积压数量达到阈值时批量写入数据库，Job 结束时强制写入。
+ * 注意：集群、节点、服务、组件的状态仍然同步写入数据库，因此 Master 异常退出时，
+ * 即便此处尚有未写入的快照，MasterResetService 依然可以根据数据库中的状态完成恢复
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/13
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class JobStateFlusher {
+
+    // 定时写入间隔，单位：毫秒
+    private static final long FLUSH_INTERVAL_MILLIS = 500L;
+
+    // 积压快照数量达到该阈值时，由提交线程立即触发写入
+    private static final int FLUSH_THRESHOLD = 500;
+
+    private final TDlJobServiceImpl tDlJobService;
+
+    private final TDlStageServiceImpl tDlStageService;
+
+    private final TDlTaskServiceImpl tDlTaskService;
+
+    private final TDlStepServiceImpl tDlStepService;
+
+    // <Id, 待写入的最新快照>
+    private final Map<Long, TDlJob> pendingJobMap = new ConcurrentHashMap<>();
+
+    private final Map<Long, TDlStage> pendingStageMap = new ConcurrentHashMap<>();
+
+    private final Map<Long, TDlTask> pendingTaskMap = new ConcurrentHashMap<>();
+
+    private final Map<Long, TDlStep> pendingStepMap = new ConcurrentHashMap<>();
+
+    // 保证同一时刻只有一个批次在写入，从而保证较新的快照不会被较旧的快照覆盖
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public void offerJob(TDlJob tDlJob) {
+        this.pendingJobMap.put(tDlJob.getId(), tDlJob);
+        this.flushIfNecessary();
+    }
+
+    public void offerStage(TDlStage tDlStage) {
+        this.pendingStageMap.put(tDlStage.getId(), tDlStage);
+        this.flushIfNecessary();
+    }
+
+    public void offerTask(TDlTask tDlTask) {
+        this.pendingTaskMap.put(tDlTask.getId(), tDlTask);
+        this.flushIfNecessary();
+    }
+
+    public void offerStep(TDlStep tDlStep) {
+        this.pendingStepMap.put(tDlStep.getId(), tDlStep);
+        this.flushIfNecessary();
+    }
+
+    /**
+     * Description: 积压快照数量达到阈值时立即写入，若已有其他线程正在写入，则交由其后续批次处理
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/13
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    private void flushIfNecessary() {
+        int pendingCount = this.pendingJobMap.size()
+                + this.pendingStageMap.size()
+                + this.pendingTaskMap.size()
+                + this.pendingStepMap.size();
+
+        if (pendingCount < FLUSH_THRESHOLD || !this.flushLock.tryLock()) return;
+
+        try {
+            this.doFlush();
+        } finally {
+            this.flushLock.unlock();
+        }
+    }
+
+    /**
+     * Description: 定时写入积压的状态快照
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/13
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    @Scheduled(
+            initialDelay = FLUSH_INTERVAL_MILLIS,
+            fixedDelay = FLUSH_INTERVAL_MILLIS
+    )
+    private void scheduledFlush() {
+        this.flush();
+    }
+
+    /**
+     * Description: 立即写入当前所有积压的状态快照，阻塞至写入完成，用于 Job 结束以及 Master 退出时
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/13
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    @PreDestroy
+    public void flush() {
+        this.flushLock.lock();
+        try {
+            this.doFlush();
+        } finally {
+            this.flushLock.unlock();
+        }
+    }
+
+    private void doFlush() {
+        this.flushTable(this.pendingJobMap, this.tDlJobService, "Job");
+        this.flushTable(this.pendingStageMap, this.tDlStageService, "Stage");
+        this.flushTable(this.pendingTaskMap, this.tDlTaskService, "Task");
+        this.flushTable(this.pendingStepMap, this.tDlStepService, "Step");
+    }
+
+    /**
+     * Description: 将某张表积压的快照一次性取出，通过一次 IN 查询区分新增与更新，然后分别批量写入；
+     * 写入失败时，将未被更新快照覆盖的记录放回队列，等待下一批次重试
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/13
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param pendingMap 待写入的快照
+     * @param iService   对应表的 Service
+     * @param tableDesc  表描述，用于日志
+     */
+    private <T extends TBasePo<T>> void flushTable(Map<Long, T> pendingMap,
+                                                   IService<T> iService,
+                                                   String tableDesc) {
+        if (pendingMap.isEmpty()) return;
+
+        // remove 为原子操作，取出后才到达的快照将进入下一批次
+        final Map<Long, T> drainMap = new LinkedHashMap<>();
+        for (Long id : pendingMap.keySet()) {
+            T po = pendingMap.remove(id);
+            if (po != null) drainMap.put(id, po);
+        }
+
+        if (drainMap.isEmpty()) return;
+
+        try {
+            // <Id, Version> 数据库中已存在的记录，携带当前版本号以满足乐观锁
+            final Map<Long, Long> versionMap = new HashMap<>();
+            iService.listByIds(drainMap.keySet()).forEach(i -> versionMap.put(i.getId(), i.getVersion()));
+
+            final List<T> saveList = new ArrayList<>();
+            final List<T> updateList = new ArrayList<>();
+            drainMap.values().forEach(po -> {
+                if (versionMap.containsKey(po.getId())) {
+                    po.setVersion(versionMap.get(po.getId()));
+                    updateList.add(po);
+                } else {
+                    po.setVersion(0L);
+                    saveList.add(po);
+                }
+            });
+
+            Assert.isTrue(
+                    saveList.isEmpty() || iService.saveBatch(saveList),
+                    () -> new DatabaseException(String.format("批量保存 %s 到数据库失败", tableDesc))
+            );
+
+            Assert.isTrue(
+                    updateList.isEmpty() || iService.updateBatchById(updateList),
+                    () -> new DatabaseException(String.format("批量更新 %s 到数据库失败", tableDesc))
+            );
+
+            log.debug("批量写入 {}: 新增 {} 条, 更新 {} 条", tableDesc, saveList.size(), updateList.size());
+        } catch (Exception e) {
+            log.error(ExceptionUtil.stacktraceToString(e));
+            drainMap.forEach(pendingMap::putIfAbsent);
+        }
+    }
+}
@@ -18,24 +18,25 @@ package cn.boundivore.dl.service.master.manage.service.job;
 
 import cn.boundivore.dl.exception.BException;
 import cn.boundivore.dl.service.master.manage.service.bean.JobMeta;
+import cn.boundivore.dl.service.master.manage.service.bean.StepMeta;
 import cn.boundivore.dl.service.master.manage.service.stage.IStage;
 import cn.hutool.core.lang.Assert;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.Serializable;
+import java.util.*;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Description: 保存当前 Job 的执行计划
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2023/6/9
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 进度改为无锁的原子计数，并维护每个节点的执行进度快照
+ * Modified by: Boundivore
+ * Modification time: 2024/6/27
  * Version: V1.0
  */
 @Slf4j
@@ -49,18 +50,16 @@ public class Plan implements Serializable {
     @Getter
     private final int planTotal;
     //当前计划已经组装的 Step 任务数
+    private final AtomicInteger planCurrent = new AtomicInteger(0);
     @Getter
-    private int planCurrent = 0;
-    @Getter
-    private int planProgress = 0;
+    private volatile int planProgress = 0;
 
     @Getter
-    private String planName;
+    private volatile String planName;
 
     /**
      * 执行进度
      */
-    private transient final ReentrantLock lock = new ReentrantLock();
 
     //当前计划 Step 任务总数
     @Getter
@@ -71,9 +70,16 @@ public class Plan implements Serializable {
     @Getter
     private final AtomicInteger execProgress = new AtomicInteger(0);
 
+    //每个节点的执行进度快照，Step 状态变更时增量更新
+    @Getter
+    private transient volatile ExecProgressSnapshot execProgressSnapshot;
+
     @Getter
     private transient final LinkedBlockingQueue<IStage> stages = new LinkedBlockingQueue<>();
 
+    //Stage 依赖图：<StageId, 必须先于该 Stage 执行完毕的 StageId 集合>
+    private transient final Map<Long, Set<Long>> stageUpstreamMap = new HashMap<>();
+
     public Plan(Intention intention) {
         //考虑到组装逻辑和创建任务实例为两个独立的过程，因此，总进度乘以 2 可以控制的更精确
         this.planTotal = this.initPlanTotal(intention) * 2;
@@ -89,7 +95,7 @@ public class Plan implements Serializable {
                 int execProgress) {
         this.planName = planName;
         this.planTotal = planTotal;
-        this.planCurrent = planCurrent;
+        this.planCurrent.set(planCurrent);
         this.planProgress = planProgress;
 
         this.execTotal.set(execTotal);
@@ -142,6 +148,43 @@ public class Plan implements Serializable {
 
         this.execTotal.set(execTotalInteger.get());
         log.info("执行异步任务总数: {}", this.execTotal);
+
+        this.initExecProgressSnapshot(jobMeta);
+    }
+
+    /**
+     * Description: 根据 JobMeta 初始化每个节点的执行进度快照，须在 Step 开始执行前调用
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/27
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param jobMeta Job 元数据信息
+     */
+    public void initExecProgressSnapshot(JobMeta jobMeta) {
+        this.execProgressSnapshot = new ExecProgressSnapshot(jobMeta);
+    }
+
+    /**
+     * Description: Step 状态变更后，更新所在节点的执行进度快照
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/27
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param stepMeta 状态已变更的 Step
+     */
+    public void updateExecProgressSnapshot(StepMeta stepMeta) {
+        ExecProgressSnapshot snapshot = this.execProgressSnapshot;
+        if (snapshot != null) {
+            snapshot.update(stepMeta);
+        }
     }
 
 
@@ -159,14 +202,59 @@ public class Plan implements Serializable {
      * @return 返回 Stage 队列
      */
     public LinkedBlockingQueue<IStage> offerStage(IStage stage) {
+        return this.offerStage(stage, Collections.emptySet());
+    }
+
+    /**
+     * Description: 向计划中提交 Stage，并记录该 Stage 在依赖图中的上游 Stage
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/12
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param stage              当前组装好的 Stage
+     * @param upstreamStageIdSet 必须先于当前 Stage 执行完毕的 StageId 集合（只能引用已提交的 Stage）
+     * @return 返回 Stage 队列
+     */
+    public LinkedBlockingQueue<IStage> offerStage(IStage stage, Set<Long> upstreamStageIdSet) {
+        Assert.isTrue(
+                this.stageUpstreamMap.keySet().containsAll(upstreamStageIdSet),
+                () -> new BException("Stage 依赖的上游 Stage 尚未加入计划")
+        );
+
         Assert.isTrue(
                 this.stages.offer(stage),
                 () -> new BException("Job 队列已满")
         );
 
+        this.stageUpstreamMap.put(
+                stage.getStageMeta().getId(),
+                new HashSet<>(upstreamStageIdSet)
+        );
+
         return this.stages;
     }
 
+    /**
+     * Description: 获取指定 Stage 的上游 Stage
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/12
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param stageId Stage ID
+     * @return Set<Long> 必须先于该 Stage 执行完毕的 StageId 集合
+     */
+    public Set<Long> getStageUpstream(long stageId) {
+        return this.stageUpstreamMap.getOrDefault(stageId, Collections.emptySet());
+    }
+
     /**
      * Description: 清空当前计划的任务队列
      * Created by: Boundivore
@@ -179,6 +267,7 @@ public class Plan implements Serializable {
      */
     public void clear() {
         this.stages.clear();
+        this.stageUpstreamMap.clear();
     }
 
     /**
@@ -192,44 +281,55 @@ public class Plan implements Serializable {
      * Throws:
      */
     public int planProgress() {
-        this.planCurrent++;
+        int current = this.planCurrent.incrementAndGet();
 
-        this.planProgress = (int) (this.planCurrent * 1.0F / this.planTotal * 100);
+        this.planProgress = (int) (current * 1.0F / this.planTotal * 100);
 
-        log.info("计划总数: {}, 当前: {}, 进度: {}%", planTotal, planCurrent, planProgress);
+        log.debug("计划总数: {}, 当前: {}, 进度: {}%", planTotal, current, planProgress);
 
         return this.planProgress;
     }
 
     /**
-     * Description: 更新所有异步 Step 执行进度
-     * TODO 如果追求更快的并发执行速度，可不在此处更新总进度，而是在 Step 完成后向 Map 集合 put <StepId, 1>
-     *     最终前端每次调用接口时，通过 count 1 实现 Step 完成数和进度的统计并返回；
+     * Description: 获取当前计划已经组装的 Step 任务数
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2023/6/12 16:57
+     * Creation time: 2024/6/27
      * Modification description:
      * Modified by:
      * Modification time:
      * Throws:
+     *
+     * @return int 当前计划已经组装的 Step 任务数
+     */
+    public int getPlanCurrent() {
+        return this.planCurrent.get();
+    }
+
+    /**
+     * Description: 更新所有异步 Step 执行进度，仅更新原子计数，不加锁，
+     * 并发完成的 Step 按照最大值更新进度，保证进度单调递增
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2023/6/12 16:57
+     * Modification description: 去除全局锁与每个 Step 的 info 日志
+     * Modified by: Boundivore
+     * Modification time: 2024/6/27
+     * Throws:
      */
     public AtomicInteger execProcess(String planName) {
-        lock.lock();
-        try {
-            this.planName = planName;
-            this.execProgress.set(
-                    this.execCurrent.incrementAndGet() * 100 / this.execTotal.get()
-            );
-
-            log.info("执行 Step 总数: {}, 当前执行完毕: {}, 进度: {}%",
-                    execTotal.get(),
-                    execCurrent.get(),
-                    execProgress.get()
-            );
-
-            return this.execCurrent;
-        } finally {
-            lock.unlock();
-        }
+        this.planName = planName;
+
+        int current = this.execCurrent.incrementAndGet();
+        int progress = current * 100 / Math.max(this.execTotal.get(), 1);
+        this.execProgress.accumulateAndGet(progress, Math::max);
+
+        log.debug("执行 Step 总数: {}, 当前执行完毕: {}, 进度: {}%",
+                this.execTotal.get(),
+                current,
+                progress
+        );
+
+        return this.execCurrent;
     }
 }
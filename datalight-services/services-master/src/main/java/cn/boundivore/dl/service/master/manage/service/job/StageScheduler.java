@@ -0,0 +1,132 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.manage.service.job;
+
+import cn.boundivore.dl.service.master.manage.service.bean.StageMeta;
+import cn.boundivore.dl.service.master.manage.service.stage.IStage;
+import cn.hutool.core.exceptions.ExceptionUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Description: 按照 Plan 中的 Stage 依赖图调度 Stage：
+ * 所有上游 Stage 均已成功的 Stage 会被立即提交，彼此之间不存在依赖路径的 Stage 将并发执行；
+ * 一旦出现失败的 Stage，则不再提交新的 Stage，等待已提交的 Stage 全部结束后返回
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/12
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class StageScheduler {
+
+    private final Plan plan;
+
+    private final CompletionService<StageMeta> completionService;
+
+    public StageScheduler(Plan plan, CompletionService<StageMeta> completionService) {
+        this.plan = plan;
+        this.completionService = completionService;
+    }
+
+    /**
+     * Description: 调度执行计划中的所有 Stage，阻塞至所有已提交的 Stage 结束
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/12
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: InterruptedException 等待 Stage 结束时被中断
+     *
+     * @return boolean 所有 Stage 是否全部执行成功
+     */
+    public boolean schedule() throws InterruptedException {
+        // <StageId, IStage> 保持计划中的提交顺序，相同条件下先加入计划的 Stage 先提交
+        final Map<Long, IStage> pendingStageMap = new LinkedHashMap<>();
+        this.plan.getStages().forEach(i -> pendingStageMap.put(i.getStageMeta().getId(), i));
+
+        final Set<Long> succeededStageIdSet = new HashSet<>();
+        boolean isSuccess = !pendingStageMap.isEmpty();
+        int runningCount = 0;
+
+        while (true) {
+            if (isSuccess) {
+                runningCount += this.submitReadyStages(pendingStageMap, succeededStageIdSet);
+            }
+
+            if (runningCount == 0) break;
+
+            Future<StageMeta> future = this.completionService.take();
+            runningCount--;
+
+            try {
+                StageMeta stageMeta = future.get();
+                if (stageMeta.getStageResult().isSuccess()) {
+                    succeededStageIdSet.add(stageMeta.getId());
+                } else {
+                    //如果中途出现任何的失败，则不再提交后续 Stage，防止强制执行后整个集群出现过多异常，增加回滚成本
+                    isSuccess = false;
+                }
+            } catch (ExecutionException e) {
+                log.error(ExceptionUtil.stacktraceToString(e));
+                isSuccess = false;
+            }
+        }
+
+        // 依赖图异常（如存在环）时，可能残留无法提交的 Stage
+        return isSuccess && pendingStageMap.isEmpty();
+    }
+
+    /**
+     * Description: 提交所有上游 Stage 均已执行成功的 Stage
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/12
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param pendingStageMap     尚未提交的 Stage
+     * @param succeededStageIdSet 已执行成功的 StageId 集合
+     * @return int 本次提交的 Stage 数量
+     */
+    private int submitReadyStages(Map<Long, IStage> pendingStageMap, Set<Long> succeededStageIdSet) {
+        int submitCount = 0;
+
+        Iterator<Map.Entry<Long, IStage>> iterator = pendingStageMap.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, IStage> entry = iterator.next();
+            if (!succeededStageIdSet.containsAll(this.plan.getStageUpstream(entry.getKey()))) continue;
+
+            log.info("提交 Stage: {}", entry.getValue().getStageMeta().getName());
+            this.completionService.submit(entry.getValue());
+            iterator.remove();
+            submitCount++;
+        }
+
+        return submitCount;
+    }
+}
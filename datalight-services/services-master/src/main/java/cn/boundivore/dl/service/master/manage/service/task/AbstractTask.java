@@ -18,13 +18,16 @@ package cn.boundivore.dl.service.master.manage.service.task;
 
 import cn.boundivore.dl.base.enumeration.impl.ExecStateEnum;
 import cn.boundivore.dl.base.enumeration.impl.ExecTypeEnum;
+import cn.boundivore.dl.base.request.impl.worker.ExecBatchRequest;
 import cn.boundivore.dl.base.request.impl.worker.ExecRequest;
+import cn.boundivore.dl.base.response.impl.common.AbstractExecVo;
 import cn.boundivore.dl.base.result.Result;
 import cn.boundivore.dl.cloud.utils.SpringContextUtil;
 import cn.boundivore.dl.exception.BException;
 import cn.boundivore.dl.exception.BashException;
 import cn.boundivore.dl.plugin.base.bean.PluginConfigResult;
 import cn.boundivore.dl.plugin.base.config.IConfig;
+import cn.boundivore.dl.service.master.cache.PluginCache;
 import cn.boundivore.dl.service.master.env.DataLightEnv;
 import cn.boundivore.dl.service.master.manage.service.bean.StepMeta;
 import cn.boundivore.dl.service.master.manage.service.bean.TaskMeta;
@@ -38,17 +41,19 @@ import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
 import javax.validation.constraints.NotNull;
-import java.net.URL;
-import java.net.URLClassLoader;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Description: 包装异步 Task 的执行逻辑，Task 线程运行性质：同服务、同组件、同节点
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2023/4/23
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 执行插件时通过 PluginCache 复用插件类加载器与插件实例；
+ * 远程执行命令时由 Worker 实时推送输出至 StepOutputCache；同一节点上连续的远程 Step 可批量执行
+ * Modified by: Boundivore
+ * Modification time: 2024/6/26
  * Version: V1.0
  */
 @Slf4j
@@ -155,19 +160,18 @@ public abstract class AbstractTask implements ITask {
                 stepMeta.getShell(),
                 ArrayUtil.toString(stepMeta.getArgs())
         );
-        Result<String> result = this.remoteInvokeWorkerService.iWorkerExecAPI(taskMeta.getNodeIp())
-                .exec(
-                        new ExecRequest(
-                                ExecTypeEnum.COMMAND,
-                                stepMeta.getName(),
-                                stepMeta.getShell(),
-                                stepMeta.getExits(),
-                                stepMeta.getTimeout(),
-                                stepMeta.getArgs().toArray(new String[0]),
-                                stepMeta.getInteractions().toArray(new String[0]),
-                                true
-                        )
-                );
+        // 执行过程中 Worker 分块推送输出，可在 Step 结束前查看
+        final String streamId = this.jobService.stepOutputCache.open(stepMeta);
+
+        final Result<String> result;
+        try {
+            result = this.remoteInvokeWorkerService.iWorkerExecAPI(taskMeta.getNodeIp())
+                    .exec(
+                            this.execRequest(stepMeta).setStreamId(streamId)
+                    );
+        } finally {
+            this.jobService.stepOutputCache.close(streamId);
+        }
 
         Assert.isTrue(
                 result.isSuccess(),
@@ -177,6 +181,112 @@ public abstract class AbstractTask implements ITask {
         return result.getMessage();
     }
 
+    /**
+     * Description: 在 Worker 端按顺序批量执行类型为 COMMAND、SCRIPT、COMMON_SCRIPT 的 Step，
+     * 某个 Step 失败后不再执行后续 Step，与逐个执行时的行为一致
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/26
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: BException 远程调用失败时抛出
+     *
+     * @param stepMetaList 同一节点上连续的 Step
+     * @return List<AbstractExecVo.ExecResultVo> 已执行 Step 的结果，按执行顺序排列
+     */
+    protected List<AbstractExecVo.ExecResultVo> execBatch(List<StepMeta> stepMetaList) throws BException {
+        final List<ExecBatchRequest.ExecStep> execStepList = new ArrayList<>(stepMetaList.size());
+        final List<String> streamIdList = new ArrayList<>(stepMetaList.size());
+        long totalSleepMillis = 0L;
+
+        try {
+            for (StepMeta stepMeta : stepMetaList) {
+                switch (stepMeta.getType()) {
+                    case SCRIPT:
+                        this.setExtraArgs(stepMeta);
+                        stepMeta.setShell(this.pluginAbsoluteCommandPath(stepMeta));
+                        break;
+                    case COMMON_SCRIPT:
+                        this.setExtraArgs(stepMeta);
+                        stepMeta.setShell(this.commonAbsoluteCommandPath(stepMeta));
+                        break;
+                    case COMMAND:
+                        break;
+                    default:
+                        throw new BException(
+                                String.format(
+                                        "Step 类型不支持批量执行: %s",
+                                        stepMeta.getType()
+                                )
+                        );
+                }
+
+                log.info("准备远程执行命令: {} {}",
+                        stepMeta.getShell(),
+                        ArrayUtil.toString(stepMeta.getArgs())
+                );
+
+                final String streamId = this.jobService.stepOutputCache.open(stepMeta);
+                streamIdList.add(streamId);
+
+                execStepList.add(
+                        new ExecBatchRequest.ExecStep(
+                                this.execRequest(stepMeta).setStreamId(streamId),
+                                stepMeta.getSleep()
+                        )
+                );
+
+                if (stepMeta.getSleep() != null && stepMeta.getSleep() > 0) totalSleepMillis += stepMeta.getSleep();
+            }
+
+            final Result<AbstractExecVo.ExecBatchVo> result = this.remoteInvokeWorkerService
+                    .iWorkerExecBatchAPI(taskMeta.getNodeIp())
+                    .execBatch(
+                            new ExecBatchRequest(execStepList),
+                            this.remoteInvokeWorkerService.execBatchOptions(
+                                    execStepList.size(),
+                                    totalSleepMillis
+                            )
+                    );
+
+            Assert.isTrue(
+                    result.isSuccess(),
+                    () -> new BashException(result.getMessage())
+            );
+
+            return result.getData().getExecResultList();
+        } finally {
+            streamIdList.forEach(this.jobService.stepOutputCache::close);
+        }
+    }
+
+    /**
+     * Description: 根据 Step 元数据组装执行请求
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/26
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param stepMeta 步骤元数据信息
+     * @return ExecRequest 执行请求
+     */
+    private ExecRequest execRequest(StepMeta stepMeta) {
+        return new ExecRequest(
+                ExecTypeEnum.COMMAND,
+                stepMeta.getName(),
+                stepMeta.getShell(),
+                stepMeta.getExits(),
+                stepMeta.getTimeout(),
+                stepMeta.getArgs().toArray(new String[0]),
+                stepMeta.getInteractions().toArray(new String[0]),
+                true
+        );
+    }
+
     /**
      * Description: 执行 Step 类型为 SCRIPT 的操作
      * Created by: Boundivore
@@ -330,65 +440,43 @@ public abstract class AbstractTask implements ITask {
      * @return boolean 成功返回 true 失败返回 false
      */
     protected String jar(StepMeta stepMeta) throws BException {
-        try {
-            String jarParentPath = String.format(
-                    "file:%s/%s/jars/%s",
-                    DataLightEnv.PLUGINS_DIR_LOCAL,
-                    this.taskMeta.getServiceName(),
-                    stepMeta.getJar()
-            );
-            log.info("Loading jar: {}", jarParentPath);
-
-            URL url = new URL(jarParentPath);
-
-            try (URLClassLoader ucl = new URLClassLoader(
-                    new URL[]{url},
-                    Thread.currentThread().getContextClassLoader())) {
-
-                Class<?> clazz = ucl.loadClass(stepMeta.getClazz());
-
-                if (IConfig.class.isAssignableFrom(clazz)) {
-                    //TODO 反射实例可缓存，降低开销
-                    IConfig iConfig = (IConfig) clazz.getDeclaredConstructor().newInstance();
+        final File jarFile = new File(
+                String.format(
+                        "%s/%s/jars/%s",
+                        DataLightEnv.PLUGINS_DIR_LOCAL,
+                        this.taskMeta.getServiceName(),
+                        stepMeta.getJar()
+                )
+        );
 
-                    iConfig.init(this.jobService.pluginConfig(this.taskMeta));
+        // 同一版本的插件 Jar 包只加载一次，插件实例用完后归还复用
+        try (PluginCache.PluginLease<IConfig> pluginLease = this.jobService.pluginCache.borrow(
+                jarFile,
+                stepMeta.getClazz(),
+                IConfig.class
+        )) {
+            IConfig iConfig = pluginLease.get();
 
-                    //得到配置文件修改后的返回结果，准备入库
-                    PluginConfigResult selfPluginConfigResult = iConfig.configSelf();
+            iConfig.init(this.jobService.pluginConfig(this.taskMeta));
 
-                    Assert.isTrue(
-                            this.jobService.configSaveOrUpdateBatch(selfPluginConfigResult),
-                            () -> new BException(
-                                    String.format(
-                                            "%s 配置文件修改失败",
-                                            this.taskMeta.getComponentName()
-                                    )
-                            )
-                    );
+            //得到配置文件修改后的返回结果，准备入库
+            PluginConfigResult selfPluginConfigResult = iConfig.configSelf();
 
-                } else {
-                    throw new BException(
+            Assert.isTrue(
+                    this.jobService.configSaveOrUpdateBatch(selfPluginConfigResult),
+                    () -> new BException(
                             String.format(
-                                    "该 class 未实现 %s %s %s 接口",
-                                    "datalight-plugins",
-                                    "plugin-base",
-                                    "cn.boundivore.dl.plugin.base.exec.IExec"
+                                    "%s 配置文件修改失败",
+                                    this.taskMeta.getComponentName()
                             )
-
-                    );
-                }
-
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-
-            return String.format(
-                    "插件运行成功: %s",
-                    jarParentPath
+                    )
             );
-        } catch (Exception e) {
-            throw new RuntimeException(e);
         }
+
+        return String.format(
+                "插件运行成功: %s",
+                jarFile.getAbsolutePath()
+        );
     }
 
 
@@ -17,6 +17,7 @@
 package cn.boundivore.dl.service.master.manage.service.task.impl;
 
 import cn.boundivore.dl.base.enumeration.impl.ExecStateEnum;
+import cn.boundivore.dl.base.response.impl.common.AbstractExecVo;
 import cn.boundivore.dl.exception.BException;
 import cn.boundivore.dl.service.master.manage.service.bean.StepMeta;
 import cn.boundivore.dl.service.master.manage.service.bean.TaskMeta;
@@ -27,14 +28,18 @@ import cn.hutool.core.lang.Assert;
 import cn.hutool.core.thread.ThreadUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * Description: 针对同一节点、同一组件的串行 Step 组成的任务
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2023/4/24
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 同一节点上连续的远程 Step 合并为一个批次，通过一次远程调用执行
+ * Modified by: Boundivore
+ * Modification time: 2024/6/26
  * Version: V1.0
  */
 @Slf4j
@@ -50,101 +55,257 @@ public class Task extends AbstractTask {
 
     @Override
     public void run() throws Exception {
+        final List<StepMeta> stepMetaList = new ArrayList<>(taskMeta.getStepMetaMap().values());
 
-        taskMeta.getStepMetaMap().forEach((stepId, stepMeta) -> {
+        int fromIndex = 0;
+        while (fromIndex < stepMetaList.size()) {
+            // 同一节点上连续的远程 Step 合并为一个批次，通过一次远程调用执行
+            int toIndex = fromIndex + 1;
+            if (isRemoteStep(stepMetaList.get(fromIndex))) {
+                while (toIndex < stepMetaList.size() && isRemoteStep(stepMetaList.get(toIndex))) toIndex++;
+            }
 
-            String exceptionStr = "";
+            if (toIndex - fromIndex > 1) {
+                this.runStepBatch(stepMetaList.subList(fromIndex, toIndex));
+            } else {
+                this.runStep(stepMetaList.get(fromIndex));
+            }
+
+            fromIndex = toIndex;
+        }
+    }
+
+    /**
+     * Description: 判断 Step 是否在 Worker 端执行
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/26
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param stepMeta Step 元数据信息
+     * @return boolean 是否在 Worker 端执行
+     */
+    private static boolean isRemoteStep(StepMeta stepMeta) {
+        switch (stepMeta.getType()) {
+            case COMMAND:
+            case SCRIPT:
+            case COMMON_SCRIPT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Description: 逐个执行 Step
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2023/4/24
+     * Modification description: 由 run() 中拆分而来
+     * Modified by: Boundivore
+     * Modification time: 2024/6/26
+     * Throws: BException Step 执行失败时抛出
+     *
+     * @param stepMeta Step 元数据信息
+     */
+    private void runStep(StepMeta stepMeta) {
+        String exceptionStr = "";
+
+        try {
+            //记录 Step 起始时间
+            stepMeta.setStartTime(System.currentTimeMillis());
+
+            //更新当前 Step 执行状态到内存缓存和数据库
+            this.updateStepExecutionStatus(stepMeta, ExecStateEnum.RUNNING);
+
+            //执行指定 Step 的任务
+            String output;
+            switch (stepMeta.getType()) {
+                case COMMAND:
+                    output = super.command(stepMeta);
+                    break;
+                case SCRIPT:
+                    output = super.script(stepMeta);
+                    break;
+                case COMMON_SCRIPT:
+                    output = super.commonScript(stepMeta);
+                    break;
+                case JAR:
+                    output = super.jar(stepMeta);
+                    break;
+                default:
+                    throw new BException(
+                            String.format(
+                                    "Step 错误，未知的 Step 类型: %s",
+                                    stepMeta.getType()
+                            )
+                    );
+            }
+            stepMeta.getStepResult().setSuccess(true);
+            super.jobService.saveLog(stepMeta, output, "");
+        } catch (Exception e) {
+            stepMeta.getStepResult().setSuccess(false);
+            exceptionStr = ExceptionUtil.stacktraceToString(e);
+            super.jobService.saveLog(stepMeta, "", exceptionStr);
+            log.error(exceptionStr);
+        } finally {
+            //如果 yaml 配置文件中发现当前步骤需要暂停等待进程初始化，则按照配置进行休眠
+            if (stepMeta.getSleep() > 0) {
+                ThreadUtil.safeSleep(stepMeta.getSleep());
+            }
+
+            //记录 Step 结束时间(自动计算耗时)
+            stepMeta.setEndTime(System.currentTimeMillis());
+
+            this.finishStep(stepMeta, exceptionStr);
+        }
+    }
+
+    /**
+     * Description: 在 Worker 端批量执行同一节点上连续的远程 Step，执行后的休眠也在 Worker 端完成；
+     * 批次下发时将批次内所有 Step 标记为执行中，随后按执行顺序依次记录各 Step 的结果，
+     * 因前序 Step 失败而未执行的 Step 恢复为未运行，与逐个执行时一致
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/26
+     * Modification description: 批次下发时将所有 Step 标记为执行中，而非仅标记第一个 Step
+     * Modified by: Boundivore
+     * Modification time: 2024/7/4
+     * Throws: BException Step 执行失败时抛出
+     *
+     * @param stepMetaList 同一节点上连续的远程 Step
+     */
+    private void runStepBatch(List<StepMeta> stepMetaList) {
+        //记录批次起始时间
+        final long batchStartTime = System.currentTimeMillis();
 
-            try {
-                //记录 Step 起始时间
-                stepMeta.setStartTime(System.currentTimeMillis());
-
-                //更新当前 Step 执行状态到内存缓存和数据库
-                this.updateStepExecutionStatus(stepMeta, ExecStateEnum.RUNNING);
-
-                //执行指定 Step 的任务
-                String output;
-                switch (stepMeta.getType()) {
-                    case COMMAND:
-                        output = super.command(stepMeta);
-                        break;
-                    case SCRIPT:
-                        output = super.script(stepMeta);
-                        break;
-                    case COMMON_SCRIPT:
-                        output = super.commonScript(stepMeta);
-                        break;
-                    case JAR:
-                        output = super.jar(stepMeta);
-                        break;
-                    default:
-                        throw new BException(
-                                String.format(
-                                        "Step 错误，未知的 Step 类型: %s",
-                                        stepMeta.getType()
-                                )
-                        );
-                }
+        //批次内所有 Step 一并下发至 Worker，更新执行状态到内存缓存和数据库
+        stepMetaList.forEach(stepMeta -> {
+            stepMeta.setStartTime(batchStartTime);
+            this.updateStepExecutionStatus(stepMeta, ExecStateEnum.RUNNING);
+        });
+
+        List<AbstractExecVo.ExecResultVo> execResultList;
+        String batchExceptionStr = "";
+        try {
+            execResultList = super.execBatch(stepMetaList);
+        } catch (Exception e) {
+            execResultList = Collections.emptyList();
+            batchExceptionStr = ExceptionUtil.stacktraceToString(e);
+            log.error(batchExceptionStr);
+        }
+
+        // 远程调用本身失败时，记为第一个 Step 执行失败
+        if (execResultList.isEmpty()) {
+            final StepMeta firstStepMeta = stepMetaList.get(0);
+            firstStepMeta.getStepResult().setSuccess(false);
+            super.jobService.saveLog(firstStepMeta, "", batchExceptionStr);
+            firstStepMeta.setEndTime(System.currentTimeMillis());
+
+            this.suspendSteps(stepMetaList.subList(1, stepMetaList.size()));
+            this.finishStep(firstStepMeta, batchExceptionStr);
+            return;
+        }
+
+        long stepStartTime = batchStartTime;
+        for (int i = 0; i < execResultList.size(); i++) {
+            final StepMeta stepMeta = stepMetaList.get(i);
+            final AbstractExecVo.ExecResultVo execResultVo = execResultList.get(i);
+
+            //根据 Worker 返回的耗时还原各 Step 的起止时间
+            stepMeta.setStartTime(stepStartTime);
+            stepMeta.setEndTime(stepStartTime + execResultVo.getDuration());
+            stepStartTime = stepMeta.getEndTime();
+
+            String exceptionStr = "";
+            if (Boolean.TRUE.equals(execResultVo.getIsSuccess())) {
                 stepMeta.getStepResult().setSuccess(true);
-                super.jobService.saveLog(stepMeta, output, "");
-            } catch (Exception e) {
+                super.jobService.saveLog(stepMeta, execResultVo.getOutput(), "");
+            } else {
                 stepMeta.getStepResult().setSuccess(false);
-                exceptionStr = ExceptionUtil.stacktraceToString(e);
+                exceptionStr = execResultVo.getOutput();
                 super.jobService.saveLog(stepMeta, "", exceptionStr);
                 log.error(exceptionStr);
-            } finally {
-                //如果 yaml 配置文件中发现当前步骤需要暂停等待进程初始化，则按照配置进行休眠
-                if (stepMeta.getSleep() > 0) {
-                    ThreadUtil.safeSleep(stepMeta.getSleep());
-                }
-
-                //获取 JobCacheUtil 缓存键
-                Long jobId = taskMeta.getStageMeta().getJobMeta().getId();
-
-                /*
-                    TODO 如果对部署效率有更高的追求，可以此处不通过锁更新进度，单独实现一个函数，
-                    TODO 在每次获取进度时，通过遍历当前每个 Step 状态实现动态计算进度。
-                */
-                //更新执行进度到内存
-                JobCacheUtil.getInstance()
-                        .get(jobId)
-                        .getPlan()
-                        .execProcess(stepMeta.getName());
-
-                ExecStateEnum execStateEnum = stepMeta.getStepResult().isSuccess() ?
-                        ExecStateEnum.OK :
-                        ExecStateEnum.ERROR;
-
-                //记录 Step 结束时间(自动计算耗时)
-                stepMeta.setEndTime(System.currentTimeMillis());
-
-                log.info("Step: StepName: {}, StepType: {}, Action: {}, Duration: {} ms",
-                        stepMeta.getName(),
-                        stepMeta.getType(),
-                        taskMeta.getActionTypeEnum(),
-                        stepMeta.getDuration()
-                );
-
-                //更新当前 Step 执行状态到内存缓存和数据库
-                this.updateStepExecutionStatus(stepMeta, execStateEnum);
-
-                String finalExceptionStr = exceptionStr;
-                Assert.isTrue(
-                        stepMeta.getStepResult().isSuccess(),
-                        () -> new BException(
-                                String.format(
-                                        "Step 执行失败: %s, StepType: %s, Details: %s",
-                                        stepMeta.getName(),
-                                        stepMeta.getType(),
-                                        finalExceptionStr
-                                )
-                        )
-                );
+
+                this.suspendSteps(stepMetaList.subList(i + 1, stepMetaList.size()));
             }
 
+            this.finishStep(stepMeta, exceptionStr);
+        }
+    }
+
+    /**
+     * Description: 将批次中因前序 Step 失败而未执行的 Step 恢复为未运行
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/4
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param stepMetaList 未执行的 Step
+     */
+    private void suspendSteps(List<StepMeta> stepMetaList) {
+        stepMetaList.forEach(stepMeta -> {
+            stepMeta.setStartTime(0L);
+            this.updateStepExecutionStatus(stepMeta, ExecStateEnum.SUSPEND);
         });
     }
 
+    /**
+     * Description: Step 结束后更新执行进度与状态，Step 执行失败时抛出异常，终止当前 Task
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/26
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: BException Step 执行失败时抛出
+     *
+     * @param stepMeta     Step 元数据信息
+     * @param exceptionStr Step 执行失败时的异常信息
+     */
+    private void finishStep(StepMeta stepMeta, String exceptionStr) {
+        //获取 JobCacheUtil 缓存键
+        Long jobId = taskMeta.getStageMeta().getJobMeta().getId();
+
+        //更新执行进度到内存（无锁原子计数）
+        JobCacheUtil.getInstance()
+                .get(jobId)
+                .getPlan()
+                .execProcess(stepMeta.getName());
+
+        ExecStateEnum execStateEnum = stepMeta.getStepResult().isSuccess() ?
+                ExecStateEnum.OK :
+                ExecStateEnum.ERROR;
+
+        log.info("Step: StepName: {}, StepType: {}, Action: {}, Duration: {} ms",
+                stepMeta.getName(),
+                stepMeta.getType(),
+                taskMeta.getActionTypeEnum(),
+                stepMeta.getDuration()
+        );
+
+        //更新当前 Step 执行状态到内存缓存和数据库
+        this.updateStepExecutionStatus(stepMeta, execStateEnum);
+
+        Assert.isTrue(
+                stepMeta.getStepResult().isSuccess(),
+                () -> new BException(
+                        String.format(
+                                "Step 执行失败: %s, StepType: %s, Details: %s",
+                                stepMeta.getName(),
+                                stepMeta.getType(),
+                                exceptionStr
+                        )
+                )
+        );
+    }
+
     /**
      * Description: 更新当前 Step 执行状态到内存缓存和数据库
      * Created by: Boundivore
@@ -23,8 +23,8 @@ import cn.hutool.core.io.FileUtil;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.*;
+import java.util.stream.Stream;
 
 /**
  * Description: 用于将各类服务的部署配置解析到对应的实体中
@@ -104,6 +104,72 @@ public final class ResolverYamlServiceManifest {
 
     }
 
+    /**
+     * Description: 获取当前服务直接或间接依赖的所有服务（包含可选依赖），以及当前服务声明的关联服务
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/12
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param serviceName 服务名称
+     * @return Set<String> 传递依赖服务与关联服务名称集合，不包含当前服务自身
+     */
+    public static Set<String> getDependencyClosure(String serviceName) {
+        final Set<String> closureSet = new LinkedHashSet<>();
+        final Deque<String> deque = new ArrayDeque<>();
+        deque.push(serviceName);
+
+        while (!deque.isEmpty()) {
+            YamlServiceManifest.Service service = MANIFEST_SERVICE_MAP.get(deque.pop());
+            if (service == null) continue;
+
+            Stream.concat(
+                            Optional.ofNullable(service.getDependencies()).orElse(Collections.emptyList()).stream(),
+                            Optional.ofNullable(service.getOptionalDependencies()).orElse(Collections.emptyList()).stream()
+                    )
+                    // 排除当前服务自身，同时防止配置中出现循环依赖导致重复遍历
+                    .filter(i -> !i.equals(serviceName))
+                    .filter(closureSet::add)
+                    .forEach(deque::push);
+        }
+
+        // 关联服务仅取当前服务直接声明的部分，不做传递
+        YamlServiceManifest.Service currentService = MANIFEST_SERVICE_MAP.get(serviceName);
+        if (currentService != null && currentService.getRelatives() != null) {
+            closureSet.addAll(currentService.getRelatives());
+        }
+
+        closureSet.remove(serviceName);
+        return closureSet;
+    }
+
+    /**
+     * Description: 判断两个服务之间是否存在依赖路径或关联关系（无方向），存在则两者的操作不能并行
+     * 未在清单中声明的服务，视为与所有服务相关，以保证执行顺序的安全
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/12
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param serviceName      服务名称
+     * @param otherServiceName 另一个服务名称
+     * @return boolean 是否相关
+     */
+    public static boolean isRelated(String serviceName, String otherServiceName) {
+        if (!MANIFEST_SERVICE_MAP.containsKey(serviceName) || !MANIFEST_SERVICE_MAP.containsKey(otherServiceName)) {
+            return true;
+        }
+
+        return getDependencyClosure(serviceName).contains(otherServiceName)
+                || getDependencyClosure(otherServiceName).contains(serviceName);
+    }
+
     public static void main(String[] args) throws IOException {
         resolver("");
     }
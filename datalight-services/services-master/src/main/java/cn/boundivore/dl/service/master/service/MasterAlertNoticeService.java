@@ -16,7 +16,10 @@
  */
 package cn.boundivore.dl.service.master.service;
 
+import cn.boundivore.dl.api.third.define.IThirdHandlerInterfaceAPI;
+import cn.boundivore.dl.base.enumeration.impl.AlertHandlerTypeEnum;
 import cn.boundivore.dl.base.request.impl.common.AlertWebhookPayloadRequest;
+import cn.boundivore.dl.base.utils.TimeZoneConverter;
 import cn.boundivore.dl.orm.po.TBasePo;
 import cn.boundivore.dl.orm.po.single.TDlAlert;
 import cn.boundivore.dl.orm.po.single.TDlAlertHandlerInterface;
@@ -25,22 +28,28 @@ import cn.boundivore.dl.orm.po.single.TDlAlertHandlerRelation;
 import cn.boundivore.dl.orm.service.single.impl.TDlAlertHandlerInterfaceServiceImpl;
 import cn.boundivore.dl.orm.service.single.impl.TDlAlertHandlerMailServiceImpl;
 import cn.boundivore.dl.orm.service.single.impl.TDlAlertHandlerRelationServiceImpl;
+import cn.boundivore.dl.orm.service.single.impl.TDlAlertServiceImpl;
+import cn.boundivore.dl.service.master.alert.AlertNotice;
+import cn.boundivore.dl.service.master.alert.AlertNoticePipeline;
+import cn.boundivore.dl.service.master.alert.AlertPipelineStats;
+import cn.boundivore.dl.service.master.gauge.AlertPipelineCollector;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.exceptions.ExceptionUtil;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -69,50 +78,263 @@ public class MasterAlertNoticeService {
 
     private final RemoteInvokeHandlerInterfaceService remoteInvokeHandlerInterfaceService;
 
+    private final TDlAlertServiceImpl tDlAlertService;
+
+    private final Optional<MeterRegistry> meterRegistry;
+
+    @Value("${server.datalight.alert.capacity:10000}")
+    private int alertCapacity;
+
+    @Value("${server.datalight.alert.group-wait-millis:1000}")
+    private long alertGroupWaitMillis;
+
+    @Value("${server.datalight.alert.rate-per-second:20}")
+    private double alertRatePerSecond;
+
+    @Value("${server.datalight.alert.delivery-threads:4}")
+    private int alertDeliveryThreads;
+
+    @Value("${server.datalight.alert.max-retries:3}")
+    private int alertMaxRetries;
+
+    @Value("${server.datalight.alert.retry-backoff-millis:1000}")
+    private long alertRetryBackoffMillis;
+
+    @Value("${server.datalight.alert.dedupe-window-millis:300000}")
+    private long alertDedupeWindowMillis;
+
+    private AlertNoticePipeline alertNoticePipeline;
+
     @PostConstruct
     public void init() {
         objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+
+        this.alertNoticePipeline = new AlertNoticePipeline(
+                this.alertCapacity,
+                this.alertGroupWaitMillis,
+                this.alertRatePerSecond,
+                this.alertDeliveryThreads,
+                this.alertMaxRetries,
+                this.alertRetryBackoffMillis,
+                this.alertDedupeWindowMillis,
+                this::routeAlertNotice,
+                this::deliverAlertNotice
+        );
+
+        this.meterRegistry.ifPresent(registry ->
+                new AlertPipelineCollector(this.alertNoticePipeline, registry).register()
+        );
+    }
+
+    @PreDestroy
+    public void destroy() {
+        this.alertNoticePipeline.close();
+        log.info("告警通知管道已关闭: {}", this.alertNoticePipeline.getStats());
     }
 
     /**
-     * Description: 发送告警信息到指定接口
+     * Description: 将自定义告警交由告警通知管道异步处理，不会阻塞
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2024/4/16
+     * Creation time: 2024/6/20
      * Modification description:
      * Modified by:
      * Modification time:
      * Throws:
      *
-     * @param tDlAlert 告警自定义规则数据库实体
-     * @param request  告警请求体
+     * @param alertList 自定义告警列表
      */
-    public void sendAlert(TDlAlert tDlAlert, AlertWebhookPayloadRequest.Alert request) {
-        // 根据告警 ID 读取本次需要对告警处理的方式
-        List<TDlAlertHandlerRelation> tDlAlertHandlerRelationList = this.tDlAlertHandlerRelationService.lambdaQuery()
+    public void offerAlert(List<AlertWebhookPayloadRequest.Alert> alertList) {
+        this.alertNoticePipeline.offer(alertList);
+    }
+
+    public AlertPipelineStats getAlertPipelineStats() {
+        return this.alertNoticePipeline.getStats();
+    }
+
+    /**
+     * Description: 将一批告警按告警规则合并，并根据告警规则关联的处理方式生成各渠道、各目标的通知，
+     * 告警规则、处理方式关联以及接口地址、邮箱地址均通过批量查询一次性读取
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/20
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param alertList 告警列表
+     * @return List<AlertNotice> 通知列表
+     */
+    private List<AlertNotice> routeAlertNotice(List<AlertWebhookPayloadRequest.Alert> alertList) {
+        // <AlertId, 告警列表>
+        final Map<Long, List<AlertWebhookPayloadRequest.Alert>> alertIdMap = new LinkedHashMap<>();
+        alertList.forEach(alert -> {
+            try {
+                Long alertId = Long.parseLong(alert.getAnnotations().get(MasterAlertService.ANNOTATION_KEY_ALERT_ID));
+                alertIdMap.computeIfAbsent(alertId, k -> new ArrayList<>()).add(alert);
+            } catch (Exception e) {
+                log.error("无法解析告警 ID: {}, {}", alert, ExceptionUtil.stacktraceToString(e));
+            }
+        });
+
+        if (alertIdMap.isEmpty()) return new ArrayList<>();
+
+        // <AlertId, TDlAlert>
+        final Map<Long, TDlAlert> tDlAlertMap = this.tDlAlertService.listByIds(alertIdMap.keySet())
+                .stream()
+                .collect(Collectors.toMap(TBasePo::getId, i -> i));
+
+        if (tDlAlertMap.isEmpty()) return new ArrayList<>();
+
+        // <AlertId, 告警处理方式关联列表>
+        final Map<Long, List<TDlAlertHandlerRelation>> relationMap = this.tDlAlertHandlerRelationService.lambdaQuery()
                 .select()
-                .eq(TDlAlertHandlerRelation::getAlertId, tDlAlert.getId())
-                .list();
-
-        tDlAlertHandlerRelationList.parallelStream()
-                .forEach(i -> {
-                            switch (i.getHandlerType()) {
-                                case ALERT_INTERFACE:
-                                    this.sendToTargetInterface(tDlAlert, request);
-                                    break;
-                                case ALERT_MAIL:
-                                    this.sendToEmail(tDlAlert, request);
-                                    break;
-                                case ALERT_LOG:
-                                    log.warn("发生告警，日志记录: {}", request);
-                                    break;
-                                case ALERT_IGNORE:
-                                    break;
-                                default:
-                                    break;
-                            }
-                        }
+                .in(TDlAlertHandlerRelation::getAlertId, tDlAlertMap.keySet())
+                .list()
+                .stream()
+                .collect(Collectors.groupingBy(TDlAlertHandlerRelation::getAlertId));
+
+        final List<TDlAlertHandlerRelation> relationList = relationMap.values()
+                .stream()
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+
+        // <HandlerId, 接口地址>
+        final Map<Long, String> interfaceUriMap = this.getHandlerTargetMap(
+                relationList,
+                AlertHandlerTypeEnum.ALERT_INTERFACE,
+                handlerIdList -> this.tDlAlertHandlerInterfaceService.listByIds(handlerIdList)
+                        .stream()
+                        .collect(Collectors.toMap(TBasePo::getId, TDlAlertHandlerInterface::getInterfaceUri))
+        );
+
+        // <HandlerId, 邮箱地址>
+        final Map<Long, String> mailAccountMap = this.getHandlerTargetMap(
+                relationList,
+                AlertHandlerTypeEnum.ALERT_MAIL,
+                handlerIdList -> this.tDlAlertHandlerMailService.listByIds(handlerIdList)
+                        .stream()
+                        .collect(Collectors.toMap(TBasePo::getId, TDlAlertHandlerMail::getMailAccount))
+        );
+
+        final List<AlertNotice> alertNoticeList = new ArrayList<>();
+        alertIdMap.forEach((alertId, alerts) -> {
+            TDlAlert tDlAlert = tDlAlertMap.get(alertId);
+            // 如果需要在 TDlAlert 为 null 时输出错误日志，可改动此处
+            if (tDlAlert == null) return;
+
+            // 进行时区转换
+            alerts.forEach(alert -> {
+                alert.setStartsAt(TimeZoneConverter.utcToBeijingTimeStr(alert.getStartsAt()));
+                alert.setEndsAt(TimeZoneConverter.utcToBeijingTimeStr(alert.getEndsAt()));
+            });
+
+            // <处理方式, 处理方式 ID 集合>
+            final Map<AlertHandlerTypeEnum, Set<Long>> handlerTypeMap = new LinkedHashMap<>();
+            relationMap.getOrDefault(alertId, Collections.emptyList())
+                    .forEach(i -> handlerTypeMap.computeIfAbsent(i.getHandlerType(), k -> new LinkedHashSet<>()).add(i.getHandlerId()));
+
+            handlerTypeMap.forEach((handlerType, handlerIdSet) -> {
+                switch (handlerType) {
+                    case ALERT_INTERFACE:
+                        this.distinctTargets(handlerIdSet, interfaceUriMap).forEach(uri ->
+                                alertNoticeList.add(new AlertNotice(handlerType, uri, tDlAlert, new ArrayList<>(alerts)))
+                        );
+                        break;
+                    case ALERT_MAIL:
+                        this.distinctTargets(handlerIdSet, mailAccountMap).forEach(mail ->
+                                alertNoticeList.add(new AlertNotice(handlerType, mail, tDlAlert, new ArrayList<>(alerts)))
+                        );
+                        break;
+                    case ALERT_LOG:
+                        alertNoticeList.add(new AlertNotice(handlerType, null, tDlAlert, new ArrayList<>(alerts)));
+                        break;
+                    case ALERT_IGNORE:
+                        break;
+                    default:
+                        break;
+                }
+            });
+        });
+
+        return alertNoticeList;
+    }
+
+    private Map<Long, String> getHandlerTargetMap(List<TDlAlertHandlerRelation> relationList,
+                                                  AlertHandlerTypeEnum handlerType,
+                                                  Function<List<Long>, Map<Long, String>> targetGetter) {
+        List<Long> handlerIdList = relationList.stream()
+                .filter(i -> i.getHandlerType() == handlerType)
+                .map(TDlAlertHandlerRelation::getHandlerId)
+                .distinct()
+                .collect(Collectors.toList());
+
+        return handlerIdList.isEmpty() ? new HashMap<>() : targetGetter.apply(handlerIdList);
+    }
+
+    private List<String> distinctTargets(Set<Long> handlerIdSet, Map<Long, String> targetMap) {
+        return handlerIdSet.stream()
+                .map(targetMap::get)
+                .filter(Objects::nonNull)
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Description: 投递一次告警通知，抛出异常时由告警通知管道按指数退避重试；
+     * 接口渠道逐条发送，已发送成功的告警会从通知中移除，重试时不会重复发送；
+     * 邮件渠道将同一告警规则的多条告警合并为一封邮件
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/20
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: JsonProcessingException 告警序列化失败
+     *
+     * @param alertNotice 告警通知
+     */
+    private void deliverAlertNotice(AlertNotice alertNotice) throws JsonProcessingException {
+        switch (alertNotice.getChannel()) {
+            case ALERT_INTERFACE:
+                IThirdHandlerInterfaceAPI iThirdHandlerInterfaceAPI = this.remoteInvokeHandlerInterfaceService
+                        .iThirdHandlerInterfaceAPI(alertNotice.getTarget());
+
+                Iterator<AlertWebhookPayloadRequest.Alert> iterator = alertNotice.getAlertList().iterator();
+                while (iterator.hasNext()) {
+                    // Post Body
+                    String preSendStr = this.objectMapper.writeValueAsString(iterator.next());
+                    iThirdHandlerInterfaceAPI.sendPostRequest(preSendStr);
+                    iterator.remove();
+                }
+                break;
+            case ALERT_MAIL:
+                if (!javaMailSender.isPresent()) {
+                    log.warn("JavaMailSender 未配置，无法发送邮件");
+                    break;
+                }
+
+                JavaMailSenderImpl sender = javaMailSender.get();
+                SimpleMailMessage message = new SimpleMailMessage();
+                message.setFrom(Objects.requireNonNull(sender.getUsername()));
+                message.setTo(alertNotice.getTarget());
+                message.setSubject(alertNotice.getTDlAlert().getAlertName());
+                message.setText(
+                        alertNotice.getAlertList()
+                                .stream()
+                                .map(i -> i.getAnnotations().toString())
+                                .collect(Collectors.joining("\n\n"))
                 );
+
+                sender.send(message);
+                break;
+            case ALERT_LOG:
+                alertNotice.getAlertList().forEach(alert -> log.warn("发生告警，日志记录: {}", alert));
+                break;
+            default:
+                break;
+        }
     }
 
     /**
@@ -26,7 +26,6 @@ import cn.boundivore.dl.base.response.impl.master.AbstractAlertVo;
 import cn.boundivore.dl.base.response.impl.master.AbstractNodeVo;
 import cn.boundivore.dl.base.response.impl.master.ConfigListByGroupVo;
 import cn.boundivore.dl.base.result.Result;
-import cn.boundivore.dl.base.utils.TimeZoneConverter;
 import cn.boundivore.dl.base.utils.YamlDeserializer;
 import cn.boundivore.dl.base.utils.YamlSerializer;
 import cn.boundivore.dl.boot.lock.LocalLock;
@@ -45,7 +44,6 @@ import cn.boundivore.dl.service.master.handler.RemoteInvokePrometheusHandler;
 import cn.boundivore.dl.service.master.resolver.ResolverYamlDirectory;
 import cn.hutool.core.codec.Base64;
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.exceptions.ExceptionUtil;
 import cn.hutool.core.lang.Assert;
 import cn.hutool.core.util.CharsetUtil;
 import cn.hutool.crypto.SecureUtil;
@@ -56,7 +54,9 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 /**
@@ -84,6 +84,23 @@ public class MasterAlertService {
     public static final String ALERT_RULE_FILE_PATH_FORMAT = "%s/MONITOR/prometheus/rules/custom/%s";
     public static final String PROMETHEUS_YML_FILE_PATH_FORMAT = "%s/MONITOR/prometheus/prometheus.yml";
 
+    // 等待执行的自动拉起检查数量上限
+    private static final int PULL_COMPONENT_QUEUE_CAPACITY = 256;
+
+    // 串行执行自动拉起检查，避免告警风暴时同时拉起同一组件
+    private final ExecutorService pullComponentExecutor = new ThreadPoolExecutor(
+            1,
+            1,
+            0L,
+            TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(PULL_COMPONENT_QUEUE_CAPACITY),
+            r -> {
+                Thread thread = new Thread(r, "AlertPullComponent");
+                thread.setDaemon(true);
+                return thread;
+            }
+    );
+
     private final RemoteInvokeWorkerService remoteInvokeWorkerService;
 
     private final MasterComponentService masterComponentService;
@@ -108,6 +125,28 @@ public class MasterAlertService {
 
     private final MasterAlertHandlerService masterAlertHandlerService;
 
+    /**
+     * Description: 关闭自动拉起检查线程池，未开始的检查不再执行，并中断正在执行的检查
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/6
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    @PreDestroy
+    public void destroy() {
+        List<Runnable> pendingList = this.pullComponentExecutor.shutdownNow();
+        try {
+            if (!this.pullComponentExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("自动拉起检查线程池未能在超时时间内关闭");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.info("自动拉起检查线程池已关闭, 未执行的检查数: {}", pendingList.size());
+    }
 
     /**
      * Description: 获取 prometheus.yml 文件路径
@@ -147,13 +186,10 @@ public class MasterAlertService {
             log.debug("调用告警钩子接口成功: {}", request);
         }
 
-        log.info("收到告警: {}", request);
-
-        // 缓存本次告警需要读取的告警信息 <AlertId, TDlAlert>
-        Map<Long, TDlAlert> tDlAlertMap = new HashMap<>();
+        log.info("收到告警: {} 条", request.getAlerts().size());
 
-        // 如果是自定义的告警规则，则按照指定方式进行告警
-        request.getAlerts()
+        // 如果是自定义的告警规则，则交由告警通知管道异步去重、分组、限流后按照指定方式进行告警
+        List<AlertWebhookPayloadRequest.Alert> customAlertList = request.getAlerts()
                 .stream()
                 .filter(alert -> {
                     // 过滤掉系统自带的告警规则，即过滤掉 alert_type 为 STATIC
@@ -161,39 +197,20 @@ public class MasterAlertService {
                     return annotationMap.get(ANNOTATION_KEY_ALERT_TYPE) != null
                             && annotationMap.get(ANNOTATION_KEY_ALERT_TYPE).equals(ANNOTATION_VALUE_ALERT_TYPE);
                 })
-                .forEach(alert -> {
-                            Map<String, String> annotationMap = alert.getAnnotations();
-                            Long alertId = Long.parseLong(annotationMap.get(ANNOTATION_KEY_ALERT_ID));
-                            try {
-                                TDlAlert tDlAlert = tDlAlertMap.computeIfAbsent(
-                                        alertId,
-                                        this.tDlAlertService::getById
-                                );
-
-                                // 如果需要在 TDlAlert 为 null 时输出错误日志，可改动此处
-                                if (tDlAlert != null) {
-                                    // 进行时区转换
-                                    alert.setStartsAt(
-                                            TimeZoneConverter.utcToBeijingTimeStr(alert.getStartsAt())
-                                    );
-                                    alert.setEndsAt(
-                                            TimeZoneConverter.utcToBeijingTimeStr(alert.getEndsAt())
-                                    );
-
-
-                                    // 对告警进行具体处理
-                                    this.masterAlertNoticeService.sendAlert(tDlAlert, alert);
-                                }
-
-                            } catch (Exception e) {
-                                log.error(ExceptionUtil.stacktraceToString(e));
-                            }
+                .collect(Collectors.toList());
 
-                        }
-                );
+        if (!customAlertList.isEmpty()) {
+            this.masterAlertNoticeService.offerAlert(customAlertList);
+        }
 
-        // 根据告警检查是否需要自动拉起服务组件
-        this.masterManageService.checkAndPullServiceComponent(request.getAlerts());
+        // 根据告警检查是否需要自动拉起服务组件，异步执行，避免 AlertManager 等待超时后重复发送
+        try {
+            this.pullComponentExecutor.execute(
+                    () -> this.masterManageService.checkAndPullServiceComponent(request.getAlerts())
+            );
+        } catch (RejectedExecutionException e) {
+            log.warn("自动拉起检查积压已满，忽略本次告警: {} 条", request.getAlerts().size());
+        }
 
         return Result.success();
     }
@@ -61,9 +61,9 @@ import static cn.boundivore.dl.base.enumeration.impl.SCStateEnum.*;
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2023/6/15
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 集群组件分布信息改为一次读取所有组件与节点后在内存中组装
+ * Modified by: Boundivore
+ * Modification time: 2024/7/1
  * Version: V1.0
  */
 @Service
@@ -153,9 +153,9 @@ public class MasterComponentService {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2024/4/19
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 节点 ID 去重，支持传入位于相同节点上的多个组件
+     * Modified by: Boundivore
+     * Modification time: 2024/7/1
      * Throws:
      *
      * @param clusterId        集群 ID
@@ -171,6 +171,7 @@ public class MasterComponentService {
         // 提取 TDlComponent 列表中的 nodeId 并转换为 nodeIdList
         List<Long> nodeIdList = tDlComponentList.stream()
                 .map(TDlComponent::getNodeId)
+                .distinct()
                 .collect(Collectors.toList());
 
         // 获取 NodeId 对应的 TDlNode 映射关系
@@ -193,9 +194,9 @@ public class MasterComponentService {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2024/1/29
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 改为调用 getServiceComponentSummaryList 组装
+     * Modified by: Boundivore
+     * Modification time: 2024/7/1
      * Throws:
      *
      * @param clusterId   集群 ID
@@ -233,14 +234,7 @@ public class MasterComponentService {
                                 .getDataLight()
                                 .getDlcVersion(),
                         // 组装 List<ServiceComponentSummaryVo>
-                        selectedServiceSummaryList.stream()
-                                .map(i -> new AbstractServiceComponentVo.ServiceComponentSummaryVo(
-                                                i,
-                                                this.getComponentSummaryMap(clusterId, i.getServiceName())
-                                        )
-                                )
-                                .sorted(Comparator.comparing(o -> o.getServiceSummaryVo().getPriority()))
-                                .collect(Collectors.toList())
+                        this.getServiceComponentSummaryList(clusterId, selectedServiceSummaryList)
                 )
         );
     }
@@ -250,9 +244,9 @@ public class MasterComponentService {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2023/7/18
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 改为调用 getServiceComponentSummaryList 组装
+     * Modified by: Boundivore
+     * Modification time: 2024/7/1
      * Throws:
      *
      * @param clusterId 集群 ID
@@ -277,34 +271,107 @@ public class MasterComponentService {
                                 .getDataLight()
                                 .getDlcVersion(),
                         // 组装 List<ServiceComponentSummaryVo>
-                        selectedServiceSummaryList.stream()
-                                .map(i -> new AbstractServiceComponentVo.ServiceComponentSummaryVo(
-                                                i,
-                                                this.getComponentSummaryMap(clusterId, i.getServiceName())
-                                        )
-                                )
-                                .sorted(Comparator.comparing(o -> o.getServiceSummaryVo().getPriority()))
-                                .collect(Collectors.toList())
+                        this.getServiceComponentSummaryList(clusterId, selectedServiceSummaryList)
                 )
         );
     }
 
     /**
-     * Description: 获取服务名称与组件的映射关系（包括组件在集群中的状态）
+     * Description: 组装服务与组件在节点中的分布信息。
+     * 一次性读取本次涉及的所有服务下的组件分布，以及这些组件所在的节点，随后在内存中完成组装，
+     * 数据库访问次数与服务、组件、节点的数量无关
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2023/7/18
+     * Creation time: 2024/7/1
      * Modification description:
      * Modified by:
      * Modification time:
      * Throws:
      *
-     * @param clusterId   集群 ID
-     * @param serviceName 服务名称
+     * @param clusterId          集群 ID
+     * @param serviceSummaryList 需要组装的服务列表
+     * @return List<AbstractServiceComponentVo.ServiceComponentSummaryVo> 按服务优先级排序的服务与组件分布信息
+     */
+    public List<AbstractServiceComponentVo.ServiceComponentSummaryVo> getServiceComponentSummaryList(
+            Long clusterId,
+            List<AbstractServiceComponentVo.ServiceSummaryVo> serviceSummaryList) {
+
+        // 本次涉及的所有组件名称
+        List<String> componentNameList = serviceSummaryList.stream()
+                .flatMap(i -> ResolverYamlServiceDetail.COMPONENT_LIST_MAP.get(i.getServiceName()).stream())
+                .map(YamlServiceDetail.Component::getName)
+                .distinct()
+                .collect(Collectors.toList());
+
+        // 一次性读取所有组件分布
+        List<TDlComponent> tDlComponentList = componentNameList.isEmpty() ?
+                new ArrayList<>() :
+                this.listDeployedTDlComponent(clusterId, componentNameList);
+
+        // <ComponentName, List<TDlComponent>>
+        Map<String, List<TDlComponent>> tDlComponentMap = tDlComponentList.stream()
+                .collect(Collectors.groupingBy(TDlComponent::getComponentName));
+
+        // 一次性读取组件所在节点 <NodeId, TDlNode>
+        Map<Long, TDlNode> tDlNodeMap = tDlComponentList.isEmpty() ?
+                new HashMap<>() :
+                this.getComponentNodeMap(clusterId, tDlComponentList);
+
+        return serviceSummaryList.stream()
+                .map(i -> new AbstractServiceComponentVo.ServiceComponentSummaryVo(
+                                i,
+                                this.getComponentSummaryMap(
+                                        i.getServiceName(),
+                                        tDlComponentMap,
+                                        tDlNodeMap
+                                )
+                        )
+                )
+                .sorted(Comparator.comparing(o -> o.getServiceSummaryVo().getPriority()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Description: 读取集群中指定组件的分布情况（不包含已移除与未选择的组件）
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/1
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param clusterId         集群 ID
+     * @param componentNameList 组件名称列表
+     * @return List<TDlComponent> 组件数据库实体列表
+     */
+    private List<TDlComponent> listDeployedTDlComponent(Long clusterId, Collection<String> componentNameList) {
+        return this.tDlComponentService.lambdaQuery()
+                .select()
+                .eq(TDlComponent::getClusterId, clusterId)
+                .in(TDlComponent::getComponentName, componentNameList)
+                .notIn(TDlComponent::getComponentState, REMOVED, UNSELECTED)
+                .list();
+    }
+
+    /**
+     * Description: 获取服务名称与组件的映射关系（包括组件在集群中的状态）
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2023/7/18
+     * Modification description: 组件分布与节点信息改为由调用方一次性读取后传入
+     * Modified by: Boundivore
+     * Modification time: 2024/7/1
+     * Throws:
+     *
+     * @param serviceName     服务名称
+     * @param tDlComponentMap <ComponentName, List<TDlComponent>>
+     * @param tDlNodeMap      <NodeId, TDlNode>
      * @return List<AbstractServiceComponentVo.ComponentSummaryVo> 服务名称与组件的映射关系的列表
      */
-    private List<AbstractServiceComponentVo.ComponentSummaryVo> getComponentSummaryMap(Long clusterId,
-                                                                                       String serviceName) {
+    private List<AbstractServiceComponentVo.ComponentSummaryVo> getComponentSummaryMap(String serviceName,
+                                                                                       Map<String, List<TDlComponent>> tDlComponentMap,
+                                                                                       Map<Long, TDlNode> tDlNodeMap) {
         // 根据服务名称获取组件列表，包含组件在集群中的状态
         return ResolverYamlServiceDetail.COMPONENT_LIST_MAP
                 .get(serviceName)
@@ -314,8 +381,8 @@ public class MasterComponentService {
                         .convert2ComponentSummaryVo(i)
                         .setComponentNodeList(
                                 this.getComponentNodeVo(
-                                        clusterId,
-                                        i.getName()
+                                        tDlComponentMap.getOrDefault(i.getName(), Collections.emptyList()),
+                                        tDlNodeMap
                                 )
                         )
                 )
@@ -326,54 +393,36 @@ public class MasterComponentService {
 
     /**
      * Description: 获取组件在节点中的分布情况
-     * EASY TO FIX: 目前此种操作推测不会出现数据库性能瓶颈，在超大规模集群下，
-     * 如果数据库访问速度降低，可考虑一次性读取数据库中的所有组件分布信息，一次性完成所有组装
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2023/7/18
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 不再逐个组件查询数据库，改为基于已读取的组件分布与节点信息组装
+     * Modified by: Boundivore
+     * Modification time: 2024/7/1
      * Throws:
      *
-     * @param clusterId     集群 ID
-     * @param componentName 组件名称
+     * @param tDlComponentList 单个组件的分布列表
+     * @param tDlNodeMap       <NodeId, TDlNode>
      * @return List<AbstractServiceComponentVo.ComponentNodeVo> 组件节点信息的列表
      */
-    private List<AbstractServiceComponentVo.ComponentNodeVo> getComponentNodeVo(Long clusterId,
-                                                                                String componentName) {
-        // 根据集群 ID 和组件名称查询 TDlComponent 列表
-        List<TDlComponent> tDlComponentList = this.tDlComponentService.lambdaQuery()
-                .select()
-                .eq(TDlComponent::getClusterId, clusterId)
-                .eq(TDlComponent::getComponentName, componentName)
-                .notIn(TDlComponent::getComponentState, REMOVED, UNSELECTED)
-                .list();
-
-        if (!tDlComponentList.isEmpty()) {
-            // 获取 NodeId 对应的 TDlNode 映射关系
-            Map<Long, TDlNode> tDlNodeMap = this.getComponentNodeMap(clusterId, tDlComponentList);
-
-            // 根据映射关系创建组件节点信息的列表
-            return tDlComponentList
-                    .stream()
-                    .map(i -> new AbstractServiceComponentVo.ComponentNodeVo(
-                                    i.getId(),
-                                    i.getNodeId(),
-                                    tDlNodeMap.get(i.getNodeId()).getHostname(),
-                                    tDlNodeMap.get(i.getNodeId()).getIpv4(),
-                                    tDlNodeMap.get(i.getNodeId()).getNodeState(),
-                                    i.getComponentState(),
-                                    i.getNeedRestart()
-                            )
-                    )
-                    // 按节点主机名进行排序
-                    .sorted(Comparator.comparing(AbstractServiceComponentVo.ComponentNodeVo::getHostname))
-                    .collect(Collectors.toList());
-        }
-
-        // 若 tDlComponentList 为空，则返回空列表
-        return new ArrayList<>();
+    private List<AbstractServiceComponentVo.ComponentNodeVo> getComponentNodeVo(List<TDlComponent> tDlComponentList,
+                                                                                Map<Long, TDlNode> tDlNodeMap) {
+        // 根据映射关系创建组件节点信息的列表，若 tDlComponentList 为空，则返回空列表
+        return tDlComponentList
+                .stream()
+                .map(i -> new AbstractServiceComponentVo.ComponentNodeVo(
+                                i.getId(),
+                                i.getNodeId(),
+                                tDlNodeMap.get(i.getNodeId()).getHostname(),
+                                tDlNodeMap.get(i.getNodeId()).getIpv4(),
+                                tDlNodeMap.get(i.getNodeId()).getNodeState(),
+                                i.getComponentState(),
+                                i.getNeedRestart()
+                        )
+                )
+                // 按节点主机名进行排序
+                .sorted(Comparator.comparing(AbstractServiceComponentVo.ComponentNodeVo::getHostname))
+                .collect(Collectors.toCollection(ArrayList::new));
     }
 
 
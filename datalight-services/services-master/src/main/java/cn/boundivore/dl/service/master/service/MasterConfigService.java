@@ -16,15 +16,19 @@
  */
 package cn.boundivore.dl.service.master.service;
 
+import cn.boundivore.dl.api.worker.define.IWorkerConfigAPI;
 import cn.boundivore.dl.base.constants.ICommonConstant;
 import cn.boundivore.dl.base.enumeration.impl.SCStateEnum;
 import cn.boundivore.dl.base.request.impl.master.AbstractServiceComponentRequest;
 import cn.boundivore.dl.base.request.impl.master.ConfigSaveByGroupRequest;
 import cn.boundivore.dl.base.request.impl.master.ConfigSaveRequest;
+import cn.boundivore.dl.base.request.impl.worker.ConfigFileDigestRequest;
 import cn.boundivore.dl.base.request.impl.worker.ConfigFileRequest;
+import cn.boundivore.dl.base.response.impl.common.AbstractConfigFileVo;
 import cn.boundivore.dl.base.response.impl.master.ConfigListByGroupVo;
 import cn.boundivore.dl.base.response.impl.master.ConfigSummaryListVo;
 import cn.boundivore.dl.base.result.Result;
+import cn.boundivore.dl.cloud.config.async.executors.CustomThreadPoolTaskExecutor;
 import cn.boundivore.dl.exception.BException;
 import cn.boundivore.dl.exception.DatabaseException;
 import cn.boundivore.dl.orm.mapper.custom.ComponentNodeMapper;
@@ -38,19 +42,27 @@ import cn.boundivore.dl.orm.service.single.impl.TDlConfigServiceImpl;
 import cn.boundivore.dl.plugin.base.bean.PluginConfigEvent;
 import cn.boundivore.dl.plugin.base.bean.PluginConfigResult;
 import cn.boundivore.dl.service.master.bean.ConfigContentPersistedMaps;
+import cn.boundivore.dl.service.master.bean.ConfigPushResult;
 import cn.boundivore.dl.service.master.boardcast.ConfigEvent;
 import cn.boundivore.dl.service.master.boardcast.ConfigEventPublisher;
+import cn.hutool.core.codec.Base64;
 import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.exceptions.ExceptionUtil;
 import cn.hutool.core.lang.Assert;
 import cn.hutool.core.lang.Pair;
+import cn.hutool.crypto.SecureUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
 import java.util.stream.Collectors;
 
 /**
@@ -59,9 +71,9 @@ import java.util.stream.Collectors;
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2023/5/5
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 配置文件与配置文件内容改为 IN 查询预取、内存去重、批量写入
+ * Modified by: Boundivore
+ * Modification time: 2024/6/28
  * Version: V1.0
  */
 @Service
@@ -85,6 +97,15 @@ public class MasterConfigService {
 
     private final MasterComponentService masterComponentService;
 
+    // 通用耗时异步任务线程池，用于并发下发配置文件
+    private final CustomThreadPoolTaskExecutor customExecutor;
+
+    // 单条 IN 查询中的最大参数个数，超出时分批查询
+    private static final int IN_BATCH_SIZE = 500;
+
+    @Value("${server.datalight.config.push-parallelism:32}")
+    private int pushParallelism;
+
 
     /**
      * Description: 根据 pluginConfigResult 判断是否需要对配置文件进行后续操作
@@ -114,9 +135,9 @@ public class MasterConfigService {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2023/6/19
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 逐条查询并 saveOrUpdateBatch 改为预取后批量插入、批量更新
+     * Modified by: Boundivore
+     * Modification time: 2024/6/28
      * Throws: DatabaseException 数据库操作失败抛出 DatabaseException 异常
      *
      * @param request                  待保存或更新的配置列表
@@ -133,36 +154,25 @@ public class MasterConfigService {
         final Long clusterId = request.getClusterId();
         final String serviceName = request.getServiceName();
 
-        // 根据请求中的配置列表进行处理
-        List<TDlConfig> tDlConfigList = request.getConfigList()
-                .stream()
-                .map(i -> {
-                            // 组装 TDlConfig 对象
-                            return this.createOrUpdateTDlConfig(
-                                    groupTDlConfigContentMap,
-                                    clusterId,
-                                    serviceName,
-                                    i.getNodeId(),
-                                    i.getConfigPath(),
-                                    i.getFilename(),
-                                    i.getConfigData(),
-                                    i.getSha256()
-                            );
-
-                        }
-                )
-                .filter(Objects::nonNull) // 过滤配置未发生变更的条目
-                .collect(Collectors.toList());
+        // 预取已存在的配置与配置文件内容，并批量保存或更新 TDlConfig 对象
+        final List<TDlConfig> tDlConfigList = this.saveOrUpdateTDlConfigBatch(
+                groupTDlConfigContentMap,
+                clusterId,
+                serviceName,
+                request.getConfigList()
+        );
 
-        // 批量保存或更新 TDlConfig 对象
         if (!tDlConfigList.isEmpty()) {
-            Assert.isTrue(
-                    this.tDlConfigService.saveOrUpdateBatch(tDlConfigList),
-                    () -> new DatabaseException("批量保存配置文件失败")
-            );
-
             // 远程更新节点上对应的配置文件
-            this.saveConfig2NodeBatch(tDlConfigList);
+            final ConfigPushResult configPushResult = this.saveConfig2NodeBatch(tDlConfigList);
+            log.info("集群 {} 服务 {} 配置文件下发结束, 节点数: {}, 下发文件数: {}, 跳过文件数: {}, 耗时: {} ms",
+                    clusterId,
+                    serviceName,
+                    configPushResult.getNodeOutcomeList().size(),
+                    configPushResult.getPushedCount(),
+                    configPushResult.getSkippedCount(),
+                    configPushResult.getCostMillis()
+            );
 
             // 在事务完成后执行发布 "配置变更" 事件
             this.publishConfigChange(clusterId, serviceName);
@@ -176,9 +186,9 @@ public class MasterConfigService {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2023/6/19
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 逐条查询配置文件内容改为一次 IN 查询
+     * Modified by: Boundivore
+     * Modification time: 2024/6/28
      * Throws: DatabaseException 数据库操作失败抛出 DatabaseException 异常
      *
      * @param request 待保存或更新的配置列表
@@ -192,7 +202,7 @@ public class MasterConfigService {
                 .stream()
                 .collect(
                         Collectors.toMap(
-                                i -> request.getClusterId() + i.getFilename() + i.getSha256(),
+                                i -> contentKey(request.getClusterId(), i.getFilename(), i.getSha256()),
                                 i -> i,
                                 (existing, replacement) -> existing
                         )
@@ -200,19 +210,20 @@ public class MasterConfigService {
 
         // 查询数据库中是否已经存在此类配置文件
         // <clusterId + filename + sha256, TDlConfigContent>
-        Map<String, TDlConfigContent> tDlConfigContentMap = configRequestMap.values()
-                .stream()
-                .map(i -> this.getTDlConfigContentBySha256(
-                                request.getClusterId(),
-                                i.getFilename(),
-                                i.getSha256()
-                        )
+        Map<String, TDlConfigContent> tDlConfigContentMap = this.listTDlConfigContent(
+                        request.getClusterId(),
+                        configRequestMap.values()
+                                .stream()
+                                .map(ConfigSaveRequest.ConfigRequest::getSha256)
+                                .collect(Collectors.toSet())
                 )
-                .filter(Objects::nonNull)
+                .stream()
+                .filter(i -> configRequestMap.containsKey(contentKey(i.getClusterId(), i.getFilename(), i.getSha256())))
                 .collect(
                         Collectors.toMap(
-                                i -> i.getClusterId() + i.getFilename() + i.getSha256(),
-                                i -> i
+                                i -> contentKey(i.getClusterId(), i.getFilename(), i.getSha256()),
+                                i -> i,
+                                (existing, replacement) -> existing
                         )
                 );
 
@@ -224,207 +235,510 @@ public class MasterConfigService {
 
 
     /**
-     * Description: 根据指定条件创建或更新 TDlConfig 对象
+     * Description: 批量创建或更新配置文件：
+     * 先通过少量 IN 查询预取已存在的配置与配置文件内容，配置文件内容按照 “集群 + 文件名 + SHA256” 在内存中去重，
+     * 最后以批量插入、批量更新的方式写入数据库，查询次数与节点数量无关
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2023/6/25
+     * Creation time: 2024/6/28
      * Modification description:
      * Modified by:
      * Modification time:
-     * Throws:
+     * Throws: DatabaseException 数据库操作失败抛出 DatabaseException 异常
      *
-     * @param clusterId   集群 ID
-     * @param serviceName 服务名称
-     * @param nodeId      节点 ID
-     * @param configPath  配置文件路径
-     * @param filename    文件名
-     * @param configData  配置数据
-     * @param sha256      SHA256 值
-     * @return TDlConfig 创建或更新后的 TDlConfig 对象
+     * @param tDlConfigContentMap <clusterId + filename + sha256, TDlConfigContent> 调用方已查询到的配置文件内容，可为 null
+     * @param clusterId           集群 ID
+     * @param serviceName         服务名称
+     * @param configRequestList   待保存的配置列表，同一节点的同一配置文件路径出现多次时以最后一次为准
+     * @return List<TDlConfig> 已保存的配置
      */
     @Transactional(
             timeout = ICommonConstant.TIMEOUT_TRANSACTION_SECONDS,
             rollbackFor = DatabaseException.class
     )
-    public TDlConfig createOrUpdateTDlConfig(Map<String, TDlConfigContent> tDlConfigContentMap,
-                                             Long clusterId,
-                                             String serviceName,
-                                             Long nodeId,
-                                             String configPath,
-                                             String filename,
-                                             String configData,
-                                             String sha256) {
-
-        TDlConfig tDlConfig = this.tDlConfigService.lambdaQuery()
-                .select()
-                .eq(TDlConfig::getClusterId, clusterId)
-                .eq(TDlConfig::getServiceName, serviceName)
-                .eq(TDlConfig::getNodeId, nodeId)
-                .eq(TDlConfig::getConfigPath, configPath)
-                .one();
-
-        if (tDlConfig == null) {
-            tDlConfig = new TDlConfig();
-            tDlConfig.setVersion(0L);
-            tDlConfig.setConfigVersion(0L);
-            tDlConfig.setConfigContentId(-1L);
-        }
+    public List<TDlConfig> saveOrUpdateTDlConfigBatch(Map<String, TDlConfigContent> tDlConfigContentMap,
+                                                      Long clusterId,
+                                                      String serviceName,
+                                                      List<ConfigSaveRequest.ConfigRequest> configRequestList) {
+        if (CollUtil.isEmpty(configRequestList)) return Collections.emptyList();
 
-        // 获取配置文件内容数据库实例
-        TDlConfigContent tDlConfigContent = this.getOrNewTDlConfigContent(
+        // <clusterId + filename + sha256, TDlConfigContent>
+        final Map<String, TDlConfigContent> contentMap = this.getOrNewTDlConfigContentMap(
                 tDlConfigContentMap,
                 clusterId,
-                filename,
-                configData,
-                sha256
+                configRequestList
         );
 
-        // EASY_TO_FIX: 此处可进一步优化性能：如果配置未发生变更，则不修改配置文件，直接远程写如配置文件内容到对应节点
-//        if (tDlConfig.getConfigContentId().longValue() == tDlConfigContent.getId()) {
-//            return null;
-//        }
+        // <nodeId + configPath, ConfigRequest>
+        final Map<String, ConfigSaveRequest.ConfigRequest> configRequestMap = new LinkedHashMap<>();
+        configRequestList.forEach(i -> configRequestMap.put(configKey(i.getNodeId(), i.getConfigPath()), i));
 
-        tDlConfig.setClusterId(clusterId);
-        tDlConfig.setNodeId(nodeId);
-        tDlConfig.setServiceName(serviceName);
-        tDlConfig.setConfigContentId(tDlConfigContent.getId());
-        tDlConfig.setFilename(filename);
-        tDlConfig.setConfigPath(configPath);
-        tDlConfig.setConfigVersion(tDlConfig.getConfigVersion() + 1L);
+        // <nodeId + configPath, TDlConfig>
+        final Map<String, TDlConfig> existingTDlConfigMap = this.listTDlConfig(
+                        clusterId,
+                        serviceName,
+                        configRequestMap.values()
+                                .stream()
+                                .map(ConfigSaveRequest.ConfigRequest::getNodeId)
+                                .collect(Collectors.toSet()),
+                        configRequestMap.values()
+                                .stream()
+                                .map(ConfigSaveRequest.ConfigRequest::getConfigPath)
+                                .collect(Collectors.toSet())
+                )
+                .stream()
+                .collect(
+                        Collectors.toMap(
+                                i -> configKey(i.getNodeId(), i.getConfigPath()),
+                                i -> i,
+                                (existing, replacement) -> existing
+                        )
+                );
+
+        final List<TDlConfig> insertList = new ArrayList<>();
+        final List<TDlConfig> updateList = new ArrayList<>();
+
+        configRequestMap.forEach((configKey, configRequest) -> {
+            TDlConfig tDlConfig = existingTDlConfigMap.get(configKey);
+            if (tDlConfig == null) {
+                tDlConfig = new TDlConfig();
+                tDlConfig.setVersion(0L);
+                tDlConfig.setConfigVersion(0L);
+                insertList.add(tDlConfig);
+            } else {
+                updateList.add(tDlConfig);
+            }
+
+            final TDlConfigContent tDlConfigContent = contentMap.get(
+                    contentKey(clusterId, configRequest.getFilename(), configRequest.getSha256())
+            );
 
-        return tDlConfig;
+            tDlConfig.setClusterId(clusterId);
+            tDlConfig.setNodeId(configRequest.getNodeId());
+            tDlConfig.setServiceName(serviceName);
+            tDlConfig.setConfigContentId(tDlConfigContent.getId());
+            tDlConfig.setFilename(configRequest.getFilename());
+            tDlConfig.setConfigPath(configRequest.getConfigPath());
+            tDlConfig.setConfigVersion(tDlConfig.getConfigVersion() + 1L);
+        });
+
+        this.saveTDlConfigBatch(insertList, updateList);
+
+        final List<TDlConfig> tDlConfigList = new ArrayList<>(insertList.size() + updateList.size());
+        tDlConfigList.addAll(insertList);
+        tDlConfigList.addAll(updateList);
+        return tDlConfigList;
     }
 
     /**
-     * Description: 获取或生成一个新的 TDlConfigContent 实例
+     * Description: 获取本次需要引用的所有配置文件内容，调用方未提供的内容通过 IN 查询补齐，
+     * 数据库中仍不存在的内容去重后批量入库
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2023/7/31
+     * Creation time: 2024/6/28
      * Modification description:
      * Modified by:
      * Modification time:
-     * Throws:
+     * Throws: DatabaseException 数据库操作失败抛出 DatabaseException 异常
      *
-     * @param clusterId  集群 ID
-     * @param filename   配置文件名
-     * @param configData 配置文件数据内容
-     * @param sha256     配置文件内容 SHA256
-     * @return 配置文件内容的数据库实例
+     * @param tDlConfigContentMap 调用方已查询到的配置文件内容，可为 null
+     * @param clusterId           集群 ID
+     * @param configRequestList   待保存的配置列表
+     * @return Map<String, TDlConfigContent> <clusterId + filename + sha256, TDlConfigContent>
      */
-    @Transactional(
-            timeout = ICommonConstant.TIMEOUT_TRANSACTION_SECONDS,
-            rollbackFor = DatabaseException.class
-    )
-    public TDlConfigContent getOrNewTDlConfigContent(Map<String, TDlConfigContent> tDlConfigContentMap,
-                                                     Long clusterId,
-                                                     String filename,
-                                                     String configData,
-                                                     String sha256) {
-
-        TDlConfigContent tDlConfigContent = null;
-        if (tDlConfigContentMap != null && !tDlConfigContentMap.isEmpty()) {
-            tDlConfigContent = tDlConfigContentMap.get(clusterId + filename + sha256);
-        }
+    private Map<String, TDlConfigContent> getOrNewTDlConfigContentMap(Map<String, TDlConfigContent> tDlConfigContentMap,
+                                                                      Long clusterId,
+                                                                      List<ConfigSaveRequest.ConfigRequest> configRequestList) {
+        final Map<String, TDlConfigContent> contentMap = tDlConfigContentMap == null ?
+                new HashMap<>() :
+                new HashMap<>(tDlConfigContentMap);
+
+        // 调用方未提供的配置文件内容 <clusterId + filename + sha256, ConfigRequest>
+        final Map<String, ConfigSaveRequest.ConfigRequest> missingMap = new LinkedHashMap<>();
+        configRequestList.forEach(i -> {
+            String contentKey = contentKey(clusterId, i.getFilename(), i.getSha256());
+            if (!contentMap.containsKey(contentKey)) missingMap.putIfAbsent(contentKey, i);
+        });
 
-        // 读取数据库中可能存在的配置文件内容
-        if (tDlConfigContent == null) {
-            tDlConfigContent = this.getTDlConfigContentBySha256(clusterId, filename, sha256);
-        }
+        if (missingMap.isEmpty()) return contentMap;
 
-        // 如果 tDlConfigContent 此时为空，则说明数据库中无此配置内容实例，需入库，如不为空，则说明已存在同样内容的配置实例，则跳过入库
-        if (tDlConfigContent == null) {
-            tDlConfigContent = new TDlConfigContent();
+        // 读取数据库中可能存在的配置文件内容
+        this.listTDlConfigContent(
+                        clusterId,
+                        missingMap.values()
+                                .stream()
+                                .map(ConfigSaveRequest.ConfigRequest::getSha256)
+                                .collect(Collectors.toSet())
+                )
+                .forEach(i -> {
+                    String contentKey = contentKey(i.getClusterId(), i.getFilename(), i.getSha256());
+                    if (missingMap.remove(contentKey) != null) contentMap.put(contentKey, i);
+                });
+
+        // 仍不存在的配置文件内容需入库，同样内容仅入库一次
+        final List<TDlConfigContent> newTDlConfigContentList = new ArrayList<>(missingMap.size());
+        missingMap.forEach((contentKey, configRequest) -> {
+            TDlConfigContent tDlConfigContent = new TDlConfigContent();
             tDlConfigContent.setVersion(0L);
             tDlConfigContent.setClusterId(clusterId);
-            tDlConfigContent.setFilename(filename);
-            tDlConfigContent.setSha256(sha256);
-            tDlConfigContent.setConfigData(configData);
+            tDlConfigContent.setFilename(configRequest.getFilename());
+            tDlConfigContent.setSha256(configRequest.getSha256());
+            tDlConfigContent.setConfigData(configRequest.getConfigData());
 
-            Assert.isTrue(
-                    this.tDlConfigContentService.save(tDlConfigContent),
-                    () -> new DatabaseException("保存配置文件内容失败")
-            );
-        }
+            newTDlConfigContentList.add(tDlConfigContent);
+            contentMap.put(contentKey, tDlConfigContent);
+        });
 
-        return tDlConfigContent;
+        this.saveTDlConfigContentBatch(newTDlConfigContentList);
 
+        return contentMap;
     }
 
     /**
-     * Description: 获取配置文件
+     * Description: 通过 IN 查询获取指定节点上指定路径的配置，节点较多时分批查询
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2023/7/31
+     * Creation time: 2024/6/28
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param clusterId     集群 ID
+     * @param serviceName   服务名称
+     * @param nodeIdSet     节点 ID 集合
+     * @param configPathSet 配置文件路径集合
+     * @return List<TDlConfig> 已存在的配置，可能包含不在本次请求中的节点与路径组合，由调用方过滤
+     */
+    private List<TDlConfig> listTDlConfig(Long clusterId,
+                                          String serviceName,
+                                          Set<Long> nodeIdSet,
+                                          Set<String> configPathSet) {
+        final List<TDlConfig> tDlConfigList = new ArrayList<>();
+        for (List<Long> nodeIdList : CollUtil.split(nodeIdSet, IN_BATCH_SIZE)) {
+            tDlConfigList.addAll(
+                    this.tDlConfigService.lambdaQuery()
+                            .select()
+                            .eq(TDlConfig::getClusterId, clusterId)
+                            .eq(TDlConfig::getServiceName, serviceName)
+                            .in(TDlConfig::getNodeId, nodeIdList)
+                            .in(TDlConfig::getConfigPath, configPathSet)
+                            .list()
+            );
+        }
+        return tDlConfigList;
+    }
+
+    /**
+     * Description: 通过 IN 查询获取指定 SHA256 的配置文件内容，数量较多时分批查询
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/28
      * Modification description:
      * Modified by:
      * Modification time:
      * Throws:
      *
      * @param clusterId 集群 ID
-     * @param filename  配置文件名
-     * @param sha256    配置文件内容 SHA256
-     * @return 配置文件内容的数据库实例
+     * @param sha256Set 配置文件内容 SHA256 集合
+     * @return List<TDlConfigContent> 配置文件内容，同一 SHA256 可能对应多个文件名，由调用方过滤
      */
-    private TDlConfigContent getTDlConfigContentBySha256(Long clusterId,
-                                                         String filename,
-                                                         String sha256) {
-        return this.tDlConfigContentService.lambdaQuery()
-                .select()
-                .eq(TDlConfigContent::getClusterId, clusterId)
-                .eq(TDlConfigContent::getSha256, sha256)
-                .eq(TDlConfigContent::getFilename, filename)
-                .one();
+    private List<TDlConfigContent> listTDlConfigContent(Long clusterId, Set<String> sha256Set) {
+        final List<TDlConfigContent> tDlConfigContentList = new ArrayList<>();
+        for (List<String> sha256List : CollUtil.split(sha256Set, IN_BATCH_SIZE)) {
+            tDlConfigContentList.addAll(
+                    this.tDlConfigContentService.lambdaQuery()
+                            .select()
+                            .eq(TDlConfigContent::getClusterId, clusterId)
+                            .in(TDlConfigContent::getSha256, sha256List)
+                            .list()
+            );
+        }
+        return tDlConfigContentList;
     }
 
+    /**
+     * Description: 批量插入配置文件内容
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/28
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: DatabaseException 数据库操作失败抛出 DatabaseException 异常
+     *
+     * @param tDlConfigContentList 待插入的配置文件内容
+     */
+    private void saveTDlConfigContentBatch(List<TDlConfigContent> tDlConfigContentList) {
+        if (tDlConfigContentList.isEmpty()) return;
+
+        Assert.isTrue(
+                this.tDlConfigContentService.saveBatch(tDlConfigContentList),
+                () -> new DatabaseException("保存配置文件内容失败")
+        );
+    }
 
     /**
-     * Description: 将配置文件保存到对应节点的指定位置
-     * （后续提速可考虑异步多线程并发操作，或保持安全的做法，单线程操作，并添加变更进度条接口）
+     * Description: 批量插入新配置、批量更新已存在的配置，
+     * 避免 saveOrUpdateBatch 对每个带有 ID 的实体额外查询一次
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2023/6/21
+     * Creation time: 2024/6/28
      * Modification description:
      * Modified by:
      * Modification time:
-     * Throws: BException 出现任何一个配置文件修改失败则抛出异常，中断后续操作
+     * Throws: DatabaseException 数据库操作失败抛出 DatabaseException 异常
      *
-     * @param tDlConfigList 配置文件列表
+     * @param insertList 待插入的配置
+     * @param updateList 待更新的配置
      */
-    private void saveConfig2NodeBatch(List<TDlConfig> tDlConfigList) throws BException {
+    private void saveTDlConfigBatch(List<TDlConfig> insertList, List<TDlConfig> updateList) {
+        if (!insertList.isEmpty()) {
+            Assert.isTrue(
+                    this.tDlConfigService.saveBatch(insertList),
+                    () -> new DatabaseException("批量保存配置文件失败")
+            );
+        }
 
-        tDlConfigList.forEach(i -> {
+        if (!updateList.isEmpty()) {
+            Assert.isTrue(
+                    this.tDlConfigService.updateBatchById(updateList),
+                    () -> new DatabaseException("批量更新配置文件失败")
+            );
+        }
+    }
 
-            TDlConfigContent tDlConfigContent = this.tDlConfigContentService.getById(i.getConfigContentId());
+    private static String contentKey(Long clusterId, String filename, String sha256) {
+        return clusterId + filename + sha256;
+    }
 
-            // 组装修改本地配置文件请求
-            ConfigFileRequest configFileRequest = new ConfigFileRequest()
-                    .setPath(i.getConfigPath())
-                    .setConfigVersion(i.getConfigVersion())
-                    .setFilename(i.getFilename())
-                    .setContentBase64(tDlConfigContent.getConfigData())
-                    .setSha256(tDlConfigContent.getSha256());
+    private static String configKey(Long nodeId, String configPath) {
+        return nodeId + ":" + configPath;
+    }
 
-            // 根据 NodeId 列表获取 Node 详情
-            List<Long> nodeIdList = tDlConfigList.stream()
-                    .map(TDlConfig::getNodeId)
-                    .collect(Collectors.toList());
 
-            Map<Long, TDlNode> nodeMap = masterNodeService.getNodeMap(nodeIdList);
+    /**
+     * Description: 将配置文件保存到对应节点的指定位置：
+     * 按节点分组后在有限并发下同时处理多个节点，每个节点先获取现有文件摘要，仅下发摘要与目标内容不一致的配置文件。
+     * 并发下发使用通用线程池，当前线程同样参与下发，因此线程池繁忙时不会因等待排队中的任务而阻塞
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2023/6/21
+     * Modification description: 不再每次创建线程池，改为使用通用线程池
+     * Modified by: Boundivore
+     * Modification time: 2024/7/4
+     * Throws: BException 所有节点处理完成后，出现任何一个节点配置文件修改失败则抛出异常，中断后续操作
+     *
+     * @param tDlConfigList 配置文件列表
+     * @return ConfigPushResult 各节点下发结果以及总耗时
+     */
+    private ConfigPushResult saveConfig2NodeBatch(List<TDlConfig> tDlConfigList) throws BException {
+        final long startMillis = System.currentTimeMillis();
+
+        // 一次性查询本次涉及的全部配置文件内容 <ConfigContentId, TDlConfigContent>
+        final Map<Long, TDlConfigContent> tDlConfigContentMap = this.tDlConfigContentService.listByIds(
+                        tDlConfigList.stream()
+                                .map(TDlConfig::getConfigContentId)
+                                .collect(Collectors.toSet())
+                )
+                .stream()
+                .collect(Collectors.toMap(TDlConfigContent::getId, i -> i));
 
-            Result<String> result = remoteInvokeWorkerService
-                    .iWorkerConfigAPI(nodeMap.get(i.getNodeId()).getIpv4())
-                    .config(configFileRequest);
+        // <ConfigContentId, 写入节点后的文件内容 SHA256>，与 Worker 端对文件计算的摘要保持一致
+        final Map<Long, String> fileSha256Map = new HashMap<>();
+        tDlConfigContentMap.values().forEach(i ->
+                fileSha256Map.put(i.getId(), SecureUtil.sha256(Base64.decodeStr(i.getConfigData())))
+        );
 
-            Assert.isTrue(
-                    result.isSuccess(),
-                    () -> new BException(
-                            String.format(
-                                    "Worker 变更本地配置文件失败: %s",
-                                    result.getMessage()
+        // 按节点分组 <NodeId, List<TDlConfig>>
+        final Map<Long, List<TDlConfig>> nodeConfigMap = tDlConfigList.stream()
+                .collect(
+                        Collectors.groupingBy(
+                                TDlConfig::getNodeId,
+                                LinkedHashMap::new,
+                                Collectors.toList()
+                        )
+                );
+
+        // 根据 NodeId 列表获取 Node 详情
+        final Map<Long, TDlNode> nodeMap = this.masterNodeService.getNodeMap(new ArrayList<>(nodeConfigMap.keySet()));
+        nodeConfigMap.keySet().forEach(nodeId ->
+                Assert.notNull(
+                        nodeMap.get(nodeId),
+                        () -> new BException(String.format("节点不存在: %s", nodeId))
+                )
+        );
+
+        // 各下发任务依次从队列中领取节点，直到队列为空
+        final Queue<Long> pendingNodeIdQueue = new ConcurrentLinkedQueue<>(nodeConfigMap.keySet());
+        // <NodeId, NodeOutcome>
+        final Map<Long, ConfigPushResult.NodeOutcome> nodeOutcomeMap = new ConcurrentHashMap<>();
+        final CountDownLatch latch = new CountDownLatch(nodeConfigMap.size());
+
+        final Runnable pushTask = () -> {
+            Long nodeId;
+            while ((nodeId = pendingNodeIdQueue.poll()) != null) {
+                try {
+                    nodeOutcomeMap.put(
+                            nodeId,
+                            this.saveConfig2Node(
+                                    nodeMap.get(nodeId),
+                                    nodeConfigMap.get(nodeId),
+                                    tDlConfigContentMap,
+                                    fileSha256Map
                             )
-                    )
+                    );
+                } finally {
+                    latch.countDown();
+                }
+            }
+        };
+
+        // 线程池中最多占用 parallelism - 1 个线程，另一路由当前线程执行
+        final int parallelism = Math.max(1, Math.min(this.pushParallelism, nodeConfigMap.size()));
+        for (int i = 1; i < parallelism; i++) {
+            this.customExecutor.execute(pushTask);
+        }
+        pushTask.run();
+
+        // 当前线程领取不到节点时，仅需等待其他任务正在处理的节点
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BException("等待节点配置文件下发结果时被中断");
+        }
+
+        final List<ConfigPushResult.NodeOutcome> nodeOutcomeList = nodeConfigMap.keySet()
+                .stream()
+                .map(nodeOutcomeMap::get)
+                .collect(Collectors.toList());
+
+        final ConfigPushResult configPushResult = new ConfigPushResult()
+                .setCostMillis(System.currentTimeMillis() - startMillis)
+                .setNodeOutcomeList(nodeOutcomeList);
+
+        Assert.isTrue(
+                configPushResult.isSuccess(),
+                () -> new BException(
+                        String.format(
+                                "Worker 变更本地配置文件失败: %s",
+                                nodeOutcomeList.stream()
+                                        .filter(i -> !i.getSuccess())
+                                        .map(i -> String.format("%s(%s): %s", i.getHostname(), i.getIpv4(), i.getMessage()))
+                                        .collect(Collectors.joining("; "))
+                        )
+                )
+        );
+
+        return configPushResult;
+    }
+
+    /**
+     * Description: 将配置文件保存到指定节点，跳过节点上内容已与目标一致的配置文件
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/16
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param tDlNode             目标节点
+     * @param tDlConfigList       该节点上待保存的配置文件列表
+     * @param tDlConfigContentMap <ConfigContentId, TDlConfigContent>
+     * @param fileSha256Map       <ConfigContentId, 写入节点后的文件内容 SHA256>
+     * @return NodeOutcome 该节点的下发结果，任何异常均记录在结果中而不抛出
+     */
+    private ConfigPushResult.NodeOutcome saveConfig2Node(TDlNode tDlNode,
+                                                         List<TDlConfig> tDlConfigList,
+                                                         Map<Long, TDlConfigContent> tDlConfigContentMap,
+                                                         Map<Long, String> fileSha256Map) {
+        final long startMillis = System.currentTimeMillis();
+
+        final ConfigPushResult.NodeOutcome nodeOutcome = new ConfigPushResult.NodeOutcome()
+                .setNodeId(tDlNode.getId())
+                .setHostname(tDlNode.getHostname())
+                .setIpv4(tDlNode.getIpv4())
+                .setPushedCount(0)
+                .setSkippedCount(0);
+
+        try {
+            final IWorkerConfigAPI iWorkerConfigAPI = this.remoteInvokeWorkerService.iWorkerConfigAPI(tDlNode.getIpv4());
+
+            // <配置文件路径, 节点上现有文件内容 SHA256>
+            final Map<String, String> nodeSha256Map = this.getNodeConfigSha256Map(
+                    iWorkerConfigAPI,
+                    tDlConfigList.stream()
+                            .map(TDlConfig::getConfigPath)
+                            .collect(Collectors.toList())
             );
-        });
+
+            for (TDlConfig tDlConfig : tDlConfigList) {
+                if (fileSha256Map.get(tDlConfig.getConfigContentId()).equals(nodeSha256Map.get(tDlConfig.getConfigPath()))) {
+                    nodeOutcome.setSkippedCount(nodeOutcome.getSkippedCount() + 1);
+                    continue;
+                }
+
+                TDlConfigContent tDlConfigContent = tDlConfigContentMap.get(tDlConfig.getConfigContentId());
+
+                // 组装修改本地配置文件请求
+                ConfigFileRequest configFileRequest = new ConfigFileRequest()
+                        .setPath(tDlConfig.getConfigPath())
+                        .setConfigVersion(tDlConfig.getConfigVersion())
+                        .setFilename(tDlConfig.getFilename())
+                        .setContentBase64(tDlConfigContent.getConfigData())
+                        .setSha256(tDlConfigContent.getSha256());
+
+                Result<String> result = iWorkerConfigAPI.config(configFileRequest);
+                Assert.isTrue(
+                        result.isSuccess(),
+                        () -> new BException(result.getMessage())
+                );
+
+                nodeOutcome.setPushedCount(nodeOutcome.getPushedCount() + 1);
+            }
+
+            nodeOutcome.setSuccess(true);
+        } catch (Exception e) {
+            log.error(ExceptionUtil.stacktraceToString(e));
+            nodeOutcome.setSuccess(false)
+                    .setMessage(e.getMessage());
+        }
+
+        return nodeOutcome.setCostMillis(System.currentTimeMillis() - startMillis);
+    }
+
+    /**
+     * Description: 获取节点上指定配置文件内容的 SHA256，获取失败时（如 Worker 版本较旧）返回空集合，即全部下发
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/16
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param iWorkerConfigAPI 目标节点配置文件相关接口
+     * @param configPathList   配置文件路径列表
+     * @return <配置文件路径, 文件内容 SHA256>
+     */
+    private Map<String, String> getNodeConfigSha256Map(IWorkerConfigAPI iWorkerConfigAPI, List<String> configPathList) {
+        try {
+            Result<AbstractConfigFileVo.ConfigFileDigestVo> result = iWorkerConfigAPI.digest(
+                    new ConfigFileDigestRequest(configPathList)
+            );
+
+            if (result.isSuccess() && result.getData() != null && result.getData().getPathSha256Map() != null) {
+                return result.getData().getPathSha256Map();
+            }
+
+            log.warn("获取节点配置文件摘要失败, 将全部下发: {}", result.getMessage());
+        } catch (Exception e) {
+            log.warn("获取节点配置文件摘要失败, 将全部下发: {}", e.getMessage());
+        }
+
+        return Collections.emptyMap();
     }
 
 
@@ -597,9 +911,9 @@ public class MasterConfigService {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2023/6/19
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 只读取节点与配置文件 SHA256 的对应关系，配置文件内容按 SHA256 读取一次
+     * Modified by: Boundivore
+     * Modification time: 2024/7/3
      * Throws:
      *
      * @param clusterId   集群 ID
@@ -611,56 +925,51 @@ public class MasterConfigService {
                                                             String serviceName,
                                                             String configPath) {
 
-        // 获取指定集群下，该服务下，指定配置文件的所有信息
-        List<ConfigNodeDto> configNodeDtoList = this.configNodeMapper.selectConfigNodeDtoByConfigPath(
+        // 获取指定集群下，该服务下，指定配置文件与节点的对应关系（不包含配置文件内容）
+        List<ConfigNodeDto> configNodeDtoList = this.listConfigNodeDigestDto(
                 clusterId,
                 serviceName,
                 configPath
         );
 
-        // 创建一个映射，将 ConfigGroup 映射到对应的 ConfigNode 列表
-        Map<ConfigListByGroupVo.ConfigGroupVo, List<ConfigListByGroupVo.ConfigNodeVo>> configGroupVoListMap = new HashMap<>();
-
-        // 遍历配置节点列表
-        for (ConfigNodeDto configNodeDto : configNodeDtoList) {
-            // 创建一个 ConfigGroup 实例
-            ConfigListByGroupVo.ConfigGroupVo configGroup = new ConfigListByGroupVo.ConfigGroupVo();
-            // 设置 SHA256 值
-            configGroup.setSha256(configNodeDto.getSha256());
-            // 设置文件名
-            configGroup.setFilename(configNodeDto.getFilename());
-            // 设置配置路径
-            configGroup.setConfigPath(configNodeDto.getConfigPath());
-            // 设置配置数据
-            configGroup.setConfigData(configNodeDto.getConfigData());
-
-
-            // 创建 ConfigNode 实例
-            ConfigListByGroupVo.ConfigNodeVo configNodeVo = new ConfigListByGroupVo.ConfigNodeVo(
-                    configNodeDto.getNodeId(),
-                    configNodeDto.getHostname(),
-                    configNodeDto.getIpv4(),
-                    configNodeDto.getConfigVersion()
-            );
-
-            // 获取 ConfigNode 列表
-            List<ConfigListByGroupVo.ConfigNodeVo> configNodeList = configGroupVoListMap.computeIfAbsent(
-                    configGroup,
-                    k -> new ArrayList<>()
-            );
-            if (!configNodeList.contains(configNodeVo)) {
-                configNodeList.add(configNodeVo);
-            }
-            // 将 ConfigNode 列表设置到对应的 ConfigGroup 中
-            if (configGroup.getConfigNodeList() == null || configGroup.getConfigNodeList().isEmpty()) {
-                configGroup.setConfigNodeList(configNodeList);
-            }
-        }
+        return Result.success(
+                new ConfigListByGroupVo(
+                        clusterId,
+                        serviceName,
+                        this.groupConfigNodeDto(clusterId, configNodeDtoList)
+                )
+        );
+    }
 
+    /**
+     * Description: 按照 SHA256 分组返回多个配置文件的信息，只查询一次该服务的全部配置文件，而非每个配置文件查询一次
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/23
+     * Modification description: 只读取节点与配置文件 SHA256 的对应关系，配置文件内容按 SHA256 读取一次
+     * Modified by: Boundivore
+     * Modification time: 2024/7/3
+     * Throws:
+     *
+     * @param clusterId      集群 ID
+     * @param serviceName    服务名称
+     * @param configPathList 配置文件路径列表
+     * @return Result<ConfigListByGroupVo> 指定配置文件的分组信息，按照 configPathList 中的顺序排列
+     */
+    public Result<ConfigListByGroupVo> getConfigListByGroup(Long clusterId,
+                                                            String serviceName,
+                                                            List<String> configPathList) {
+        final Set<String> configPathSet = new HashSet<>(configPathList);
 
-        // 将映射中的所有键（ConfigGroup）添加到 ConfigListByGroupVo 的 ConfigGroupList 中
-        List<ConfigListByGroupVo.ConfigGroupVo> configGroupList = new ArrayList<>(configGroupVoListMap.keySet());
+        List<ConfigNodeDto> configNodeDtoList = configPathSet.isEmpty() ?
+                Collections.emptyList() :
+                this.listConfigNodeDigestDto(clusterId, serviceName, null)
+                        .stream()
+                        .filter(i -> configPathSet.contains(i.getConfigPath()))
+                        .collect(Collectors.toList());
 
+        List<ConfigListByGroupVo.ConfigGroupVo> configGroupList = this.groupConfigNodeDto(clusterId, configNodeDtoList);
+        configGroupList.sort(Comparator.comparingInt(i -> configPathList.indexOf(i.getConfigPath())));
 
         return Result.success(
                 new ConfigListByGroupVo(
@@ -671,17 +980,102 @@ public class MasterConfigService {
         );
     }
 
-
     /**
-     * Description: 按照 SHA256 分组返回配置文件信息，即，按照相同服务、相同组件、相同 SHA256 进行分组提交
+     * Description: 读取配置文件与节点的对应关系以及配置文件内容的 SHA256，不包含配置文件内容
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2023/6/19
+     * Creation time: 2024/7/3
      * Modification description:
      * Modified by:
      * Modification time:
      * Throws:
      *
+     * @param clusterId   集群 ID
+     * @param serviceName 服务名称
+     * @param configPath  配置文件路径，为空时读取该服务的全部配置文件
+     * @return List<ConfigNodeDto> 配置文件与节点的对应关系，ConfigData 为空
+     */
+    private List<ConfigNodeDto> listConfigNodeDigestDto(Long clusterId, String serviceName, String configPath) {
+        return configPath == null ?
+                this.configNodeMapper.selectConfigNodeDigestDto(clusterId, serviceName) :
+                this.configNodeMapper.selectConfigNodeDigestDtoByConfigPath(clusterId, serviceName, configPath);
+    }
+
+    /**
+     * Description: 将配置文件与节点的关联信息按照相同配置文件、相同 SHA256 进行分组
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2023/6/19
+     * Modification description: 节点按集合去重；分组完成后每个 SHA256 只读取一次配置文件内容
+     * Modified by: Boundivore
+     * Modification time: 2024/7/3
+     * Throws:
+     *
+     * @param clusterId         集群 ID
+     * @param configNodeDtoList 配置文件与节点的关联信息，不需要包含配置文件内容
+     * @return List<ConfigListByGroupVo.ConfigGroupVo> 分组后的配置文件信息
+     */
+    private List<ConfigListByGroupVo.ConfigGroupVo> groupConfigNodeDto(Long clusterId,
+                                                                       List<ConfigNodeDto> configNodeDtoList) {
+        // 创建一个映射，将 ConfigGroup（相同配置文件、相同 SHA256）映射到去重后的 ConfigNode 集合
+        Map<ConfigListByGroupVo.ConfigGroupVo, Set<ConfigListByGroupVo.ConfigNodeVo>> configGroupVoNodeMap = new HashMap<>();
+
+        // 遍历配置节点列表，每组保留第一条记录的文件名与节点版本
+        for (ConfigNodeDto configNodeDto : configNodeDtoList) {
+            ConfigListByGroupVo.ConfigGroupVo configGroup = new ConfigListByGroupVo.ConfigGroupVo()
+                    .setSha256(configNodeDto.getSha256())
+                    .setFilename(configNodeDto.getFilename())
+                    .setConfigPath(configNodeDto.getConfigPath());
+
+            configGroupVoNodeMap.computeIfAbsent(configGroup, k -> new LinkedHashSet<>())
+                    .add(
+                            new ConfigListByGroupVo.ConfigNodeVo(
+                                    configNodeDto.getNodeId(),
+                                    configNodeDto.getHostname(),
+                                    configNodeDto.getIpv4(),
+                                    configNodeDto.getConfigVersion()
+                            )
+                    );
+        }
+
+        if (configGroupVoNodeMap.isEmpty()) return new ArrayList<>();
+
+        // 每个 SHA256 只读取一次配置文件内容 <Sha256, ConfigData>
+        final Map<String, String> configDataMap = this.listTDlConfigContent(
+                        clusterId,
+                        configGroupVoNodeMap.keySet()
+                                .stream()
+                                .map(ConfigListByGroupVo.ConfigGroupVo::getSha256)
+                                .collect(Collectors.toSet())
+                )
+                .stream()
+                .collect(Collectors.toMap(
+                                TDlConfigContent::getSha256,
+                                TDlConfigContent::getConfigData,
+                                (o, n) -> o
+                        )
+                );
+
+        // 设置配置文件内容与节点列表（均不参与 ConfigGroup 的 hashCode）
+        configGroupVoNodeMap.forEach((configGroup, configNodeSet) -> configGroup
+                .setConfigData(configDataMap.get(configGroup.getSha256()))
+                .setConfigNodeList(new ArrayList<>(configNodeSet))
+        );
+
+        return new ArrayList<>(configGroupVoNodeMap.keySet());
+    }
+
+
+    /**
+     * Description: 按照 SHA256 分组返回配置文件信息，即，按照相同服务、相同组件、相同 SHA256 进行分组提交
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2023/6/19
+     * Modification description: 改为调用 saveOrUpdateTDlConfigBatch 批量保存
+     * Modified by: Boundivore
+     * Modification time: 2024/6/28
+     * Throws:
+     *
      * @param request 按照相同配置文件内容分组后的配置文件信息
      * @return Result<String>
      */
@@ -694,37 +1088,37 @@ public class MasterConfigService {
         final Long clusterId = request.getClusterId();
         final String serviceName = request.getServiceName();
 
-        final List<TDlConfig> tDlConfigList = request.getConfigGroupList()
-                .stream()
-                .flatMap(configGroupRequest -> configGroupRequest.getConfigNodeList()
+        final List<TDlConfig> tDlConfigList = this.saveOrUpdateTDlConfigBatch(
+                new HashMap<>(),
+                clusterId,
+                serviceName,
+                request.getConfigGroupList()
                         .stream()
-                        .map(configNodeRequest ->
-                                this.createOrUpdateTDlConfig(
-                                        new HashMap<>(),
-                                        clusterId,
-                                        serviceName,
-                                        configNodeRequest.getNodeId(),
-                                        configGroupRequest.getConfigPath(),
-                                        configGroupRequest.getFilename(),
-                                        configGroupRequest.getConfigData(),
-                                        configGroupRequest.getSha256()
+                        .flatMap(configGroupRequest -> configGroupRequest.getConfigNodeList()
+                                .stream()
+                                .map(configNodeRequest -> ConfigSaveRequest.ConfigRequest.builder()
+                                        .nodeId(configNodeRequest.getNodeId())
+                                        .filename(configGroupRequest.getFilename())
+                                        .configData(configGroupRequest.getConfigData())
+                                        .sha256(configGroupRequest.getSha256())
+                                        .configPath(configGroupRequest.getConfigPath())
+                                        .build()
                                 )
                         )
-                )
-                // 无变动的配置不更新
-                .filter(Objects::nonNull)
-                .collect(Collectors.toList());
-
+                        .collect(Collectors.toList())
+        );
 
-        // 批量保存或更新 TDlConfig 对象
         if (!tDlConfigList.isEmpty()) {
-            Assert.isTrue(
-                    this.tDlConfigService.saveOrUpdateBatch(tDlConfigList),
-                    () -> new DatabaseException("批量保存配置文件失败")
-            );
-
             //远程更新节点上对应的配置文件
-            this.saveConfig2NodeBatch(tDlConfigList);
+            final ConfigPushResult configPushResult = this.saveConfig2NodeBatch(tDlConfigList);
+            log.info("集群 {} 服务 {} 配置文件按分组下发结束, 节点数: {}, 下发文件数: {}, 跳过文件数: {}, 耗时: {} ms",
+                    clusterId,
+                    serviceName,
+                    configPushResult.getNodeOutcomeList().size(),
+                    configPushResult.getPushedCount(),
+                    configPushResult.getSkippedCount(),
+                    configPushResult.getCostMillis()
+            );
 
             // 在事务完成后执行发布 "配置变更" 事件
             this.publishConfigChange(clusterId, serviceName);
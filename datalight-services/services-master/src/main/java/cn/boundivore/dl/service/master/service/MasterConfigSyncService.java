@@ -22,22 +22,26 @@ import cn.boundivore.dl.base.result.Result;
 import cn.boundivore.dl.exception.BException;
 import cn.boundivore.dl.plugin.base.bean.PluginConfigResult;
 import cn.boundivore.dl.service.master.bean.ConfigContentPersistedMaps;
+import cn.boundivore.dl.service.master.utils.StripedLock;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.lang.Assert;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Description: 同步或异步修改配置文件逻辑控制服务
  * Created by: Boundivore
  * E-mail: boundivore@formail.com
  * Creation time: 2023/8/1
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 以 “集群 + 服务 + 配置文件路径” 与 “集群 + 文件名 + SHA256” 为粒度的分段锁替代全局锁，
+ * 修改同一配置文件、或写入同一配置文件内容的操作互斥，互不相关的配置修改可并发执行
+ * Modified by: Boundivore
+ * Modification time: 2024/6/22
  * Version: V1.0
  */
 @Service
@@ -45,8 +49,13 @@ import java.util.List;
 @Slf4j
 public class MasterConfigSyncService {
 
+    // 分段锁的数量
+    private static final int LOCK_STRIPES = 256;
+
     private final MasterConfigService masterConfigService;
 
+    private final StripedLock configLock = new StripedLock(LOCK_STRIPES);
+
     /**
      * Description: 同步操作：根据 Jar 包返回的修改后的配置文件内容，保存到数据库
      * Created by: Boundivore
@@ -73,13 +82,28 @@ public class MasterConfigSyncService {
                     configContentPersisted.getGroupTDlConfigContentMap()
             ).isSuccess();
         } else {
-            synchronized (this) {
-                log.info("{} 配置未全部就绪，准备同步初始化", request.getServiceName());
-                return this.masterConfigService.saveConfigOrUpdateBatch(
-                        request,
-                        configContentPersisted.getGroupTDlConfigContentMap()
-                ).isSuccess();
-            }
+            final Set<String> lockKeySet = new LinkedHashSet<>();
+            // 与按分组修改同一配置文件的操作互斥，避免配置版本丢失更新
+            request.getConfigList().forEach(i ->
+                    lockKeySet.add(configPathLockKey(request.getClusterId(), request.getServiceName(), i.getConfigPath()))
+            );
+            // 避免同一配置文件内容被重复入库，只对尚未入库的配置文件内容加锁
+            configContentPersisted.getGroupConfigRequestMap().forEach((k, v) -> {
+                if (!configContentPersisted.getGroupTDlConfigContentMap().containsKey(k)) {
+                    lockKeySet.add(configContentLockKey(request.getClusterId(), v.getFilename(), v.getSha256()));
+                }
+            });
+
+            return this.configLock.execute(
+                    lockKeySet,
+                    () -> {
+                        log.info("{} 配置未全部就绪，准备同步初始化", request.getServiceName());
+                        return this.masterConfigService.saveConfigOrUpdateBatch(
+                                request,
+                                configContentPersisted.getGroupTDlConfigContentMap()
+                        ).isSuccess();
+                    }
+            );
         }
     }
 
@@ -122,9 +146,26 @@ public class MasterConfigSyncService {
      * @return Result<String> 同步分组保存配置文件结果
      */
     public Result<String> saveConfigByGroupSync(ConfigSaveByGroupRequest request) {
-        synchronized (this) {
-            return this.masterConfigService.saveConfigByGroup(request);
-        }
+        final Set<String> lockKeySet = new LinkedHashSet<>();
+        request.getConfigGroupList().forEach(i -> {
+            // 同一配置文件的修改需串行，避免配置版本丢失更新
+            lockKeySet.add(configPathLockKey(request.getClusterId(), request.getServiceName(), i.getConfigPath()));
+            // 同一配置文件内容的入库需串行，避免重复入库
+            lockKeySet.add(configContentLockKey(request.getClusterId(), i.getFilename(), i.getSha256()));
+        });
+
+        return this.configLock.execute(
+                lockKeySet,
+                () -> this.masterConfigService.saveConfigByGroup(request)
+        );
+    }
+
+    private static String configPathLockKey(Long clusterId, String serviceName, String configPath) {
+        return String.format("PATH:%s:%s:%s", clusterId, serviceName, configPath);
+    }
+
+    private static String configContentLockKey(Long clusterId, String filename, String sha256) {
+        return String.format("CONTENT:%s:%s:%s", clusterId, filename, sha256);
     }
 
     /**
@@ -28,10 +28,13 @@ import cn.boundivore.dl.base.result.Result;
 import cn.boundivore.dl.boot.lock.LocalLock;
 import cn.boundivore.dl.exception.BException;
 import cn.boundivore.dl.orm.mapper.custom.ComponentNodeMapper;
+import cn.boundivore.dl.orm.po.TBasePo;
 import cn.boundivore.dl.orm.po.custom.ComponentNodeDto;
 import cn.boundivore.dl.orm.po.single.*;
 import cn.boundivore.dl.orm.service.single.impl.*;
+import cn.boundivore.dl.service.master.cache.StepOutputCache;
 import cn.boundivore.dl.service.master.manage.service.bean.*;
+import cn.boundivore.dl.service.master.manage.service.job.ExecProgressSnapshot;
 import cn.boundivore.dl.service.master.manage.service.job.Intention;
 import cn.boundivore.dl.service.master.manage.service.job.Job;
 import cn.boundivore.dl.service.master.manage.service.job.JobCacheUtil;
@@ -41,7 +44,7 @@ import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.lang.Assert;
 import com.baomidou.mybatisplus.extension.conditions.query.LambdaQueryChainWrapper;
 import lombok.RequiredArgsConstructor;
-import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -71,11 +74,28 @@ public class MasterJobService {
 
     private final TDlJobLogServiceImpl tDlJobLogService;
 
+    private final StepOutputCache stepOutputCache;
+
     private final TDlJobServiceImpl tDlJobService;
     private final TDlStageServiceImpl tDlStageService;
     private final TDlTaskServiceImpl tDlTaskService;
     private final TDlStepServiceImpl tDlStepService;
 
+    // 作业日志中保存日志内容的列，仅在需要时读取
+    private static final List<String> JOB_LOG_CONTENT_COLUMN_LIST = CollUtil.newArrayList(
+            "log_stdout",
+            "log_errout"
+    );
+
+    @Value("${server.datalight.job-log.page-size:100}")
+    private long jobLogPageSize;
+
+    @Value("${server.datalight.job-log.max-page-size:500}")
+    private long jobLogMaxPageSize;
+
+    @Value("${server.datalight.job-log.max-length:32768}")
+    private int jobLogMaxLength;
+
     /**
      * Description: 根据操作的行为类型，以确定后续应该获取对应的组件状态
      * Created by: Boundivore
@@ -629,7 +649,7 @@ public class MasterJobService {
         jobProgressVo.setJobExecProgressVo(jobExecProgressVo);
 
         // 组装每个节点的执行进度信息
-        List<AbstractJobVo.ExecProgressPerNodeVo> execProgressPerNodeList = this.createExecProgressPerNodeList(jobMeta);
+        List<AbstractJobVo.ExecProgressPerNodeVo> execProgressPerNodeList = this.createExecProgressPerNodeList(jobMeta, plan);
         jobExecProgressVo.setExecProgressPerNodeList(execProgressPerNodeList);
 
         return Result.success(jobProgressVo);
@@ -687,250 +707,377 @@ public class MasterJobService {
 
 
     /**
-     * Description: 创建每个节点执行进度 Vo
+     * Description: 创建每个节点执行进度 Vo，直接读取 Plan 中增量维护的快照，无需遍历 Stage、Task、Step 树
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2024/1/10
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 改为读取增量维护的节点进度快照
+     * Modified by: Boundivore
+     * Modification time: 2024/6/27
      * Throws:
      *
      * @param jobMeta Job 元数据信息
+     * @param plan    Job 的计划信息
      * @return List<AbstractJobVo.ExecProgressPerNodeVo> 每个节点进度信息
      */
-    private List<AbstractJobVo.ExecProgressPerNodeVo> createExecProgressPerNodeList(JobMeta jobMeta) {
-        List<AbstractJobVo.ExecProgressPerNodeVo> execProgressPerNodeList = new ArrayList<>();
-
-        final TreeMap<String, List<StepMeta>> hostnameToOrderedStepMetaMap = this.getHostnameStepMetaTreeMap(jobMeta);
-
-        // 将每个节点所有 Step 组装到对应集合 Vo 中
-        hostnameToOrderedStepMetaMap.forEach(
-                (hostname, stepMetaList) -> {
-                    TaskMeta taskMeta = stepMetaList.get(0).getTaskMeta();
-                    AbstractJobVo.ExecProgressPerNodeVo execProgressPerNodeVo = this.createExecProgressPerNodeVo(
-                            taskMeta.getNodeId(),
-                            taskMeta.getHostname(),
-                            taskMeta.getNodeIp(),
-                            stepMetaList
-                    );
-                    execProgressPerNodeList.add(execProgressPerNodeVo);
+    private List<AbstractJobVo.ExecProgressPerNodeVo> createExecProgressPerNodeList(JobMeta jobMeta, Plan plan) {
+        ExecProgressSnapshot execProgressSnapshot = plan.getExecProgressSnapshot();
 
-                    this.assembleExecProgressStepList(
-                            execProgressPerNodeVo,
-                            stepMetaList
-                    );
-                }
-        );
+        // Job 尚未完成初始化时，快照还未生成，临时构建一次
+        if (execProgressSnapshot == null) {
+            execProgressSnapshot = new ExecProgressSnapshot(jobMeta);
+        }
 
-        return execProgressPerNodeList;
+        return execProgressSnapshot.getExecProgressPerNodeList();
     }
 
     /**
-     * Description: 根据 JobMeta 获取每个节点上所有 StepMeta 集合
+     * Description: 获取作业日志列表。按作业日志 ID（即日志写入的先后顺序）游标分页，未指定游标时从第一条日志开始，
+     * 未指定每页条目数时使用默认值；每条日志的内容在数据库中截断后返回，完整内容通过 getJobLogDetail 获取
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2024/1/11
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Creation time: 2024/1/15
+     * Modification description: 游标分页；可仅返回日志条目信息；日志内容按 server.datalight.job-log.max-length 截断；
+     * 始终分页并截断，避免一次读取全部日志；执行中 Step 的实时输出不截断
+     * Modified by: Boundivore
+     * Modification time: 2024/7/8
      * Throws:
      *
-     * @param jobMeta 作业的元数据信息
-     * @return TreeMap<String, List < StepMeta>> 以节点纬度，按顺序存储该节点上所有 StepMeta 信息
+     * @param clusterId    集群 ID
+     * @param jobId        作业 ID
+     * @param nodeId       节点 ID
+     * @param stageId      阶段 ID
+     * @param taskId       任务 ID
+     * @param stepId       步骤 ID
+     * @param lastJobLogId 游标，上一页返回的 NextJobLogId，为空时从第一条日志开始
+     * @param pageSize     每页条目数，为空时使用默认值，不超过上限
+     * @param withLog      是否返回日志内容，为空时返回
+     * @return Result<AbstractJobVo.JobLogListVo> 日志信息列表
      */
-    @NotNull
-    private TreeMap<String, List<StepMeta>> getHostnameStepMetaTreeMap(JobMeta jobMeta) {
-        final LinkedHashMap<Long, StageMeta> stageMetaMap = jobMeta.getStageMetaMap();
-
-        // 以节点纬度，按顺序存储该节点上所有 StepMeta 信息 <Hostname, List<StepMeta>>
-        final TreeMap<String, List<StepMeta>> nodeIdToOrderedStepMetaMap = new TreeMap<>();
-
-        // 按照执行顺序，整理每个节点的 StepMeta，最后多个 StepMetaList 返回时按照节点 hostname 字母自然排序
-        stageMetaMap.forEach(
-                (stageId, stageMeta) ->
-                        stageMeta.getTaskMetaMap().forEach(
-                                (taskId, taskMeta) -> {
-                                    // 注意这里不需要显式地放回 stepMetaList，因为 computeIfAbsent 已经做了这个工作
-                                    List<StepMeta> stepMetaList = nodeIdToOrderedStepMetaMap.computeIfAbsent(
-                                            taskMeta.getHostname(),
-                                            k -> new ArrayList<>()
-                                    );
-
-                                    stepMetaList.addAll(new ArrayList<>(taskMeta.getStepMetaMap().values()));
-                                }
+    public Result<AbstractJobVo.JobLogListVo> getJobLogList(Long clusterId,
+                                                            Long jobId,
+                                                            Long nodeId,
+                                                            Long stageId,
+                                                            Long taskId,
+                                                            Long stepId,
+                                                            Long lastJobLogId,
+                                                            Long pageSize,
+                                                            Boolean withLog) {
+
+        final long limit = pageSize == null || pageSize < 1 ?
+                this.jobLogPageSize :
+                Math.min(pageSize, this.jobLogMaxPageSize);
+
+        final boolean isWithLog = withLog == null || withLog;
+
+        // 多读取一条，用于判断是否存在下一页
+        List<TDlJobLog> tDlJobLogList = this.listTDlJobLogHeader(
+                clusterId,
+                jobId,
+                nodeId,
+                stageId,
+                taskId,
+                stepId,
+                lastJobLogId,
+                limit + 1
+        );
+
+        final boolean hasMore = tDlJobLogList.size() > limit;
+        if (hasMore) {
+            tDlJobLogList = tDlJobLogList.subList(0, (int) limit);
+        }
+
+        String tag = tDlJobLogList.isEmpty() ? null : tDlJobLogList.get(0).getTag();
+        Long nextJobLogId = tDlJobLogList.isEmpty() ?
+                lastJobLogId :
+                tDlJobLogList.get(tDlJobLogList.size() - 1).getId();
+
+        // <JobLogId, TDlJobLog>，仅包含截断后的日志内容，多读取一个字符用于判断是否被截断
+        final Map<Long, TDlJobLog> tDlJobLogBodyMap = isWithLog && !tDlJobLogList.isEmpty() ?
+                this.listTDlJobLogBody(
+                                tDlJobLogList.stream()
+                                        .map(TDlJobLog::getId)
+                                        .collect(Collectors.toList()),
+                                this.jobLogMaxLength + 1
                         )
+                        .stream()
+                        .collect(Collectors.toMap(TDlJobLog::getId, i -> i)) :
+                new HashMap<>();
+
+        List<AbstractJobVo.JobLogVo> jobLogList = tDlJobLogList
+                .stream()
+                .map(i -> {
+                    TDlJobLog tDlJobLogBody = tDlJobLogBodyMap.getOrDefault(i.getId(), new TDlJobLog());
+                    return this.createJobLogVo(
+                            i.getId(),
+                            i.getJobId(),
+                            i.getNodeId(),
+                            i.getStageId(),
+                            i.getTaskId(),
+                            i.getStepId(),
+                            tDlJobLogBody.getLogStdout(),
+                            tDlJobLogBody.getLogErrout(),
+                            this.jobLogMaxLength
+                    );
+                })
+                .collect(Collectors.toList());
+
+        // 最后一页追加执行中 Step 的实时输出（尚未写入日志），其在内存中已有上限且无法通过 getJobLogDetail 获取，因此不截断
+        if (!hasMore) {
+            List<StepOutputCache.StepOutput> stepOutputList = this.stepOutputCache.getStepOutputList(jobId)
+                    .stream()
+                    .filter(i -> nodeId == null || nodeId.equals(i.getNodeId()))
+                    .filter(i -> stageId == null || stageId.equals(i.getStageId()))
+                    .filter(i -> taskId == null || taskId.equals(i.getTaskId()))
+                    .filter(i -> stepId == null || stepId.equals(i.getStepId()))
+                    .collect(Collectors.toList());
+
+            // 输出关闭前日志可能已经入库，且不一定位于本页
+            final Set<Long> loggedStepIdSet = stepOutputList.isEmpty() ?
+                    new HashSet<>() :
+                    this.listLoggedStepId(
+                            jobId,
+                            stepOutputList.stream()
+                                    .map(StepOutputCache.StepOutput::getStepId)
+                                    .collect(Collectors.toSet())
+                    );
+
+            stepOutputList.stream()
+                    .filter(i -> !loggedStepIdSet.contains(i.getStepId()))
+                    .forEach(i -> jobLogList.add(
+                                    this.createJobLogVo(
+                                            null,
+                                            i.getJobId(),
+                                            i.getNodeId(),
+                                            i.getStageId(),
+                                            i.getTaskId(),
+                                            i.getStepId(),
+                                            isWithLog ? i.getOutput() : null,
+                                            isWithLog ? "" : null,
+                                            null
+                                    )
+                            )
+                    );
+        }
+
+        AbstractJobVo.JobLogListVo jobLogListVo = new AbstractJobVo.JobLogListVo(
+                clusterId,
+                tag,
+                jobLogList,
+                nextJobLogId,
+                hasMore
         );
-        return nodeIdToOrderedStepMetaMap;
+
+        return Result.success(jobLogListVo);
     }
 
     /**
-     * Description: 创建每个节点的执行进度信息对象
+     * Description: 根据作业日志 ID 获取完整的日志内容
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2023/7/4
+     * Creation time: 2024/7/2
      * Modification description:
      * Modified by:
      * Modification time:
      * Throws:
      *
-     * @param stepMetaList 某一节点下所有 Task 下所有 Step 元数据信息
-     * @return 每个节点的执行进度信息对象
+     * @param clusterId 集群 ID
+     * @param jobLogId  作业日志 ID
+     * @return Result<AbstractJobVo.JobLogVo> 完整的日志信息
      */
-    private AbstractJobVo.ExecProgressPerNodeVo createExecProgressPerNodeVo(
-            long nodeId,
-            String hostname,
-            String nodeIp,
-            List<StepMeta> stepMetaList) {
-        int[] progressArr = this.calculatePerNodeProgress(stepMetaList);
-
-        return new AbstractJobVo.ExecProgressPerNodeVo(
-                nodeId,
-                hostname,
-                nodeIp,
-                progressArr[0],
-                progressArr[1],
-                progressArr[2],
-                new ArrayList<>()
+    public Result<AbstractJobVo.JobLogVo> getJobLogDetail(Long clusterId, Long jobLogId) {
+        TDlJobLog tDlJobLog = this.tDlJobLogService.getById(jobLogId);
+
+        Assert.isTrue(
+                tDlJobLog != null && tDlJobLog.getClusterId().equals(clusterId),
+                () -> new BException("不存在的作业日志 ID")
+        );
+
+        return Result.success(
+                new AbstractJobVo.JobLogVo(
+                        tDlJobLog.getId(),
+                        tDlJobLog.getJobId(),
+                        tDlJobLog.getNodeId(),
+                        tDlJobLog.getStageId(),
+                        tDlJobLog.getTaskId(),
+                        tDlJobLog.getStepId(),
+                        tDlJobLog.getLogStdout(),
+                        tDlJobLog.getLogErrout(),
+                        false
+                )
         );
     }
 
     /**
-     * Description: 计算每个节点上任务的进度
+     * Description: 按作业日志 ID 升序读取一页作业日志，不包含日志内容
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2023/7/4
+     * Creation time: 2024/7/2
      * Modification description:
      * Modified by:
      * Modification time:
      * Throws:
      *
-     * @param stepMetaList 某一节点下所有 Task 下所有 Step 元数据信息
-     * @return 每个节点上任务的进度数组
+     * @param clusterId    集群 ID
+     * @param jobId        作业 ID
+     * @param nodeId       节点 ID
+     * @param stageId      阶段 ID
+     * @param taskId       任务 ID
+     * @param stepId       步骤 ID
+     * @param lastJobLogId 游标，仅读取 ID 大于该值的日志，为空时从第一条日志开始
+     * @param limit        最多读取的条目数
+     * @return List<TDlJobLog> 不包含日志内容的作业日志列表
      */
-    private int[] calculatePerNodeProgress(List<StepMeta> stepMetaList) {
-
-        int execTotal = stepMetaList.size();
-        int execCurrent = 0;
-        int execProgress = 0;
-
-        for (StepMeta stepMeta : stepMetaList) {
-            switch (stepMeta.getExecStateEnum()) {
-                case SUSPEND:
-                case RUNNING:
-                case ERROR:
-                    break;
-                case OK:
-                    execCurrent++;
-                    break;
-            }
+    private List<TDlJobLog> listTDlJobLogHeader(Long clusterId,
+                                                Long jobId,
+                                                Long nodeId,
+                                                Long stageId,
+                                                Long taskId,
+                                                Long stepId,
+                                                Long lastJobLogId,
+                                                long limit) {
+        LambdaQueryChainWrapper<TDlJobLog> tDlJobLogWrapper = this.tDlJobLogService.lambdaQuery()
+                .select(
+                        TDlJobLog.class,
+                        column -> !JOB_LOG_CONTENT_COLUMN_LIST.contains(column.getColumn())
+                )
+                .eq(TDlJobLog::getClusterId, clusterId)
+                .eq(TDlJobLog::getJobId, jobId);
+
+        if (nodeId != null) {
+            tDlJobLogWrapper = tDlJobLogWrapper.eq(TDlJobLog::getNodeId, nodeId);
         }
 
-        execProgress = execCurrent * 100 / execTotal;
+        if (stageId != null) {
+            tDlJobLogWrapper = tDlJobLogWrapper.eq(TDlJobLog::getStageId, stageId);
+        }
 
-        return new int[]{execTotal, execCurrent, execProgress};
-    }
+        if (taskId != null) {
+            tDlJobLogWrapper = tDlJobLogWrapper.eq(TDlJobLog::getTaskId, taskId);
+        }
+
+        if (stepId != null) {
+            tDlJobLogWrapper = tDlJobLogWrapper.eq(TDlJobLog::getStepId, stepId);
+        }
+
+        if (lastJobLogId != null) {
+            tDlJobLogWrapper = tDlJobLogWrapper.gt(TBasePo::getId, lastJobLogId);
+        }
 
+        return tDlJobLogWrapper
+                .orderByAsc(TBasePo::getId)
+                .last("LIMIT " + limit)
+                .list();
+    }
 
     /**
-     * Description: 填充任务的步骤执行进度信息列表
+     * Description: 读取指定作业日志截断后的日志内容，截断在数据库中完成，避免将完整日志读入内存
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2023/7/4
+     * Creation time: 2024/7/2
      * Modification description:
      * Modified by:
      * Modification time:
      * Throws:
      *
-     * @param execProgressPerNodeVo 任务的执行进度信息对象
-     * @param stepMetaList          某一节点下所有 Task 下所有 Step 元数据信息
+     * @param jobLogIdList 作业日志 ID 列表
+     * @param maxLength    每条日志内容最多读取的字符数
+     * @return List<TDlJobLog> 仅包含 ID 与日志内容的作业日志列表
      */
-    private void assembleExecProgressStepList(AbstractJobVo.ExecProgressPerNodeVo execProgressPerNodeVo,
-                                              List<StepMeta> stepMetaList) {
-
-        stepMetaList.forEach(
-                stepMeta -> {
-                    AbstractJobVo.ExecProgressStepVo execProgressStepVo = new AbstractJobVo.ExecProgressStepVo(
-                            stepMeta.getType(),
-                            stepMeta.getId(),
-                            stepMeta.getName(),
-                            stepMeta.getExecStateEnum()
-                    );
-                    execProgressPerNodeVo.getExecProgressStepList().add(execProgressStepVo);
-                }
-        );
+    private List<TDlJobLog> listTDlJobLogBody(List<Long> jobLogIdList, int maxLength) {
+        return this.tDlJobLogService.query()
+                .select(
+                        "id",
+                        String.format("LEFT(log_stdout, %s) AS log_stdout", maxLength),
+                        String.format("LEFT(log_errout, %s) AS log_errout", maxLength)
+                )
+                .in("id", jobLogIdList)
+                .list();
     }
 
     /**
-     * Description: 获取作业日志列表
+     * Description: 在指定 Step 中筛选出日志已经入库的 Step
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2024/1/15
+     * Creation time: 2024/7/2
      * Modification description:
      * Modified by:
      * Modification time:
      * Throws:
      *
-     * @param clusterId 集群 ID
+     * @param jobId     作业 ID
+     * @param stepIdSet Step ID 集合
+     * @return Set<Long> 日志已经入库的 Step ID 集合
+     */
+    private Set<Long> listLoggedStepId(Long jobId, Set<Long> stepIdSet) {
+        return this.tDlJobLogService.lambdaQuery()
+                .select(TDlJobLog::getStepId)
+                .eq(TDlJobLog::getJobId, jobId)
+                .in(TDlJobLog::getStepId, stepIdSet)
+                .list()
+                .stream()
+                .map(TDlJobLog::getStepId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Description: 组装作业日志响应，日志内容超过最大字符数时截断
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/2
+     * Modification description: 未指定最大字符数时不截断
+     * Modified by: Boundivore
+     * Modification time: 2024/7/4
+     * Throws:
+     *
+     * @param jobLogId  作业日志 ID
      * @param jobId     作业 ID
      * @param nodeId    节点 ID
      * @param stageId   阶段 ID
      * @param taskId    任务 ID
      * @param stepId    步骤 ID
-     * @return Result<AbstractJobVo.JobLogListVo> 日志信息列表
+     * @param logStdOut 标准日志
+     * @param logErrOut 错误日志
+     * @param maxLength 日志内容最大字符数，为空时不截断
+     * @return AbstractJobVo.JobLogVo 作业日志响应
      */
-    public Result<AbstractJobVo.JobLogListVo> getJobLogList(Long clusterId,
-                                                            Long jobId,
-                                                            Long nodeId,
-                                                            Long stageId,
-                                                            Long taskId,
-                                                            Long stepId) {
-
-        LambdaQueryChainWrapper<TDlJobLog> tDlJobLogWrapper = this.tDlJobLogService.lambdaQuery()
-                .select()
-                .eq(TDlJobLog::getClusterId, clusterId)
-                .eq(TDlJobLog::getJobId, jobId);
-
-        if (nodeId != null) {
-            tDlJobLogWrapper = tDlJobLogWrapper.eq(TDlJobLog::getNodeId, nodeId);
-        }
-
-        if (stageId != null) {
-            tDlJobLogWrapper = tDlJobLogWrapper.eq(TDlJobLog::getStageId, stageId);
+    private AbstractJobVo.JobLogVo createJobLogVo(Long jobLogId,
+                                                  Long jobId,
+                                                  Long nodeId,
+                                                  Long stageId,
+                                                  Long taskId,
+                                                  Long stepId,
+                                                  String logStdOut,
+                                                  String logErrOut,
+                                                  Integer maxLength) {
+        if (maxLength == null) {
+            return new AbstractJobVo.JobLogVo(
+                    jobLogId,
+                    jobId,
+                    nodeId,
+                    stageId,
+                    taskId,
+                    stepId,
+                    logStdOut,
+                    logErrOut,
+                    false
+            );
         }
 
-        if (taskId != null) {
-            tDlJobLogWrapper = tDlJobLogWrapper.eq(TDlJobLog::getTaskId, taskId);
-        }
+        boolean isLogTruncated = (logStdOut != null && logStdOut.length() > maxLength)
+                || (logErrOut != null && logErrOut.length() > maxLength);
 
-        if (stepId != null) {
-            tDlJobLogWrapper = tDlJobLogWrapper.eq(TDlJobLog::getStepId, stepId);
-        }
-
-        List<TDlJobLog> tDlJobLogList = tDlJobLogWrapper.list();
-        String tag = tDlJobLogList.isEmpty() ? null : tDlJobLogList.get(0).getTag();
-
-        List<AbstractJobVo.JobLogVo> jobLogList = tDlJobLogList
-                .stream()
-                .map(i -> new AbstractJobVo.JobLogVo(
-                                i.getJobId(),
-                                i.getNodeId(),
-                                i.getStageId(),
-                                i.getTaskId(),
-                                i.getStepId(),
-                                i.getLogStdout(),
-                                i.getLogErrout()
-                        )
-                )
-                .collect(Collectors.toList());
-
-        AbstractJobVo.JobLogListVo jobLogListVo = new AbstractJobVo.JobLogListVo(
-                clusterId,
-                tag,
-                jobLogList
+        return new AbstractJobVo.JobLogVo(
+                jobLogId,
+                jobId,
+                nodeId,
+                stageId,
+                taskId,
+                stepId,
+                logStdOut != null && logStdOut.length() > maxLength ? logStdOut.substring(0, maxLength) : logStdOut,
+                logErrOut != null && logErrOut.length() > maxLength ? logErrOut.substring(0, maxLength) : logErrOut,
+                isLogTruncated
         );
-
-        return Result.success(jobLogListVo);
     }
 
     /**
@@ -1028,6 +1175,8 @@ public class MasterJobService {
                 execProgress
         );
 
+        plan.initExecProgressSnapshot(jobMeta);
+
         JobCacheBean jobCacheBean = new JobCacheBean(jobMeta, plan);
 
         // 重新加载到内存
@@ -140,7 +140,88 @@ public class MasterLogFileReaderService {
                                                                                 Long startOffset,
                                                                                 Long endOffset) throws Exception {
 
+        this.assertLogFilePath(filePath);
 
+        return this.remoteInvokeWorkerService.iWorkerLogFileReaderAPI(this.getNodeIp(nodeId))
+                .loadFileContent(
+                        filePath,
+                        startOffset,
+                        endOffset
+                );
+    }
+
+    /**
+     * Description: 读取日志文件末尾内容
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/18
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param nodeId    节点 ID
+     * @param filePath  日志文件绝对路径
+     * @param tailBytes 读取末尾的字节数
+     * @return Result<AbstractLogFileVo.LogFileContentVo> 日志文件内容
+     */
+    public Result<AbstractLogFileVo.LogFileContentVo> tailFileContentWithNodeId(Long nodeId,
+                                                                                String filePath,
+                                                                                Long tailBytes) throws Exception {
+
+        this.assertLogFilePath(filePath);
+
+        return this.remoteInvokeWorkerService.iWorkerLogFileReaderAPI(this.getNodeIp(nodeId))
+                .tailFileContent(
+                        filePath,
+                        tailBytes
+                );
+    }
+
+    /**
+     * Description: 从指定行开始读取日志内容
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/18
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param nodeId     节点 ID
+     * @param filePath   日志文件绝对路径
+     * @param lineNumber 起始行号，从 1 开始
+     * @param length     读取的字节数
+     * @return Result<AbstractLogFileVo.LogFileContentVo> 日志文件内容
+     */
+    public Result<AbstractLogFileVo.LogFileContentVo> loadFileContentByLineWithNodeId(Long nodeId,
+                                                                                      String filePath,
+                                                                                      Long lineNumber,
+                                                                                      Long length) throws Exception {
+
+        this.assertLogFilePath(filePath);
+
+        return this.remoteInvokeWorkerService.iWorkerLogFileReaderAPI(this.getNodeIp(nodeId))
+                .loadFileContentByLine(
+                        filePath,
+                        lineNumber,
+                        length
+                );
+    }
+
+    /**
+     * Description: 不允许查看日志目录之外的文件
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/18
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: BException 文件不在日志目录下
+     *
+     * @param filePath 日志文件绝对路径
+     */
+    private void assertLogFilePath(String filePath) {
         YamlDirectory.Directory directoryYaml = ResolverYamlDirectory.DIRECTORY_YAML.getDatalight();
         String logDir = directoryYaml.getLogDir()
                 .substring(
@@ -151,19 +232,12 @@ public class MasterLogFileReaderService {
                 filePath.contains(logDir),
                 () -> new BException("不允许查看非日志系统之外的文件内容")
         );
+    }
 
-        // 获取节点 IP
-        String nodeIp = this.masterNodeService.getNodeDetailById(nodeId)
+    private String getNodeIp(Long nodeId) {
+        return this.masterNodeService.getNodeDetailById(nodeId)
                 .getData()
                 .getNodeIp();
-
-
-        return this.remoteInvokeWorkerService.iWorkerLogFileReaderAPI(nodeIp)
-                .loadFileContent(
-                        filePath,
-                        startOffset,
-                        endOffset
-                );
     }
 
 
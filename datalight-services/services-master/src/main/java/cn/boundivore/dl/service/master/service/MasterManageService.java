@@ -20,6 +20,7 @@ import cn.boundivore.dl.base.constants.AutoPullWorkerState;
 import cn.boundivore.dl.base.constants.Constants;
 import cn.boundivore.dl.base.enumeration.impl.*;
 import cn.boundivore.dl.base.request.impl.common.AlertWebhookPayloadRequest;
+import cn.boundivore.dl.base.request.impl.master.ExecOutputRequest;
 import cn.boundivore.dl.base.request.impl.master.HeartBeatRequest;
 import cn.boundivore.dl.base.request.impl.worker.ExecRequest;
 import cn.boundivore.dl.base.request.impl.worker.MasterMetaRequest;
@@ -30,6 +31,7 @@ import cn.boundivore.dl.orm.po.single.TDlNode;
 import cn.boundivore.dl.service.master.bean.AlertSummaryBean;
 import cn.boundivore.dl.service.master.bean.RestartInfo;
 import cn.boundivore.dl.service.master.cache.HeartBeatCache;
+import cn.boundivore.dl.service.master.cache.StepOutputCache;
 import cn.boundivore.dl.service.master.env.DataLightEnv;
 import cn.boundivore.dl.service.master.manage.node.job.NodeJobService;
 import cn.boundivore.dl.service.master.resolver.ResolverYamlServiceDetail;
@@ -43,12 +45,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
-import java.util.concurrent.ForkJoinPool;
-import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.stream.Collectors;
 
 /**
@@ -71,6 +71,8 @@ public class MasterManageService {
 
     private final HeartBeatCache heartBeatCache;
 
+    private final StepOutputCache stepOutputCache;
+
     private final MasterNodeService masterNodeService;
 
     private final MasterComponentService masterComponentService;
@@ -82,6 +84,60 @@ public class MasterManageService {
     // 多线程拉起 Worker 线程池
     private final ForkJoinPool forkJoinPool = new ForkJoinPool(4);
 
+    // 心跳超时回调在时间轮线程中触发，拉起操作交由该线程执行，避免阻塞后续的超时检测
+    private final ExecutorService timeoutPullExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "TimeoutWorkerPuller");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 正在拉起的 Worker IP，超时回调与周期性检查不会同时拉起同一节点
+    private final Set<String> pullingIpSet = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        // 心跳超时后立即尝试拉起，无需等待下一次周期性检查
+        this.heartBeatCache.setTimeoutListener(this::pullTimeoutWorker);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        this.timeoutPullExecutor.shutdownNow();
+        this.forkJoinPool.shutdownNow();
+    }
+
+    /**
+     * Description: 拉起时间轮新标记为超时的 Worker，仅查询这些节点，而非全部节点；
+     * 该回调在时间轮线程中触发，查询与拉起均交由独立线程执行
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/21
+     * Modification description: 拉起操作不再在时间轮线程中同步执行
+     * Modified by: Boundivore
+     * Modification time: 2024/7/4
+     * Throws:
+     *
+     * @param timeoutList 新超时的心跳状态
+     */
+    private void pullTimeoutWorker(List<HeartBeatCache.WorkerHeartBeat> timeoutList) {
+        final List<String> timeoutIpList = timeoutList.stream()
+                .map(HeartBeatCache.WorkerHeartBeat::getIp)
+                .collect(Collectors.toList());
+
+        this.timeoutPullExecutor.execute(() -> {
+            try {
+                final List<TDlNode> timeoutWorkerTDlNodeList = this.masterNodeService.getNodeListByIpList(timeoutIpList)
+                        .stream()
+                        .filter(i -> i.getNodeState() == NodeStateEnum.STARTED)
+                        .collect(Collectors.toList());
+
+                this.pullWorkerAndPublishMaster(timeoutWorkerTDlNodeList);
+            } catch (Exception e) {
+                log.error("拉起心跳超时的 Worker 失败: {}", ExceptionUtil.stacktraceToString(e));
+            }
+        });
+    }
+
     /**
      * Description: 接收来自 Worker 端的心跳包
      * Created by: Boundivore
@@ -104,6 +160,27 @@ public class MasterManageService {
         return Result.success();
     }
 
+    /**
+     * Description: 接收 Worker 端执行脚本过程中推送的输出，追加到执行中 Step 的实时输出
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param request 输出分块请求体
+     * @return Result<String>
+     */
+    public Result<String> execOutput(ExecOutputRequest request) {
+        if (!this.stepOutputCache.append(request) && log.isDebugEnabled()) {
+            log.debug("忽略已结束或重复的输出分块: {} {}", request.getStreamId(), request.getSeq());
+        }
+
+        return Result.success();
+    }
+
     /**
      * Description: 周期性检查心跳包过期的 Worker，准备 SSH 拉起，对于重启的节点，探测是否重启完成
      * EASY TO FIX: 可以通过动态修改 Trigger 动态改变定时任务的周期策略
@@ -246,6 +323,7 @@ public class MasterManageService {
                 .getTimeoutWorkerHeartBeatList()
                 .stream()
                 .map(i -> startedWorkerTDlNodeMap.get(i.getIp()))
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
 
         // 整合上述两个集合，准备 SSH 启动 Worker
@@ -260,9 +338,9 @@ public class MasterManageService {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2023/8/4
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 跳过正在拉起的节点，超时回调与周期性检查不会重复拉起同一节点
+     * Modified by: Boundivore
+     * Modification time: 2024/7/4
      * Throws:
      *
      * @param allInvalidWorkerTDlNodeList 所有待操作的节点
@@ -296,11 +374,21 @@ public class MasterManageService {
                     .map(AutoPullWorkerState.CacheBean::getClusterId)
                     .collect(Collectors.toList());
 
+            // 登记本次拉起的节点，已由其他线程拉起中的节点直接跳过
+            final List<TDlNode> pullTDlNodeList = allInvalidWorkerTDlNodeList.stream()
+                    .filter(i -> CollUtil.isEmpty(autoPullTrueClusterIdList) || autoPullTrueClusterIdList.contains(i.getClusterId()))
+                    .filter(i -> {
+                        boolean isAbsent = this.pullingIpSet.add(i.getIpv4());
+                        if (!isAbsent) log.info("Worker({}) 正在拉起中，跳过", i.getIpv4());
+                        return isAbsent;
+                    })
+                    .collect(Collectors.toList());
+
+            if (pullTDlNodeList.isEmpty()) return;
 
             this.forkJoinPool.submit(() -> {
                 // SSH 启动 Worker，并推送 Master 位置
-                allInvalidWorkerTDlNodeList.parallelStream()
-                        .filter(i -> CollUtil.isEmpty(autoPullTrueClusterIdList) || autoPullTrueClusterIdList.contains(i.getClusterId()))
+                pullTDlNodeList.parallelStream()
                         .forEach(i -> {
                             try {
                                 // 首先尝试主动再次推送 Master 元数据信息，获取心跳，如失败，则尝试拉起
@@ -337,6 +425,8 @@ public class MasterManageService {
                                             ExceptionUtil.stacktraceToString(e)
                                     );
                                 }
+                            } finally {
+                                this.pullingIpSet.remove(i.getIpv4());
                             }
                         });
             }).get();
@@ -79,6 +79,8 @@ public class MasterNodeInitService {
 
     private final MasterInitProcedureService masterInitProcedureService;
 
+    private final RemoteInvokeWorkerService remoteInvokeWorkerService;
+
     /**
      * Description: 解析主机名正则，返回有效主机名列表与无效主机名列表
      * Created by: Boundivore
@@ -537,9 +539,9 @@ public class MasterNodeInitService {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2023/7/5
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: IP 变更时移除原地址的 Worker API 缓存
+     * Modified by: Boundivore
+     * Modification time: 2024/7/8
      * Throws:
      *
      * @param nodeId        节点 ID
@@ -554,6 +556,8 @@ public class MasterNodeInitService {
         TDlNodeInit tDlNodeInit = this.tDlNodeInitService.getById(nodeId);
         Assert.notNull(tDlNodeInit, () -> new DatabaseException("没有找到对应节点初始化信息"));
 
+        final String oldIpv4 = tDlNodeInit.getIpv4();
+
         tDlNodeInit.setIpv4(nodeResources.getNodeIp());
         tDlNodeInit.setCpuArch(nodeResources.getCpuArch());
         tDlNodeInit.setCpuCores(nodeResources.getCpuCores());
@@ -565,6 +569,11 @@ public class MasterNodeInitService {
                 this.tDlNodeInitService.updateById(tDlNodeInit),
                 () -> new DatabaseException("更新节点初始化物理资源信息失败")
         );
+
+        // 节点 IP 变更后，移除按原地址缓存的 Worker API 实例
+        if (oldIpv4 != null && !oldIpv4.equals(nodeResources.getNodeIp())) {
+            this.remoteInvokeWorkerService.evictWorkerApi(oldIpv4);
+        }
     }
 
     /**
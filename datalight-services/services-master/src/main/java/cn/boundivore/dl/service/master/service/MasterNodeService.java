@@ -64,6 +64,8 @@ public class MasterNodeService {
 
     private final MasterNodeJobService masterNodeJobService;
 
+    private final RemoteInvokeWorkerService remoteInvokeWorkerService;
+
     /**
      * Description: 对已服役的节点进行异步操作
      * Created by: Boundivore
@@ -685,6 +687,9 @@ public class MasterNodeService {
                 () -> new DatabaseException("移除节点失败")
         );
 
+        // 移除已缓存的 Worker API 实例
+        tDlNodeList.forEach(i -> this.remoteInvokeWorkerService.evictWorkerApi(i.getIpv4()));
+
 
         return Result.success();
     }
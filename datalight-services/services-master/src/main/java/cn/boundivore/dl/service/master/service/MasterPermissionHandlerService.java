@@ -17,6 +17,8 @@
 package cn.boundivore.dl.service.master.service;
 
 import cn.boundivore.dl.service.master.bean.PermissionBean;
+import cn.boundivore.dl.service.master.utils.PermissionRouteMatcher;
+import cn.dev33.satoken.router.SaRouter;
 import cn.hutool.core.exceptions.ExceptionUtil;
 import io.swagger.annotations.ApiOperation;
 import lombok.AllArgsConstructor;
@@ -47,9 +49,9 @@ import java.util.Map;
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2024/4/10
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 扫描完成后构建接口权限路由表
+ * Modified by: Boundivore
+ * Modification time: 2024/6/30
  * Version: V1.0
  */
 @Getter
@@ -66,9 +68,16 @@ public class MasterPermissionHandlerService {
     // <PermissionCode, PermissionBean>
     private final Map<String, PermissionBean> permissionBeanMap = new HashMap<>();
 
+    // 按照请求路径查找接口权限的路由表，在扫描完成后构建
+    private volatile PermissionRouteMatcher permissionRouteMatcher;
+
     @PostConstruct
     public void init() {
         this.scanApiAnnotation();
+        this.permissionRouteMatcher = new PermissionRouteMatcher(
+                this.permissionBeanMap.values(),
+                SaRouter::isMatch
+        );
     }
 
     /**
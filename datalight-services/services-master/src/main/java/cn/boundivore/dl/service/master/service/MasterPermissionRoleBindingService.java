@@ -61,14 +61,16 @@ public class MasterPermissionRoleBindingService {
 
     private final TDlPermissionServiceImpl tDlPermissionService;
 
+    private final MasterRolePermissionCacheService masterRolePermissionCacheService;
+
     /**
      * Description: 绑定权限到指定角色
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2024/4/12
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 绑定关系变更后清空用户角色与权限缓存
+     * Modified by: Boundivore
+     * Modification time: 2024/6/30
      * Throws:
      *
      * @param request 权限与角色映射关系列表
@@ -139,6 +141,9 @@ public class MasterPermissionRoleBindingService {
                 );
 
 
+        // 绑定关系已变更，清空用户角色与权限缓存
+        this.masterRolePermissionCacheService.invalidateAll();
+
         return Result.success();
     }
 
@@ -147,9 +152,9 @@ public class MasterPermissionRoleBindingService {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2024/4/12
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 绑定关系变更后清空用户角色与权限缓存
+     * Modified by: Boundivore
+     * Modification time: 2024/6/30
      * Throws:
      *
      * @param request 权限与角色映射关系列表
@@ -186,6 +191,9 @@ public class MasterPermissionRoleBindingService {
                 () -> new DatabaseException("移除权限角色映射关系失败")
         );
 
+        // 绑定关系已变更，清空用户角色与权限缓存
+        this.masterRolePermissionCacheService.invalidateAll();
+
         return Result.success();
     }
 
@@ -194,9 +202,9 @@ public class MasterPermissionRoleBindingService {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2024/4/12
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 绑定关系变更后清空用户角色与权限缓存
+     * Modified by: Boundivore
+     * Modification time: 2024/6/30
      * Throws:
      *
      * @param request 角色 ID 列表
@@ -219,6 +227,9 @@ public class MasterPermissionRoleBindingService {
                     () -> new DatabaseException("移除权限角色绑定关系失败")
             );
         }
+        // 绑定关系已变更，清空用户角色与权限缓存
+        this.masterRolePermissionCacheService.invalidateAll();
+
         return Result.success();
     }
 }
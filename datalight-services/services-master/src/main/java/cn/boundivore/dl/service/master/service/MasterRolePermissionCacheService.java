@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Description: 缓存用户的角色与权限列表，供 Sa-Token 鉴权回调使用，避免每次接口请求都查询数据库；
+ * 角色、权限与用户的绑定关系发生变化后清空缓存
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/30
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Service
+@Slf4j
+public class MasterRolePermissionCacheService {
+
+    // <UserId, RoleNameList>
+    private final Map<Long, List<String>> roleCache = new ConcurrentHashMap<>();
+
+    // <UserId, PermissionCodeList>
+    private final Map<Long, List<String>> permissionCache = new ConcurrentHashMap<>();
+
+    // 每次清空缓存时递增，用于丢弃清空前已开始加载的旧数据
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * Description: 获取用户的角色列表，缓存中不存在时通过 loader 加载
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/30
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param userId 用户 ID
+     * @param loader 从数据库加载角色列表
+     * @return List<String> 角色列表（只读）
+     */
+    public List<String> getRoleList(Long userId, Function<Long, List<String>> loader) {
+        return this.get(this.roleCache, userId, loader);
+    }
+
+    /**
+     * Description: 获取用户的权限列表，缓存中不存在时通过 loader 加载
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/30
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param userId 用户 ID
+     * @param loader 从数据库加载权限列表
+     * @return List<String> 权限列表（只读）
+     */
+    public List<String> getPermissionList(Long userId, Function<Long, List<String>> loader) {
+        return this.get(this.permissionCache, userId, loader);
+    }
+
+    /**
+     * Description: 清空所有用户的角色与权限缓存；处于事务中时在事务提交后清空，
+     * 避免事务提交前其他请求将旧数据重新加载进缓存
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/30
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    public void invalidateAll() {
+        // 事务提交前也先清空一次，使事务内的后续鉴权读取最新数据
+        this.clear();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public void afterCommit() {
+                            clear();
+                        }
+                    }
+            );
+        }
+    }
+
+    private List<String> get(Map<Long, List<String>> cache, Long userId, Function<Long, List<String>> loader) {
+        List<String> valueList = cache.get(userId);
+        if (valueList != null) return valueList;
+
+        final long loadGeneration = this.generation.get();
+        valueList = Collections.unmodifiableList(loader.apply(userId));
+
+        // 加载期间缓存被清空时不写入，写入后缓存被清空时移除，保证不会留下旧数据
+        if (this.generation.get() == loadGeneration) {
+            cache.put(userId, valueList);
+            if (this.generation.get() != loadGeneration) cache.remove(userId, valueList);
+        }
+
+        return valueList;
+    }
+
+    private void clear() {
+        this.generation.incrementAndGet();
+        this.roleCache.clear();
+        this.permissionCache.clear();
+
+        if (log.isDebugEnabled()) {
+            log.debug("清空用户角色与权限缓存");
+        }
+    }
+}
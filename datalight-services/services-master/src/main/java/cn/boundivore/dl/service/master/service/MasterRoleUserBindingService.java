@@ -64,15 +64,17 @@ public class MasterRoleUserBindingService {
 
     private final TDlRoleUserRelationServiceImpl tDlRoleUserRelationService;
 
+    private final MasterRolePermissionCacheService masterRolePermissionCacheService;
+
 
     /**
      * Description: 绑定角色与用户的绑定关系
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2024/4/12
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 绑定关系变更后清空用户角色与权限缓存
+     * Modified by: Boundivore
+     * Modification time: 2024/6/30
      * Throws:
      *
      * @param request 角色用户映射列表
@@ -171,6 +173,9 @@ public class MasterRoleUserBindingService {
                 () -> new DatabaseException("绑定角色到用户失败")
         );
 
+        // 绑定关系已变更，清空用户角色与权限缓存
+        this.masterRolePermissionCacheService.invalidateAll();
+
         return Result.success();
     }
 
@@ -179,9 +184,9 @@ public class MasterRoleUserBindingService {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2024/4/12
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 绑定关系变更后清空用户角色与权限缓存
+     * Modified by: Boundivore
+     * Modification time: 2024/6/30
      * Throws:
      *
      * @param request 角色用户映射列表
@@ -235,6 +240,9 @@ public class MasterRoleUserBindingService {
                 () -> new DatabaseException("移除角色用户映射关系失败")
         );
 
+        // 绑定关系已变更，清空用户角色与权限缓存
+        this.masterRolePermissionCacheService.invalidateAll();
+
         return Result.success();
     }
 
@@ -243,9 +251,9 @@ public class MasterRoleUserBindingService {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2024/4/12
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 绑定关系变更后清空用户角色与权限缓存
+     * Modified by: Boundivore
+     * Modification time: 2024/6/30
      * Throws:
      *
      * @param request 用户 ID 请求体
@@ -279,6 +287,9 @@ public class MasterRoleUserBindingService {
         }
 
 
+        // 绑定关系已变更，清空用户角色与权限缓存
+        this.masterRolePermissionCacheService.invalidateAll();
+
         return Result.success();
     }
 
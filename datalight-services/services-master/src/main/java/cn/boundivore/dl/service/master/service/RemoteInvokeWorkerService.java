@@ -19,12 +19,22 @@ package cn.boundivore.dl.service.master.service;
 import cn.boundivore.dl.api.worker.define.*;
 import cn.boundivore.dl.base.constants.IUrlPrefixConstants;
 import cn.boundivore.dl.cloud.feign.RequestOptionsGenerator;
+import feign.Client;
+import feign.Contract;
 import feign.Feign;
+import feign.Request;
+import feign.Retryer;
+import feign.codec.Decoder;
+import feign.codec.Encoder;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.openfeign.support.SpringMvcContract;
 import org.springframework.stereotype.Service;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Description: 通过 Feign 远程调用指定节点上的 Worker 接口的一系列封装
  * Created by: Boundivore
@@ -40,7 +50,16 @@ import org.springframework.stereotype.Service;
 @RequiredArgsConstructor
 public class RemoteInvokeWorkerService {
 
-    private final Feign.Builder feignBuilder;
+    private final Client feignClient;
+
+    private final Encoder feignEncoder;
+
+    private final Decoder feignDecoder;
+
+    private final Contract contract = new SpringMvcContract();
+
+    // <Worker IP:端口, <API 接口类型, API 实例>>，Feign 解析接口契约的开销较大，每个 Worker 的每类 API 仅构建一次
+    private final Map<String, Map<String, Object>> workerApiCache = new ConcurrentHashMap<>();
 
     @Value("${server.datalight.url.worker-port}")
     private String workerPort;
@@ -65,21 +84,57 @@ public class RemoteInvokeWorkerService {
      * @return IWorkerExecAPI 可调用 API 实例
      */
     public IWorkerExecAPI iWorkerExecAPI(String ip) {
-        return feignBuilder
-                .options(RequestOptionsGenerator.getRequestOptions(
-                                connectTimeout,
-                                readTimeout
-                        )
-                )
-                .target(
-                        IWorkerExecAPI.class,
-                        String.format(
-                                "http://%s:%s%s",
-                                ip,
-                                workerPort,
-                                IUrlPrefixConstants.WORKER_URL_PREFIX
-                        )
-                );
+        return this.workerApi(
+                ip,
+                IWorkerExecAPI.class,
+                this.connectTimeout,
+                this.readTimeout
+        );
+    }
+
+    /**
+     * Description: Feign 远程调用指定节点的 IWorkerExecBatchAPI 的接口，用于批量执行 Step，
+     * 每次调用的读取超时通过 execBatchOptions 生成并随请求传入
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/26
+     * Modification description: 改为每个 Worker 仅缓存一个实例，读取超时不再作为缓存键的一部分
+     * Modified by: Boundivore
+     * Modification time: 2024/7/4
+     * Throws:
+     *
+     * @param ip 对端 IP 地址
+     * @return IWorkerExecBatchAPI 可调用 API 实例
+     */
+    public IWorkerExecBatchAPI iWorkerExecBatchAPI(String ip) {
+        return this.workerApi(
+                ip,
+                IWorkerExecBatchAPI.class,
+                this.connectTimeout,
+                this.readTimeout
+        );
+    }
+
+    /**
+     * Description: 生成批量执行 Step 时单次调用的请求配置，
+     * 读取超时按照批次中的 Step 数量放大，并加上 Step 之间的休眠时间
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/4
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param stepCount        批次中的 Step 数量
+     * @param totalSleepMillis 批次中所有 Step 执行后的休眠时间之和
+     * @return Request.Options 单次调用的请求配置
+     */
+    public Request.Options execBatchOptions(int stepCount, long totalSleepMillis) {
+        return RequestOptionsGenerator.getRequestOptions(
+                this.connectTimeout,
+                this.readTimeout * Math.max(stepCount, 1) + Math.max(totalSleepMillis, 0L)
+        );
     }
 
     /**
@@ -96,21 +151,12 @@ public class RemoteInvokeWorkerService {
      * @return IWorkerConfigAPI 可调用 API 实例
      */
     public IWorkerConfigAPI iWorkerConfigAPI(String ip) {
-        return feignBuilder
-                .options(RequestOptionsGenerator.getRequestOptions(
-                                connectTimeout,
-                                readTimeout
-                        )
-                )
-                .target(
-                        IWorkerConfigAPI.class,
-                        String.format(
-                                "http://%s:%s%s",
-                                ip,
-                                workerPort,
-                                IUrlPrefixConstants.WORKER_URL_PREFIX
-                        )
-                );
+        return this.workerApi(
+                ip,
+                IWorkerConfigAPI.class,
+                this.connectTimeout,
+                this.readTimeout
+        );
     }
 
     /**
@@ -127,21 +173,12 @@ public class RemoteInvokeWorkerService {
      * @return IWorkerManageAPI 可调用 API 实例
      */
     public IWorkerManageAPI iWorkerManageAPI(String ip) {
-        return feignBuilder
-                .options(RequestOptionsGenerator.getRequestOptions(
-                                10 * 1000L,
-                                10 * 1000L
-                        )
-                )
-                .target(
-                        IWorkerManageAPI.class,
-                        String.format(
-                                "http://%s:%s%s",
-                                ip,
-                                workerPort,
-                                IUrlPrefixConstants.WORKER_URL_PREFIX
-                        )
-                );
+        return this.workerApi(
+                ip,
+                IWorkerManageAPI.class,
+                10 * 1000L,
+                10 * 1000L
+        );
     }
 
     /**
@@ -158,21 +195,12 @@ public class RemoteInvokeWorkerService {
      * @return IWorkerManageAPI 可调用 API 实例
      */
     public IWorkerLogFileReaderAPI iWorkerLogFileReaderAPI(String ip) {
-        return feignBuilder
-                .options(RequestOptionsGenerator.getRequestOptions(
-                                10 * 1000L,
-                                10 * 1000L
-                        )
-                )
-                .target(
-                        IWorkerLogFileReaderAPI.class,
-                        String.format(
-                                "http://%s:%s%s",
-                                ip,
-                                workerPort,
-                                IUrlPrefixConstants.WORKER_URL_PREFIX
-                        )
-                );
+        return this.workerApi(
+                ip,
+                IWorkerLogFileReaderAPI.class,
+                10 * 1000L,
+                10 * 1000L
+        );
     }
 
     /**
@@ -189,20 +217,93 @@ public class RemoteInvokeWorkerService {
      * @return IWorkerManageAPI 可调用 API 实例
      */
     public IWorkerDispatchAPI iWorkerDispatchAPI(String ip) {
-        return feignBuilder
-                .options(RequestOptionsGenerator.getRequestOptions(
-                                10 * 1000L,
-                                10 * 1000L
-                        )
-                )
-                .target(
-                        IWorkerDispatchAPI.class,
-                        String.format(
-                                "http://%s:%s%s",
-                                ip,
-                                workerPort,
-                                IUrlPrefixConstants.WORKER_URL_PREFIX
+        return this.workerApi(
+                ip,
+                IWorkerDispatchAPI.class,
+                10 * 1000L,
+                10 * 1000L
+        );
+    }
+
+    /**
+     * Description: 获取指定 Worker 的 API 实例，不存在时构建并缓存；
+     * 所有实例共用同一个 Feign Client（即同一个 OkHttp 连接池）
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/14
+     * Modification description: 每类 API 仅缓存一个实例，需要不同读取超时的调用通过 Request.Options 参数传入
+     * Modified by: Boundivore
+     * Modification time: 2024/7/4
+     * Throws:
+     *
+     * @param ip             对端 IP 地址
+     * @param apiClass       API 接口类型
+     * @param connectTimeout 连接超时
+     * @param readTimeout    读取超时
+     * @return T 可调用 API 实例
+     */
+    private <T> T workerApi(String ip,
+                            Class<T> apiClass,
+                            long connectTimeout,
+                            long readTimeout) {
+        return apiClass.cast(
+                this.workerApiCache
+                        .computeIfAbsent(this.workerAddress(ip), k -> new ConcurrentHashMap<>())
+                        .computeIfAbsent(apiClass.getName(), k -> Feign.builder()
+                                .client(this.feignClient)
+                                .contract(this.contract)
+                                .encoder(this.feignEncoder)
+                                .decoder(this.feignDecoder)
+                                .retryer(Retryer.NEVER_RETRY)
+                                .options(RequestOptionsGenerator.getRequestOptions(
+                                                connectTimeout,
+                                                readTimeout
+                                        )
+                                )
+                                .target(
+                                        apiClass,
+                                        String.format(
+                                                "http://%s%s",
+                                                this.workerAddress(ip),
+                                                IUrlPrefixConstants.WORKER_URL_PREFIX
+                                        )
+                                )
                         )
-                );
+        );
+    }
+
+    /**
+     * Description: 移除指定 Worker 的 API 实例缓存，节点移除时，或节点探测到的 IP 与已记录的 IP 不一致时调用
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/14
+     * Modification description: 缓存键改为 Worker 的 IP 与端口
+     * Modified by: Boundivore
+     * Modification time: 2024/7/4
+     * Throws:
+     *
+     * @param ip 对端 IP 地址
+     */
+    public void evictWorkerApi(String ip) {
+        if (this.workerApiCache.remove(this.workerAddress(ip)) != null) {
+            log.info("移除 Worker API 缓存: {}", this.workerAddress(ip));
+        }
+    }
+
+    /**
+     * Description: 获取 Worker 的访问地址，同时作为 API 实例的缓存键
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/4
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param ip 对端 IP 地址
+     * @return String IP:端口
+     */
+    private String workerAddress(String ip) {
+        return ip + ":" + this.workerPort;
     }
 }
@@ -30,9 +30,9 @@ import java.util.stream.Collectors;
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2024/4/11
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 角色与权限列表优先从 MasterRolePermissionCacheService 中获取
+ * Modified by: Boundivore
+ * Modification time: 2024/6/30
  * Version: V1.0
  */
 @Service
@@ -44,14 +44,16 @@ public class SaTokenRolePermissionCallbackService implements StpInterface {
 
     private final MasterPermissionService masterPermissionService;
 
+    private final MasterRolePermissionCacheService masterRolePermissionCacheService;
+
     /**
      * Description: 获取当前登录用户的权限内容列表
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2024/4/10
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 优先读取缓存
+     * Modified by: Boundivore
+     * Modification time: 2024/6/30
      * Throws:
      *
      * @param loginId   账号 ID
@@ -60,13 +62,15 @@ public class SaTokenRolePermissionCallbackService implements StpInterface {
      */
     @Override
     public List<String> getPermissionList(Object loginId, String loginType) {
-        List<String> permissionCodeList = this.masterPermissionService.getPermissionListByUserId(
-                        Long.parseLong(loginId.toString())
-                ).getData()
-                .getPermissionList()
-                .stream()
-                .map(AbstractRolePermissionRuleVo.PermissionVo::getPermissionCode)
-                .collect(Collectors.toList());
+        List<String> permissionCodeList = this.masterRolePermissionCacheService.getPermissionList(
+                Long.parseLong(loginId.toString()),
+                userId -> this.masterPermissionService.getPermissionListByUserId(userId)
+                        .getData()
+                        .getPermissionList()
+                        .stream()
+                        .map(AbstractRolePermissionRuleVo.PermissionVo::getPermissionCode)
+                        .collect(Collectors.toList())
+        );
 
         if (log.isDebugEnabled()) {
             log.debug(
@@ -84,9 +88,9 @@ public class SaTokenRolePermissionCallbackService implements StpInterface {
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2024/4/10
-     * Modification description:
-     * Modified by:
-     * Modification time:
+     * Modification description: 优先读取缓存
+     * Modified by: Boundivore
+     * Modification time: 2024/6/30
      * Throws:
      *
      * @param loginId   账号 ID
@@ -95,13 +99,15 @@ public class SaTokenRolePermissionCallbackService implements StpInterface {
      */
     @Override
     public List<String> getRoleList(Object loginId, String loginType) {
-        List<String> roleNameList = this.masterRoleService.getRoleListByUserId(
-                        Long.parseLong(loginId.toString())
-                ).getData()
-                .getRoleList()
-                .stream()
-                .map(AbstractRolePermissionRuleVo.RoleVo::getRoleName)
-                .collect(Collectors.toList());
+        List<String> roleNameList = this.masterRolePermissionCacheService.getRoleList(
+                Long.parseLong(loginId.toString()),
+                userId -> this.masterRoleService.getRoleListByUserId(userId)
+                        .getData()
+                        .getRoleList()
+                        .stream()
+                        .map(AbstractRolePermissionRuleVo.RoleVo::getRoleName)
+                        .collect(Collectors.toList())
+        );
 
         if (log.isDebugEnabled()) {
             log.debug(
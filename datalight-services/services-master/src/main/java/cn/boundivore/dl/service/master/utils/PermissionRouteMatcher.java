@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.utils;
+
+import cn.boundivore.dl.service.master.bean.PermissionBean;
+
+import java.util.*;
+import java.util.function.BiPredicate;
+
+/**
+ * Description: 预先编译的接口权限路由表：不含通配符与路径变量的接口路径放入哈希表中精确匹配，
+ * 其余路径按模式逐个匹配，避免每次请求都遍历所有接口权限
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/30
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+public final class PermissionRouteMatcher {
+
+    // <接口路径, 该路径对应的接口权限>
+    private final Map<String, List<PermissionBean>> exactPathMap;
+
+    // 含有通配符或路径变量的接口权限
+    private final List<PermissionBean> patternPermissionList;
+
+    // (模式, 请求路径) -> 是否匹配
+    private final BiPredicate<String, String> patternMatcher;
+
+    /**
+     * Description: 根据接口权限构建路由表
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/30
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param permissionBeans 所有接口权限
+     * @param patternMatcher  含有通配符或路径变量的路径的匹配规则，如 SaRouter::isMatch
+     */
+    public PermissionRouteMatcher(Collection<PermissionBean> permissionBeans,
+                                  BiPredicate<String, String> patternMatcher) {
+        final Map<String, List<PermissionBean>> exactPathMap = new HashMap<>();
+        final List<PermissionBean> patternPermissionList = new ArrayList<>();
+
+        permissionBeans.forEach(permissionBean -> {
+            if (isPattern(permissionBean.getPath())) {
+                patternPermissionList.add(permissionBean);
+            } else {
+                exactPathMap.computeIfAbsent(permissionBean.getPath(), k -> new ArrayList<>(1))
+                        .add(permissionBean);
+            }
+        });
+
+        this.exactPathMap = exactPathMap;
+        this.patternPermissionList = patternPermissionList;
+        this.patternMatcher = patternMatcher;
+    }
+
+    /**
+     * Description: 获取与请求路径匹配的接口权限
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/30
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param requestPath 请求路径
+     * @return List<PermissionBean> 匹配的接口权限，不存在时返回空列表
+     */
+    public List<PermissionBean> match(String requestPath) {
+        final List<PermissionBean> exactList = this.exactPathMap.getOrDefault(requestPath, Collections.emptyList());
+        if (this.patternPermissionList.isEmpty()) return exactList;
+
+        final List<PermissionBean> matchList = new ArrayList<>(exactList);
+        this.patternPermissionList.forEach(permissionBean -> {
+            if (this.patternMatcher.test(permissionBean.getPath(), requestPath)) matchList.add(permissionBean);
+        });
+        return matchList;
+    }
+
+    private static boolean isPattern(String path) {
+        return path.indexOf('*') >= 0
+                || path.indexOf('?') >= 0
+                || path.indexOf('{') >= 0;
+    }
+}
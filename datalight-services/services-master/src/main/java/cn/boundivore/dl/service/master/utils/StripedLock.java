@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.utils;
+
+import java.util.Collection;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Description: 分段锁：按 Key 的哈希值映射到固定数量的锁上，相同 Key 的操作互斥，不同 Key 的操作大概率可并发执行。
+ * 同时获取多个 Key 时，按锁的下标升序加锁，因此任意两组 Key 之间不会出现死锁
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/22
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+public class StripedLock {
+
+    private final ReentrantLock[] locks;
+
+    private final int mask;
+
+    /**
+     * Description: 创建分段锁
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/22
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param stripes 锁的数量，向上取整为 2 的幂
+     */
+    public StripedLock(int stripes) {
+        int size = 1;
+        while (size < stripes) size <<= 1;
+
+        this.locks = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.locks[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Description: 持有所有 Key 对应的锁执行操作，操作结束或抛出异常后释放
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/22
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param keys     需要互斥的 Key
+     * @param supplier 加锁后执行的操作
+     * @return 操作结果
+     */
+    public <T> T execute(Collection<String> keys, Supplier<T> supplier) {
+        final int[] indexes = keys.stream()
+                .mapToInt(this::indexOf)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        int lockedCount = 0;
+        try {
+            for (int index : indexes) {
+                this.locks[index].lock();
+                lockedCount++;
+            }
+            return supplier.get();
+        } finally {
+            for (int i = lockedCount - 1; i >= 0; i--) {
+                this.locks[indexes[i]].unlock();
+            }
+        }
+    }
+
+    int indexOf(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & this.mask;
+    }
+}
@@ -0,0 +1,278 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.alert;
+
+import cn.boundivore.dl.base.enumeration.impl.AlertHandlerTypeEnum;
+import cn.boundivore.dl.base.request.impl.common.AlertWebhookPayloadRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Description: 测试告警通知管道的立即返回、指纹去重、分组合并、渠道限流以及失败重试
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/20
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class AlertNoticePipelineTest {
+
+    private static final long GROUP_WAIT_MILLIS = 100L;
+
+    @Test
+    public void offerReturnsImmediatelyDuringStorm() throws InterruptedException {
+        // 模拟告警风暴：5000 条告警、500 个指纹、50 条告警规则，每次投递耗时 20 ms
+        final int fingerprintCount = 500;
+        final int ruleCount = 50;
+        final AtomicInteger routedCount = new AtomicInteger();
+
+        AlertNoticePipeline pipeline = new AlertNoticePipeline(
+                10000,
+                GROUP_WAIT_MILLIS,
+                1000D,
+                4,
+                3,
+                100L,
+                60_000L,
+                alertList -> {
+                    routedCount.addAndGet(alertList.size());
+                    return groupByRule(AlertHandlerTypeEnum.ALERT_MAIL).apply(alertList);
+                },
+                alertNotice -> TimeUnit.MILLISECONDS.sleep(20)
+        );
+
+        try {
+            long maxOfferNanos = 0L;
+            for (int round = 0; round < 10; round++) {
+                List<AlertWebhookPayloadRequest.Alert> alertList = new ArrayList<>();
+                for (int i = 0; i < fingerprintCount; i++) {
+                    alertList.add(alert("fp-" + i, "rule-" + (i % ruleCount)));
+                }
+
+                long startNanos = System.nanoTime();
+                pipeline.offer(alertList);
+                maxOfferNanos = Math.max(maxOfferNanos, System.nanoTime() - startNanos);
+            }
+
+            await(() -> pipeline.getChannelStats(AlertHandlerTypeEnum.ALERT_MAIL).getDeliveredCount() == ruleCount, 10_000L);
+
+            AlertPipelineStats stats = pipeline.getStats();
+            log.info("告警风暴: 单次接收 {} 条告警最大耗时: {} ms, 管道状态: {}",
+                    fingerprintCount,
+                    TimeUnit.NANOSECONDS.toMillis(maxOfferNanos),
+                    stats
+            );
+
+            // 单次接收不受投递耗时影响
+            Assertions.assertTrue(maxOfferNanos < TimeUnit.MILLISECONDS.toNanos(200));
+            Assertions.assertEquals(fingerprintCount * 10L, stats.getIntakeCount());
+            Assertions.assertEquals(fingerprintCount * 9L, stats.getDedupeCount());
+            Assertions.assertEquals(fingerprintCount, routedCount.get());
+            Assertions.assertEquals(0L, stats.getDropCount());
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void sameFingerprintIsCoalescedBeforeGrouping() throws InterruptedException {
+        final List<AlertNotice> deliveredList = Collections.synchronizedList(new ArrayList<>());
+
+        AlertNoticePipeline pipeline = new AlertNoticePipeline(
+                10000,
+                GROUP_WAIT_MILLIS,
+                1000D,
+                1,
+                3,
+                100L,
+                60_000L,
+                groupByRule(AlertHandlerTypeEnum.ALERT_LOG),
+                deliveredList::add
+        );
+
+        try {
+            // 同一分组间隔内，同一指纹由 firing 变为 resolved，仅保留最新状态
+            AlertWebhookPayloadRequest.Alert firing = alert("fp-1", "rule-1");
+            AlertWebhookPayloadRequest.Alert resolved = alert("fp-1", "rule-1");
+            resolved.setStatus("resolved");
+
+            pipeline.offer(Arrays.asList(firing, alert("fp-2", "rule-1"), alert("fp-3", "rule-2")));
+            pipeline.offer(Collections.singletonList(resolved));
+
+            await(() -> deliveredList.size() == 2, 5_000L);
+
+            Map<String, List<AlertWebhookPayloadRequest.Alert>> ruleAlertMap = deliveredList.stream()
+                    .collect(Collectors.toMap(AlertNotice::getTarget, AlertNotice::getAlertList));
+
+            Assertions.assertEquals(2, ruleAlertMap.get("rule-1").size());
+            Assertions.assertTrue(ruleAlertMap.get("rule-1").contains(resolved));
+            Assertions.assertFalse(ruleAlertMap.get("rule-1").contains(firing));
+            Assertions.assertEquals(1, ruleAlertMap.get("rule-2").size());
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void deliveryIsRateLimitedPerChannel() throws InterruptedException {
+        final int noticeCount = 150;
+        final double ratePerSecond = 50D;
+        final Map<AlertHandlerTypeEnum, Long> lastDeliveredMap = new ConcurrentHashMap<>();
+
+        AlertNoticePipeline pipeline = new AlertNoticePipeline(
+                10000,
+                GROUP_WAIT_MILLIS,
+                ratePerSecond,
+                4,
+                3,
+                100L,
+                60_000L,
+                alertList -> {
+                    // 每条告警在邮件与接口两个渠道各生成一条通知
+                    List<AlertNotice> alertNoticeList = new ArrayList<>();
+                    alertList.forEach(alert -> {
+                        alertNoticeList.add(new AlertNotice(AlertHandlerTypeEnum.ALERT_MAIL, alert.getFingerprint(), null, Collections.singletonList(alert)));
+                        alertNoticeList.add(new AlertNotice(AlertHandlerTypeEnum.ALERT_INTERFACE, alert.getFingerprint(), null, Collections.singletonList(alert)));
+                    });
+                    return alertNoticeList;
+                },
+                alertNotice -> lastDeliveredMap.put(alertNotice.getChannel(), System.nanoTime())
+        );
+
+        try {
+            List<AlertWebhookPayloadRequest.Alert> alertList = new ArrayList<>();
+            for (int i = 0; i < noticeCount; i++) {
+                alertList.add(alert("fp-" + i, "rule-" + i));
+            }
+
+            long startNanos = System.nanoTime();
+            pipeline.offer(alertList);
+
+            await(() -> pipeline.getChannelStats(AlertHandlerTypeEnum.ALERT_MAIL).getDeliveredCount() == noticeCount
+                    && pipeline.getChannelStats(AlertHandlerTypeEnum.ALERT_INTERFACE).getDeliveredCount() == noticeCount, 10_000L);
+
+            // 突发 ratePerSecond 个通知之后，其余通知按照 ratePerSecond 的速率投递
+            long expectedMillis = (long) ((noticeCount - ratePerSecond) * 1000 / ratePerSecond);
+            for (AlertHandlerTypeEnum channel : lastDeliveredMap.keySet()) {
+                long costMillis = TimeUnit.NANOSECONDS.toMillis(lastDeliveredMap.get(channel) - startNanos);
+                log.info("{} 渠道投递 {} 条通知耗时: {} ms, 渠道状态: {}",
+                        channel,
+                        noticeCount,
+                        costMillis,
+                        pipeline.getChannelStats(channel)
+                );
+
+                Assertions.assertTrue(costMillis >= expectedMillis - 100L);
+                // 两个渠道互不影响，各自按照限流速率投递
+                Assertions.assertTrue(costMillis < expectedMillis * 2);
+            }
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void failedDeliveryIsRetriedWithBackoff() throws InterruptedException {
+        final long retryBackoffMillis = 100L;
+        final Map<String, AtomicInteger> attemptMap = new ConcurrentHashMap<>();
+
+        AlertNoticePipeline pipeline = new AlertNoticePipeline(
+                10000,
+                GROUP_WAIT_MILLIS,
+                1000D,
+                1,
+                3,
+                retryBackoffMillis,
+                60_000L,
+                groupByRule(AlertHandlerTypeEnum.ALERT_INTERFACE),
+                alertNotice -> {
+                    int attempt = attemptMap.computeIfAbsent(alertNotice.getTarget(), k -> new AtomicInteger()).incrementAndGet();
+                    // rule-ok 前两次投递失败，rule-fail 始终失败
+                    if (alertNotice.getTarget().equals("rule-fail") || attempt <= 2) {
+                        throw new IllegalStateException("模拟投递失败");
+                    }
+                }
+        );
+
+        try {
+            long startNanos = System.nanoTime();
+            pipeline.offer(Arrays.asList(alert("fp-1", "rule-ok"), alert("fp-2", "rule-fail")));
+
+            await(() -> pipeline.getChannelStats(AlertHandlerTypeEnum.ALERT_INTERFACE).getDeliveredCount() == 1
+                    && pipeline.getChannelStats(AlertHandlerTypeEnum.ALERT_INTERFACE).getFailedCount() == 1, 10_000L);
+
+            long costMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            AlertPipelineStats.ChannelStats channelStats = pipeline.getChannelStats(AlertHandlerTypeEnum.ALERT_INTERFACE);
+            log.info("重试耗时: {} ms, 渠道状态: {}", costMillis, channelStats);
+
+            Assertions.assertEquals(3, attemptMap.get("rule-ok").get());
+            // 首次投递以及 3 次重试
+            Assertions.assertEquals(4, attemptMap.get("rule-fail").get());
+            Assertions.assertEquals(2L + 3L, channelStats.getRetryCount());
+            // 退避间隔依次为 100、200、400 ms
+            Assertions.assertTrue(costMillis >= retryBackoffMillis * 7);
+        } finally {
+            pipeline.close();
+        }
+    }
+
+    /**
+     * 按照告警规则合并，以告警规则名称作为通知目标
+     */
+    private static Function<List<AlertWebhookPayloadRequest.Alert>, List<AlertNotice>> groupByRule(AlertHandlerTypeEnum channel) {
+        return alertList -> alertList.stream()
+                .collect(Collectors.groupingBy(i -> i.getLabels().get("alertname"), LinkedHashMap::new, Collectors.toList()))
+                .entrySet()
+                .stream()
+                .map(i -> new AlertNotice(channel, i.getKey(), null, i.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    private static AlertWebhookPayloadRequest.Alert alert(String fingerprint, String alertName) {
+        Map<String, String> labelMap = new HashMap<>();
+        labelMap.put("alertname", alertName);
+
+        AlertWebhookPayloadRequest.Alert alert = new AlertWebhookPayloadRequest.Alert();
+        alert.setStatus("firing");
+        alert.setLabels(labelMap);
+        alert.setAnnotations(new HashMap<>());
+        alert.setStartsAt("2024-06-20T08:00:00.000Z");
+        alert.setEndsAt("0001-01-01T00:00:00Z");
+        alert.setFingerprint(fingerprint);
+        return alert;
+    }
+
+    private static void await(Supplier<Boolean> condition, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.get()) {
+            Assertions.assertTrue(System.currentTimeMillis() < deadline, "等待超时");
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.auth;
+
+import cn.boundivore.dl.service.master.bean.PermissionBean;
+import cn.boundivore.dl.service.master.service.MasterRolePermissionCacheService;
+import cn.boundivore.dl.service.master.utils.PermissionRouteMatcher;
+import cn.hutool.http.Method;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+/**
+ * Description: 测试接口鉴权的单次请求开销：路由表查找接口权限时，路径模式匹配的次数仅与含通配符的接口数量有关，
+ * 不随接口总数增长（耗时仅输出到日志）；用户角色与权限列表仅在首次访问或绑定关系变更后加载
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/30
+ * Modification description: 以路径模式匹配次数替代耗时断言
+ * Modified by: Boundivore
+ * Modification time: 2024/7/6
+ * Version: V1.0
+ */
+@Slf4j
+public class SaTokenAuthorizationCostTest {
+
+    // 模拟的路由查找请求次数
+    private static final int ROUTE_REQUESTS = 5_000;
+
+    // 含有路径变量或通配符的接口，每次查找都需要逐个匹配
+    private static final List<String> PATTERN_PATH_LIST = Arrays.asList(
+            "/api/v1/master/grafana/{path}",
+            "/api/v1/master/file/**"
+    );
+
+    private static final int CACHE_REQUESTS = 200_000;
+
+    private final AntPathMatcher antPathMatcher = new AntPathMatcher();
+
+    @Test
+    public void routeMatchCostIndependentOfRouteCount() {
+        List<PermissionBean> smallList = withPatterns(permissionBeanList(50));
+        List<PermissionBean> largeList = withPatterns(permissionBeanList(500));
+
+        CountingPatternMatcher patternMatcher = new CountingPatternMatcher(this.antPathMatcher::match);
+        PermissionRouteMatcher smallMatcher = new PermissionRouteMatcher(smallList, patternMatcher);
+        PermissionRouteMatcher largeMatcher = new PermissionRouteMatcher(largeList, patternMatcher);
+
+        long linearSmall = this.measure("逐个匹配 50 个接口", smallList, patternMatcher, path -> this.linearMatch(smallList, path, patternMatcher));
+        long linearLarge = this.measure("逐个匹配 500 个接口", largeList, patternMatcher, path -> this.linearMatch(largeList, path, patternMatcher));
+        long routeSmall = this.measure("路由表 50 个接口", smallList, patternMatcher, smallMatcher::match);
+        long routeLarge = this.measure("路由表 500 个接口", largeList, patternMatcher, largeMatcher::match);
+
+        // 逐个匹配时每次请求与全部接口匹配
+        Assertions.assertEquals((long) ROUTE_REQUESTS * smallList.size(), linearSmall);
+        Assertions.assertEquals((long) ROUTE_REQUESTS * largeList.size(), linearLarge);
+        // 路由表仅与含通配符的接口匹配，接口数量增加 10 倍，匹配次数不变
+        Assertions.assertEquals((long) ROUTE_REQUESTS * PATTERN_PATH_LIST.size(), routeSmall);
+        Assertions.assertEquals(routeSmall, routeLarge);
+    }
+
+    @Test
+    public void routeMatchSameAsLinearMatch() {
+        List<PermissionBean> permissionBeanList = new ArrayList<>(permissionBeanList(50));
+        permissionBeanList.add(new PermissionBean("/api/v1/master/grafana/{path}", "IMasterGrafanaAPI.get", "get", Method.GET));
+        permissionBeanList.add(new PermissionBean("/api/v1/master/api-0/item-0", "IMasterApi0API.post", "post", Method.POST));
+
+        PermissionRouteMatcher matcher = new PermissionRouteMatcher(permissionBeanList, this.antPathMatcher::match);
+
+        for (String path : Arrays.asList(
+                "/api/v1/master/api-0/item-0",
+                "/api/v1/master/api-3/item-1",
+                "/api/v1/master/grafana/dashboard",
+                "/api/v1/master/unknown",
+                "/api/v1/master/user/login"
+        )) {
+            Assertions.assertEquals(
+                    codes(this.linearMatch(permissionBeanList, path)),
+                    codes(matcher.match(path)),
+                    path
+            );
+        }
+        Assertions.assertEquals(2, matcher.match("/api/v1/master/api-0/item-0").size());
+        Assertions.assertTrue(matcher.match("/api/v1/master/unknown").isEmpty());
+    }
+
+    @Test
+    public void rolePermissionLoadedOncePerUser() {
+        MasterRolePermissionCacheService cacheService = new MasterRolePermissionCacheService();
+        AtomicInteger loadCount = new AtomicInteger();
+        Function<Long, List<String>> loader = userId -> {
+            loadCount.incrementAndGet();
+            return Collections.singletonList("ROLE_" + userId);
+        };
+
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < CACHE_REQUESTS; i++) {
+            Long userId = (long) (i % 10);
+            Assertions.assertEquals("ROLE_" + userId, cacheService.getRoleList(userId, loader).get(0));
+            cacheService.getPermissionList(userId, loader);
+        }
+        log.info("{} 次鉴权读取角色与权限, 加载 {} 次, 耗时: {} ms",
+                CACHE_REQUESTS,
+                loadCount.get(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos)
+        );
+        Assertions.assertEquals(20, loadCount.get());
+
+        // 绑定关系变更后重新加载
+        cacheService.invalidateAll();
+        cacheService.getRoleList(1L, loader);
+        cacheService.getRoleList(1L, loader);
+        Assertions.assertEquals(21, loadCount.get());
+    }
+
+    @Test
+    public void invalidateDuringLoadDiscardsStaleList() throws Exception {
+        MasterRolePermissionCacheService cacheService = new MasterRolePermissionCacheService();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch invalidated = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // 加载旧数据期间绑定关系发生变更
+            Future<List<String>> stale = executor.submit(() -> cacheService.getRoleList(1L, userId -> {
+                loading.countDown();
+                try {
+                    Assertions.assertTrue(invalidated.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return Collections.singletonList("OLD");
+            }));
+
+            Assertions.assertTrue(loading.await(5, TimeUnit.SECONDS));
+            cacheService.invalidateAll();
+            invalidated.countDown();
+            Assertions.assertEquals("OLD", stale.get(5, TimeUnit.SECONDS).get(0));
+
+            // 旧数据不应留在缓存中
+            Assertions.assertEquals(
+                    "NEW",
+                    cacheService.getRoleList(1L, userId -> Collections.singletonList("NEW")).get(0)
+            );
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private List<PermissionBean> linearMatch(List<PermissionBean> permissionBeanList, String path) {
+        return this.linearMatch(permissionBeanList, path, this.antPathMatcher::match);
+    }
+
+    private List<PermissionBean> linearMatch(List<PermissionBean> permissionBeanList,
+                                             String path,
+                                             BiPredicate<String, String> patternMatcher) {
+        List<PermissionBean> matchList = new ArrayList<>();
+        for (PermissionBean permissionBean : permissionBeanList) {
+            if (patternMatcher.test(permissionBean.getPath(), path)) matchList.add(permissionBean);
+        }
+        return matchList;
+    }
+
+    /**
+     * 模拟 ROUTE_REQUESTS 次请求查找接口权限的过程，请求路径均为不含通配符的接口
+     *
+     * @return 路径模式匹配次数
+     */
+    private long measure(String name,
+                         List<PermissionBean> permissionBeanList,
+                         CountingPatternMatcher patternMatcher,
+                         Function<String, List<PermissionBean>> matcher) {
+        patternMatcher.reset();
+
+        int matchCount = 0;
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < ROUTE_REQUESTS; i++) {
+            String path = permissionBeanList.get(i % (permissionBeanList.size() - PATTERN_PATH_LIST.size())).getPath();
+            matchCount += matcher.apply(path).size();
+        }
+        long costNanos = System.nanoTime() - startNanos;
+
+        Assertions.assertEquals(ROUTE_REQUESTS, matchCount);
+        log.info("{}: 请求 {} 次, 模式匹配 {} 次, 耗时: {} ms",
+                name,
+                ROUTE_REQUESTS,
+                patternMatcher.getCount(),
+                TimeUnit.NANOSECONDS.toMillis(costNanos)
+        );
+        return patternMatcher.getCount();
+    }
+
+    private static List<PermissionBean> permissionBeanList(int count) {
+        List<PermissionBean> permissionBeanList = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            permissionBeanList.add(new PermissionBean(
+                    String.format("/api/v1/master/api-%s/item-%s", i / 10, i % 10),
+                    String.format("IMasterApi%sAPI.item%s", i / 10, i % 10),
+                    "item",
+                    Method.GET
+            ));
+        }
+        return permissionBeanList;
+    }
+
+    private static List<PermissionBean> withPatterns(List<PermissionBean> permissionBeanList) {
+        List<PermissionBean> patternList = new ArrayList<>(permissionBeanList);
+        PATTERN_PATH_LIST.forEach(path -> patternList.add(new PermissionBean(path, "IMasterPatternAPI.get", "get", Method.GET)));
+        return patternList;
+    }
+
+    private static List<String> codes(List<PermissionBean> permissionBeanList) {
+        List<String> codeList = new ArrayList<>();
+        permissionBeanList.forEach(i -> codeList.add(i.getCode()));
+        Collections.sort(codeList);
+        return codeList;
+    }
+
+    /**
+     * 记录路径模式匹配次数
+     */
+    private static class CountingPatternMatcher implements BiPredicate<String, String> {
+
+        private final BiPredicate<String, String> delegate;
+
+        private final AtomicLong count = new AtomicLong();
+
+        private CountingPatternMatcher(BiPredicate<String, String> delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean test(String pattern, String path) {
+            this.count.incrementAndGet();
+            return this.delegate.test(pattern, path);
+        }
+
+        public long getCount() {
+            return this.count.get();
+        }
+
+        public void reset() {
+            this.count.set(0);
+        }
+    }
+}
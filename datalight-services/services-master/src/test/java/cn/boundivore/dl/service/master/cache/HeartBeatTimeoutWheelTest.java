@@ -0,0 +1,337 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Description: 模拟 10000 个 Worker 的心跳，验证时间轮的超时检测延迟与每个刻度的检查数量，
+ * 并对比 “每次心跳创建新对象 + 全量遍历” 与 “原地更新 + 时间轮” 两种方式的耗时与内存分配
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/21
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class HeartBeatTimeoutWheelTest {
+
+    private static final int WORKER_COUNT = 10000;
+
+    private static final long TIMEOUT_MILLIS = 60_000L;
+
+    private static final long TICK_MILLIS = 1000L;
+
+    // 模拟 Worker 发送心跳的间隔
+    private static final long BEAT_INTERVAL_MILLIS = 20_000L;
+
+    // 模拟时长
+    private static final long DURATION_MILLIS = 5 * 60_000L;
+
+    // 从该时刻起，部分 Worker 停止发送心跳
+    private static final long DEAD_FROM_MILLIS = 2 * 60_000L;
+
+    private static final int DEAD_EVERY = 100;
+
+    @Test
+    public void detectDeadWorkersWithinBoundedDelay() {
+        final long startMillis = 1_000_000_000L;
+        final Map<String, Long> timeoutAtMap = new HashMap<>();
+        final long[] nowHolder = new long[1];
+
+        HeartBeatTimeoutWheel wheel = new HeartBeatTimeoutWheel(
+                TIMEOUT_MILLIS,
+                TICK_MILLIS,
+                startMillis,
+                timeoutList -> timeoutList.forEach(i -> timeoutAtMap.put(i.getIp(), nowHolder[0]))
+        );
+
+        // 与 HeartBeatCache 相同，首次收到心跳时创建并注册
+        HeartBeatCache.WorkerHeartBeat[] workers = new HeartBeatCache.WorkerHeartBeat[WORKER_COUNT];
+
+        int maxCheckCount = 0;
+        long totalCheckCount = 0;
+        for (long elapsed = TICK_MILLIS; elapsed <= DURATION_MILLIS; elapsed += TICK_MILLIS) {
+            final long now = startMillis + elapsed;
+            nowHolder[0] = now;
+
+            this.beatDue(wheel, workers, elapsed, now);
+
+            int checkCount = wheel.advance(now);
+            maxCheckCount = Math.max(maxCheckCount, checkCount);
+            totalCheckCount += checkCount;
+        }
+
+        for (int i = 0; i < WORKER_COUNT; i++) {
+            HeartBeatCache.WorkerHeartBeat worker = workers[i];
+            if (isDead(i)) {
+                Long timeoutAt = timeoutAtMap.get(worker.getIp());
+                Assertions.assertNotNull(timeoutAt, String.format("失联节点 %s 未被标记为超时", worker.getIp()));
+
+                long delay = timeoutAt - worker.getLastHeartBeatTs();
+                Assertions.assertTrue(
+                        delay >= TIMEOUT_MILLIS && delay <= TIMEOUT_MILLIS + TICK_MILLIS,
+                        String.format("失联节点 %s 的检测延迟 %s ms 超出范围", worker.getIp(), delay)
+                );
+                Assertions.assertTrue(worker.isTimeoutMarked());
+            } else {
+                Assertions.assertFalse(
+                        timeoutAtMap.containsKey(worker.getIp()),
+                        String.format("存活节点 %s 被误标记为超时", worker.getIp())
+                );
+            }
+        }
+
+        long tickCount = DURATION_MILLIS / TICK_MILLIS;
+        log.info("模拟 {} 个 Worker, {} 个刻度, 单个刻度最多检查 {} 次, 平均检查 {} 次, 全量遍历每个刻度需检查 {} 次",
+                WORKER_COUNT,
+                tickCount,
+                maxCheckCount,
+                totalCheckCount / tickCount,
+                WORKER_COUNT
+        );
+
+        // 每个存活节点在每个超时周期内约检查一次
+        Assertions.assertTrue(maxCheckCount < WORKER_COUNT / 10);
+        Assertions.assertTrue(totalCheckCount < WORKER_COUNT * (DURATION_MILLIS / TIMEOUT_MILLIS + 2));
+    }
+
+    @Test
+    public void recoverAfterTimeout() {
+        final long startMillis = 1_000_000_000L;
+        final List<String> timeoutIpList = new ArrayList<>();
+
+        HeartBeatTimeoutWheel wheel = new HeartBeatTimeoutWheel(
+                TIMEOUT_MILLIS,
+                TICK_MILLIS,
+                startMillis,
+                timeoutList -> timeoutList.forEach(i -> timeoutIpList.add(i.getIp()))
+        );
+
+        HeartBeatCache.WorkerHeartBeat worker = new HeartBeatCache.WorkerHeartBeat(ip(0), startMillis);
+        wheel.register(worker);
+
+        long now = startMillis + TIMEOUT_MILLIS + TICK_MILLIS;
+        wheel.advance(now);
+        Assertions.assertEquals(Collections.singletonList(ip(0)), timeoutIpList);
+        Assertions.assertTrue(worker.isTimeoutMarked());
+
+        // 超时后恢复心跳，需要重新注册，且只注册一次
+        Assertions.assertTrue(worker.beat(now));
+        Assertions.assertFalse(worker.beat(now));
+        Assertions.assertFalse(worker.isTimeoutMarked());
+        wheel.register(worker);
+
+        // 再次失联后能够再次被标记
+        wheel.advance(now + TIMEOUT_MILLIS + TICK_MILLIS);
+        Assertions.assertEquals(2, timeoutIpList.size());
+
+        // 移除后不再被标记
+        Assertions.assertTrue(worker.beat(now + TIMEOUT_MILLIS + TICK_MILLIS));
+        wheel.register(worker);
+        worker.remove();
+        wheel.advance(now + 3 * (TIMEOUT_MILLIS + TICK_MILLIS));
+        Assertions.assertEquals(2, timeoutIpList.size());
+    }
+
+    @Test
+    public void benchmarkScanVersusWheel() {
+        // 预热
+        this.measure("预热", new LegacyScan());
+        this.measure("预热", new InPlaceWheel());
+
+        long[] scan = this.measure("新建对象 + 全量遍历", new LegacyScan());
+        long[] wheel = this.measure("原地更新 + 时间轮", new InPlaceWheel());
+
+        Assertions.assertTrue(wheel[0] < scan[0]);
+        Assertions.assertTrue(wheel[1] < scan[1]);
+    }
+
+    /**
+     * 模拟 DURATION_MILLIS 内所有 Worker 的心跳与每个刻度的超时检测
+     *
+     * @return [耗时(纳秒), 分配字节数]
+     */
+    private long[] measure(String name, Simulation simulation) {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        final long startMillis = 1_000_000_000L;
+        final String[] ips = new String[WORKER_COUNT];
+        for (int i = 0; i < WORKER_COUNT; i++) {
+            ips[i] = ip(i);
+        }
+        simulation.init(ips, startMillis);
+
+        long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        long startNanos = System.nanoTime();
+
+        int timeoutCount = 0;
+        for (long elapsed = TICK_MILLIS; elapsed <= DURATION_MILLIS; elapsed += TICK_MILLIS) {
+            final long now = startMillis + elapsed;
+            for (int i = 0; i < WORKER_COUNT; i++) {
+                if (isBeatDue(i, elapsed) && !(isDead(i) && elapsed >= DEAD_FROM_MILLIS)) {
+                    simulation.beat(ips[i], now);
+                }
+            }
+            timeoutCount += simulation.check(now);
+        }
+
+        long costNanos = System.nanoTime() - startNanos;
+        long allocatedBytes = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+        log.info("{}: {} 个 Worker, 模拟 {} 秒, 超时次数: {}, 耗时: {} ms, 分配内存: {} KB",
+                name,
+                WORKER_COUNT,
+                DURATION_MILLIS / 1000,
+                timeoutCount,
+                costNanos / 1000_000,
+                allocatedBytes / 1024
+        );
+
+        return new long[]{costNanos, allocatedBytes};
+    }
+
+    private void beatDue(HeartBeatTimeoutWheel wheel, HeartBeatCache.WorkerHeartBeat[] workers, long elapsed, long now) {
+        for (int i = 0; i < WORKER_COUNT; i++) {
+            if (!isBeatDue(i, elapsed) || (isDead(i) && elapsed >= DEAD_FROM_MILLIS)) continue;
+
+            if (workers[i] == null) {
+                workers[i] = new HeartBeatCache.WorkerHeartBeat(ip(i), now);
+                wheel.register(workers[i]);
+            } else {
+                Assertions.assertFalse(workers[i].beat(now), "存活节点不应处于超时状态");
+            }
+        }
+    }
+
+    private static boolean isDead(int index) {
+        return index % DEAD_EVERY == 0;
+    }
+
+    /**
+     * 各 Worker 的心跳错开发送：第 index 个 Worker 在 elapsed % BEAT_INTERVAL_MILLIS 等于其偏移量所在的刻度时发送
+     */
+    private static boolean isBeatDue(int index, long elapsed) {
+        long offset = (index * 7919L) % BEAT_INTERVAL_MILLIS;
+        return (elapsed - offset) % BEAT_INTERVAL_MILLIS < TICK_MILLIS && elapsed >= offset;
+    }
+
+    private static String ip(int index) {
+        return String.format("10.%s.%s.%s", index >> 16 & 0xFF, index >> 8 & 0xFF, index & 0xFF);
+    }
+
+    private interface Simulation {
+
+        void init(String[] ips, long nowMillis);
+
+        void beat(String ip, long nowMillis);
+
+        int check(long nowMillis);
+    }
+
+    /**
+     * 原实现：每次心跳创建新的心跳对象并放入 Map，超时检测遍历全部节点
+     */
+    private static class LegacyScan implements Simulation {
+
+        private final Map<String, LegacyHeartBeat> heartBeatMap = new ConcurrentHashMap<>();
+
+        @Override
+        public void init(String[] ips, long nowMillis) {
+            for (String ip : ips) {
+                this.heartBeatMap.put(ip, new LegacyHeartBeat(ip, nowMillis));
+            }
+        }
+
+        @Override
+        public void beat(String ip, long nowMillis) {
+            LegacyHeartBeat workerHeartBeat = this.heartBeatMap.getOrDefault(ip, new LegacyHeartBeat(ip, nowMillis));
+            this.heartBeatMap.put(ip, new LegacyHeartBeat(workerHeartBeat.ip, nowMillis));
+        }
+
+        @Override
+        public int check(long nowMillis) {
+            return this.heartBeatMap.values()
+                    .stream()
+                    .filter(i -> nowMillis - i.lastHeartBeatTs > TIMEOUT_MILLIS)
+                    .collect(Collectors.toList())
+                    .size();
+        }
+    }
+
+    private static class LegacyHeartBeat {
+
+        private final String ip;
+
+        private final long lastHeartBeatTs;
+
+        LegacyHeartBeat(String ip, long lastHeartBeatTs) {
+            this.ip = ip;
+            this.lastHeartBeatTs = lastHeartBeatTs;
+        }
+    }
+
+    /**
+     * 现实现：原地更新心跳时间戳，超时检测仅检查时间轮中到期的槽位
+     */
+    private static class InPlaceWheel implements Simulation {
+
+        private final Map<String, HeartBeatCache.WorkerHeartBeat> heartBeatMap = new ConcurrentHashMap<>();
+
+        private HeartBeatTimeoutWheel wheel;
+
+        private int timeoutCount;
+
+        @Override
+        public void init(String[] ips, long nowMillis) {
+            this.wheel = new HeartBeatTimeoutWheel(
+                    TIMEOUT_MILLIS,
+                    TICK_MILLIS,
+                    nowMillis,
+                    timeoutList -> this.timeoutCount += timeoutList.size()
+            );
+            for (String ip : ips) {
+                HeartBeatCache.WorkerHeartBeat workerHeartBeat = new HeartBeatCache.WorkerHeartBeat(ip, nowMillis);
+                this.heartBeatMap.put(ip, workerHeartBeat);
+                this.wheel.register(workerHeartBeat);
+            }
+        }
+
+        @Override
+        public void beat(String ip, long nowMillis) {
+            HeartBeatCache.WorkerHeartBeat workerHeartBeat = this.heartBeatMap.get(ip);
+            if (workerHeartBeat.beat(nowMillis)) this.wheel.register(workerHeartBeat);
+        }
+
+        @Override
+        public int check(long nowMillis) {
+            this.timeoutCount = 0;
+            this.wheel.advance(nowMillis);
+            return this.timeoutCount;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.function.Supplier;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Stream;
+
+/**
+ * Description: 测试插件缓存的实例复用与 Jar 包变化后的重新加载，
+ * 并对比每个 Step 新建类加载器与使用插件缓存两种方式执行插件的耗时、类加载数量与 Metaspace 增长
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/24
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class PluginCacheTest {
+
+    private static final String CLAZZ_NAME = "simplugin.Plugin";
+
+    // 模拟执行插件的 Step 数量
+    private static final int STEP_COUNT = 500;
+
+    private Path workDir;
+
+    private File jarFile;
+
+    private PluginCache pluginCache;
+
+    @BeforeEach
+    public void init() throws IOException {
+        this.workDir = Files.createTempDirectory("plugin-cache-test");
+        this.jarFile = this.workDir.resolve("plugin.jar").toFile();
+        this.writePluginJar("v1");
+        this.pluginCache = new PluginCache();
+    }
+
+    @AfterEach
+    public void destroy() throws IOException {
+        this.pluginCache.invalidateAll();
+        try (Stream<Path> stream = Files.walk(this.workDir)) {
+            stream.sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void borrowReusesReturnedInstance() {
+        Supplier<?> first;
+        try (PluginCache.PluginLease<Supplier> lease = this.pluginCache.borrow(this.jarFile, CLAZZ_NAME, Supplier.class)) {
+            first = lease.get();
+            Assertions.assertEquals("v1", first.get());
+        }
+
+        try (PluginCache.PluginLease<Supplier> lease = this.pluginCache.borrow(this.jarFile, CLAZZ_NAME, Supplier.class)) {
+            Assertions.assertSame(first, lease.get());
+        }
+    }
+
+    @Test
+    public void borrowExclusiveWhileLeased() {
+        try (PluginCache.PluginLease<Supplier> lease1 = this.pluginCache.borrow(this.jarFile, CLAZZ_NAME, Supplier.class);
+             PluginCache.PluginLease<Supplier> lease2 = this.pluginCache.borrow(this.jarFile, CLAZZ_NAME, Supplier.class)) {
+            // 同一时刻借出的实例互不相同，但来自同一个类加载器
+            Assertions.assertNotSame(lease1.get(), lease2.get());
+            Assertions.assertSame(lease1.get().getClass(), lease2.get().getClass());
+        }
+    }
+
+    @Test
+    public void borrowReloadsChangedJar() throws IOException {
+        Class<?> v1Clazz;
+        try (PluginCache.PluginLease<Supplier> lease = this.pluginCache.borrow(this.jarFile, CLAZZ_NAME, Supplier.class)) {
+            v1Clazz = lease.get().getClass();
+            Assertions.assertEquals("v1", lease.get().get());
+        }
+
+        long lastModified = this.jarFile.lastModified();
+        this.writePluginJar("v2");
+        Assertions.assertTrue(this.jarFile.setLastModified(lastModified + 2000L));
+
+        try (PluginCache.PluginLease<Supplier> lease = this.pluginCache.borrow(this.jarFile, CLAZZ_NAME, Supplier.class)) {
+            Assertions.assertEquals("v2", lease.get().get());
+            Assertions.assertNotSame(v1Clazz, lease.get().getClass());
+        }
+    }
+
+    @Test
+    public void benchmarkClassLoaderPerStepVersusCached() throws Exception {
+        // 预热
+        this.measure("预热", this::runPerStepClassLoader);
+        this.measure("预热", this::runCached);
+
+        long[] perStep = this.measure("每个 Step 新建类加载器", this::runPerStepClassLoader);
+        long[] cached = this.measure("插件缓存", this::runCached);
+
+        Assertions.assertTrue(cached[0] < perStep[0]);
+        // 缓存方式仅在首次借出时加载插件类
+        Assertions.assertTrue(cached[1] < perStep[1]);
+        Assertions.assertTrue(perStep[1] >= STEP_COUNT);
+    }
+
+    /**
+     * 优化前的方式：每个 Step 新建类加载器、加载插件类并反射创建实例
+     */
+    private void runPerStepClassLoader() throws Exception {
+        for (int i = 0; i < STEP_COUNT; i++) {
+            try (URLClassLoader ucl = new URLClassLoader(
+                    new URL[]{this.jarFile.toURI().toURL()},
+                    Thread.currentThread().getContextClassLoader())) {
+                Supplier<?> plugin = (Supplier<?>) ucl.loadClass(CLAZZ_NAME).getDeclaredConstructor().newInstance();
+                Assertions.assertEquals("v1", plugin.get());
+            }
+        }
+    }
+
+    private void runCached() {
+        for (int i = 0; i < STEP_COUNT; i++) {
+            try (PluginCache.PluginLease<Supplier> lease = this.pluginCache.borrow(this.jarFile, CLAZZ_NAME, Supplier.class)) {
+                Assertions.assertEquals("v1", lease.get().get());
+            }
+        }
+    }
+
+    /**
+     * 执行 STEP_COUNT 次插件
+     *
+     * @return [耗时(纳秒), 新加载类数量, Metaspace 增长字节数]
+     */
+    private long[] measure(String name, PluginRunner runner) throws Exception {
+        ClassLoadingMXBean classLoadingMXBean = ManagementFactory.getClassLoadingMXBean();
+
+        long startClassCount = classLoadingMXBean.getTotalLoadedClassCount();
+        long startMetaspace = this.metaspaceUsed();
+        long startNanos = System.nanoTime();
+
+        runner.run();
+
+        long costNanos = System.nanoTime() - startNanos;
+        long loadedClassCount = classLoadingMXBean.getTotalLoadedClassCount() - startClassCount;
+        long metaspaceBytes = this.metaspaceUsed() - startMetaspace;
+
+        log.info("{}: 执行 {} 次, 耗时: {} ms, 加载类: {} 个, Metaspace 增长: {} KB",
+                name,
+                STEP_COUNT,
+                costNanos / 1000_000,
+                loadedClassCount,
+                metaspaceBytes / 1024
+        );
+
+        return new long[]{costNanos, loadedClassCount, metaspaceBytes};
+    }
+
+    private long metaspaceUsed() {
+        return ManagementFactory.getMemoryPoolMXBeans()
+                .stream()
+                .filter(i -> i.getName().equals("Metaspace"))
+                .mapToLong(i -> i.getUsage().getUsed())
+                .sum();
+    }
+
+    /**
+     * 编译一个实现 Supplier 的插件类并打包为 Jar 包，返回值用于区分 Jar 包版本
+     */
+    private void writePluginJar(String value) throws IOException {
+        Path srcDir = Files.createDirectories(this.workDir.resolve("src/simplugin"));
+        Path classDir = Files.createDirectories(this.workDir.resolve("classes"));
+
+        Path srcFile = srcDir.resolve("Plugin.java");
+        Files.write(
+                srcFile,
+                String.format(
+                        "package simplugin;\n" +
+                                "public class Plugin implements java.util.function.Supplier<String> {\n" +
+                                "    public String get() { return \"%s\"; }\n" +
+                                "}\n",
+                        value
+                ).getBytes(StandardCharsets.UTF_8)
+        );
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assertions.assertNotNull(compiler, "需要在 JDK 环境下运行");
+        Assertions.assertEquals(
+                0,
+                compiler.run(null, null, null, "-d", classDir.toString(), srcFile.toString())
+        );
+
+        try (OutputStream os = Files.newOutputStream(this.jarFile.toPath());
+             JarOutputStream jos = new JarOutputStream(os)) {
+            jos.putNextEntry(new JarEntry("simplugin/Plugin.class"));
+            jos.write(Files.readAllBytes(classDir.resolve("simplugin/Plugin.class")));
+            jos.closeEntry();
+        }
+    }
+
+    @FunctionalInterface
+    private interface PluginRunner {
+        void run() throws Exception;
+    }
+}
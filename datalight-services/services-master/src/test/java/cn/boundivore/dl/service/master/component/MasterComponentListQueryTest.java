@@ -0,0 +1,346 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.component;
+
+import cn.boundivore.dl.base.enumeration.impl.NodeStateEnum;
+import cn.boundivore.dl.base.enumeration.impl.SCStateEnum;
+import cn.boundivore.dl.base.response.impl.master.AbstractServiceComponentVo;
+import cn.boundivore.dl.orm.po.single.TDlComponent;
+import cn.boundivore.dl.orm.po.single.TDlNode;
+import cn.boundivore.dl.orm.service.single.impl.TDlComponentServiceImpl;
+import cn.boundivore.dl.orm.service.single.impl.TDlNodeServiceImpl;
+import cn.boundivore.dl.service.master.converter.IServiceComponentConverter;
+import cn.boundivore.dl.service.master.orm.EmbeddedMysqlDatabase;
+import cn.boundivore.dl.service.master.orm.OrmTestConfiguration;
+import cn.boundivore.dl.service.master.orm.SqlRecorder;
+import cn.boundivore.dl.service.master.resolver.ResolverYamlServiceDetail;
+import cn.boundivore.dl.service.master.resolver.yaml.YamlServiceDetail;
+import cn.boundivore.dl.service.master.service.MasterComponentService;
+import cn.boundivore.dl.service.master.service.MasterNodeService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static cn.boundivore.dl.base.enumeration.impl.SCStateEnum.REMOVED;
+import static cn.boundivore.dl.base.enumeration.impl.SCStateEnum.UNSELECTED;
+
+/**
+ * Description: 在内存数据库中测试组装集群组件分布信息时的语句次数：无论服务、组件、节点数量多少，
+ * 组件分布与节点信息各查询一次；组装结果逐个组件与数据库中的组件分布、节点信息核对
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/7/1
+ * Modification description: 内存模拟改为内存数据库，统计真实语句次数
+ * Modified by: Boundivore
+ * Modification time: 2024/7/4
+ * Version: V1.0
+ */
+@Slf4j
+@SpringJUnitConfig(OrmTestConfiguration.class)
+public class MasterComponentListQueryTest {
+
+    private static final Long CLUSTER_ID = 1L;
+
+    // 另一个集群部署相同的组件，不应出现在结果中
+    private static final Long OTHER_CLUSTER_ID = 2L;
+
+    private static final int SERVICE_COUNT = 10;
+
+    private static final int COMPONENT_COUNT = 5;
+
+    private static final int NODE_COUNT = 200;
+
+    private final Map<String, List<YamlServiceDetail.Component>> componentListMapBackup = new LinkedHashMap<>();
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private SqlRecorder sqlRecorder;
+
+    @Autowired
+    private TDlNodeServiceImpl tDlNodeService;
+
+    @Autowired
+    private TDlComponentServiceImpl tDlComponentService;
+
+    private MasterComponentService masterComponentService;
+
+    @BeforeEach
+    public void setUp() {
+        this.componentListMapBackup.putAll(ResolverYamlServiceDetail.COMPONENT_LIST_MAP);
+        ResolverYamlServiceDetail.COMPONENT_LIST_MAP.clear();
+
+        for (int service = 0; service < SERVICE_COUNT; service++) {
+            List<YamlServiceDetail.Component> componentList = new ArrayList<>();
+            // 逆序声明组件，验证按优先级排序
+            for (int component = COMPONENT_COUNT - 1; component >= 0; component--) {
+                YamlServiceDetail.Component yamlComponent = new YamlServiceDetail.Component();
+                yamlComponent.setName(componentName(service, component));
+                yamlComponent.setPriority(component);
+                yamlComponent.setMax(-1);
+                yamlComponent.setMin(1);
+                yamlComponent.setMutexes(new ArrayList<>());
+                componentList.add(yamlComponent);
+            }
+            ResolverYamlServiceDetail.COMPONENT_LIST_MAP.put(serviceName(service), componentList);
+        }
+
+        MasterNodeService masterNodeService = new MasterNodeService(
+                null,
+                this.tDlNodeService,
+                this.tDlComponentService,
+                null,
+                null
+        );
+        this.masterComponentService = new MasterComponentService(
+                null,
+                null,
+                masterNodeService,
+                this.tDlComponentService,
+                null,
+                null,
+                IServiceComponentConverter.INSTANCE,
+                null,
+                null
+        );
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ResolverYamlServiceDetail.COMPONENT_LIST_MAP.clear();
+        ResolverYamlServiceDetail.COMPONENT_LIST_MAP.putAll(this.componentListMapBackup);
+    }
+
+    @Test
+    public void assembleWithBoundedQueries() {
+        for (int nodeCount : new int[]{1, 20, NODE_COUNT}) {
+            this.seed(nodeCount);
+            List<AbstractServiceComponentVo.ServiceSummaryVo> serviceSummaryList = serviceSummaryList(SERVICE_COUNT);
+
+            long startMillis = System.currentTimeMillis();
+            List<AbstractServiceComponentVo.ServiceComponentSummaryVo> serviceComponentSummaryList = this.masterComponentService
+                    .getServiceComponentSummaryList(CLUSTER_ID, serviceSummaryList);
+            log.info("{} 个服务, {} 个组件, {} 个节点, 语句: {} 次, 耗时: {} ms",
+                    SERVICE_COUNT,
+                    SERVICE_COUNT * COMPONENT_COUNT,
+                    nodeCount,
+                    this.sqlRecorder.count(),
+                    System.currentTimeMillis() - startMillis
+            );
+
+            Assertions.assertEquals(1, this.selectCount("t_dl_component"));
+            Assertions.assertEquals(1, this.selectCount("t_dl_node"));
+            Assertions.assertEquals(2, this.sqlRecorder.count());
+            this.assertMatchesDatabase(serviceComponentSummaryList);
+        }
+    }
+
+    @Test
+    public void assembleSingleService() {
+        this.seed(NODE_COUNT);
+
+        List<AbstractServiceComponentVo.ServiceComponentSummaryVo> serviceComponentSummaryList = this.masterComponentService
+                .getServiceComponentSummaryList(CLUSTER_ID, serviceSummaryList(1));
+
+        Assertions.assertEquals(2, this.sqlRecorder.count());
+        Assertions.assertEquals(1, serviceComponentSummaryList.size());
+        this.assertMatchesDatabase(serviceComponentSummaryList);
+    }
+
+    @Test
+    public void assembleWithoutDeployedComponent() {
+        this.seed(0);
+
+        List<AbstractServiceComponentVo.ServiceComponentSummaryVo> serviceComponentSummaryList = this.masterComponentService
+                .getServiceComponentSummaryList(CLUSTER_ID, serviceSummaryList(SERVICE_COUNT));
+
+        // 没有已部署的组件时不读取节点信息
+        Assertions.assertEquals(1, this.selectCount("t_dl_component"));
+        Assertions.assertEquals(0, this.selectCount("t_dl_node"));
+        serviceComponentSummaryList.forEach(i -> {
+            Assertions.assertEquals(COMPONENT_COUNT, i.getComponentSummaryList().size());
+            i.getComponentSummaryList().forEach(c -> Assertions.assertTrue(c.getComponentNodeList().isEmpty()));
+        });
+    }
+
+    @Test
+    public void componentNodeMapAcceptsRepeatedNodeIds() {
+        this.seed(20);
+
+        // 同一节点上的多个组件
+        List<TDlComponent> tDlComponentList = this.tDlComponentService.lambdaQuery()
+                .eq(TDlComponent::getClusterId, CLUSTER_ID)
+                .notIn(TDlComponent::getComponentState, REMOVED, UNSELECTED)
+                .list();
+        Set<Long> nodeIdSet = tDlComponentList.stream()
+                .map(TDlComponent::getNodeId)
+                .collect(Collectors.toSet());
+        Assertions.assertTrue(tDlComponentList.size() > nodeIdSet.size());
+        this.sqlRecorder.reset();
+
+        Map<Long, TDlNode> tDlNodeMap = this.masterComponentService.getComponentNodeMap(CLUSTER_ID, tDlComponentList);
+
+        Assertions.assertEquals(1, this.sqlRecorder.count());
+        Assertions.assertEquals(nodeIdSet, tDlNodeMap.keySet());
+        tDlNodeMap.forEach((nodeId, tDlNode) -> Assertions.assertEquals(nodeId, tDlNode.getId()));
+    }
+
+    /**
+     * 服务与组件按优先级排序，每个组件的节点列表与逐个组件查询数据库的结果一致，并按主机名排序
+     */
+    private void assertMatchesDatabase(List<AbstractServiceComponentVo.ServiceComponentSummaryVo> serviceComponentSummaryList) {
+        Map<Long, TDlNode> tDlNodeMap = this.tDlNodeService.list()
+                .stream()
+                .collect(Collectors.toMap(TDlNode::getId, i -> i));
+
+        long lastServicePriority = Long.MIN_VALUE;
+        for (AbstractServiceComponentVo.ServiceComponentSummaryVo serviceComponentSummary : serviceComponentSummaryList) {
+            Assertions.assertTrue(serviceComponentSummary.getServiceSummaryVo().getPriority() >= lastServicePriority);
+            lastServicePriority = serviceComponentSummary.getServiceSummaryVo().getPriority();
+
+            List<AbstractServiceComponentVo.ComponentSummaryVo> componentSummaryList = serviceComponentSummary.getComponentSummaryList();
+            Assertions.assertEquals(COMPONENT_COUNT, componentSummaryList.size());
+
+            long lastComponentPriority = Long.MIN_VALUE;
+            for (AbstractServiceComponentVo.ComponentSummaryVo componentSummary : componentSummaryList) {
+                Assertions.assertTrue(componentSummary.getPriority() >= lastComponentPriority);
+                lastComponentPriority = componentSummary.getPriority();
+
+                // <ComponentId, TDlComponent>
+                Map<Long, TDlComponent> expectedMap = this.tDlComponentService.lambdaQuery()
+                        .eq(TDlComponent::getClusterId, CLUSTER_ID)
+                        .eq(TDlComponent::getComponentName, componentSummary.getComponentName())
+                        .notIn(TDlComponent::getComponentState, REMOVED, UNSELECTED)
+                        .list()
+                        .stream()
+                        .collect(Collectors.toMap(TDlComponent::getId, i -> i));
+
+                List<AbstractServiceComponentVo.ComponentNodeVo> componentNodeList = componentSummary.getComponentNodeList();
+                Assertions.assertEquals(expectedMap.size(), componentNodeList.size(), componentSummary.getComponentName());
+
+                String lastHostname = "";
+                for (AbstractServiceComponentVo.ComponentNodeVo componentNode : componentNodeList) {
+                    Assertions.assertTrue(componentNode.getHostname().compareTo(lastHostname) >= 0);
+                    lastHostname = componentNode.getHostname();
+
+                    TDlComponent expected = expectedMap.get(componentNode.getComponentId());
+                    Assertions.assertNotNull(expected);
+                    TDlNode tDlNode = tDlNodeMap.get(expected.getNodeId());
+                    Assertions.assertEquals(expected.getNodeId(), componentNode.getNodeId());
+                    Assertions.assertEquals(expected.getComponentState(), componentNode.getScStateEnum());
+                    Assertions.assertEquals(expected.getNeedRestart(), componentNode.getNeedRestart());
+                    Assertions.assertEquals(tDlNode.getHostname(), componentNode.getHostname());
+                    Assertions.assertEquals(tDlNode.getIpv4(), componentNode.getNodeIp());
+                    Assertions.assertEquals(tDlNode.getNodeState(), componentNode.getNodeStateEnum());
+                }
+            }
+        }
+    }
+
+    private int selectCount(String table) {
+        return this.sqlRecorder.count("^SELECT\\b.*\\bFROM\\s+" + table + "\\b");
+    }
+
+    /**
+     * 写入节点与组件：组件 0 部署在所有节点上，其余组件部署在部分节点上，另有已移除、未选择的组件记录
+     */
+    private void seed(int nodeCount) {
+        EmbeddedMysqlDatabase.truncate(this.dataSource);
+
+        List<TDlComponent> tDlComponentList = new ArrayList<>();
+        for (Long clusterId : new Long[]{CLUSTER_ID, OTHER_CLUSTER_ID}) {
+            List<TDlNode> tDlNodeList = new ArrayList<>();
+            for (int i = 1; i <= nodeCount; i++) {
+                tDlNodeList.add(new TDlNode()
+                        .setClusterId(clusterId)
+                        .setHostname(String.format("node%05d", (i * 7919) % 100000))
+                        .setIpv4("192.168." + i / 256 + "." + i % 256)
+                        .setSshPort(22L)
+                        .setCpuArch("x86_64")
+                        .setCpuCores(16L)
+                        .setRam(65536L)
+                        .setDisk(1024000L)
+                        .setNodeState(NodeStateEnum.STARTED)
+                        .setOsVersion("CentOS 7.9")
+                        .setSerialNum(i)
+                );
+            }
+            this.tDlNodeService.saveBatch(tDlNodeList);
+
+            for (int i = 1; i <= tDlNodeList.size(); i++) {
+                TDlNode tDlNode = tDlNodeList.get(i - 1);
+                for (int service = 0; service < SERVICE_COUNT; service++) {
+                    for (int component = 0; component < COMPONENT_COUNT; component++) {
+                        if (i % (component + 1) != 0) {
+                            continue;
+                        }
+                        SCStateEnum scStateEnum = i % 11 == 0 ? REMOVED :
+                                i % 13 == 0 ? UNSELECTED :
+                                        i % 2 == 0 ? SCStateEnum.STARTED : SCStateEnum.STOPPED;
+                        tDlComponentList.add(new TDlComponent()
+                                .setClusterId(clusterId)
+                                .setNodeId(tDlNode.getId())
+                                .setServiceName(serviceName(service))
+                                .setComponentName(componentName(service, component))
+                                .setComponentState(scStateEnum)
+                                .setPriority((long) component)
+                                .setNeedRestart(i % 3 == 0)
+                        );
+                    }
+                }
+            }
+        }
+        if (!tDlComponentList.isEmpty()) {
+            this.tDlComponentService.saveBatch(tDlComponentList);
+        }
+
+        EmbeddedMysqlDatabase.analyze(this.dataSource);
+        this.sqlRecorder.reset();
+    }
+
+    private static String serviceName(int service) {
+        return "SERVICE_" + service;
+    }
+
+    private static String componentName(int service, int component) {
+        return "SERVICE_" + service + "_COMPONENT_" + component;
+    }
+
+    private static List<AbstractServiceComponentVo.ServiceSummaryVo> serviceSummaryList(int serviceCount) {
+        List<AbstractServiceComponentVo.ServiceSummaryVo> serviceSummaryList = new ArrayList<>();
+        // 逆序加入服务，验证按优先级排序
+        for (int service = serviceCount - 1; service >= 0; service--) {
+            serviceSummaryList.add(
+                    AbstractServiceComponentVo.ServiceSummaryVo.builder()
+                            .serviceName(serviceName(service))
+                            .scStateEnum(SCStateEnum.DEPLOYED)
+                            .priority((long) service)
+                            .build()
+            );
+        }
+        return serviceSummaryList;
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.config;
+
+import cn.boundivore.dl.plugin.base.bean.PluginConfigEvent;
+import cn.boundivore.dl.service.master.boardcast.ConfigEvent;
+import cn.boundivore.dl.service.master.boardcast.ConfigEventDispatcher;
+import cn.boundivore.dl.service.master.boardcast.ConfigEventStats;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Description: 测试配置变更事件分发：不同服务的事件并发处理，同一服务的事件合并后仅处理最新的一个，
+ * 并对比模拟突发配置变更时串行处理与按服务分发的耗时
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/23
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class ConfigEventDispatcherTest {
+
+    private static final String[] SERVICES = {"ZOOKEEPER", "HDFS", "YARN", "HBASE", "KAFKA", "SPARK", "FLINK", "HIVE", "MONITOR", "ZKUI"};
+
+    // 模拟每个事件调用插件、读写配置的耗时
+    private static final long HANDLE_MILLIS = 5L;
+
+    @Test
+    public void differentServicesProceedInParallel() throws Exception {
+        CountDownLatch hdfsEntered = new CountDownLatch(1);
+        CountDownLatch hdfsRelease = new CountDownLatch(1);
+        CountDownLatch kafkaDone = new CountDownLatch(1);
+
+        try (ConfigEventDispatcher dispatcher = new ConfigEventDispatcher(4, event -> {
+            String serviceName = event.getPluginConfigEvent().getServiceName();
+            if (serviceName.equals("HDFS")) {
+                hdfsEntered.countDown();
+                await(hdfsRelease);
+            } else {
+                kafkaDone.countDown();
+            }
+        })) {
+            dispatcher.offer(event("HDFS", 1));
+            Assertions.assertTrue(hdfsEntered.await(5, TimeUnit.SECONDS));
+
+            // HDFS 事件尚未处理完成时，KAFKA 事件应能够被处理
+            dispatcher.offer(event("KAFKA", 1));
+            Assertions.assertTrue(kafkaDone.await(5, TimeUnit.SECONDS));
+
+            hdfsRelease.countDown();
+            waitIdle(dispatcher);
+            Assertions.assertEquals(2L, dispatcher.getStats().getProcessedCount());
+        }
+    }
+
+    @Test
+    public void sameServiceLatestWins() throws Exception {
+        final int eventCount = 100;
+        final long blockMillis = 200L;
+
+        CountDownLatch firstEntered = new CountDownLatch(1);
+        CountDownLatch firstRelease = new CountDownLatch(1);
+        List<Integer> handledList = Collections.synchronizedList(new ArrayList<>());
+
+        try (ConfigEventDispatcher dispatcher = new ConfigEventDispatcher(4, event -> {
+            int version = version(event);
+            handledList.add(version);
+            if (version == 0) {
+                firstEntered.countDown();
+                await(firstRelease);
+            }
+        })) {
+            dispatcher.offer(event("HDFS", 0));
+            Assertions.assertTrue(firstEntered.await(5, TimeUnit.SECONDS));
+
+            // 处理期间到达的事件只保留最新的一个
+            for (int i = 1; i <= eventCount; i++) {
+                dispatcher.offer(event("HDFS", i));
+            }
+            TimeUnit.MILLISECONDS.sleep(blockMillis);
+            firstRelease.countDown();
+
+            ConfigEventStats stats = waitIdle(dispatcher);
+            Assertions.assertEquals(Arrays.asList(0, eventCount), handledList);
+            Assertions.assertEquals(eventCount + 1L, stats.getOfferedCount());
+            Assertions.assertEquals(eventCount - 1L, stats.getCoalescedCount());
+            Assertions.assertEquals(2L, stats.getProcessedCount());
+            // 延迟从被合并的最早事件开始计算
+            Assertions.assertTrue(stats.getLagMaxMillis() >= blockMillis);
+        }
+    }
+
+    @Test
+    public void failedEventDoesNotBlockService() throws Exception {
+        List<Integer> handledList = Collections.synchronizedList(new ArrayList<>());
+
+        try (ConfigEventDispatcher dispatcher = new ConfigEventDispatcher(2, event -> {
+            int version = version(event);
+            handledList.add(version);
+            if (version == 1) throw new IllegalStateException("模拟插件执行失败");
+        })) {
+            dispatcher.offer(event("YARN", 1));
+            waitIdle(dispatcher);
+            dispatcher.offer(event("YARN", 2));
+
+            ConfigEventStats stats = waitIdle(dispatcher);
+            Assertions.assertEquals(Arrays.asList(1, 2), handledList);
+            Assertions.assertEquals(1L, stats.getFailedCount());
+        }
+    }
+
+    @Test
+    public void benchmarkSerialVersusDispatched() throws Exception {
+        final int eventsPerService = 20;
+
+        // 原实现：所有服务的事件逐个处理
+        long serialStart = System.currentTimeMillis();
+        for (int i = 0; i < eventsPerService; i++) {
+            for (String serviceName : SERVICES) {
+                this.handle(event(serviceName, i));
+            }
+        }
+        long serialMillis = System.currentTimeMillis() - serialStart;
+
+        ConfigEventStats stats;
+        long dispatchedMillis;
+        try (ConfigEventDispatcher dispatcher = new ConfigEventDispatcher(8, this::handle)) {
+            long dispatchedStart = System.currentTimeMillis();
+            for (int i = 0; i < eventsPerService; i++) {
+                for (String serviceName : SERVICES) {
+                    dispatcher.offer(event(serviceName, i));
+                }
+            }
+            stats = waitIdle(dispatcher);
+            dispatchedMillis = System.currentTimeMillis() - dispatchedStart;
+        }
+
+        log.info("模拟 {} 个服务、每个服务 {} 个配置变更事件, 串行耗时: {} ms, 按服务分发耗时: {} ms, 实际处理: {} 个, 合并: {} 个, 最大延迟: {} ms",
+                SERVICES.length,
+                eventsPerService,
+                serialMillis,
+                dispatchedMillis,
+                stats.getProcessedCount(),
+                stats.getCoalescedCount(),
+                stats.getLagMaxMillis()
+        );
+
+        Assertions.assertEquals((long) SERVICES.length * eventsPerService, stats.getOfferedCount());
+        Assertions.assertEquals(stats.getOfferedCount(), stats.getProcessedCount() + stats.getCoalescedCount());
+        Assertions.assertTrue(dispatchedMillis < serialMillis);
+    }
+
+    private void handle(ConfigEvent event) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(HANDLE_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 同一集群、同一服务的事件进入同一通道，以配置文件摘要携带事件的版本号
+     */
+    private static ConfigEvent event(String serviceName, int version) {
+        return new ConfigEvent(
+                new PluginConfigEvent()
+                        .setClusterId(1L)
+                        .setServiceName(serviceName)
+                        .setConfigEventDataList(Collections.singletonList(
+                                new PluginConfigEvent.ConfigEventData().setSha256(String.valueOf(version))
+                        ))
+        );
+    }
+
+    private static int version(ConfigEvent event) {
+        return Integer.parseInt(event.getPluginConfigEvent().getConfigEventDataList().get(0).getSha256());
+    }
+
+    private static ConfigEventStats waitIdle(ConfigEventDispatcher dispatcher) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000L;
+        while (System.currentTimeMillis() < deadline) {
+            ConfigEventStats stats = dispatcher.getStats();
+            if (stats.getActiveServiceCount() == 0 &&
+                    stats.getProcessedCount() + stats.getCoalescedCount() == stats.getOfferedCount()) {
+                return stats;
+            }
+            TimeUnit.MILLISECONDS.sleep(10L);
+        }
+        return Assertions.fail("等待配置变更事件处理完成超时");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
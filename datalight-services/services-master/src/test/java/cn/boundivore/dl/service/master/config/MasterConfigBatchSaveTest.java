@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.config;
+
+import cn.boundivore.dl.base.request.impl.master.ConfigSaveRequest;
+import cn.boundivore.dl.orm.po.single.TDlConfig;
+import cn.boundivore.dl.orm.po.single.TDlConfigContent;
+import cn.boundivore.dl.orm.service.single.impl.TDlConfigContentServiceImpl;
+import cn.boundivore.dl.orm.service.single.impl.TDlConfigServiceImpl;
+import cn.boundivore.dl.service.master.orm.EmbeddedMysqlDatabase;
+import cn.boundivore.dl.service.master.orm.OrmTestConfiguration;
+import cn.boundivore.dl.service.master.orm.SqlRecorder;
+import cn.boundivore.dl.service.master.service.MasterConfigService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Description: 测试批量保存配置文件时发往数据库的语句次数：1200 个节点、每个节点 5 个配置文件，
+ * 查询按每 500 个节点一批 IN 查询，写入按 MyBatis-Plus 默认每 1000 条一次 executeBatch，
+ * 相同内容的配置文件只入库一次，再次保存时配置版本递增。
+ * 在内存数据库中执行真实 SQL，语句次数由 SqlRecorder 统计
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/28
+ * Modification description: 内存模拟改为内存数据库，统计真实语句次数
+ * Modified by: Boundivore
+ * Modification time: 2024/7/4
+ * Version: V1.0
+ */
+@Slf4j
+@SpringJUnitConfig(OrmTestConfiguration.class)
+public class MasterConfigBatchSaveTest {
+
+    private static final Long CLUSTER_ID = 1L;
+
+    private static final String SERVICE_NAME = "HDFS";
+
+    private static final int NODE_COUNT = 1200;
+
+    private static final int FILE_COUNT = 5;
+
+    // 与 MasterConfigService 中单条 IN 查询的最大参数个数一致
+    private static final int IN_BATCH_SIZE = 500;
+
+    // MyBatis-Plus saveBatch、updateBatchById 的默认批次大小
+    private static final int WRITE_BATCH_SIZE = 1000;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private SqlRecorder sqlRecorder;
+
+    @Autowired
+    private TDlConfigServiceImpl tDlConfigService;
+
+    @Autowired
+    private TDlConfigContentServiceImpl tDlConfigContentService;
+
+    private MasterConfigService masterConfigService;
+
+    @BeforeEach
+    public void init() {
+        EmbeddedMysqlDatabase.truncate(this.dataSource);
+        this.sqlRecorder.reset();
+
+        this.masterConfigService = new MasterConfigService(
+                this.tDlConfigService,
+                this.tDlConfigContentService,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null,
+                null
+        );
+    }
+
+    @Test
+    public void saveWithBoundedStatements() {
+        long startMillis = System.currentTimeMillis();
+        List<TDlConfig> tDlConfigList = this.masterConfigService.saveOrUpdateTDlConfigBatch(
+                null,
+                CLUSTER_ID,
+                SERVICE_NAME,
+                configRequestList("v1")
+        );
+        log.info("首次保存 {} 个配置文件, 语句: {} 次, 耗时: {} ms",
+                tDlConfigList.size(),
+                this.sqlRecorder.count(),
+                System.currentTimeMillis() - startMillis
+        );
+
+        Assertions.assertEquals(NODE_COUNT * FILE_COUNT, tDlConfigList.size());
+        // 配置文件内容与配置各按 IN 批次查询
+        Assertions.assertEquals(1, this.selectCount("t_dl_config_content"));
+        Assertions.assertEquals(batches(NODE_COUNT, IN_BATCH_SIZE), this.selectCount("t_dl_config"));
+        // 不同节点上的同一配置文件内容相同，只入库一次
+        Assertions.assertEquals(1, this.writeCount("INSERT INTO", "t_dl_config_content"));
+        Assertions.assertEquals(batches(NODE_COUNT * FILE_COUNT, WRITE_BATCH_SIZE), this.writeCount("INSERT INTO", "t_dl_config"));
+        Assertions.assertEquals(0, this.writeCount("UPDATE", "t_dl_config"));
+        Assertions.assertEquals(
+                1 + batches(NODE_COUNT, IN_BATCH_SIZE) + 1 + batches(NODE_COUNT * FILE_COUNT, WRITE_BATCH_SIZE),
+                this.sqlRecorder.count()
+        );
+
+        Assertions.assertEquals(FILE_COUNT, this.tDlConfigContentService.count());
+        Assertions.assertEquals(NODE_COUNT * FILE_COUNT, this.tDlConfigService.count());
+        this.tDlConfigService.list().forEach(i -> Assertions.assertEquals(1L, i.getConfigVersion()));
+    }
+
+    @Test
+    public void saveAgainUpdatesVersion() {
+        this.masterConfigService.saveOrUpdateTDlConfigBatch(null, CLUSTER_ID, SERVICE_NAME, configRequestList("v1"));
+        this.sqlRecorder.reset();
+
+        // 内容未变化：不再写入配置文件内容，只批量更新配置
+        this.masterConfigService.saveOrUpdateTDlConfigBatch(null, CLUSTER_ID, SERVICE_NAME, configRequestList("v1"));
+        Assertions.assertEquals(1, this.selectCount("t_dl_config_content"));
+        Assertions.assertEquals(batches(NODE_COUNT, IN_BATCH_SIZE), this.selectCount("t_dl_config"));
+        Assertions.assertEquals(0, this.writeCount("INSERT INTO", "t_dl_config_content"));
+        Assertions.assertEquals(0, this.writeCount("INSERT INTO", "t_dl_config"));
+        Assertions.assertEquals(batches(NODE_COUNT * FILE_COUNT, WRITE_BATCH_SIZE), this.writeCount("UPDATE", "t_dl_config"));
+        Assertions.assertEquals(FILE_COUNT, this.tDlConfigContentService.count());
+        Assertions.assertEquals(NODE_COUNT * FILE_COUNT, this.tDlConfigService.count());
+        this.tDlConfigService.list().forEach(i -> Assertions.assertEquals(2L, i.getConfigVersion()));
+        this.sqlRecorder.reset();
+
+        // 内容变化：新内容入库一次，配置指向新内容
+        this.masterConfigService.saveOrUpdateTDlConfigBatch(null, CLUSTER_ID, SERVICE_NAME, configRequestList("v2"));
+        Assertions.assertEquals(1, this.writeCount("INSERT INTO", "t_dl_config_content"));
+        Assertions.assertEquals(FILE_COUNT * 2, this.tDlConfigContentService.count());
+        this.tDlConfigService.list().forEach(i -> {
+            Assertions.assertEquals(3L, i.getConfigVersion());
+            Assertions.assertTrue(this.tDlConfigContentService.getById(i.getConfigContentId()).getSha256().startsWith("v2"));
+        });
+    }
+
+    @Test
+    public void duplicateRequestsLastWins() {
+        List<ConfigSaveRequest.ConfigRequest> configRequestList = new ArrayList<>();
+        configRequestList.add(configRequest(1L, 0, "v1"));
+        configRequestList.add(configRequest(1L, 0, "v2"));
+
+        List<TDlConfig> tDlConfigList = this.masterConfigService.saveOrUpdateTDlConfigBatch(
+                null,
+                CLUSTER_ID,
+                SERVICE_NAME,
+                configRequestList
+        );
+
+        Assertions.assertEquals(1, tDlConfigList.size());
+        Assertions.assertEquals(1, this.tDlConfigService.count());
+
+        TDlConfig tDlConfig = this.tDlConfigService.getById(tDlConfigList.get(0).getId());
+        Assertions.assertEquals(1L, tDlConfig.getConfigVersion());
+        TDlConfigContent tDlConfigContent = this.tDlConfigContentService.getById(tDlConfig.getConfigContentId());
+        Assertions.assertEquals("v2-0", tDlConfigContent.getSha256());
+    }
+
+    private int selectCount(String table) {
+        return this.sqlRecorder.count("^SELECT\\b.*\\bFROM\\s+" + table + "\\b");
+    }
+
+    private int writeCount(String command, String table) {
+        return this.sqlRecorder.count("^" + command + "\\s+" + table + "\\b");
+    }
+
+    private static int batches(int size, int batchSize) {
+        return (size + batchSize - 1) / batchSize;
+    }
+
+    private static List<ConfigSaveRequest.ConfigRequest> configRequestList(String contentVersion) {
+        List<ConfigSaveRequest.ConfigRequest> configRequestList = new ArrayList<>(NODE_COUNT * FILE_COUNT);
+        for (long nodeId = 1; nodeId <= NODE_COUNT; nodeId++) {
+            for (int file = 0; file < FILE_COUNT; file++) {
+                configRequestList.add(configRequest(nodeId, file, contentVersion));
+            }
+        }
+        return configRequestList;
+    }
+
+    private static ConfigSaveRequest.ConfigRequest configRequest(Long nodeId, int file, String contentVersion) {
+        return ConfigSaveRequest.ConfigRequest.builder()
+                .nodeId(nodeId)
+                .filename("file-" + file + ".xml")
+                .configData(contentVersion + "-data-" + file)
+                .sha256(contentVersion + "-" + file)
+                .configPath("/etc/hadoop/file-" + file + ".xml")
+                .build();
+    }
+}
@@ -0,0 +1,324 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.config;
+
+import cn.boundivore.dl.base.enumeration.impl.NodeStateEnum;
+import cn.boundivore.dl.base.enumeration.impl.SCStateEnum;
+import cn.boundivore.dl.base.response.impl.master.ConfigListByGroupVo;
+import cn.boundivore.dl.orm.mapper.custom.ConfigNodeMapper;
+import cn.boundivore.dl.orm.po.custom.ConfigNodeDto;
+import cn.boundivore.dl.orm.po.single.TDlComponent;
+import cn.boundivore.dl.orm.po.single.TDlConfig;
+import cn.boundivore.dl.orm.po.single.TDlConfigContent;
+import cn.boundivore.dl.orm.po.single.TDlNode;
+import cn.boundivore.dl.orm.service.single.ITDlComponentService;
+import cn.boundivore.dl.orm.service.single.ITDlNodeService;
+import cn.boundivore.dl.orm.service.single.impl.TDlConfigContentServiceImpl;
+import cn.boundivore.dl.orm.service.single.impl.TDlConfigServiceImpl;
+import cn.boundivore.dl.service.master.orm.EmbeddedMysqlDatabase;
+import cn.boundivore.dl.service.master.orm.OrmTestConfiguration;
+import cn.boundivore.dl.service.master.orm.SqlRecorder;
+import cn.boundivore.dl.service.master.service.MasterConfigService;
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Description: 在内存数据库中校验按配置文件分组查询：
+ * selectConfigNodeDigestDto* 以 EXISTS 过滤部署了该服务组件的节点，每个节点的每个配置文件只返回一行，
+ * 与原 JOIN 组件表的查询（每个组件一行）覆盖相同的节点、配置文件与 SHA256；
+ * getConfigListByGroup 的分组结果与 JOIN 查询逐行携带的内容一致，且每次调用只读取一次配置文件内容表
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/7/3
+ * Modification description: 内存模拟改为内存数据库，校验真实的 Mapper SQL
+ * Modified by: Boundivore
+ * Modification time: 2024/7/4
+ * Version: V1.0
+ */
+@Slf4j
+@SpringJUnitConfig(OrmTestConfiguration.class)
+public class MasterConfigGroupQueryTest {
+
+    private static final Long CLUSTER_ID = 1L;
+
+    private static final String SERVICE_NAME = "HDFS";
+
+    private static final int NODE_COUNT = 300;
+
+    // 仅存在 HDFS 配置、未部署 HDFS 组件的节点数，两种查询均不应返回这些节点
+    private static final int ORPHAN_NODE_COUNT = 20;
+
+    private static final String[] COMPONENT_NAMES = {"DataNode", "HdfsClient"};
+
+    private static final String HDFS_SITE = "/opt/datalight/hdfs/etc/hadoop/hdfs-site.xml";
+
+    private static final String CORE_SITE = "/opt/datalight/hdfs/etc/hadoop/core-site.xml";
+
+    private static final String HADOOP_ENV = "/opt/datalight/hdfs/etc/hadoop/hadoop-env.sh";
+
+    private static final List<String> CONFIG_PATH_LIST = Arrays.asList(HDFS_SITE, CORE_SITE, HADOOP_ENV);
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private SqlRecorder sqlRecorder;
+
+    @Autowired
+    private ConfigNodeMapper configNodeMapper;
+
+    @Autowired
+    private ITDlNodeService tDlNodeService;
+
+    @Autowired
+    private ITDlComponentService tDlComponentService;
+
+    @Autowired
+    private TDlConfigServiceImpl tDlConfigService;
+
+    @Autowired
+    private TDlConfigContentServiceImpl tDlConfigContentService;
+
+    private MasterConfigService masterConfigService;
+
+    @BeforeEach
+    public void init() {
+        EmbeddedMysqlDatabase.truncate(this.dataSource);
+        this.seed();
+        EmbeddedMysqlDatabase.analyze(this.dataSource);
+        this.sqlRecorder.reset();
+
+        this.masterConfigService = new MasterConfigService(
+                this.tDlConfigService,
+                this.tDlConfigContentService,
+                null,
+                this.configNodeMapper,
+                null,
+                null,
+                null,
+                null,
+                null
+        );
+    }
+
+    @Test
+    public void digestQueryReturnsOneRowPerConfig() {
+        List<ConfigNodeDto> joinRowList = this.configNodeMapper.selectConfigNodeDto(CLUSTER_ID, SERVICE_NAME);
+        List<ConfigNodeDto> digestRowList = this.configNodeMapper.selectConfigNodeDigestDto(CLUSTER_ID, SERVICE_NAME);
+
+        // JOIN 组件表后每个组件一行，EXISTS 每个配置文件一行
+        Assertions.assertEquals(NODE_COUNT * CONFIG_PATH_LIST.size() * COMPONENT_NAMES.length, joinRowList.size());
+        Assertions.assertEquals(NODE_COUNT * CONFIG_PATH_LIST.size(), digestRowList.size());
+        Assertions.assertEquals(rowKeys(joinRowList), rowKeys(digestRowList));
+        Assertions.assertEquals(digestRowList.size(), rowKeys(digestRowList).size());
+        digestRowList.forEach(i -> Assertions.assertNull(i.getConfigData()));
+
+        List<ConfigNodeDto> joinPathRowList = this.configNodeMapper.selectConfigNodeDtoByConfigPath(CLUSTER_ID, SERVICE_NAME, HDFS_SITE);
+        List<ConfigNodeDto> digestPathRowList = this.configNodeMapper.selectConfigNodeDigestDtoByConfigPath(CLUSTER_ID, SERVICE_NAME, HDFS_SITE);
+        Assertions.assertEquals(NODE_COUNT, digestPathRowList.size());
+        Assertions.assertEquals(rowKeys(joinPathRowList), rowKeys(digestPathRowList));
+    }
+
+    @Test
+    public void groupByPathReadsContentOnce() {
+        List<ConfigListByGroupVo.ConfigGroupVo> configGroupList = this.masterConfigService
+                .getConfigListByGroup(CLUSTER_ID, SERVICE_NAME, HDFS_SITE)
+                .getData()
+                .getConfigGroupList();
+        log.info("{} 个分组, 语句: {}", configGroupList.size(), this.sqlRecorder.getSqlList());
+
+        // 一次分组查询 + 一次按 SHA256 读取内容
+        Assertions.assertEquals(1, this.sqlRecorder.count("\\bFROM\\s+t_dl_node\\b"));
+        Assertions.assertEquals(1, this.sqlRecorder.count("^SELECT\\b.*\\bFROM\\s+t_dl_config_content\\b"));
+        Assertions.assertEquals(2, this.sqlRecorder.count());
+
+        // hdfs-site.xml 每 10 个节点中有 1 个使用另一版本
+        Assertions.assertEquals(2, configGroupList.size());
+        assertSameGroups(
+                this.configNodeMapper.selectConfigNodeDtoByConfigPath(CLUSTER_ID, SERVICE_NAME, HDFS_SITE),
+                configGroupList
+        );
+    }
+
+    @Test
+    public void groupByPathListKeepsOrder() {
+        List<String> configPathList = Arrays.asList(HADOOP_ENV, HDFS_SITE, CORE_SITE);
+
+        List<ConfigListByGroupVo.ConfigGroupVo> configGroupList = this.masterConfigService
+                .getConfigListByGroup(CLUSTER_ID, SERVICE_NAME, configPathList)
+                .getData()
+                .getConfigGroupList();
+
+        Assertions.assertEquals(2, this.sqlRecorder.count());
+
+        // hadoop-env.sh 每个节点不同，hdfs-site.xml 两个版本，core-site.xml 所有节点相同
+        Assertions.assertEquals(NODE_COUNT + 2 + 1, configGroupList.size());
+        List<String> orderedPathList = configGroupList.stream()
+                .map(ConfigListByGroupVo.ConfigGroupVo::getConfigPath)
+                .distinct()
+                .collect(Collectors.toList());
+        Assertions.assertEquals(configPathList, orderedPathList);
+
+        assertSameGroups(this.configNodeMapper.selectConfigNodeDto(CLUSTER_ID, SERVICE_NAME), configGroupList);
+    }
+
+    @Test
+    public void emptyResult() {
+        Assertions.assertTrue(
+                this.masterConfigService.getConfigListByGroup(CLUSTER_ID, SERVICE_NAME, "/not/exists")
+                        .getData()
+                        .getConfigGroupList()
+                        .isEmpty()
+        );
+        // 没有配置文件时不读取内容表
+        Assertions.assertEquals(1, this.sqlRecorder.count());
+    }
+
+    /**
+     * 以 JOIN 查询逐行携带的内容为准，校验分组后的节点、内容与版本
+     */
+    private static void assertSameGroups(List<ConfigNodeDto> joinRowList,
+                                         List<ConfigListByGroupVo.ConfigGroupVo> configGroupList) {
+        // <configPath + sha256, <nodeId, ConfigNodeDto>>
+        Map<String, Map<Long, ConfigNodeDto>> expectedMap = new HashMap<>();
+        joinRowList.forEach(i -> expectedMap
+                .computeIfAbsent(i.getConfigPath() + i.getSha256(), k -> new TreeMap<>())
+                .put(i.getNodeId(), i)
+        );
+        Assertions.assertEquals(expectedMap.size(), configGroupList.size());
+
+        configGroupList.forEach(configGroup -> {
+            Map<Long, ConfigNodeDto> expectedNodeMap = expectedMap.get(configGroup.getConfigPath() + configGroup.getSha256());
+            Assertions.assertNotNull(expectedNodeMap, configGroup.getConfigPath());
+
+            ConfigNodeDto first = expectedNodeMap.values().iterator().next();
+            Assertions.assertEquals(first.getConfigData(), configGroup.getConfigData());
+            Assertions.assertEquals(first.getFilename(), configGroup.getFilename());
+
+            Assertions.assertEquals(expectedNodeMap.size(), configGroup.getConfigNodeList().size());
+            configGroup.getConfigNodeList().forEach(configNode -> {
+                ConfigNodeDto expected = expectedNodeMap.get(configNode.getNodeId());
+                Assertions.assertNotNull(expected);
+                Assertions.assertEquals(expected.getHostname(), configNode.getHostname());
+                Assertions.assertEquals(expected.getIpv4(), configNode.getNodeIp());
+                Assertions.assertEquals(expected.getConfigVersion(), configNode.getConfigVersion());
+            });
+        });
+    }
+
+    private static Set<String> rowKeys(List<ConfigNodeDto> configNodeDtoList) {
+        return configNodeDtoList.stream()
+                .map(i -> i.getNodeId() + ":" + i.getConfigPath() + ":" + i.getSha256())
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * hdfs-site.xml 约 60 KB，其中每 10 个节点有 1 个使用另一版本；core-site.xml 约 8 KB，所有节点相同；
+     * hadoop-env.sh 每个节点不同。每个节点部署 2 个 HDFS 组件
+     */
+    private void seed() {
+        List<TDlNode> nodeList = new ArrayList<>();
+        for (int i = 0; i < NODE_COUNT + ORPHAN_NODE_COUNT; i++) {
+            nodeList.add(new TDlNode()
+                    .setClusterId(CLUSTER_ID)
+                    .setHostname(String.format("node%04d", i))
+                    .setIpv4("192.168." + i / 256 + "." + i % 256)
+                    .setSshPort(22L)
+                    .setCpuArch("x86_64")
+                    .setCpuCores(16L)
+                    .setRam(65536L)
+                    .setDisk(1024000L)
+                    .setNodeState(NodeStateEnum.STARTED)
+                    .setOsVersion("CentOS 7.9")
+                    .setSerialNum(i)
+            );
+        }
+        this.tDlNodeService.saveBatch(nodeList);
+
+        // <sha256, TDlConfigContent>
+        Map<String, TDlConfigContent> contentMap = new LinkedHashMap<>();
+        List<TDlComponent> componentList = new ArrayList<>();
+        List<TDlConfig> configList = new ArrayList<>();
+        for (int i = 0; i < nodeList.size(); i++) {
+            TDlNode tDlNode = nodeList.get(i);
+            boolean orphan = i >= NODE_COUNT;
+
+            for (String componentName : COMPONENT_NAMES) {
+                componentList.add(new TDlComponent()
+                        .setClusterId(CLUSTER_ID)
+                        .setNodeId(tDlNode.getId())
+                        .setServiceName(orphan ? "YARN" : SERVICE_NAME)
+                        .setComponentName(orphan ? "NodeManager" : componentName)
+                        .setComponentState(SCStateEnum.STARTED)
+                        .setPriority(1L)
+                        .setNeedRestart(false)
+                );
+            }
+
+            for (String configPath : CONFIG_PATH_LIST) {
+                String configData;
+                if (configPath.equals(HDFS_SITE)) {
+                    configData = content("hdfs-site-" + (i % 10 == 0 ? "v2" : "v1"), 60 * 1024);
+                } else if (configPath.equals(CORE_SITE)) {
+                    configData = content("core-site", 8 * 1024);
+                } else {
+                    configData = content("hadoop-env-" + i, 512);
+                }
+
+                String sha256 = DigestUtil.sha256Hex(configData);
+                TDlConfigContent tDlConfigContent = contentMap.computeIfAbsent(sha256, k -> new TDlConfigContent()
+                        .setClusterId(CLUSTER_ID)
+                        .setFilename(configPath.substring(configPath.lastIndexOf('/') + 1))
+                        .setConfigData(configData)
+                        .setSha256(sha256)
+                );
+                if (tDlConfigContent.getId() == null) {
+                    this.tDlConfigContentService.save(tDlConfigContent);
+                }
+
+                configList.add(new TDlConfig()
+                        .setClusterId(CLUSTER_ID)
+                        .setNodeId(tDlNode.getId())
+                        .setServiceName(SERVICE_NAME)
+                        .setConfigContentId(tDlConfigContent.getId())
+                        .setFilename(tDlConfigContent.getFilename())
+                        .setConfigPath(configPath)
+                        .setConfigVersion((long) (i % 3 + 1))
+                );
+            }
+        }
+        this.tDlComponentService.saveBatch(componentList);
+        this.tDlConfigService.saveBatch(configList);
+    }
+
+    private static String content(String prefix, int length) {
+        StringBuilder sb = new StringBuilder(length).append(prefix).append(':');
+        while (sb.length() < length) {
+            sb.append("<property><name>dfs.key</name><value>value</value></property>\n");
+        }
+        return sb.substring(0, length);
+    }
+}
@@ -0,0 +1,294 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.config;
+
+import cn.boundivore.dl.api.worker.define.IWorkerConfigAPI;
+import cn.boundivore.dl.base.enumeration.impl.NodeStateEnum;
+import cn.boundivore.dl.base.request.impl.master.ConfigSaveRequest;
+import cn.boundivore.dl.base.request.impl.worker.ConfigFileDigestRequest;
+import cn.boundivore.dl.base.request.impl.worker.ConfigFileRequest;
+import cn.boundivore.dl.base.response.impl.common.AbstractConfigFileVo;
+import cn.boundivore.dl.base.result.Result;
+import cn.boundivore.dl.cloud.config.async.executors.CustomThreadPoolTaskExecutor;
+import cn.boundivore.dl.exception.BException;
+import cn.boundivore.dl.orm.mapper.custom.ComponentNodeMapper;
+import cn.boundivore.dl.orm.mapper.custom.ConfigNodeMapper;
+import cn.boundivore.dl.orm.po.single.TDlNode;
+import cn.boundivore.dl.orm.service.single.impl.TDlComponentServiceImpl;
+import cn.boundivore.dl.orm.service.single.impl.TDlConfigContentServiceImpl;
+import cn.boundivore.dl.orm.service.single.impl.TDlConfigServiceImpl;
+import cn.boundivore.dl.orm.service.single.impl.TDlNodeServiceImpl;
+import cn.boundivore.dl.service.master.boardcast.ConfigEventPublisher;
+import cn.boundivore.dl.service.master.orm.EmbeddedMysqlDatabase;
+import cn.boundivore.dl.service.master.orm.OrmTestConfiguration;
+import cn.boundivore.dl.service.master.service.MasterConfigService;
+import cn.boundivore.dl.service.master.service.MasterNodeService;
+import cn.boundivore.dl.service.master.service.RemoteInvokeWorkerService;
+import cn.hutool.core.codec.Base64;
+import cn.hutool.crypto.SecureUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Description: 测试配置文件下发到节点：部分节点下发失败时，其余节点仍全部处理完成，异常中仅列出失败的节点；
+ * 节点上内容已与目标一致的配置文件跳过下发，获取摘要失败的节点全部下发。
+ * 配置文件在内存数据库中保存，Worker 接口以记录调用的实现代替
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/7/4
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+@SpringJUnitConfig(OrmTestConfiguration.class)
+public class MasterConfigPushTest {
+
+    private static final Long CLUSTER_ID = 1L;
+
+    private static final String SERVICE_NAME = "HDFS";
+
+    private static final int NODE_COUNT = 40;
+
+    private static final int FILE_COUNT = 3;
+
+    private static final int PUSH_PARALLELISM = 8;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TDlConfigServiceImpl tDlConfigService;
+
+    @Autowired
+    private TDlConfigContentServiceImpl tDlConfigContentService;
+
+    @Autowired
+    private TDlNodeServiceImpl tDlNodeService;
+
+    @Autowired
+    private TDlComponentServiceImpl tDlComponentService;
+
+    @Autowired
+    private ConfigNodeMapper configNodeMapper;
+
+    @Autowired
+    private ComponentNodeMapper componentNodeMapper;
+
+    private final List<Object> publishedEventList = new CopyOnWriteArrayList<>();
+
+    private final Map<String, FakeWorkerConfigAPI> workerMap = new ConcurrentHashMap<>();
+
+    private CustomThreadPoolTaskExecutor customExecutor;
+
+    private MasterConfigService masterConfigService;
+
+    private List<TDlNode> tDlNodeList;
+
+    @BeforeEach
+    public void setUp() {
+        EmbeddedMysqlDatabase.truncate(this.dataSource);
+
+        this.tDlNodeList = new ArrayList<>();
+        for (int i = 1; i <= NODE_COUNT; i++) {
+            this.tDlNodeList.add(new TDlNode()
+                    .setClusterId(CLUSTER_ID)
+                    .setHostname(String.format("node%04d", i))
+                    .setIpv4("192.168.0." + i)
+                    .setSshPort(22L)
+                    .setCpuArch("x86_64")
+                    .setCpuCores(16L)
+                    .setRam(65536L)
+                    .setDisk(1024000L)
+                    .setNodeState(NodeStateEnum.STARTED)
+                    .setOsVersion("CentOS 7.9")
+                    .setSerialNum(i)
+            );
+        }
+        this.tDlNodeService.saveBatch(this.tDlNodeList);
+        this.tDlNodeList.forEach(i -> this.workerMap.put(i.getIpv4(), new FakeWorkerConfigAPI()));
+
+        this.customExecutor = new CustomThreadPoolTaskExecutor();
+        this.customExecutor.setCorePoolSize(PUSH_PARALLELISM);
+        this.customExecutor.setMaxPoolSize(PUSH_PARALLELISM);
+        this.customExecutor.setQueueCapacity(100);
+        this.customExecutor.setThreadNamePrefix("config-push-test-");
+        this.customExecutor.initialize();
+
+        RemoteInvokeWorkerService remoteInvokeWorkerService = new RemoteInvokeWorkerService(null, null, null) {
+            @Override
+            public IWorkerConfigAPI iWorkerConfigAPI(String ip) {
+                return workerMap.get(ip);
+            }
+        };
+
+        this.masterConfigService = new MasterConfigService(
+                this.tDlConfigService,
+                this.tDlConfigContentService,
+                new MasterNodeService(null, this.tDlNodeService, this.tDlComponentService, null, null),
+                this.configNodeMapper,
+                this.componentNodeMapper,
+                new ConfigEventPublisher(this.publishedEventList::add),
+                remoteInvokeWorkerService,
+                null,
+                this.customExecutor
+        );
+        ReflectionTestUtils.setField(this.masterConfigService, "pushParallelism", PUSH_PARALLELISM);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.customExecutor.shutdown();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    public void someNodesFail() {
+        // 3 个节点的 Worker 不可达
+        Set<String> failedHostnameSet = new HashSet<>();
+        for (int i : new int[]{3, 17, 40}) {
+            TDlNode tDlNode = this.tDlNodeList.get(i - 1);
+            this.workerMap.get(tDlNode.getIpv4()).isUnreachable = true;
+            failedHostnameSet.add(tDlNode.getHostname());
+        }
+
+        BException exception = Assertions.assertThrows(
+                BException.class,
+                () -> this.masterConfigService.saveConfigOrUpdateBatch(this.request(), new HashMap<>())
+        );
+        log.info("下发失败: {}", exception.getMessage());
+
+        // 失败的节点不影响其他节点，异常中仅列出失败的节点
+        for (TDlNode tDlNode : this.tDlNodeList) {
+            FakeWorkerConfigAPI worker = this.workerMap.get(tDlNode.getIpv4());
+            boolean isFailed = failedHostnameSet.contains(tDlNode.getHostname());
+
+            Assertions.assertEquals(1, worker.digestCount, tDlNode.getHostname());
+            Assertions.assertEquals(isFailed ? 0 : FILE_COUNT, worker.fileSha256Map.size(), tDlNode.getHostname());
+            Assertions.assertEquals(isFailed, exception.getMessage().contains(tDlNode.getHostname() + "("), tDlNode.getHostname());
+        }
+        Assertions.assertTrue(this.publishedEventList.isEmpty());
+    }
+
+    @Test
+    public void unchangedFilesSkipped() {
+        // 前一半节点上第一个配置文件已是目标内容
+        for (int i = 0; i < NODE_COUNT / 2; i++) {
+            this.workerMap.get(this.tDlNodeList.get(i).getIpv4()).fileSha256Map.put(configPath(0), SecureUtil.sha256(content(0)));
+        }
+        // 最后一个节点的 Worker 不支持获取摘要，全部下发
+        FakeWorkerConfigAPI legacyWorker = this.workerMap.get(this.tDlNodeList.get(NODE_COUNT - 1).getIpv4());
+        legacyWorker.isDigestUnsupported = true;
+
+        TransactionSynchronizationManager.initSynchronization();
+        this.masterConfigService.saveConfigOrUpdateBatch(this.request(), new HashMap<>());
+
+        for (int i = 0; i < NODE_COUNT; i++) {
+            FakeWorkerConfigAPI worker = this.workerMap.get(this.tDlNodeList.get(i).getIpv4());
+            Assertions.assertEquals(i < NODE_COUNT / 2 ? FILE_COUNT - 1 : FILE_COUNT, worker.pushedPathList.size());
+            Assertions.assertEquals(FILE_COUNT, worker.fileSha256Map.size());
+        }
+        Assertions.assertEquals(FILE_COUNT, legacyWorker.pushedPathList.size());
+
+        // 配置变更事件在事务提交后发布
+        Assertions.assertTrue(this.publishedEventList.isEmpty());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        Assertions.assertEquals(1, this.publishedEventList.size());
+    }
+
+    private ConfigSaveRequest request() {
+        List<ConfigSaveRequest.ConfigRequest> configRequestList = new ArrayList<>();
+        for (TDlNode tDlNode : this.tDlNodeList) {
+            for (int file = 0; file < FILE_COUNT; file++) {
+                configRequestList.add(
+                        ConfigSaveRequest.ConfigRequest.builder()
+                                .nodeId(tDlNode.getId())
+                                .filename("file-" + file + ".xml")
+                                .configData(Base64.encode(content(file)))
+                                .sha256(SecureUtil.sha256(content(file)))
+                                .configPath(configPath(file))
+                                .build()
+                );
+            }
+        }
+        return new ConfigSaveRequest(CLUSTER_ID, SERVICE_NAME, configRequestList);
+    }
+
+    private static String content(int file) {
+        return "<configuration><property><name>file</name><value>" + file + "</value></property></configuration>";
+    }
+
+    private static String configPath(int file) {
+        return "/etc/hadoop/file-" + file + ".xml";
+    }
+
+    /**
+     * 记录下发的配置文件，并按写入的内容返回摘要
+     */
+    private static class FakeWorkerConfigAPI implements IWorkerConfigAPI {
+
+        // <配置文件路径, 文件内容 SHA256>
+        private final Map<String, String> fileSha256Map = new ConcurrentHashMap<>();
+
+        private final List<String> pushedPathList = new CopyOnWriteArrayList<>();
+
+        private volatile int digestCount;
+
+        private volatile boolean isUnreachable;
+
+        private volatile boolean isDigestUnsupported;
+
+        @Override
+        public Result<String> config(ConfigFileRequest request) {
+            if (this.isUnreachable) throw new RuntimeException("Connection refused");
+
+            this.fileSha256Map.put(request.getPath(), SecureUtil.sha256(Base64.decodeStr(request.getContentBase64())));
+            this.pushedPathList.add(request.getPath());
+            return Result.success();
+        }
+
+        @Override
+        public Result<AbstractConfigFileVo.ConfigFileDigestVo> digest(ConfigFileDigestRequest request) {
+            this.digestCount++;
+            if (this.isUnreachable) throw new RuntimeException("Connection refused");
+            if (this.isDigestUnsupported) throw new RuntimeException("404 Not Found");
+
+            Map<String, String> pathSha256Map = new HashMap<>();
+            request.getPathList()
+                    .stream()
+                    .filter(this.fileSha256Map::containsKey)
+                    .forEach(i -> pathSha256Map.put(i, this.fileSha256Map.get(i)));
+            return Result.success(new AbstractConfigFileVo.ConfigFileDigestVo(pathSha256Map));
+        }
+    }
+}
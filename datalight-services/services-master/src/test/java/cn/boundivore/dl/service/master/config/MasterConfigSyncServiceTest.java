@@ -0,0 +1,332 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.config;
+
+import cn.boundivore.dl.base.request.impl.master.ConfigSaveByGroupRequest;
+import cn.boundivore.dl.base.request.impl.master.ConfigSaveRequest;
+import cn.boundivore.dl.base.result.Result;
+import cn.boundivore.dl.orm.po.single.TDlConfigContent;
+import cn.boundivore.dl.service.master.bean.ConfigContentPersistedMaps;
+import cn.boundivore.dl.service.master.service.MasterConfigService;
+import cn.boundivore.dl.service.master.service.MasterConfigSyncService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Description: 测试配置保存的分段锁：不同服务的配置修改互不阻塞；同一配置文件的修改串行，配置版本不丢失更新；
+ * 同一配置文件内容只入库一次。数据库读写以带有竞争窗口的内存模拟代替
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/22
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class MasterConfigSyncServiceTest {
+
+    private static final Long CLUSTER_ID = 1L;
+
+    // 模拟读写数据库之间的间隔，放大并发竞争
+    private static final long RACE_WINDOW_MILLIS = 2L;
+
+    @Test
+    public void independentServicesProceedInParallel() throws Exception {
+        SimulatedConfigService configService = new SimulatedConfigService();
+        MasterConfigSyncService syncService = new MasterConfigSyncService(configService);
+
+        CountDownLatch hdfsEntered = new CountDownLatch(1);
+        CountDownLatch hdfsRelease = new CountDownLatch(1);
+        configService.blockService("HDFS", hdfsEntered, hdfsRelease);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Result<String>> hdfs = executor.submit(() -> syncService.saveConfigByGroupSync(
+                    groupRequest("HDFS", "/etc/hadoop/hdfs-site.xml", "hdfs-site.xml", "sha-hdfs")
+            ));
+            Assertions.assertTrue(hdfsEntered.await(5, TimeUnit.SECONDS));
+
+            // HDFS 配置保存尚未结束时，KAFKA 配置保存应能够完成
+            Future<Result<String>> kafka = executor.submit(() -> syncService.saveConfigByGroupSync(
+                    groupRequest("KAFKA", "/etc/kafka/server.properties", "server.properties", "sha-kafka")
+            ));
+            Assertions.assertTrue(kafka.get(5, TimeUnit.SECONDS).isSuccess());
+            Assertions.assertFalse(hdfs.isDone());
+
+            hdfsRelease.countDown();
+            Assertions.assertTrue(hdfs.get(5, TimeUnit.SECONDS).isSuccess());
+        } finally {
+            hdfsRelease.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sameConfigFileIsSerialized() throws Exception {
+        final int threadCount = 16;
+        final int savesPerThread = 20;
+        final String configPath = "/etc/hadoop/core-site.xml";
+
+        SimulatedConfigService configService = new SimulatedConfigService();
+        MasterConfigSyncService syncService = new MasterConfigSyncService(configService);
+
+        this.runConcurrently(threadCount, index -> {
+            for (int i = 0; i < savesPerThread; i++) {
+                syncService.saveConfigByGroupSync(
+                        groupRequest("HDFS", configPath, "core-site.xml", "sha-" + index + "-" + i)
+                );
+            }
+        });
+
+        Assertions.assertEquals(
+                (long) threadCount * savesPerThread,
+                configService.configVersionMap.get(configKey("HDFS", configPath))
+        );
+        Assertions.assertEquals(1, configService.maxConcurrentPerPath.get());
+    }
+
+    @Test
+    public void sameConfigFileIsSerializedAcrossEntries() throws Exception {
+        final int threadCount = 16;
+        final int savesPerThread = 20;
+        final String configPath = "/etc/hadoop/core-site.xml";
+
+        SimulatedConfigService configService = new SimulatedConfigService();
+        MasterConfigSyncService syncService = new MasterConfigSyncService(configService);
+
+        // 分组保存与插件保存修改同一配置文件，每次内容均未入库，插件保存走未就绪分支
+        this.runConcurrently(threadCount, index -> {
+            for (int i = 0; i < savesPerThread; i++) {
+                String sha256 = "sha-" + index + "-" + i;
+                if (index % 2 == 0) {
+                    syncService.saveConfigByGroupSync(groupRequest("HDFS", configPath, "core-site.xml", sha256));
+                } else {
+                    syncService.saveConfigOrUpdateBatch(saveRequest("HDFS", configPath, "core-site.xml", sha256));
+                }
+            }
+        });
+
+        Assertions.assertEquals(
+                (long) threadCount * savesPerThread,
+                configService.configVersionMap.get(configKey("HDFS", configPath))
+        );
+        Assertions.assertEquals(1, configService.maxConcurrentPerPath.get());
+    }
+
+    @Test
+    public void sharedContentIsPersistedOnce() throws Exception {
+        final String[] services = {"HDFS", "YARN", "HBASE", "KAFKA", "SPARK", "FLINK", "HIVE", "ZOOKEEPER"};
+
+        SimulatedConfigService configService = new SimulatedConfigService();
+        MasterConfigSyncService syncService = new MasterConfigSyncService(configService);
+
+        // 不同服务的不同配置文件引用相同的配置文件内容，分别经过分组保存与插件保存两种入口
+        this.runConcurrently(services.length, index -> {
+            String serviceName = services[index];
+            String configPath = String.format("/etc/%s/log4j.properties", serviceName.toLowerCase());
+            if (index % 2 == 0) {
+                syncService.saveConfigByGroupSync(groupRequest(serviceName, configPath, "log4j.properties", "sha-log4j"));
+            } else {
+                syncService.saveConfigOrUpdateBatch(saveRequest(serviceName, configPath, "log4j.properties", "sha-log4j"));
+            }
+        });
+
+        Assertions.assertEquals(1, configService.contentSaveCount.get());
+        Assertions.assertEquals(services.length, configService.configVersionMap.size());
+    }
+
+    private void runConcurrently(int threadCount, IndexedTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        CyclicBarrier barrier = new CyclicBarrier(threadCount);
+        try {
+            List<Future<?>> futureList = new ArrayList<>();
+            for (int i = 0; i < threadCount; i++) {
+                final int index = i;
+                futureList.add(executor.submit(() -> {
+                    barrier.await();
+                    task.run(index);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futureList) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface IndexedTask {
+        void run(int index) throws Exception;
+    }
+
+    private static ConfigSaveByGroupRequest groupRequest(String serviceName, String configPath, String filename, String sha256) {
+        ConfigSaveByGroupRequest.ConfigNodeRequest configNodeRequest = new ConfigSaveByGroupRequest.ConfigNodeRequest();
+        configNodeRequest.setNodeId(1L);
+
+        ConfigSaveByGroupRequest.ConfigGroupRequest configGroupRequest = new ConfigSaveByGroupRequest.ConfigGroupRequest();
+        configGroupRequest.setConfigPath(configPath);
+        configGroupRequest.setFilename(filename);
+        configGroupRequest.setSha256(sha256);
+        configGroupRequest.setConfigData(sha256);
+        configGroupRequest.setConfigNodeList(Collections.singletonList(configNodeRequest));
+
+        ConfigSaveByGroupRequest request = new ConfigSaveByGroupRequest();
+        request.setClusterId(CLUSTER_ID);
+        request.setServiceName(serviceName);
+        request.setConfigGroupList(Collections.singletonList(configGroupRequest));
+        return request;
+    }
+
+    private static ConfigSaveRequest saveRequest(String serviceName, String configPath, String filename, String sha256) {
+        ConfigSaveRequest.ConfigRequest configRequest = new ConfigSaveRequest.ConfigRequest();
+        configRequest.setNodeId(1L);
+        configRequest.setConfigPath(configPath);
+        configRequest.setFilename(filename);
+        configRequest.setSha256(sha256);
+        configRequest.setConfigData(sha256);
+
+        ConfigSaveRequest request = new ConfigSaveRequest();
+        request.setClusterId(CLUSTER_ID);
+        request.setServiceName(serviceName);
+        request.setConfigList(Collections.singletonList(configRequest));
+        return request;
+    }
+
+    private static String configKey(String serviceName, String configPath) {
+        return CLUSTER_ID + ":" + serviceName + ":" + configPath;
+    }
+
+    private static String contentKey(String filename, String sha256) {
+        return CLUSTER_ID + filename + sha256;
+    }
+
+    /**
+     * 以内存模拟配置与配置文件内容的读写：先读、间隔 RACE_WINDOW_MILLIS 后再写，未加锁时会出现丢失更新与重复入库
+     */
+    private static class SimulatedConfigService extends MasterConfigService {
+
+        // <clusterId:serviceName:configPath, configVersion>
+        private final Map<String, Long> configVersionMap = new ConcurrentHashMap<>();
+
+        // <clusterId + filename + sha256, TDlConfigContent>
+        private final Map<String, TDlConfigContent> contentMap = new ConcurrentHashMap<>();
+
+        private final AtomicInteger contentSaveCount = new AtomicInteger();
+
+        private final Map<String, AtomicInteger> concurrentPerPathMap = new ConcurrentHashMap<>();
+
+        private final AtomicInteger maxConcurrentPerPath = new AtomicInteger();
+
+        private final Map<String, CountDownLatch[]> blockMap = new ConcurrentHashMap<>();
+
+        SimulatedConfigService() {
+            super(null, null, null, null, null, null, null, null);
+        }
+
+        void blockService(String serviceName, CountDownLatch entered, CountDownLatch release) {
+            this.blockMap.put(serviceName, new CountDownLatch[]{entered, release});
+        }
+
+        @Override
+        public Result<String> saveConfigByGroup(ConfigSaveByGroupRequest request) {
+            this.awaitIfBlocked(request.getServiceName());
+            request.getConfigGroupList().forEach(i -> this.save(
+                    request.getServiceName(),
+                    i.getConfigPath(),
+                    i.getFilename(),
+                    i.getSha256()
+            ));
+            return Result.success();
+        }
+
+        @Override
+        public ConfigContentPersistedMaps getConfigContentPersisted(ConfigSaveRequest request) {
+            Map<String, ConfigSaveRequest.ConfigRequest> configRequestMap = new HashMap<>();
+            Map<String, TDlConfigContent> tDlConfigContentMap = new HashMap<>();
+            request.getConfigList().forEach(i -> {
+                String key = contentKey(i.getFilename(), i.getSha256());
+                configRequestMap.put(key, i);
+                if (this.contentMap.containsKey(key)) tDlConfigContentMap.put(key, this.contentMap.get(key));
+            });
+
+            return new ConfigContentPersistedMaps()
+                    .setGroupConfigRequestMap(configRequestMap)
+                    .setGroupTDlConfigContentMap(tDlConfigContentMap);
+        }
+
+        @Override
+        public Result<String> saveConfigOrUpdateBatch(ConfigSaveRequest request,
+                                                      Map<String, TDlConfigContent> groupTDlConfigContentMap) {
+            request.getConfigList().forEach(i -> this.save(
+                    request.getServiceName(),
+                    i.getConfigPath(),
+                    i.getFilename(),
+                    i.getSha256()
+            ));
+            return Result.success();
+        }
+
+        private void save(String serviceName, String configPath, String filename, String sha256) {
+            final String configKey = configKey(serviceName, configPath);
+            final AtomicInteger concurrent = this.concurrentPerPathMap.computeIfAbsent(configKey, k -> new AtomicInteger());
+            this.maxConcurrentPerPath.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                // 配置文件内容不存在时入库
+                final String contentKey = contentKey(filename, sha256);
+                if (!this.contentMap.containsKey(contentKey)) {
+                    sleep();
+                    this.contentSaveCount.incrementAndGet();
+                    this.contentMap.put(contentKey, new TDlConfigContent());
+                }
+
+                // 读取并递增配置版本
+                final long configVersion = this.configVersionMap.getOrDefault(configKey, 0L);
+                sleep();
+                this.configVersionMap.put(configKey, configVersion + 1L);
+            } finally {
+                concurrent.decrementAndGet();
+            }
+        }
+
+        private void awaitIfBlocked(String serviceName) {
+            CountDownLatch[] latches = this.blockMap.get(serviceName);
+            if (latches == null) return;
+
+            latches[0].countDown();
+            try {
+                latches[1].await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private static void sleep() {
+            try {
+                TimeUnit.MILLISECONDS.sleep(RACE_WINDOW_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
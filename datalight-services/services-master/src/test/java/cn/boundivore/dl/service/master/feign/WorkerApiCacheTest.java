@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.feign;
+
+import cn.boundivore.dl.api.worker.define.IWorkerConfigAPI;
+import cn.boundivore.dl.api.worker.define.IWorkerExecAPI;
+import cn.boundivore.dl.api.worker.define.IWorkerExecBatchAPI;
+import cn.boundivore.dl.service.master.service.RemoteInvokeWorkerService;
+import feign.Client;
+import feign.codec.Decoder;
+import feign.codec.Encoder;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+
+/**
+ * Description: 测试 RemoteInvokeWorkerService 中 Worker API 实例的缓存：重复获取复用同一实例，
+ * 节点移除后清除缓存，IP 变更后构建指向新地址的实例
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/14
+ * Modification description: 改为直接测试 RemoteInvokeWorkerService 的缓存
+ * Modified by: Boundivore
+ * Modification time: 2024/7/4
+ * Version: V1.0
+ */
+@Slf4j
+public class WorkerApiCacheTest {
+
+    private static final String WORKER_PORT = "8002";
+
+    private static final String IP = "192.168.0.1";
+
+    private static final String NEW_IP = "192.168.0.2";
+
+    private RemoteInvokeWorkerService remoteInvokeWorkerService;
+
+    @BeforeEach
+    public void init() {
+        this.remoteInvokeWorkerService = new RemoteInvokeWorkerService(
+                new Client.Default(null, null),
+                new Encoder.Default(),
+                new Decoder.Default()
+        );
+        ReflectionTestUtils.setField(this.remoteInvokeWorkerService, "workerPort", WORKER_PORT);
+        ReflectionTestUtils.setField(this.remoteInvokeWorkerService, "connectTimeout", 1000L);
+        ReflectionTestUtils.setField(this.remoteInvokeWorkerService, "readTimeout", 2000L);
+    }
+
+    @Test
+    public void secondCallReturnsSameClient() {
+        IWorkerExecAPI iWorkerExecAPI = this.remoteInvokeWorkerService.iWorkerExecAPI(IP);
+
+        Assertions.assertSame(iWorkerExecAPI, this.remoteInvokeWorkerService.iWorkerExecAPI(IP));
+        Assertions.assertTrue(iWorkerExecAPI.toString().contains("http://" + IP + ":" + WORKER_PORT));
+
+        // 同一 Worker 的不同 API 分别缓存
+        IWorkerConfigAPI iWorkerConfigAPI = this.remoteInvokeWorkerService.iWorkerConfigAPI(IP);
+        Assertions.assertSame(iWorkerConfigAPI, this.remoteInvokeWorkerService.iWorkerConfigAPI(IP));
+
+        // 批量执行的读取超时随每次调用传入，不同批次复用同一实例
+        IWorkerExecBatchAPI iWorkerExecBatchAPI = this.remoteInvokeWorkerService.iWorkerExecBatchAPI(IP);
+        Assertions.assertSame(iWorkerExecBatchAPI, this.remoteInvokeWorkerService.iWorkerExecBatchAPI(IP));
+        Assertions.assertNotEquals(
+                this.remoteInvokeWorkerService.execBatchOptions(2, 0L).readTimeoutMillis(),
+                this.remoteInvokeWorkerService.execBatchOptions(6, 1000L).readTimeoutMillis()
+        );
+
+        Assertions.assertEquals(1, this.workerApiCache().size());
+        Assertions.assertEquals(3, this.workerApiCache().get(IP + ":" + WORKER_PORT).size());
+    }
+
+    @Test
+    public void evictOnNodeRemoval() {
+        IWorkerExecAPI iWorkerExecAPI = this.remoteInvokeWorkerService.iWorkerExecAPI(IP);
+        this.remoteInvokeWorkerService.iWorkerConfigAPI(IP);
+
+        this.remoteInvokeWorkerService.evictWorkerApi(IP);
+        Assertions.assertTrue(this.workerApiCache().isEmpty());
+
+        IWorkerExecAPI rebuiltIWorkerExecAPI = this.remoteInvokeWorkerService.iWorkerExecAPI(IP);
+        Assertions.assertNotSame(iWorkerExecAPI, rebuiltIWorkerExecAPI);
+        Assertions.assertSame(rebuiltIWorkerExecAPI, this.remoteInvokeWorkerService.iWorkerExecAPI(IP));
+    }
+
+    @Test
+    public void changedIpYieldsNewClient() {
+        IWorkerExecAPI iWorkerExecAPI = this.remoteInvokeWorkerService.iWorkerExecAPI(IP);
+
+        // 节点 IP 变更：移除旧 IP 的缓存，新 IP 构建指向新地址的实例
+        this.remoteInvokeWorkerService.evictWorkerApi(IP);
+        IWorkerExecAPI newIWorkerExecAPI = this.remoteInvokeWorkerService.iWorkerExecAPI(NEW_IP);
+
+        Assertions.assertNotSame(iWorkerExecAPI, newIWorkerExecAPI);
+        Assertions.assertTrue(newIWorkerExecAPI.toString().contains("http://" + NEW_IP + ":" + WORKER_PORT));
+        Assertions.assertFalse(this.workerApiCache().containsKey(IP + ":" + WORKER_PORT));
+        Assertions.assertTrue(this.workerApiCache().containsKey(NEW_IP + ":" + WORKER_PORT));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<String, Object>> workerApiCache() {
+        return (Map<String, Map<String, Object>>) ReflectionTestUtils.getField(
+                this.remoteInvokeWorkerService,
+                "workerApiCache"
+        );
+    }
+}
@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.job;
+
+import cn.boundivore.dl.base.enumeration.impl.ExecStateEnum;
+import cn.boundivore.dl.base.enumeration.impl.StepTypeEnum;
+import cn.boundivore.dl.base.response.impl.master.AbstractJobVo;
+import cn.boundivore.dl.service.master.manage.service.bean.JobMeta;
+import cn.boundivore.dl.service.master.manage.service.bean.StageMeta;
+import cn.boundivore.dl.service.master.manage.service.bean.StepMeta;
+import cn.boundivore.dl.service.master.manage.service.bean.TaskMeta;
+import cn.boundivore.dl.service.master.manage.service.job.Intention;
+import cn.boundivore.dl.service.master.manage.service.job.Plan;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Description: 测试节点执行进度快照在并发执行与轮询下的正确性，并对比模拟 1000 节点时遍历元数据树与读取快照的轮询耗时
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/27
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class ExecProgressSnapshotTest {
+
+    private static final int NODE_COUNT = 1000;
+
+    private static final int STAGE_COUNT = 3;
+
+    private static final int STEP_COUNT = 6;
+
+    private static final int POLL_ROUNDS = 200;
+
+    @Test
+    public void progressUnderConcurrentExecution() throws Exception {
+        JobMeta jobMeta = this.jobMeta();
+        Plan plan = this.plan(jobMeta);
+
+        List<StepMeta> stepMetaList = this.stepMetaList(jobMeta);
+        Assertions.assertEquals(stepMetaList.size(), plan.getExecTotal().get());
+
+        ExecutorService executorService = Executors.newFixedThreadPool(32);
+        AtomicBoolean isRunning = new AtomicBoolean(true);
+        try {
+            // 模拟前端轮询：每个节点的进度必须自洽，且整体进度单调递增
+            List<Future<?>> pollerList = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                pollerList.add(executorService.submit(() -> {
+                    int lastProgress = 0;
+                    while (isRunning.get()) {
+                        for (AbstractJobVo.ExecProgressPerNodeVo vo : plan.getExecProgressSnapshot().getExecProgressPerNodeList()) {
+                            long okCount = vo.getExecProgressStepList()
+                                    .stream()
+                                    .filter(s -> s.getStepExecStateEnum() == ExecStateEnum.OK)
+                                    .count();
+                            Assertions.assertEquals(okCount, vo.getExecCurrent().longValue());
+                        }
+                        int progress = plan.getExecProgress().get();
+                        Assertions.assertTrue(progress >= lastProgress);
+                        lastProgress = progress;
+                    }
+                    return null;
+                }));
+            }
+
+            List<Future<?>> stepFutureList = new ArrayList<>();
+            for (StepMeta stepMeta : stepMetaList) {
+                stepFutureList.add(executorService.submit(() -> {
+                    this.finish(plan, stepMeta);
+                    return null;
+                }));
+            }
+            for (Future<?> future : stepFutureList) future.get();
+
+            isRunning.set(false);
+            for (Future<?> future : pollerList) future.get();
+        } finally {
+            executorService.shutdownNow();
+        }
+
+        Assertions.assertEquals(stepMetaList.size(), plan.getExecCurrent().get());
+        Assertions.assertEquals(100, plan.getExecProgress().get());
+
+        List<AbstractJobVo.ExecProgressPerNodeVo> execProgressPerNodeList = plan.getExecProgressSnapshot().getExecProgressPerNodeList();
+        Assertions.assertEquals(NODE_COUNT, execProgressPerNodeList.size());
+        execProgressPerNodeList.forEach(vo -> {
+            Assertions.assertEquals(STAGE_COUNT * STEP_COUNT, vo.getExecTotal().intValue());
+            Assertions.assertEquals(STAGE_COUNT * STEP_COUNT, vo.getExecCurrent().intValue());
+            Assertions.assertEquals(100, vo.getExecProgress().intValue());
+        });
+    }
+
+    @Test
+    public void snapshotMatchesTreeWalk() {
+        JobMeta jobMeta = this.jobMeta();
+        Plan plan = this.plan(jobMeta);
+
+        // 完成一半 Step
+        List<StepMeta> stepMetaList = this.stepMetaList(jobMeta);
+        for (int i = 0; i < stepMetaList.size(); i += 2) {
+            this.finish(plan, stepMetaList.get(i));
+        }
+
+        Assertions.assertEquals(
+                this.treeWalk(jobMeta),
+                plan.getExecProgressSnapshot().getExecProgressPerNodeList()
+        );
+    }
+
+    @Test
+    public void benchmarkTreeWalkVersusSnapshot() {
+        JobMeta jobMeta = this.jobMeta();
+        Plan plan = this.plan(jobMeta);
+
+        // 预热
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals(NODE_COUNT, this.treeWalk(jobMeta).size());
+            Assertions.assertEquals(NODE_COUNT, plan.getExecProgressSnapshot().getExecProgressPerNodeList().size());
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < POLL_ROUNDS; i++) {
+            Assertions.assertEquals(NODE_COUNT, this.treeWalk(jobMeta).size());
+        }
+        long treeWalkNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < POLL_ROUNDS; i++) {
+            Assertions.assertEquals(NODE_COUNT, plan.getExecProgressSnapshot().getExecProgressPerNodeList().size());
+        }
+        long snapshotNanos = System.nanoTime() - start;
+
+        log.info("模拟 {} 节点、每个节点 {} 个 Step, 轮询 {} 次, 遍历元数据树耗时: {} ms, 读取快照耗时: {} ms",
+                NODE_COUNT,
+                STAGE_COUNT * STEP_COUNT,
+                POLL_ROUNDS,
+                treeWalkNanos / 1000_000,
+                snapshotNanos / 1000_000
+        );
+
+        Assertions.assertTrue(snapshotNanos < treeWalkNanos);
+    }
+
+    /**
+     * 与 Task 中 Step 结束时相同的顺序更新进度与状态
+     */
+    private void finish(Plan plan, StepMeta stepMeta) {
+        plan.execProcess(stepMeta.getName());
+        stepMeta.setExecStateEnum(ExecStateEnum.OK);
+        plan.updateExecProgressSnapshot(stepMeta);
+    }
+
+    private Plan plan(JobMeta jobMeta) {
+        Plan plan = new Plan(new Intention().setServiceList(Collections.emptyList()));
+        plan.initExecTotal(jobMeta);
+        return plan;
+    }
+
+    private JobMeta jobMeta() {
+        JobMeta jobMeta = new JobMeta()
+                .setId(1L)
+                .setStageMetaMap(new LinkedHashMap<>());
+
+        long id = 0L;
+        for (int stage = 0; stage < STAGE_COUNT; stage++) {
+            StageMeta stageMeta = new StageMeta()
+                    .setJobMeta(jobMeta)
+                    .setId(++id)
+                    .setTaskMetaMap(new LinkedHashMap<>());
+            jobMeta.getStageMetaMap().put(stageMeta.getId(), stageMeta);
+
+            for (int node = 0; node < NODE_COUNT; node++) {
+                TaskMeta taskMeta = new TaskMeta()
+                        .setStageMeta(stageMeta)
+                        .setId(++id)
+                        .setNodeId(node)
+                        .setHostname(String.format("node%04d", node))
+                        .setNodeIp("192.168." + node / 256 + "." + node % 256)
+                        .setStepMetaMap(new LinkedHashMap<>());
+                stageMeta.getTaskMetaMap().put(taskMeta.getId(), taskMeta);
+
+                for (int step = 0; step < STEP_COUNT; step++) {
+                    StepMeta stepMeta = new StepMeta()
+                            .setTaskMeta(taskMeta)
+                            .setId(++id)
+                            .setType(StepTypeEnum.COMMAND)
+                            .setName("step-" + step)
+                            .setExecStateEnum(ExecStateEnum.SUSPEND);
+                    taskMeta.getStepMetaMap().put(stepMeta.getId(), stepMeta);
+                }
+            }
+        }
+
+        return jobMeta;
+    }
+
+    private List<StepMeta> stepMetaList(JobMeta jobMeta) {
+        List<StepMeta> stepMetaList = new ArrayList<>();
+        jobMeta.getStageMetaMap().values().forEach(stageMeta ->
+                stageMeta.getTaskMetaMap().values().forEach(taskMeta ->
+                        stepMetaList.addAll(taskMeta.getStepMetaMap().values())
+                )
+        );
+        return stepMetaList;
+    }
+
+    /**
+     * 优化前：每次轮询都遍历 Stage、Task、Step 树，按节点重新统计进度
+     */
+    private List<AbstractJobVo.ExecProgressPerNodeVo> treeWalk(JobMeta jobMeta) {
+        TreeMap<String, List<StepMeta>> hostnameStepMetaMap = new TreeMap<>();
+        jobMeta.getStageMetaMap().values().forEach(stageMeta ->
+                stageMeta.getTaskMetaMap().values().forEach(taskMeta ->
+                        hostnameStepMetaMap.computeIfAbsent(taskMeta.getHostname(), k -> new ArrayList<>())
+                                .addAll(new ArrayList<>(taskMeta.getStepMetaMap().values()))
+                )
+        );
+
+        List<AbstractJobVo.ExecProgressPerNodeVo> execProgressPerNodeList = new ArrayList<>();
+        hostnameStepMetaMap.forEach((hostname, stepMetaList) -> {
+            TaskMeta taskMeta = stepMetaList.get(0).getTaskMeta();
+            int execCurrent = (int) stepMetaList.stream()
+                    .filter(i -> i.getExecStateEnum() == ExecStateEnum.OK)
+                    .count();
+
+            List<AbstractJobVo.ExecProgressStepVo> execProgressStepList = new ArrayList<>();
+            stepMetaList.forEach(stepMeta -> execProgressStepList.add(
+                    new AbstractJobVo.ExecProgressStepVo(
+                            stepMeta.getType(),
+                            stepMeta.getId(),
+                            stepMeta.getName(),
+                            stepMeta.getExecStateEnum()
+                    )
+            ));
+
+            execProgressPerNodeList.add(
+                    new AbstractJobVo.ExecProgressPerNodeVo(
+                            taskMeta.getNodeId(),
+                            taskMeta.getHostname(),
+                            taskMeta.getNodeIp(),
+                            stepMetaList.size(),
+                            execCurrent,
+                            execCurrent * 100 / stepMetaList.size(),
+                            execProgressStepList
+                    )
+            );
+        });
+
+        return execProgressPerNodeList;
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.job;
+
+import cn.boundivore.dl.base.enumeration.impl.ActionTypeEnum;
+import cn.boundivore.dl.base.enumeration.impl.ExecStateEnum;
+import cn.boundivore.dl.base.enumeration.impl.StepTypeEnum;
+import cn.boundivore.dl.exception.DatabaseException;
+import cn.boundivore.dl.orm.po.single.TDlJob;
+import cn.boundivore.dl.orm.po.single.TDlStep;
+import cn.boundivore.dl.orm.service.single.impl.TDlJobServiceImpl;
+import cn.boundivore.dl.orm.service.single.impl.TDlStageServiceImpl;
+import cn.boundivore.dl.orm.service.single.impl.TDlStepServiceImpl;
+import cn.boundivore.dl.orm.service.single.impl.TDlTaskServiceImpl;
+import cn.boundivore.dl.service.master.manage.service.job.JobStateFlusher;
+import cn.boundivore.dl.service.master.orm.EmbeddedMysqlDatabase;
+import cn.boundivore.dl.service.master.orm.OrmTestConfiguration;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Description: 在内存数据库中测试 Job、Stage、Task、Step 状态的延迟批量写入：
+ * 同一 ID 的多次状态变更合并为一次写入；写入与状态变更并发时，数据库中最终为最新的快照；
+ * 容器关闭时写入积压的快照；写入失败的快照在下一批次重试，且不会覆盖失败后提交的更新快照
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/7/6
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+@SpringJUnitConfig(OrmTestConfiguration.class)
+public class JobStateFlusherTest {
+
+    private static final Long CLUSTER_ID = 1L;
+
+    private static final Long JOB_ID = 1L;
+
+    private static final int STEP_COUNT = 20;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private TDlJobServiceImpl tDlJobService;
+
+    @Autowired
+    private TDlStageServiceImpl tDlStageService;
+
+    @Autowired
+    private TDlTaskServiceImpl tDlTaskService;
+
+    @Autowired
+    private TDlStepServiceImpl tDlStepService;
+
+    @BeforeEach
+    public void setUp() {
+        EmbeddedMysqlDatabase.truncate(this.dataSource);
+    }
+
+    @Test
+    public void coalesceSnapshotsById() {
+        JobStateFlusher jobStateFlusher = this.newFlusher(this.tDlStepService);
+
+        // 每个 Step 的多次状态变更在同一批次中仅新增一次
+        for (ExecStateEnum execStateEnum : new ExecStateEnum[]{ExecStateEnum.SUSPEND, ExecStateEnum.RUNNING}) {
+            LongStream.range(0, STEP_COUNT).forEach(i -> jobStateFlusher.offerStep(this.newStep(i, execStateEnum, 0L)));
+        }
+        jobStateFlusher.flush();
+
+        Map<Long, TDlStep> stepMap = this.stepMap();
+        Assertions.assertEquals(STEP_COUNT, stepMap.size());
+        stepMap.values().forEach(i -> {
+            Assertions.assertEquals(ExecStateEnum.RUNNING, i.getStepState());
+            Assertions.assertEquals(0L, i.getVersion());
+        });
+
+        // 已存在的记录多次变更后仅更新一次，乐观锁版本仅递增 1
+        for (long duration = 1; duration <= 3; duration++) {
+            for (long i = 0; i < STEP_COUNT; i++) {
+                jobStateFlusher.offerStep(this.newStep(i, ExecStateEnum.OK, duration));
+            }
+        }
+        jobStateFlusher.flush();
+
+        stepMap = this.stepMap();
+        Assertions.assertEquals(STEP_COUNT, stepMap.size());
+        stepMap.values().forEach(i -> {
+            Assertions.assertEquals(ExecStateEnum.OK, i.getStepState());
+            Assertions.assertEquals(3L, i.getDuration());
+            Assertions.assertEquals(1L, i.getVersion());
+        });
+    }
+
+    @Test
+    public void latestSnapshotWinsWhileFlushing() throws Exception {
+        final int writerCount = 4;
+        final long snapshotCount = 200;
+        JobStateFlusher jobStateFlusher = this.newFlusher(this.tDlStepService);
+
+        // 定时写入与状态变更并发进行
+        AtomicBoolean isWriting = new AtomicBoolean(true);
+        ExecutorService executor = Executors.newFixedThreadPool(writerCount + 1);
+        try {
+            Future<?> flushFuture = executor.submit(() -> {
+                while (isWriting.get()) {
+                    jobStateFlusher.flush();
+                }
+            });
+
+            List<Future<?>> writerFutureList = new ArrayList<>();
+            for (int writer = 0; writer < writerCount; writer++) {
+                final long firstStep = (long) writer * STEP_COUNT / writerCount;
+                writerFutureList.add(executor.submit(() -> {
+                    for (long duration = 1; duration <= snapshotCount; duration++) {
+                        ExecStateEnum execStateEnum = duration == snapshotCount ? ExecStateEnum.OK : ExecStateEnum.RUNNING;
+                        for (long i = firstStep; i < firstStep + STEP_COUNT / writerCount; i++) {
+                            jobStateFlusher.offerStep(this.newStep(i, execStateEnum, duration));
+                        }
+                    }
+                }));
+            }
+
+            for (Future<?> future : writerFutureList) {
+                future.get();
+            }
+            isWriting.set(false);
+            flushFuture.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        jobStateFlusher.flush();
+
+        Map<Long, TDlStep> stepMap = this.stepMap();
+        Assertions.assertEquals(STEP_COUNT, stepMap.size());
+        stepMap.values().forEach(i -> {
+            Assertions.assertEquals(ExecStateEnum.OK, i.getStepState());
+            Assertions.assertEquals(snapshotCount, i.getDuration());
+        });
+    }
+
+    @Test
+    public void flushOnShutdown() {
+        // 与生产环境相同，JobStateFlusher 作为 Bean 由容器创建，容器关闭时写入积压的快照
+        AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+        context.setParent(this.applicationContext);
+        context.register(JobStateFlusher.class);
+        context.refresh();
+
+        JobStateFlusher jobStateFlusher = context.getBean(JobStateFlusher.class);
+        jobStateFlusher.offerJob(this.newJob(ExecStateEnum.RUNNING));
+        LongStream.range(0, STEP_COUNT).forEach(i -> jobStateFlusher.offerStep(this.newStep(i, ExecStateEnum.RUNNING, 0L)));
+
+        // 未达到积压阈值，尚未写入
+        Assertions.assertNull(this.tDlJobService.getById(JOB_ID));
+        Assertions.assertTrue(this.stepMap().isEmpty());
+
+        context.close();
+
+        Assertions.assertEquals(ExecStateEnum.RUNNING, this.tDlJobService.getById(JOB_ID).getJobState());
+        Assertions.assertEquals(STEP_COUNT, this.stepMap().size());
+    }
+
+    @Test
+    public void retryAfterDatabaseFailure() {
+        // 首次批量保存 Step 时数据库失败
+        TDlStepServiceImpl failingStepService = Mockito.spy(this.tDlStepService);
+        Mockito.doThrow(new DatabaseException("模拟数据库写入失败"))
+                .doCallRealMethod()
+                .when(failingStepService)
+                .saveBatch(Mockito.anyCollection());
+
+        JobStateFlusher jobStateFlusher = this.newFlusher(failingStepService);
+        jobStateFlusher.offerJob(this.newJob(ExecStateEnum.RUNNING));
+        LongStream.range(0, STEP_COUNT).forEach(i -> jobStateFlusher.offerStep(this.newStep(i, ExecStateEnum.RUNNING, 0L)));
+
+        jobStateFlusher.flush();
+
+        // 失败不影响其他表的写入，失败的快照保留在队列中
+        Assertions.assertEquals(ExecStateEnum.RUNNING, this.tDlJobService.getById(JOB_ID).getJobState());
+        Assertions.assertTrue(this.stepMap().isEmpty());
+
+        // 失败后提交的更新快照优先于重试的旧快照
+        jobStateFlusher.offerStep(this.newStep(0L, ExecStateEnum.OK, 1L));
+
+        jobStateFlusher.flush();
+
+        Map<Long, TDlStep> stepMap = this.stepMap();
+        Assertions.assertEquals(STEP_COUNT, stepMap.size());
+        Assertions.assertEquals(ExecStateEnum.OK, stepMap.get(this.stepId(0L)).getStepState());
+        stepMap.values()
+                .stream()
+                .filter(i -> !i.getId().equals(this.stepId(0L)))
+                .forEach(i -> Assertions.assertEquals(ExecStateEnum.RUNNING, i.getStepState()));
+        Mockito.verify(failingStepService, Mockito.times(2)).saveBatch(Mockito.anyCollection());
+
+        // 重试成功后队列已清空，再次写入不产生任何保存
+        jobStateFlusher.flush();
+        Mockito.verify(failingStepService, Mockito.times(2)).saveBatch(Mockito.anyCollection());
+    }
+
+    private JobStateFlusher newFlusher(TDlStepServiceImpl tDlStepService) {
+        return new JobStateFlusher(
+                this.tDlJobService,
+                this.tDlStageService,
+                this.tDlTaskService,
+                tDlStepService
+        );
+    }
+
+    private TDlJob newJob(ExecStateEnum execStateEnum) {
+        TDlJob tDlJob = new TDlJob();
+        tDlJob.setId(JOB_ID);
+        tDlJob.setClusterId(CLUSTER_ID)
+                .setTag("tag")
+                .setJobActionType(ActionTypeEnum.DEPLOY)
+                .setJobName("job")
+                .setJobState(execStateEnum);
+        return tDlJob;
+    }
+
+    private long stepId(long index) {
+        return JOB_ID * 1000 + index;
+    }
+
+    private TDlStep newStep(long index, ExecStateEnum execStateEnum, long duration) {
+        TDlStep tDlStep = new TDlStep();
+        tDlStep.setId(this.stepId(index));
+        tDlStep.setNum(index)
+                .setClusterId(CLUSTER_ID)
+                .setTag("tag")
+                .setJobId(JOB_ID)
+                .setStageId(1L)
+                .setTaskId(index)
+                .setStepName("step-" + index)
+                .setStepState(execStateEnum)
+                .setStepType(StepTypeEnum.COMMAND)
+                .setDuration(duration);
+        return tDlStep;
+    }
+
+    private Map<Long, TDlStep> stepMap() {
+        return this.tDlStepService.lambdaQuery()
+                .eq(TDlStep::getJobId, JOB_ID)
+                .list()
+                .stream()
+                .collect(Collectors.toMap(TDlStep::getId, Function.identity()));
+    }
+}
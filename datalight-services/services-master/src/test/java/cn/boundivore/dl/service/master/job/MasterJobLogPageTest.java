@@ -0,0 +1,329 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.job;
+
+import cn.boundivore.dl.base.request.impl.master.ExecOutputRequest;
+import cn.boundivore.dl.base.response.impl.master.AbstractJobVo;
+import cn.boundivore.dl.exception.BException;
+import cn.boundivore.dl.orm.po.single.TDlJobLog;
+import cn.boundivore.dl.orm.service.single.impl.TDlJobLogServiceImpl;
+import cn.boundivore.dl.service.master.cache.StepOutputCache;
+import cn.boundivore.dl.service.master.manage.service.bean.JobMeta;
+import cn.boundivore.dl.service.master.manage.service.bean.StageMeta;
+import cn.boundivore.dl.service.master.manage.service.bean.StepMeta;
+import cn.boundivore.dl.service.master.manage.service.bean.TaskMeta;
+import cn.boundivore.dl.service.master.orm.EmbeddedMysqlDatabase;
+import cn.boundivore.dl.service.master.orm.OrmTestConfiguration;
+import cn.boundivore.dl.service.master.orm.SqlRecorder;
+import cn.boundivore.dl.service.master.service.MasterJobService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.sql.DataSource;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Description: 在内存数据库中测试作业日志游标分页：500 个节点、每个节点 4 个 Step 的作业，每页读取的条目数有上限，
+ * 日志内容在数据库中截断，逐页读取可不重不漏地获取全部日志；仅获取条目信息时不读取日志内容；
+ * 未指定分页参数时返回默认条目数的第一页；执行中 Step 的实时输出仅追加在最后一页且不截断
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/7/2
+ * Modification description: 内存模拟改为内存数据库，执行真实的作业日志查询；未指定分页参数时同样分页
+ * Modified by: Boundivore
+ * Modification time: 2024/7/8
+ * Version: V1.0
+ */
+@Slf4j
+@SpringJUnitConfig(OrmTestConfiguration.class)
+public class MasterJobLogPageTest {
+
+    private static final Long CLUSTER_ID = 1L;
+
+    private static final Long JOB_ID = 1L;
+
+    // 另一个作业的日志，不应出现在结果中
+    private static final Long OTHER_JOB_ID = 2L;
+
+    private static final int NODE_COUNT = 500;
+
+    private static final int STEP_COUNT = 4;
+
+    private static final long PAGE_SIZE = 100;
+
+    private static final long MAX_PAGE_SIZE = 500;
+
+    private static final int MAX_LENGTH = 1024;
+
+    // 所有日志共用同一个超过最大字符数的标准日志，模拟大量输出的 Step
+    private static final String LARGE_LOG = String.join("", Collections.nCopies(8 * MAX_LENGTH, "x"));
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private SqlRecorder sqlRecorder;
+
+    @Autowired
+    private TDlJobLogServiceImpl tDlJobLogService;
+
+    private StepOutputCache stepOutputCache;
+
+    private MasterJobService masterJobService;
+
+    @BeforeEach
+    public void setUp() {
+        EmbeddedMysqlDatabase.truncate(this.dataSource);
+
+        // 日志按 Step 完成的先后写入，不同节点的 Step 交错
+        List<TDlJobLog> tDlJobLogList = new ArrayList<>();
+        for (Long jobId : new Long[]{JOB_ID, OTHER_JOB_ID}) {
+            for (int step = 0; step < STEP_COUNT; step++) {
+                for (long nodeId = 1; nodeId <= NODE_COUNT; nodeId++) {
+                    long stepId = jobId * 100000 + nodeId * 10 + step;
+                    tDlJobLogList.add(
+                            new TDlJobLog()
+                                    .setTag("tag")
+                                    .setClusterId(CLUSTER_ID)
+                                    .setJobId(jobId)
+                                    .setNodeId(nodeId)
+                                    .setStageId(1L)
+                                    .setTaskId(nodeId)
+                                    .setStepId(stepId)
+                                    .setLogStdout(LARGE_LOG)
+                                    .setLogErrout("errout-" + stepId)
+                    );
+                }
+            }
+        }
+        this.tDlJobLogService.saveBatch(tDlJobLogList);
+
+        EmbeddedMysqlDatabase.analyze(this.dataSource);
+        this.sqlRecorder.reset();
+
+        this.stepOutputCache = new StepOutputCache();
+        this.masterJobService = new MasterJobService(
+                null,
+                null,
+                null,
+                this.tDlJobLogService,
+                this.stepOutputCache,
+                null,
+                null,
+                null,
+                null
+        );
+        ReflectionTestUtils.setField(this.masterJobService, "jobLogPageSize", PAGE_SIZE);
+        ReflectionTestUtils.setField(this.masterJobService, "jobLogMaxPageSize", MAX_PAGE_SIZE);
+        ReflectionTestUtils.setField(this.masterJobService, "jobLogMaxLength", MAX_LENGTH);
+    }
+
+    @Test
+    public void pageThroughLargeJob() {
+        List<Long> jobLogIdList = new ArrayList<>();
+        Long lastJobLogId = null;
+        int pageCount = 0;
+        long startMillis = System.currentTimeMillis();
+        while (true) {
+            this.sqlRecorder.reset();
+            AbstractJobVo.JobLogListVo jobLogListVo = this.masterJobService.getJobLogList(
+                    CLUSTER_ID, JOB_ID, null, null, null, null, lastJobLogId, PAGE_SIZE, null
+            ).getData();
+            pageCount++;
+
+            Assertions.assertTrue(jobLogListVo.getJobLogList().size() <= PAGE_SIZE);
+            // 每页一次条目查询（不包含日志内容列）与一次截断后的日志内容查询
+            List<String> sqlList = this.sqlRecorder.getSqlList();
+            Assertions.assertEquals(2, sqlList.size(), sqlList.toString());
+            Assertions.assertFalse(sqlList.get(0).contains("log_stdout"), sqlList.get(0));
+            Assertions.assertTrue(sqlList.get(1).contains("LEFT(log_stdout, " + (MAX_LENGTH + 1) + ")"), sqlList.get(1));
+
+            jobLogListVo.getJobLogList().forEach(i -> {
+                jobLogIdList.add(i.getJobLogId());
+                Assertions.assertTrue(i.getIsLogTruncated());
+                Assertions.assertEquals(MAX_LENGTH, i.getLogStdOut().length());
+                Assertions.assertEquals("errout-" + i.getStepId(), i.getLogErrOut());
+            });
+
+            if (!jobLogListVo.getHasMore()) {
+                break;
+            }
+            lastJobLogId = jobLogListVo.getNextJobLogId();
+        }
+
+        log.info("逐页读取 {} 条日志, 共 {} 页, 耗时: {} ms",
+                jobLogIdList.size(),
+                pageCount,
+                System.currentTimeMillis() - startMillis
+        );
+
+        // 不重不漏，且按写入顺序排列
+        List<Long> expectedJobLogIdList = this.tDlJobLogService.lambdaQuery()
+                .select(TDlJobLog::getId)
+                .eq(TDlJobLog::getJobId, JOB_ID)
+                .list()
+                .stream()
+                .map(TDlJobLog::getId)
+                .sorted()
+                .collect(Collectors.toList());
+        Assertions.assertEquals(NODE_COUNT * STEP_COUNT, expectedJobLogIdList.size());
+        Assertions.assertEquals(expectedJobLogIdList, jobLogIdList);
+        Assertions.assertEquals(NODE_COUNT * STEP_COUNT / PAGE_SIZE, pageCount);
+    }
+
+    @Test
+    public void defaultsToFirstPage() {
+        AbstractJobVo.JobLogListVo jobLogListVo = this.masterJobService.getJobLogList(
+                CLUSTER_ID, JOB_ID, null, null, null, null, null, null, null
+        ).getData();
+
+        // 未指定分页参数时返回默认条目数的第一页，日志内容同样在数据库中截断
+        Assertions.assertTrue(jobLogListVo.getHasMore());
+        Assertions.assertEquals(PAGE_SIZE, jobLogListVo.getJobLogList().size());
+        jobLogListVo.getJobLogList().forEach(i -> {
+            Assertions.assertTrue(i.getIsLogTruncated());
+            Assertions.assertEquals(MAX_LENGTH, i.getLogStdOut().length());
+        });
+
+        List<String> sqlList = this.sqlRecorder.getSqlList();
+        Assertions.assertEquals(2, sqlList.size(), sqlList.toString());
+        Assertions.assertTrue(sqlList.get(0).contains("LIMIT " + (PAGE_SIZE + 1)), sqlList.get(0));
+        Assertions.assertTrue(sqlList.get(1).contains("LEFT(log_stdout, " + (MAX_LENGTH + 1) + ")"), sqlList.get(1));
+    }
+
+    @Test
+    public void headerOnlyAndPageSizeLimit() {
+        AbstractJobVo.JobLogListVo jobLogListVo = this.masterJobService.getJobLogList(
+                CLUSTER_ID, JOB_ID, null, null, null, null, null, 100000L, false
+        ).getData();
+
+        // 页大小不超过上限，且不读取日志内容
+        Assertions.assertEquals(MAX_PAGE_SIZE, jobLogListVo.getJobLogList().size());
+        Assertions.assertTrue(jobLogListVo.getHasMore());
+        Assertions.assertEquals(1, this.sqlRecorder.count());
+        Assertions.assertEquals(0, this.sqlRecorder.count("log_stdout"));
+        jobLogListVo.getJobLogList().forEach(i -> {
+            Assertions.assertNotNull(i.getJobLogId());
+            Assertions.assertNull(i.getLogStdOut());
+            Assertions.assertNull(i.getLogErrOut());
+            Assertions.assertFalse(i.getIsLogTruncated());
+        });
+
+        // 按节点过滤
+        jobLogListVo = this.masterJobService.getJobLogList(
+                CLUSTER_ID, JOB_ID, 3L, null, null, null, null, PAGE_SIZE, false
+        ).getData();
+        Assertions.assertEquals(STEP_COUNT, jobLogListVo.getJobLogList().size());
+        Assertions.assertFalse(jobLogListVo.getHasMore());
+        jobLogListVo.getJobLogList().forEach(i -> Assertions.assertEquals(3L, i.getNodeId()));
+    }
+
+    @Test
+    public void liveOutputOnLastPage() {
+        Long loggedStepId = this.tDlJobLogService.lambdaQuery()
+                .eq(TDlJobLog::getJobId, JOB_ID)
+                .eq(TDlJobLog::getNodeId, 1L)
+                .list()
+                .get(0)
+                .getStepId();
+
+        // 日志已经入库但输出流尚未关闭的 Step
+        StepMeta loggedStepMeta = stepMeta(1L, loggedStepId);
+        // 执行中的 Step
+        StepMeta runningStepMeta = stepMeta(1L, 900000L);
+        // 实时输出超过最大字符数也不截断，其不能通过作业日志详情获取
+        String runningOutput = "running-" + LARGE_LOG;
+        for (StepMeta stepMeta : Arrays.asList(loggedStepMeta, runningStepMeta)) {
+            this.stepOutputCache.append(
+                    new ExecOutputRequest()
+                            .setStreamId(this.stepOutputCache.open(stepMeta))
+                            .setSeq(0L)
+                            .setDroppedChars(0L)
+                            .setContent(runningOutput)
+            );
+        }
+
+        // 非最后一页不追加实时输出
+        AbstractJobVo.JobLogListVo firstPage = this.masterJobService.getJobLogList(
+                CLUSTER_ID, JOB_ID, 1L, null, null, null, null, 2L, null
+        ).getData();
+        Assertions.assertTrue(firstPage.getHasMore());
+        firstPage.getJobLogList().forEach(i -> Assertions.assertNotNull(i.getJobLogId()));
+
+        AbstractJobVo.JobLogListVo lastPage = this.masterJobService.getJobLogList(
+                CLUSTER_ID, JOB_ID, 1L, null, null, null, firstPage.getNextJobLogId(), 2L, null
+        ).getData();
+        Assertions.assertFalse(lastPage.getHasMore());
+
+        List<AbstractJobVo.JobLogVo> liveJobLogList = lastPage.getJobLogList()
+                .stream()
+                .filter(i -> i.getJobLogId() == null)
+                .collect(Collectors.toList());
+        Assertions.assertEquals(1, liveJobLogList.size());
+        Assertions.assertEquals(runningStepMeta.getId(), liveJobLogList.get(0).getStepId());
+        Assertions.assertEquals(runningOutput, liveJobLogList.get(0).getLogStdOut());
+        Assertions.assertFalse(liveJobLogList.get(0).getIsLogTruncated());
+
+        // 没有新的日志时，游标保持不变
+        AbstractJobVo.JobLogListVo tailPage = this.masterJobService.getJobLogList(
+                CLUSTER_ID, JOB_ID, 1L, null, null, null, lastPage.getNextJobLogId(), 2L, null
+        ).getData();
+        Assertions.assertEquals(lastPage.getNextJobLogId(), tailPage.getNextJobLogId());
+        Assertions.assertEquals(1, tailPage.getJobLogList().size());
+    }
+
+    @Test
+    public void jobLogDetailReturnsFullLog() {
+        AbstractJobVo.JobLogVo truncatedJobLog = this.masterJobService.getJobLogList(
+                CLUSTER_ID, JOB_ID, null, null, null, null, null, 1L, null
+        ).getData().getJobLogList().get(0);
+        Assertions.assertTrue(truncatedJobLog.getIsLogTruncated());
+
+        AbstractJobVo.JobLogVo jobLog = this.masterJobService.getJobLogDetail(
+                CLUSTER_ID,
+                truncatedJobLog.getJobLogId()
+        ).getData();
+        Assertions.assertEquals(truncatedJobLog.getJobLogId(), jobLog.getJobLogId());
+        Assertions.assertEquals(truncatedJobLog.getStepId(), jobLog.getStepId());
+        Assertions.assertEquals(LARGE_LOG, jobLog.getLogStdOut());
+        Assertions.assertEquals("errout-" + jobLog.getStepId(), jobLog.getLogErrOut());
+        Assertions.assertFalse(jobLog.getIsLogTruncated());
+
+        // 其他集群或不存在的作业日志
+        Assertions.assertThrows(
+                BException.class,
+                () -> this.masterJobService.getJobLogDetail(CLUSTER_ID + 1, truncatedJobLog.getJobLogId())
+        );
+        Assertions.assertThrows(
+                BException.class,
+                () -> this.masterJobService.getJobLogDetail(CLUSTER_ID, -1L)
+        );
+    }
+
+    private static StepMeta stepMeta(Long nodeId, Long stepId) {
+        JobMeta jobMeta = new JobMeta().setId(JOB_ID);
+        StageMeta stageMeta = new StageMeta().setJobMeta(jobMeta).setId(1L);
+        TaskMeta taskMeta = new TaskMeta().setStageMeta(stageMeta).setId(nodeId).setNodeId(nodeId);
+        return new StepMeta().setTaskMeta(taskMeta).setId(stepId);
+    }
+}
@@ -0,0 +1,417 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.job;
+
+import cn.boundivore.dl.base.enumeration.impl.ExecStateEnum;
+import cn.boundivore.dl.base.enumeration.impl.SCStateEnum;
+import cn.boundivore.dl.cloud.utils.SpringContextUtil;
+import cn.boundivore.dl.exception.BException;
+import cn.boundivore.dl.service.master.converter.IStepConverter;
+import cn.boundivore.dl.service.master.handler.RemoteInvokeGrafanaHandler;
+import cn.boundivore.dl.service.master.handler.RemoteInvokePrometheusHandler;
+import cn.boundivore.dl.service.master.manage.service.bean.ClusterMeta;
+import cn.boundivore.dl.service.master.manage.service.bean.JobMeta;
+import cn.boundivore.dl.service.master.manage.service.bean.StageMeta;
+import cn.boundivore.dl.service.master.manage.service.job.Intention;
+import cn.boundivore.dl.service.master.manage.service.job.Job;
+import cn.boundivore.dl.service.master.manage.service.job.JobService;
+import cn.boundivore.dl.service.master.manage.service.job.Plan;
+import cn.boundivore.dl.service.master.manage.service.job.StageScheduler;
+import cn.boundivore.dl.service.master.resolver.ResolverYamlServiceManifest;
+import cn.boundivore.dl.service.master.resolver.yaml.YamlServiceManifest;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.*;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+/**
+ * Description: 测试 Stage 依赖图调度：依赖图由 Job.plan 根据服务清单生成，Stage 为实际的 Stage 实现，
+ * JobService 替换为记录 Stage 状态变更顺序的模拟对象；通过执行顺序校验上游先于下游完成、互不相关的 Stage 并发执行、
+ * 逐个执行时所有 Stage 串行，以及 Stage 失败后依赖它的 Stage 不再执行；
+ * 并以模拟时钟对比 200 节点、8 个服务部署时串行与依赖图调度的耗时
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/12
+ * Modification description: 使用 Job.plan 生成依赖图，以执行顺序替代耗时断言；耗时对比改为按执行顺序推算的模拟时钟
+ * Modified by: Boundivore
+ * Modification time: 2024/7/6
+ * Version: V1.0
+ */
+@Slf4j
+public class StageSchedulerTest {
+
+    private static final Long CLUSTER_ID = 1L;
+
+    // 按优先级排列的服务，与意图中 Stage 的顺序一致
+    private static final List<String> SERVICE_LIST = Arrays.asList(
+            "ZOOKEEPER", "HDFS", "YARN", "HBASE", "KAFKA", "SPARK", "FLINK", "ZKUI"
+    );
+
+    private static final int NODE_COUNT = 200;
+
+    // 单个 Worker 同时执行 Step 的节点数
+    private static final int NODE_PARALLELISM = 32;
+
+    // 模拟单个 Step 在节点上的耗时
+    private static final long STEP_MILLIS = 50L;
+
+    // <ServiceName, 组件优先级分组数>，同一分组内 Task 在所有节点并发执行，不同分组串行
+    private static final Map<String, Integer> SERVICE_GROUP_MAP = new LinkedHashMap<>();
+
+    private static ApplicationContext previousContext;
+
+    private GenericApplicationContext context;
+
+    private JobService jobService;
+
+    // 最近一次生成计划时的 Stage 元数据信息
+    private Map<Long, StageMeta> stageMetaMap;
+
+    // Stage 状态变更顺序，形如 HDFS:RUNNING、HDFS:OK
+    private final List<String> eventList = new CopyOnWriteArrayList<>();
+
+    @BeforeAll
+    public static void init() {
+        manifestService("ZOOKEEPER", 3);
+        manifestService("HDFS", 4, "ZOOKEEPER");
+        manifestService("YARN", 5, "ZOOKEEPER", "HDFS");
+        manifestService("HBASE", 7, "ZOOKEEPER", "HDFS");
+        manifestService("KAFKA", 8, "ZOOKEEPER");
+        manifestService("SPARK", 9, "ZOOKEEPER", "HDFS", "YARN");
+        manifestService("FLINK", 10, "ZOOKEEPER", "HDFS", "YARN");
+        manifestService("ZKUI", 11, "ZOOKEEPER");
+
+        SERVICE_GROUP_MAP.put("ZOOKEEPER", 2);
+        SERVICE_GROUP_MAP.put("HDFS", 4);
+        SERVICE_GROUP_MAP.put("YARN", 3);
+        SERVICE_GROUP_MAP.put("HBASE", 3);
+        SERVICE_GROUP_MAP.put("KAFKA", 2);
+        SERVICE_GROUP_MAP.put("SPARK", 2);
+        SERVICE_GROUP_MAP.put("FLINK", 2);
+        SERVICE_GROUP_MAP.put("ZKUI", 1);
+
+        previousContext = SpringContextUtil.getApplicationContext();
+    }
+
+    @AfterAll
+    public static void destroy() {
+        ResolverYamlServiceManifest.MANIFEST_SERVICE_MAP.clear();
+        SERVICE_GROUP_MAP.clear();
+        new SpringContextUtil().setApplicationContext(previousContext);
+    }
+
+    @BeforeEach
+    public void setUp() {
+        this.jobService = Mockito.mock(JobService.class);
+        Mockito.doAnswer(invocation -> {
+                    StageMeta stageMeta = invocation.getArgument(0);
+                    ExecStateEnum execStateEnum = invocation.getArgument(1);
+                    this.eventList.add(stageMeta.getServiceName() + ":" + execStateEnum);
+                    return null;
+                })
+                .when(this.jobService)
+                .updateStageMemory(Mockito.any(StageMeta.class), Mockito.any(ExecStateEnum.class));
+
+        // Job 与 Stage 通过 SpringContextUtil 获取依赖
+        this.context = new GenericApplicationContext();
+        this.context.registerBean(JobService.class, () -> this.jobService);
+        this.context.registerBean(IStepConverter.class, () -> Mockito.mock(IStepConverter.class));
+        this.context.registerBean(RemoteInvokePrometheusHandler.class, () -> Mockito.mock(RemoteInvokePrometheusHandler.class));
+        this.context.registerBean(RemoteInvokeGrafanaHandler.class, () -> Mockito.mock(RemoteInvokeGrafanaHandler.class));
+        this.context.refresh();
+        new SpringContextUtil().setApplicationContext(this.context);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.context.close();
+    }
+
+    @Test
+    public void planDerivesUpstreamFromManifest() {
+        Map<String, Set<String>> upstreamMap = this.upstreamMap(this.plan(false));
+
+        Assertions.assertEquals(Collections.emptySet(), upstreamMap.get("ZOOKEEPER"));
+        Assertions.assertEquals(setOf("ZOOKEEPER"), upstreamMap.get("HDFS"));
+        Assertions.assertEquals(setOf("ZOOKEEPER", "HDFS"), upstreamMap.get("YARN"));
+        Assertions.assertEquals(setOf("ZOOKEEPER", "HDFS"), upstreamMap.get("HBASE"));
+        Assertions.assertEquals(setOf("ZOOKEEPER"), upstreamMap.get("KAFKA"));
+        Assertions.assertEquals(setOf("ZOOKEEPER", "HDFS", "YARN"), upstreamMap.get("SPARK"));
+        Assertions.assertEquals(setOf("ZOOKEEPER", "HDFS", "YARN"), upstreamMap.get("FLINK"));
+        Assertions.assertEquals(setOf("ZOOKEEPER"), upstreamMap.get("ZKUI"));
+
+        // 逐个执行时，每个 Stage 仅以前一个 Stage 为上游
+        upstreamMap = this.upstreamMap(this.plan(true));
+        Assertions.assertEquals(Collections.emptySet(), upstreamMap.get(SERVICE_LIST.get(0)));
+        for (int i = 1; i < SERVICE_LIST.size(); i++) {
+            Assertions.assertEquals(setOf(SERVICE_LIST.get(i - 1)), upstreamMap.get(SERVICE_LIST.get(i)));
+        }
+    }
+
+    @Test
+    public void scheduleRespectsDependencies() throws InterruptedException {
+        Plan plan = this.plan(false);
+        Assertions.assertTrue(this.schedule(plan));
+
+        log.info("Stage 执行顺序: {}", this.eventList);
+        Assertions.assertEquals(SERVICE_LIST.size() * 2, this.eventList.size());
+
+        this.upstreamMap(plan).forEach((serviceName, upstreamSet) -> {
+            int startIndex = this.eventList.indexOf(serviceName + ":" + ExecStateEnum.RUNNING);
+            Assertions.assertTrue(startIndex >= 0, serviceName);
+            Assertions.assertTrue(this.eventList.contains(serviceName + ":" + ExecStateEnum.OK), serviceName);
+
+            upstreamSet.forEach(upstream ->
+                    Assertions.assertTrue(
+                            this.eventList.indexOf(upstream + ":" + ExecStateEnum.OK) < startIndex,
+                            String.format("%s 在上游 %s 完成前启动", serviceName, upstream)
+                    )
+            );
+        });
+    }
+
+    @Test
+    public void unrelatedStagesRunConcurrently() throws InterruptedException {
+        Map<String, Boolean> concurrentMap = this.holdUntilStarted("HDFS", "KAFKA");
+
+        Assertions.assertTrue(this.schedule(this.plan(false)));
+
+        Assertions.assertEquals(Boolean.TRUE, concurrentMap.get("HDFS"));
+        Assertions.assertEquals(Boolean.TRUE, concurrentMap.get("KAFKA"));
+    }
+
+    @Test
+    public void benchmarkSerialVersusGraph() throws InterruptedException {
+        // 逐个执行：每个 Stage 均在前一个 Stage 完成后开始，模拟耗时等于所有 Stage 耗时之和
+        Assertions.assertTrue(this.schedule(this.plan(true)));
+        long serialMillis = this.simulatedMillis(this.eventList);
+
+        long sumMillis = SERVICE_LIST.stream().mapToLong(StageSchedulerTest::stageMillis).sum();
+        Assertions.assertEquals(sumMillis, serialMillis);
+
+        // 依赖图调度：HDFS 与 KAFKA 均开始后才允许继续，保证二者的执行区间重叠
+        this.eventList.clear();
+        this.holdUntilStarted("HDFS", "KAFKA");
+        Plan plan = this.plan(false);
+        Assertions.assertTrue(this.schedule(plan));
+        long graphMillis = this.simulatedMillis(this.eventList);
+
+        long criticalPathMillis = this.criticalPathMillis(plan);
+
+        log.info(
+                "模拟 {} 节点、{} 个服务部署, 串行耗时: {} ms, 依赖图调度耗时: {} ms, 关键路径耗时: {} ms",
+                NODE_COUNT,
+                SERVICE_LIST.size(),
+                serialMillis,
+                graphMillis,
+                criticalPathMillis
+        );
+        Assertions.assertTrue(graphMillis < serialMillis);
+        Assertions.assertTrue(graphMillis >= criticalPathMillis);
+    }
+
+    @Test
+    public void oneByOneRunsSerially() throws InterruptedException {
+        Assertions.assertTrue(this.schedule(this.plan(true)));
+
+        List<String> expectedList = new ArrayList<>();
+        SERVICE_LIST.forEach(serviceName -> {
+            expectedList.add(serviceName + ":" + ExecStateEnum.RUNNING);
+            expectedList.add(serviceName + ":" + ExecStateEnum.OK);
+        });
+        Assertions.assertEquals(expectedList, this.eventList);
+    }
+
+    @Test
+    public void scheduleStopsAfterFailure() throws InterruptedException {
+        // HDFS 失败后，依赖 HDFS 的服务均不应执行
+        Mockito.doAnswer(invocation -> {
+                    StageMeta stageMeta = invocation.getArgument(0);
+                    if (stageMeta.getCurrentServiceState() == SCStateEnum.CHANGING
+                            && stageMeta.getServiceName().equals("HDFS")) {
+                        throw new BException("模拟 HDFS 部署失败");
+                    }
+                    return null;
+                })
+                .when(this.jobService)
+                .switchServiceState(Mockito.any(StageMeta.class));
+
+        Assertions.assertFalse(this.schedule(this.plan(false)));
+
+        log.info("Stage 执行顺序: {}", this.eventList);
+        Assertions.assertTrue(this.eventList.contains("HDFS:" + ExecStateEnum.ERROR));
+        SERVICE_LIST.stream()
+                .filter(i -> ResolverYamlServiceManifest.getDependencyClosure(i).contains("HDFS"))
+                .forEach(i -> Assertions.assertFalse(
+                        this.eventList.contains(i + ":" + ExecStateEnum.RUNNING),
+                        i + " 在上游 HDFS 失败后仍被执行"
+                ));
+    }
+
+    /**
+     * 按意图中的顺序组装 Stage，由 Job.plan 生成执行计划
+     */
+    private Plan plan(boolean isOneByOne) {
+        JobMeta jobMeta = new JobMeta()
+                .setTag("tag")
+                .setClusterMeta(new ClusterMeta().setCurrentClusterId(CLUSTER_ID));
+
+        LinkedHashMap<Long, StageMeta> stageMetaMap = new LinkedHashMap<>();
+        long stageId = 0L;
+        for (String serviceName : SERVICE_LIST) {
+            StageMeta stageMeta = new StageMeta()
+                    .setJobMeta(jobMeta)
+                    .setId(++stageId)
+                    .setName(serviceName)
+                    .setServiceName(serviceName)
+                    .setStageResult(new StageMeta.StageResult(false))
+                    .setTaskMetaMap(new LinkedHashMap<>());
+            stageMetaMap.put(stageMeta.getId(), stageMeta);
+        }
+        jobMeta.setStageMetaMap(stageMetaMap);
+
+        Job job = new Job(
+                new Intention()
+                        .setServiceList(Collections.emptyList())
+                        .setOneByOne(isOneByOne)
+        );
+        job.plan(jobMeta);
+
+        this.stageMetaMap = stageMetaMap;
+        return job.getPlan();
+    }
+
+    /**
+     * 指定的 Stage 在开始执行后阻塞，直到所有指定的 Stage 均已开始；若调度器串行执行它们，先开始的 Stage 将等待超时
+     *
+     * @return <ServiceName, 是否在超时前观察到所有指定 Stage 均已开始>
+     */
+    private Map<String, Boolean> holdUntilStarted(String... serviceNames) {
+        final Set<String> serviceNameSet = setOf(serviceNames);
+        final CountDownLatch allStarted = new CountDownLatch(serviceNameSet.size());
+        final Map<String, Boolean> concurrentMap = new ConcurrentHashMap<>();
+
+        Mockito.doAnswer(invocation -> {
+                    StageMeta stageMeta = invocation.getArgument(0);
+                    if (stageMeta.getCurrentServiceState() == SCStateEnum.CHANGING
+                            && serviceNameSet.contains(stageMeta.getServiceName())) {
+                        allStarted.countDown();
+                        concurrentMap.put(stageMeta.getServiceName(), allStarted.await(5, TimeUnit.SECONDS));
+                    }
+                    return null;
+                })
+                .when(this.jobService)
+                .switchServiceState(Mockito.any(StageMeta.class));
+
+        return concurrentMap;
+    }
+
+    /**
+     * 按实际执行顺序推算模拟耗时：Stage 的模拟开始时间为其开始前已完成的所有 Stage 中最晚的模拟结束时间，
+     * 因此与实际线程耗时无关；执行区间重叠的 Stage 不会互相计入耗时
+     */
+    private long simulatedMillis(List<String> eventList) {
+        final Map<String, Long> startMap = new HashMap<>();
+        long finishedMillis = 0L;
+        long totalMillis = 0L;
+
+        for (String event : eventList) {
+            String[] serviceState = event.split(":");
+            if (serviceState[1].equals(ExecStateEnum.RUNNING.name())) {
+                startMap.put(serviceState[0], finishedMillis);
+            } else {
+                long finishMillis = startMap.get(serviceState[0]) + stageMillis(serviceState[0]);
+                finishedMillis = Math.max(finishedMillis, finishMillis);
+                totalMillis = Math.max(totalMillis, finishMillis);
+            }
+        }
+
+        return totalMillis;
+    }
+
+    /**
+     * 依赖图中最长路径的模拟耗时，为任何调度方式的下限
+     */
+    private long criticalPathMillis(Plan plan) {
+        final Map<String, Set<String>> upstreamMap = this.upstreamMap(plan);
+        final Map<String, Long> finishMap = new HashMap<>();
+
+        // Stage 按意图顺序排列，上游总在下游之前
+        upstreamMap.forEach((serviceName, upstreamSet) ->
+                finishMap.put(
+                        serviceName,
+                        upstreamSet.stream().mapToLong(finishMap::get).max().orElse(0L) + stageMillis(serviceName)
+                )
+        );
+
+        return Collections.max(finishMap.values());
+    }
+
+    /**
+     * 单个 Stage 的模拟耗时：各优先级分组串行，分组内 200 个节点按 Worker 并发度分批执行 Step
+     */
+    private static long stageMillis(String serviceName) {
+        long batchCount = (NODE_COUNT + NODE_PARALLELISM - 1) / NODE_PARALLELISM;
+        return SERVICE_GROUP_MAP.get(serviceName) * batchCount * STEP_MILLIS;
+    }
+
+    private boolean schedule(Plan plan) throws InterruptedException {
+        ExecutorService stageExecutor = Executors.newCachedThreadPool();
+        try {
+            return new StageScheduler(plan, new ExecutorCompletionService<>(stageExecutor)).schedule();
+        } finally {
+            stageExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * @return <ServiceName, 上游 ServiceName 集合>
+     */
+    private Map<String, Set<String>> upstreamMap(Plan plan) {
+        Map<String, Set<String>> upstreamMap = new LinkedHashMap<>();
+        this.stageMetaMap.values().forEach(stageMeta ->
+                upstreamMap.put(
+                        stageMeta.getServiceName(),
+                        plan.getStageUpstream(stageMeta.getId())
+                                .stream()
+                                .map(upstreamId -> this.stageMetaMap.get(upstreamId).getServiceName())
+                                .collect(Collectors.toSet())
+                )
+        );
+        return upstreamMap;
+    }
+
+    private static Set<String> setOf(String... serviceNames) {
+        return new HashSet<>(Arrays.asList(serviceNames));
+    }
+
+    private static void manifestService(String name, long priority, String... dependencies) {
+        YamlServiceManifest.Service service = new YamlServiceManifest.Service();
+        service.setName(name);
+        service.setPriority(priority);
+        service.setDependencies(Arrays.asList(dependencies));
+        service.setOptionalDependencies(Collections.emptyList());
+        service.setRelatives(Collections.singletonList("MONITOR"));
+
+        ResolverYamlServiceManifest.MANIFEST_SERVICE_MAP.put(name, service);
+    }
+}
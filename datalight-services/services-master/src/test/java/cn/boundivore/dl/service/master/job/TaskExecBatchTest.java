@@ -0,0 +1,335 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.job;
+
+import cn.boundivore.dl.api.worker.define.IWorkerExecAPI;
+import cn.boundivore.dl.api.worker.define.IWorkerExecBatchAPI;
+import cn.boundivore.dl.base.enumeration.impl.ExecStateEnum;
+import cn.boundivore.dl.base.enumeration.impl.StepTypeEnum;
+import cn.boundivore.dl.base.request.impl.worker.ExecBatchRequest;
+import cn.boundivore.dl.base.response.impl.common.AbstractExecVo;
+import cn.boundivore.dl.base.result.Result;
+import cn.boundivore.dl.cloud.utils.SpringContextUtil;
+import cn.boundivore.dl.exception.BException;
+import cn.boundivore.dl.service.master.cache.StepOutputCache;
+import cn.boundivore.dl.service.master.manage.service.bean.*;
+import cn.boundivore.dl.service.master.manage.service.job.Intention;
+import cn.boundivore.dl.service.master.manage.service.job.JobCacheUtil;
+import cn.boundivore.dl.service.master.manage.service.job.JobService;
+import cn.boundivore.dl.service.master.manage.service.job.Plan;
+import cn.boundivore.dl.service.master.manage.service.task.impl.Task;
+import cn.boundivore.dl.service.master.service.RemoteInvokeWorkerService;
+import feign.Request;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Description: 测试 Master 端 Task 批量执行同一节点上连续的远程 Step：
+ * 远程调用次数、下发时与结束后各 Step 的状态，以及批次读取超时的计算
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/7/4
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class TaskExecBatchTest {
+
+    private static final int STEP_COUNT = 4;
+
+    private static final long CONNECT_TIMEOUT = 1000L;
+
+    private static final long READ_TIMEOUT = 2000L;
+
+    private static final long STEP_SLEEP_MILLIS = 300L;
+
+    private static final AtomicLong JOB_ID = new AtomicLong(9000L);
+
+    private GenericApplicationContext applicationContext;
+
+    private RecordingJobService jobService;
+
+    private StubWorkerService remoteInvokeWorkerService;
+
+    @BeforeEach
+    public void init() {
+        this.jobService = new RecordingJobService();
+        this.remoteInvokeWorkerService = new StubWorkerService();
+        ReflectionTestUtils.setField(this.remoteInvokeWorkerService, "connectTimeout", CONNECT_TIMEOUT);
+        ReflectionTestUtils.setField(this.remoteInvokeWorkerService, "readTimeout", READ_TIMEOUT);
+
+        this.applicationContext = new GenericApplicationContext();
+        this.applicationContext.registerBean(JobService.class, () -> this.jobService);
+        this.applicationContext.registerBean(RemoteInvokeWorkerService.class, () -> this.remoteInvokeWorkerService);
+        this.applicationContext.refresh();
+        new SpringContextUtil().setApplicationContext(this.applicationContext);
+    }
+
+    @AfterEach
+    public void destroy() {
+        this.applicationContext.close();
+    }
+
+    @Test
+    public void batchRunsInOneRoundTrip() throws Exception {
+        TaskMeta taskMeta = this.taskMeta();
+        new Task(taskMeta).run();
+
+        Assertions.assertEquals(1, this.remoteInvokeWorkerService.batchRoundTrip.get());
+        Assertions.assertEquals(0, this.remoteInvokeWorkerService.execRoundTrip.get());
+
+        // 下发时批次内所有 Step 均已标记为执行中
+        Assertions.assertEquals(STEP_COUNT, this.remoteInvokeWorkerService.dispatchStateMap.size());
+        this.remoteInvokeWorkerService.dispatchStateMap.values()
+                .forEach(i -> Assertions.assertEquals(ExecStateEnum.RUNNING, i));
+
+        for (StepMeta stepMeta : taskMeta.getStepMetaMap().values()) {
+            Assertions.assertEquals(ExecStateEnum.OK, stepMeta.getExecStateEnum());
+            Assertions.assertEquals(
+                    Arrays.asList(ExecStateEnum.RUNNING, ExecStateEnum.OK),
+                    this.jobService.stateHistory(stepMeta)
+            );
+            Assertions.assertEquals("OK " + stepMeta.getName(), this.jobService.stdoutMap.get(stepMeta.getName()));
+        }
+
+        // 读取超时按照 Step 数量放大，并加上 Step 之间的休眠时间
+        Request.Options options = this.remoteInvokeWorkerService.options;
+        Assertions.assertEquals(CONNECT_TIMEOUT, options.connectTimeoutMillis());
+        Assertions.assertEquals(READ_TIMEOUT * STEP_COUNT + STEP_SLEEP_MILLIS * STEP_COUNT, options.readTimeoutMillis());
+
+        Assertions.assertEquals(STEP_COUNT, JobCacheUtil.getInstance()
+                .get(taskMeta.getStageMeta().getJobMeta().getId())
+                .getPlan()
+                .getExecCurrent()
+                .get()
+        );
+    }
+
+    @Test
+    public void batchStopsOnFailure() {
+        TaskMeta taskMeta = this.taskMeta();
+        this.remoteInvokeWorkerService.failStepNameSet.add("step-1");
+
+        Assertions.assertThrows(BException.class, () -> new Task(taskMeta).run());
+        Assertions.assertEquals(1, this.remoteInvokeWorkerService.batchRoundTrip.get());
+
+        List<StepMeta> stepMetaList = new ArrayList<>(taskMeta.getStepMetaMap().values());
+        Assertions.assertEquals(ExecStateEnum.OK, stepMetaList.get(0).getExecStateEnum());
+        Assertions.assertEquals(ExecStateEnum.ERROR, stepMetaList.get(1).getExecStateEnum());
+        Assertions.assertEquals("FAILED step-1", this.jobService.stderrMap.get("step-1"));
+
+        // 因前序 Step 失败而未执行的 Step 恢复为未运行，且不记录日志
+        for (StepMeta stepMeta : stepMetaList.subList(2, STEP_COUNT)) {
+            Assertions.assertEquals(ExecStateEnum.SUSPEND, stepMeta.getExecStateEnum());
+            Assertions.assertEquals(0L, stepMeta.getStartTime());
+            Assertions.assertEquals(
+                    Arrays.asList(ExecStateEnum.RUNNING, ExecStateEnum.SUSPEND),
+                    this.jobService.stateHistory(stepMeta)
+            );
+            Assertions.assertFalse(this.jobService.stdoutMap.containsKey(stepMeta.getName()));
+            Assertions.assertFalse(this.jobService.stderrMap.containsKey(stepMeta.getName()));
+        }
+    }
+
+    @Test
+    public void remoteCallFailureFailsFirstStep() {
+        TaskMeta taskMeta = this.taskMeta();
+        this.remoteInvokeWorkerService.isUnreachable = true;
+
+        Assertions.assertThrows(BException.class, () -> new Task(taskMeta).run());
+        Assertions.assertEquals(1, this.remoteInvokeWorkerService.batchRoundTrip.get());
+
+        List<StepMeta> stepMetaList = new ArrayList<>(taskMeta.getStepMetaMap().values());
+        Assertions.assertEquals(ExecStateEnum.ERROR, stepMetaList.get(0).getExecStateEnum());
+        Assertions.assertTrue(this.jobService.stderrMap.get("step-0").contains("Worker 不可达"));
+        stepMetaList.subList(1, STEP_COUNT)
+                .forEach(i -> Assertions.assertEquals(ExecStateEnum.SUSPEND, i.getExecStateEnum()));
+    }
+
+    private TaskMeta taskMeta() {
+        JobMeta jobMeta = new JobMeta()
+                .setId(JOB_ID.incrementAndGet())
+                .setStageMetaMap(new LinkedHashMap<>());
+
+        StageMeta stageMeta = new StageMeta()
+                .setJobMeta(jobMeta)
+                .setId(1L)
+                .setTaskMetaMap(new LinkedHashMap<>());
+        jobMeta.getStageMetaMap().put(stageMeta.getId(), stageMeta);
+
+        TaskMeta taskMeta = new TaskMeta()
+                .setStageMeta(stageMeta)
+                .setId(2L)
+                .setName("HDFS-DataNode")
+                .setNodeId(1L)
+                .setHostname("node01")
+                .setNodeIp("192.168.0.1")
+                .setServiceName("HDFS")
+                .setComponentName("DataNode")
+                .setTaskResult(new TaskMeta.TaskResult(false))
+                .setStepMetaMap(new LinkedHashMap<>());
+        stageMeta.getTaskMetaMap().put(taskMeta.getId(), taskMeta);
+
+        for (int i = 0; i < STEP_COUNT; i++) {
+            StepMeta stepMeta = new StepMeta()
+                    .setTaskMeta(taskMeta)
+                    .setId(10L + i)
+                    .setType(StepTypeEnum.COMMAND)
+                    .setName("step-" + i)
+                    .setShell("echo step-" + i)
+                    .setArgs(new ArrayList<>())
+                    .setInteractions(new ArrayList<>())
+                    .setExits(0)
+                    .setTimeout(10 * 1000L)
+                    .setSleep(STEP_SLEEP_MILLIS)
+                    .setExecStateEnum(ExecStateEnum.SUSPEND)
+                    .setStepResult(new StepMeta.StepResult(false));
+            taskMeta.getStepMetaMap().put(stepMeta.getId(), stepMeta);
+        }
+
+        Plan plan = new Plan(new Intention().setServiceList(Collections.emptyList()));
+        plan.initExecTotal(jobMeta);
+        JobCacheUtil.getInstance().cache(new JobCacheBean(jobMeta, plan));
+
+        return taskMeta;
+    }
+
+    /**
+     * 仅记录 Step 状态变更与日志，不访问数据库
+     */
+    private static class RecordingJobService extends JobService {
+
+        private final Map<String, List<ExecStateEnum>> stateHistoryMap = new ConcurrentHashMap<>();
+
+        private final Map<String, String> stdoutMap = new ConcurrentHashMap<>();
+
+        private final Map<String, String> stderrMap = new ConcurrentHashMap<>();
+
+        RecordingJobService() {
+            super(null, null, null, null, null, null, new StepOutputCache(), null, null, null, null);
+        }
+
+        List<ExecStateEnum> stateHistory(StepMeta stepMeta) {
+            return this.stateHistoryMap.get(stepMeta.getName());
+        }
+
+        @Override
+        public void updateStepMemory(StepMeta stepMeta, ExecStateEnum execStateEnum) {
+            super.updateStepMemory(stepMeta, execStateEnum);
+            this.stateHistoryMap.computeIfAbsent(stepMeta.getName(), k -> Collections.synchronizedList(new ArrayList<>()))
+                    .add(execStateEnum);
+        }
+
+        @Override
+        public void updateStepDatabase(StepMeta stepMeta) {
+        }
+
+        @Override
+        public void updateTaskDatabase(TaskMeta taskMeta) {
+        }
+
+        @Override
+        public void saveLog(StepMeta stepMeta, String logStdOut, String logErrOut) {
+            if (!logStdOut.isEmpty()) this.stdoutMap.put(stepMeta.getName(), logStdOut);
+            if (!logErrOut.isEmpty()) this.stderrMap.put(stepMeta.getName(), logErrOut);
+        }
+    }
+
+    /**
+     * 模拟 Worker：按顺序执行批次中的 Step，失败后不再执行后续 Step
+     */
+    private static class StubWorkerService extends RemoteInvokeWorkerService {
+
+        private final AtomicInteger batchRoundTrip = new AtomicInteger();
+
+        private final AtomicInteger execRoundTrip = new AtomicInteger();
+
+        private final Set<String> failStepNameSet = new HashSet<>();
+
+        private final Map<String, ExecStateEnum> dispatchStateMap = new LinkedHashMap<>();
+
+        private volatile boolean isUnreachable;
+
+        private volatile Request.Options options;
+
+        StubWorkerService() {
+            super(null, null, null);
+        }
+
+        @Override
+        public IWorkerExecAPI iWorkerExecAPI(String ip) {
+            this.execRoundTrip.incrementAndGet();
+            throw new UnsupportedOperationException("同一节点上连续的远程 Step 不应逐个调用");
+        }
+
+        @Override
+        public IWorkerExecBatchAPI iWorkerExecBatchAPI(String ip) {
+            return (request, options) -> {
+                this.batchRoundTrip.incrementAndGet();
+                this.options = options;
+
+                if (this.isUnreachable) throw new IllegalStateException("Worker 不可达: " + ip);
+
+                List<AbstractExecVo.ExecResultVo> execResultList = new ArrayList<>();
+                for (ExecBatchRequest.ExecStep execStep : request.getExecStepList()) {
+                    String name = execStep.getExec().getName();
+                    this.dispatchStateMap.put(name, this.stepState(name));
+
+                    boolean isSuccess = !this.failStepNameSet.contains(name);
+                    execResultList.add(
+                            new AbstractExecVo.ExecResultVo(
+                                    name,
+                                    isSuccess,
+                                    (isSuccess ? "OK " : "FAILED ") + name,
+                                    10L
+                            )
+                    );
+                    if (!isSuccess) break;
+                }
+
+                return Result.success(new AbstractExecVo.ExecBatchVo(execResultList));
+            };
+        }
+
+        private ExecStateEnum stepState(String name) {
+            return JobCacheUtil.getInstance()
+                    .get(JOB_ID.get())
+                    .getJobMeta()
+                    .getStageMetaMap()
+                    .values()
+                    .stream()
+                    .flatMap(i -> i.getTaskMetaMap().values().stream())
+                    .flatMap(i -> i.getStepMetaMap().values().stream())
+                    .filter(i -> i.getName().equals(name))
+                    .findFirst()
+                    .map(StepMeta::getExecStateEnum)
+                    .orElse(null);
+        }
+    }
+}
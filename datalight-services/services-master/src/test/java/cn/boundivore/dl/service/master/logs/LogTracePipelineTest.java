@@ -0,0 +1,252 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.logs;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Description: 测试审计日志管道的溢出策略，并在审计存储被人为放慢时，对比阻塞队列与非阻塞管道下模拟接口的 P99 耗时
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/17
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class LogTracePipelineTest {
+
+    private static final int THREAD_COUNT = 8;
+
+    private static final int REQUEST_PER_THREAD = 100;
+
+    // 模拟接口自身的耗时
+    private static final long API_MILLIS = 1L;
+
+    // 模拟缓慢的审计存储，每批次写入的耗时
+    private static final long SLOW_EXPORT_MILLIS = 50L;
+
+    @Test
+    public void overflowDropsOldest() {
+        CountDownLatch blockExporter = new CountDownLatch(1);
+
+        LogTracePipeline pipeline = new LogTracePipeline(
+                100,
+                10,
+                50L,
+                LogTracePipeline.OverflowPolicy.DROP_OLDEST,
+                batch -> await(blockExporter),
+                batch -> Assertions.fail("DROP_OLDEST 策略不应溢写")
+        );
+
+        try {
+            for (int i = 0; i < 1000; i++) {
+                pipeline.offer(new LogTrace());
+            }
+
+            LogTraceStats stats = pipeline.getStats();
+            log.info("缓冲区已满时: {}", stats);
+
+            Assertions.assertEquals(1000L, stats.getOfferCount());
+            Assertions.assertTrue(stats.getQueueDepth() <= 100);
+            Assertions.assertTrue(stats.getDropCount() >= 1000L - 100L - 10L);
+        } finally {
+            blockExporter.countDown();
+            pipeline.close();
+        }
+
+        Assertions.assertEquals(0, pipeline.getStats().getQueueDepth());
+    }
+
+    @Test
+    public void overflowSpillsToFile() throws InterruptedException {
+        CountDownLatch blockExporter = new CountDownLatch(1);
+        List<LogTrace> spillList = Collections.synchronizedList(new ArrayList<>());
+
+        LogTracePipeline pipeline = new LogTracePipeline(
+                1000,
+                10,
+                50L,
+                LogTracePipeline.OverflowPolicy.SPILL_TO_FILE,
+                batch -> await(blockExporter),
+                spillList::addAll
+        );
+
+        try {
+            for (int i = 0; i < 900; i++) {
+                pipeline.offer(new LogTrace());
+            }
+
+            // 等待溢写线程将积压降至高水位以下
+            long deadline = System.currentTimeMillis() + 5000L;
+            while (pipeline.getStats().getQueueDepth() > 750 && System.currentTimeMillis() < deadline) {
+                TimeUnit.MILLISECONDS.sleep(20);
+            }
+
+            LogTraceStats stats = pipeline.getStats();
+            log.info("积压超过高水位时: {}", stats);
+
+            Assertions.assertTrue(stats.getQueueDepth() <= 750);
+            Assertions.assertEquals(0L, stats.getDropCount());
+            Assertions.assertEquals(spillList.size(), stats.getSpillCount());
+        } finally {
+            blockExporter.countDown();
+            pipeline.close();
+        }
+    }
+
+    @Test
+    public void failedBatchSpillsToFile() {
+        List<LogTrace> spillList = Collections.synchronizedList(new ArrayList<>());
+
+        LogTracePipeline pipeline = new LogTracePipeline(
+                1000,
+                10,
+                50L,
+                LogTracePipeline.OverflowPolicy.SPILL_TO_FILE,
+                batch -> {
+                    throw new IllegalStateException("模拟数据库不可用");
+                },
+                spillList::addAll
+        );
+
+        for (int i = 0; i < 25; i++) {
+            pipeline.offer(new LogTrace());
+        }
+        pipeline.close();
+
+        LogTraceStats stats = pipeline.getStats();
+        Assertions.assertEquals(25, spillList.size());
+        Assertions.assertTrue(stats.getExportFailBatchCount() >= 3L);
+        Assertions.assertEquals(0L, stats.getExportCount());
+    }
+
+    @Test
+    public void slowStoreDoesNotAffectApiLatency() throws Exception {
+        // 基准：审计存储无延迟
+        LogTracePipeline fastPipeline = new LogTracePipeline(
+                4096, 200, 1000L, LogTracePipeline.OverflowPolicy.DROP_OLDEST, batch -> {
+                }, batch -> {
+                }
+        );
+        long fastP99 = this.p99(fastPipeline::offer);
+        fastPipeline.close();
+
+        // 审计存储被放慢
+        LogTracePipeline slowPipeline = new LogTracePipeline(
+                4096, 200, 1000L, LogTracePipeline.OverflowPolicy.DROP_OLDEST, batch -> sleep(SLOW_EXPORT_MILLIS), batch -> {
+                }
+        );
+        long slowP99 = this.p99(slowPipeline::offer);
+        slowPipeline.close();
+
+        // 原实现：容量为 20 的阻塞队列，消费端每 SLOW_EXPORT_MILLIS 写入 10 条
+        BlockingQueue<LogTrace> blockingQueue = new LinkedBlockingQueue<>(20);
+        ScheduledExecutorService consumer = Executors.newSingleThreadScheduledExecutor();
+        consumer.scheduleWithFixedDelay(() -> {
+            blockingQueue.drainTo(new ArrayList<>(), 10);
+            sleep(SLOW_EXPORT_MILLIS);
+        }, 0, 1, TimeUnit.MILLISECONDS);
+        long blockingP99;
+        try {
+            blockingP99 = this.p99(logTrace -> {
+                try {
+                    blockingQueue.put(logTrace);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        } finally {
+            consumer.shutdownNow();
+        }
+
+        log.info("模拟 {} 并发 x {} 次请求, P99 耗时(微秒) 存储正常: {}, 存储缓慢: {}, 原阻塞队列且存储缓慢: {}",
+                THREAD_COUNT,
+                REQUEST_PER_THREAD,
+                fastP99 / 1000,
+                slowP99 / 1000,
+                blockingP99 / 1000
+        );
+
+        // 存储缓慢时，P99 与存储正常时相比增长不超过 1 毫秒
+        Assertions.assertTrue(slowP99 - fastP99 < TimeUnit.MILLISECONDS.toNanos(1));
+        Assertions.assertTrue(slowP99 < blockingP99);
+    }
+
+    /**
+     * 模拟 THREAD_COUNT 个请求线程并发调用接口，每次调用结束时提交审计日志
+     *
+     * @return 单次接口调用耗时的 P99，单位：纳秒
+     */
+    private long p99(Consumer<LogTrace> auditor) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        List<Long> costList = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger counter = new AtomicInteger();
+
+        try {
+            List<Future<?>> futureList = new ArrayList<>();
+            for (int i = 0; i < THREAD_COUNT; i++) {
+                futureList.add(executor.submit(() -> {
+                    for (int j = 0; j < REQUEST_PER_THREAD; j++) {
+                        long start = System.nanoTime();
+                        sleep(API_MILLIS);
+                        LogTrace logTrace = new LogTrace();
+                        logTrace.setLogName("request-" + counter.incrementAndGet());
+                        auditor.accept(logTrace);
+                        costList.add(System.nanoTime() - start);
+                    }
+                }));
+            }
+
+            for (Future<?> future : futureList) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<Long> sortedList = new ArrayList<>(costList);
+        Collections.sort(sortedList);
+        return sortedList.get((int) Math.ceil(sortedList.size() * 0.99D) - 1);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.orm;
+
+import org.h2.jdbcx.JdbcDataSource;
+
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Description: 以 MySQL 兼容模式启动的 H2 内存数据库，加载 db_datalight.sql 建表脚本与二级索引升级脚本，
+ * 供 ORM 相关测试执行真实的 Mapper SQL、统计语句次数并查看执行计划。
+ * 加载前去掉 H2 不支持的 MySQL 语法（SET 语句、表选项、字符集、注释、整数显示宽度、USING BTREE），
+ * 升级脚本中的存储过程调用翻译为 CREATE INDEX IF NOT EXISTS
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/7/4
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+public final class EmbeddedMysqlDatabase {
+
+    public static final String SCHEMA_PATH = ".documents/orm/sql/db_datalight.sql";
+
+    public static final String UPGRADE_PATH = ".documents/orm/sql/upgrade/db_datalight_20240629_secondary_index.sql";
+
+    private static final String URL_TEMPLATE = "jdbc:h2:mem:%s;MODE=MySQL;DATABASE_TO_LOWER=TRUE;" +
+            "CASE_INSENSITIVE_IDENTIFIERS=TRUE;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1";
+
+    private static final Pattern STATEMENT_SEPARATOR = Pattern.compile(";\\s*(\\r?\\n|$)");
+
+    private static final Pattern UPGRADE_PATTERN = Pattern.compile(
+            "CALL `dl_add_index_if_absent`\\('(\\w+)', '(\\w+)', '([^']*)'\\)"
+    );
+
+    private EmbeddedMysqlDatabase() {
+    }
+
+    /**
+     * Description: 创建内存数据库并加载建表脚本
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/4
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param name             数据库名称，同名数据库在同一 JVM 中共享
+     * @param indexFromUpgrade true: 建表时去掉二级索引，由升级脚本补齐；false: 使用建表脚本中的二级索引
+     * @return DataSource
+     */
+    public static DataSource create(String name, boolean indexFromUpgrade) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL(String.format(URL_TEMPLATE, name));
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+
+            for (String sql : schemaStatements(indexFromUpgrade)) {
+                statement.execute(sql);
+            }
+
+            if (indexFromUpgrade) {
+                for (String sql : upgradeStatements()) {
+                    statement.execute(sql);
+                }
+            }
+        } catch (SQLException | IOException e) {
+            throw new IllegalStateException("加载建表脚本失败: " + e.getMessage(), e);
+        }
+
+        return dataSource;
+    }
+
+    /**
+     * Description: 清空所有表，测试之间互不影响
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/4
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param dataSource 数据源
+     */
+    public static void truncate(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+
+            for (String table : tables(connection)) {
+                statement.execute("TRUNCATE TABLE `" + table + "`");
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("清空数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Description: 更新各列的选择度，使执行计划基于已写入的数据量
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/4
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param dataSource 数据源
+     */
+    public static void analyze(DataSource dataSource) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("ANALYZE");
+        } catch (SQLException e) {
+            throw new IllegalStateException("更新统计信息失败: " + e.getMessage(), e);
+        }
+    }
+
+    public static List<String> tables(Connection connection) throws SQLException {
+        List<String> tableList = new ArrayList<>();
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet resultSet = metaData.getTables(null, connection.getSchema(), "%", new String[]{"TABLE"})) {
+            while (resultSet.next()) {
+                tableList.add(resultSet.getString("TABLE_NAME"));
+            }
+        }
+        return tableList;
+    }
+
+    public static String read(String relativePath) throws IOException {
+        // 测试的工作目录为模块目录，向上查找项目根目录
+        File dir = new File(System.getProperty("user.dir")).getAbsoluteFile();
+        while (dir != null) {
+            File file = new File(dir, relativePath);
+            if (file.isFile()) {
+                return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+            }
+            dir = dir.getParentFile();
+        }
+        throw new IOException("未找到文件: " + relativePath);
+    }
+
+    private static List<String> schemaStatements(boolean indexFromUpgrade) throws IOException {
+        List<String> sqlList = new ArrayList<>();
+        for (String sql : split(read(SCHEMA_PATH))) {
+            if (sql.startsWith("SET ")) {
+                continue;
+            }
+
+            if (sql.startsWith("CREATE TABLE")) {
+                sql = sql
+                        // 表选项：ENGINE、AUTO_INCREMENT、CHARACTER SET、COMMENT、ROW_FORMAT
+                        .replaceAll("(?s)\\)\\s*ENGINE\\s*=.*$", ")")
+                        .replaceAll(" CHARACTER SET \\w+ COLLATE \\w+", "")
+                        .replaceAll(" COMMENT '(?:[^'\\\\]|\\\\.|'')*'", "")
+                        .replaceAll(" USING BTREE", "")
+                        .replaceAll("\\b(bigint|int|tinyint|smallint)\\(\\d+\\)", "$1");
+
+                if (indexFromUpgrade) {
+                    sql = sql.replaceAll(",\\s*INDEX `\\w+`\\s*\\([^)]*\\)", "");
+                }
+            }
+
+            sqlList.add(sql);
+        }
+        return sqlList;
+    }
+
+    private static List<String> upgradeStatements() throws IOException {
+        List<String> sqlList = new ArrayList<>();
+        Matcher matcher = UPGRADE_PATTERN.matcher(read(UPGRADE_PATH));
+        while (matcher.find()) {
+            sqlList.add(String.format(
+                    "CREATE INDEX IF NOT EXISTS `%s` ON `%s`(%s)",
+                    matcher.group(2),
+                    matcher.group(1),
+                    matcher.group(3)
+            ));
+        }
+        return sqlList;
+    }
+
+    private static List<String> split(String script) {
+        String content = script
+                .replaceAll("(?s)/\\*.*?\\*/", "")
+                .replaceAll("(?m)^--.*$", "");
+
+        List<String> sqlList = new ArrayList<>();
+        for (String sql : STATEMENT_SEPARATOR.split(content)) {
+            if (!sql.trim().isEmpty()) {
+                sqlList.add(sql.trim());
+            }
+        }
+        return sqlList;
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.orm;
+
+import cn.boundivore.dl.orm.config.MyMetaObjectHandler;
+import cn.boundivore.dl.orm.config.MybatisPlusConfig;
+import com.baomidou.mybatisplus.autoconfigure.MybatisPlusAutoConfiguration;
+import org.mybatis.spring.annotation.MapperScan;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import javax.sql.DataSource;
+
+/**
+ * Description: ORM 测试上下文：内存数据库 + 生产环境相同的 MyBatis-Plus 配置（分页、乐观锁、自动填充、Join 注入器），
+ * 扫描 datalight-orm 中的全部 Mapper 与 Service，并注册 SqlRecorder 记录语句次数与执行计划
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/7/4
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Configuration
+@ImportAutoConfiguration(MybatisPlusAutoConfiguration.class)
+@Import({MybatisPlusConfig.class, MyMetaObjectHandler.class})
+@MapperScan("cn.boundivore.dl.orm.mapper")
+@ComponentScan("cn.boundivore.dl.orm.service")
+public class OrmTestConfiguration {
+
+    @Bean
+    public DataSource dataSource() {
+        return EmbeddedMysqlDatabase.create("db_datalight", false);
+    }
+
+    @Bean
+    public SqlRecorder sqlRecorder() {
+        return new SqlRecorder();
+    }
+}
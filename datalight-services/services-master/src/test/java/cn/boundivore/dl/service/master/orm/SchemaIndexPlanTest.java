@@ -0,0 +1,483 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.orm;
+
+import cn.boundivore.dl.base.enumeration.impl.NodeStateEnum;
+import cn.boundivore.dl.base.enumeration.impl.SCStateEnum;
+import cn.boundivore.dl.orm.mapper.custom.ComponentNodeMapper;
+import cn.boundivore.dl.orm.mapper.custom.ConfigNodeMapper;
+import cn.boundivore.dl.orm.po.single.TDlComponent;
+import cn.boundivore.dl.orm.po.single.TDlConfig;
+import cn.boundivore.dl.orm.po.single.TDlConfigContent;
+import cn.boundivore.dl.orm.po.single.TDlJobLog;
+import cn.boundivore.dl.orm.po.single.TDlNode;
+import cn.boundivore.dl.orm.po.single.TDlService;
+import cn.boundivore.dl.orm.service.single.ITDlComponentService;
+import cn.boundivore.dl.orm.service.single.ITDlConfigContentService;
+import cn.boundivore.dl.orm.service.single.ITDlConfigService;
+import cn.boundivore.dl.orm.service.single.ITDlJobLogService;
+import cn.boundivore.dl.orm.service.single.ITDlNodeService;
+import cn.boundivore.dl.orm.service.single.ITDlServiceService;
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Description: 在 MySQL 兼容模式的内存数据库中加载 db_datalight.sql 与二级索引升级脚本，写入与生产规模相近的集群数据后，
+ * 对各 Mapper 的真实 SQL 与 lambdaQuery 热点查询执行 EXPLAIN，校验每张表使用的索引（相当于 MySQL EXPLAIN 的 key 列）；
+ * 同时校验升级脚本补齐的二级索引与建表脚本一致，且索引长度不超过 InnoDB 上限
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/29
+ * Modification description: 由解析建表脚本推断索引改为在内存数据库中执行 EXPLAIN
+ * Modified by: Boundivore
+ * Modification time: 2024/7/4
+ * Version: V1.0
+ */
+@Slf4j
+@SpringJUnitConfig(OrmTestConfiguration.class)
+public class SchemaIndexPlanTest {
+
+    private static final String[] SERVICE_NAMES = {
+            "ZOOKEEPER", "HDFS", "YARN", "HIVE", "HBASE", "KAFKA", "SPARK", "FLINK", "MONITOR", "DOLPHINSCHEDULER"
+    };
+
+    private static final String[] CONFIG_PATHS = {"/conf/site.xml", "/conf/env.sh", "/conf/log4j.properties"};
+
+    private static final int CLUSTER_COUNT = 2;
+
+    private static final int NODE_COUNT = 200;
+
+    // 每个节点部署的服务数
+    private static final int SERVICE_PER_NODE = 3;
+
+    private static final int JOB_COUNT = 3;
+
+    private static final int STEP_PER_NODE = 5;
+
+    // InnoDB DYNAMIC 行格式下单个索引的最大长度（字节）
+    private static final int MAX_INDEX_BYTES = 3072;
+
+    private static final Pattern TABLE_PATTERN = Pattern.compile(
+            "CREATE TABLE `(\\w+)`\\s*\\((.*?)\\) ENGINE = \\w+ (AUTO_INCREMENT = \\d+ )?CHARACTER SET = (\\w+)",
+            Pattern.DOTALL
+    );
+
+    private static final Pattern COLUMN_PATTERN = Pattern.compile(
+            "^\\s*`(\\w+)` (\\w+)(\\((\\d+)\\))?( CHARACTER SET (\\w+))?",
+            Pattern.MULTILINE
+    );
+
+    private static final Pattern INDEX_PATTERN = Pattern.compile("INDEX `(\\w+)`\\s*\\(([^)]*)\\)");
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private SqlRecorder sqlRecorder;
+
+    @Autowired
+    private ComponentNodeMapper componentNodeMapper;
+
+    @Autowired
+    private ConfigNodeMapper configNodeMapper;
+
+    @Autowired
+    private ITDlNodeService tDlNodeService;
+
+    @Autowired
+    private ITDlServiceService tDlServiceService;
+
+    @Autowired
+    private ITDlComponentService tDlComponentService;
+
+    @Autowired
+    private ITDlConfigService tDlConfigService;
+
+    @Autowired
+    private ITDlConfigContentService tDlConfigContentService;
+
+    @Autowired
+    private ITDlJobLogService tDlJobLogService;
+
+    // 第一个集群的 ID，查询均针对该集群
+    private Long clusterId;
+
+    private Long jobId;
+
+    private TDlNode node;
+
+    @BeforeEach
+    public void init() {
+        EmbeddedMysqlDatabase.truncate(this.dataSource);
+
+        for (long c = 1; c <= CLUSTER_COUNT; c++) {
+            this.seedCluster(c);
+        }
+        this.clusterId = 1L;
+        this.jobId = 1L;
+        this.node = this.tDlNodeService.lambdaQuery()
+                .eq(TDlNode::getClusterId, this.clusterId)
+                .eq(TDlNode::getHostname, "node-1-0")
+                .one();
+
+        EmbeddedMysqlDatabase.analyze(this.dataSource);
+        this.sqlRecorder.reset();
+    }
+
+    @Test
+    public void componentNodeMapperUsesIndex() {
+        List<SCStateEnum> stateList = Arrays.asList(SCStateEnum.STARTED, SCStateEnum.STOPPED);
+
+        SqlRecorder.Plan inPlan = this.explain(() -> this.componentNodeMapper
+                .selectComponentNodeInStatesDto(this.clusterId, "HDFS", stateList));
+        assertKey(inPlan, "t1", "idx_component_cluster_service_state");
+        assertKey(inPlan, "t2", SqlRecorder.PRIMARY);
+
+        // NOT IN 只能用到 cluster_id、service_name 两列前缀
+        SqlRecorder.Plan notInPlan = this.explain(() -> this.componentNodeMapper
+                .selectComponentNodeNotInStatesDto(this.clusterId, "HDFS", Collections.singletonList(SCStateEnum.REMOVED)));
+        assertKey(notInPlan, "t1", "idx_component_cluster_service_state");
+        assertKey(notInPlan, "t2", SqlRecorder.PRIMARY);
+    }
+
+    @Test
+    public void configNodeMapperUsesIndex() {
+        List<SqlRecorder.Plan> planList = Arrays.asList(
+                this.explain(() -> this.configNodeMapper.selectConfigNodeDto(this.clusterId, "HDFS")),
+                this.explain(() -> this.configNodeMapper.selectConfigNodeDtoByConfigPath(this.clusterId, "HDFS", CONFIG_PATHS[0])),
+                this.explain(() -> this.configNodeMapper.selectConfigNodeDigestDto(this.clusterId, "HDFS")),
+                this.explain(() -> this.configNodeMapper.selectConfigNodeDigestDtoByConfigPath(this.clusterId, "HDFS", CONFIG_PATHS[0]))
+        );
+
+        planList.forEach(plan -> {
+            assertKey(plan, "t2", "idx_config_cluster_service_path");
+            assertKey(plan, "t1", SqlRecorder.PRIMARY);
+            assertKey(plan, "t4", SqlRecorder.PRIMARY);
+            assertKey(plan, "t6", "idx_component_node_service");
+        });
+    }
+
+    @Test
+    public void lambdaQueriesUseIndex() {
+        // MasterComponentService 按组件名与状态查询
+        assertKey(
+                this.explain(() -> this.tDlComponentService.lambdaQuery()
+                        .eq(TDlComponent::getClusterId, this.clusterId)
+                        .eq(TDlComponent::getComponentName, "DataNode")
+                        .in(TDlComponent::getComponentState, SCStateEnum.STARTED, SCStateEnum.STOPPED)
+                        .list()),
+                "t_dl_component",
+                "idx_component_cluster_name_state"
+        );
+
+        // MasterComponentService 按节点查询
+        assertKey(
+                this.explain(() -> this.tDlComponentService.lambdaQuery()
+                        .eq(TDlComponent::getClusterId, this.clusterId)
+                        .eq(TDlComponent::getNodeId, this.node.getId())
+                        .eq(TDlComponent::getServiceName, "ZOOKEEPER")
+                        .list()),
+                "t_dl_component",
+                "idx_component_node_service"
+        );
+
+        // MasterConfigService 按节点与配置文件路径预取配置
+        assertKey(
+                this.explain(() -> this.tDlConfigService.lambdaQuery()
+                        .eq(TDlConfig::getClusterId, this.clusterId)
+                        .eq(TDlConfig::getServiceName, "ZOOKEEPER")
+                        .in(TDlConfig::getNodeId, this.node.getId())
+                        .in(TDlConfig::getConfigPath, Arrays.asList(CONFIG_PATHS))
+                        .list()),
+                "t_dl_config",
+                "idx_config_cluster_service_path"
+        );
+
+        // MasterConfigService 按 SHA256 预取配置文件内容
+        assertKey(
+                this.explain(() -> this.tDlConfigContentService.lambdaQuery()
+                        .eq(TDlConfigContent::getClusterId, this.clusterId)
+                        .in(TDlConfigContent::getSha256, sha256("ZOOKEEPER", CONFIG_PATHS[0], 0))
+                        .list()),
+                "t_dl_config_content",
+                "idx_config_content_cluster_sha256"
+        );
+
+        // MasterJobService 日志
+        assertKey(
+                this.explain(() -> this.tDlJobLogService.lambdaQuery()
+                        .eq(TDlJobLog::getClusterId, this.clusterId)
+                        .eq(TDlJobLog::getJobId, this.jobId)
+                        .eq(TDlJobLog::getNodeId, this.node.getId())
+                        .list()),
+                "t_dl_job_log",
+                "idx_job_log_job"
+        );
+
+        // MasterNodeService 按主机名查询
+        assertKey(
+                this.explain(() -> this.tDlNodeService.lambdaQuery()
+                        .eq(TDlNode::getClusterId, this.clusterId)
+                        .eq(TDlNode::getHostname, this.node.getHostname())
+                        .one()),
+                "t_dl_node",
+                "idx_node_cluster_hostname"
+        );
+
+        // MasterServiceService 按服务名查询
+        assertKey(
+                this.explain(() -> this.tDlServiceService.lambdaQuery()
+                        .eq(TDlService::getClusterId, this.clusterId)
+                        .eq(TDlService::getServiceName, "HDFS")
+                        .one()),
+                "t_dl_service",
+                "idx_service_cluster_name"
+        );
+    }
+
+    @Test
+    public void upgradeScriptMatchesSchema() throws SQLException {
+        DataSource upgradeDataSource = EmbeddedMysqlDatabase.create("db_datalight_upgrade", true);
+
+        Map<String, List<String>> schemaIndexMap = secondaryIndexes(this.dataSource);
+        Map<String, List<String>> upgradeIndexMap = secondaryIndexes(upgradeDataSource);
+        log.info("二级索引: {}", schemaIndexMap);
+
+        Assertions.assertFalse(schemaIndexMap.isEmpty());
+        Assertions.assertEquals(schemaIndexMap, upgradeIndexMap);
+    }
+
+    @Test
+    public void indexLengthWithinLimit() throws IOException {
+        Matcher tableMatcher = TABLE_PATTERN.matcher(EmbeddedMysqlDatabase.read(EmbeddedMysqlDatabase.SCHEMA_PATH));
+        while (tableMatcher.find()) {
+            String table = tableMatcher.group(1);
+            String body = tableMatcher.group(2);
+            String tableCharset = tableMatcher.group(4);
+
+            // <列名, 索引长度（字节）>
+            Map<String, Integer> columnBytesMap = new HashMap<>();
+            Matcher columnMatcher = COLUMN_PATTERN.matcher(body);
+            while (columnMatcher.find()) {
+                columnBytesMap.put(
+                        columnMatcher.group(1),
+                        columnBytes(
+                                columnMatcher.group(2),
+                                columnMatcher.group(4),
+                                columnMatcher.group(6) == null ? tableCharset : columnMatcher.group(6)
+                        )
+                );
+            }
+
+            Matcher indexMatcher = INDEX_PATTERN.matcher(body);
+            while (indexMatcher.find()) {
+                int indexBytes = 0;
+                for (String column : indexMatcher.group(2).split(",")) {
+                    Integer columnBytes = columnBytesMap.get(column.trim().replace("`", ""));
+                    Assertions.assertNotNull(columnBytes, String.format("%s 中不存在列 %s", table, column));
+                    indexBytes += columnBytes;
+                }
+                Assertions.assertTrue(
+                        indexBytes <= MAX_INDEX_BYTES,
+                        String.format("%s.%s 索引长度 %s 超过 %s", table, indexMatcher.group(1), indexBytes, MAX_INDEX_BYTES)
+                );
+            }
+        }
+    }
+
+    /**
+     * 执行一次真实查询，返回该查询的执行计划
+     */
+    private SqlRecorder.Plan explain(Supplier<?> query) {
+        this.sqlRecorder.reset();
+        query.get();
+
+        List<SqlRecorder.Plan> planList = this.sqlRecorder.getPlanList();
+        Assertions.assertEquals(1, planList.size());
+
+        SqlRecorder.Plan plan = planList.get(0);
+        log.info("{}\n{}", plan.getSql(), plan.getKeyMap());
+        return plan;
+    }
+
+    private static void assertKey(SqlRecorder.Plan plan, String alias, String key) {
+        Assertions.assertEquals(key, plan.key(alias), plan::toString);
+    }
+
+    /**
+     * 写入一个集群：节点、服务、每个节点上的组件、每个节点上的配置以及去重后的配置文件内容、若干作业的日志
+     */
+    private void seedCluster(long clusterId) {
+        List<TDlNode> nodeList = new ArrayList<>();
+        for (int i = 0; i < NODE_COUNT; i++) {
+            nodeList.add(new TDlNode()
+                    .setClusterId(clusterId)
+                    .setHostname(String.format("node-%s-%s", clusterId, i))
+                    .setIpv4(String.format("10.%s.%s.%s", clusterId, i / 250, i % 250))
+                    .setSshPort(22L)
+                    .setCpuArch("x86_64")
+                    .setCpuCores(16L)
+                    .setRam(65536L)
+                    .setDisk(1024000L)
+                    .setNodeState(NodeStateEnum.STARTED)
+                    .setOsVersion("CentOS 7.9")
+                    .setSerialNum(i)
+            );
+        }
+        this.tDlNodeService.saveBatch(nodeList);
+
+        List<TDlService> serviceList = new ArrayList<>();
+        for (int s = 0; s < SERVICE_NAMES.length; s++) {
+            serviceList.add(new TDlService()
+                    .setClusterId(clusterId)
+                    .setServiceName(SERVICE_NAMES[s])
+                    .setServiceState(SCStateEnum.DEPLOYED)
+                    .setPriority((long) s)
+            );
+        }
+        this.tDlServiceService.saveBatch(serviceList);
+
+        // 每个配置文件两个版本的内容
+        Map<String, TDlConfigContent> contentMap = new HashMap<>();
+        for (String serviceName : SERVICE_NAMES) {
+            for (String configPath : CONFIG_PATHS) {
+                for (int v = 0; v < 2; v++) {
+                    String sha256 = sha256(serviceName, configPath, v);
+                    contentMap.put(sha256, new TDlConfigContent()
+                            .setClusterId(clusterId)
+                            .setFilename(configPath.substring(configPath.lastIndexOf('/') + 1))
+                            .setConfigData(serviceName + configPath + v)
+                            .setSha256(sha256)
+                    );
+                }
+            }
+        }
+        this.tDlConfigContentService.saveBatch(contentMap.values());
+
+        List<TDlComponent> componentList = new ArrayList<>();
+        List<TDlConfig> configList = new ArrayList<>();
+        List<TDlJobLog> jobLogList = new ArrayList<>();
+        for (int i = 0; i < nodeList.size(); i++) {
+            TDlNode tDlNode = nodeList.get(i);
+
+            for (int k = 0; k < SERVICE_PER_NODE; k++) {
+                String serviceName = SERVICE_NAMES[(i + k * 3) % SERVICE_NAMES.length];
+
+                for (String componentName : new String[]{"DataNode", serviceName + "Client"}) {
+                    componentList.add(new TDlComponent()
+                            .setClusterId(clusterId)
+                            .setNodeId(tDlNode.getId())
+                            .setServiceName(serviceName)
+                            .setComponentName(componentName)
+                            .setComponentState(i % 10 == 0 ? SCStateEnum.STOPPED : SCStateEnum.STARTED)
+                            .setPriority(1L)
+                            .setNeedRestart(false)
+                    );
+                }
+
+                for (String configPath : CONFIG_PATHS) {
+                    TDlConfigContent content = contentMap.get(sha256(serviceName, configPath, i % 2));
+                    configList.add(new TDlConfig()
+                            .setClusterId(clusterId)
+                            .setNodeId(tDlNode.getId())
+                            .setServiceName(serviceName)
+                            .setConfigContentId(content.getId())
+                            .setFilename(content.getFilename())
+                            .setConfigPath(configPath)
+                            .setConfigVersion(1L)
+                    );
+                }
+            }
+
+            for (long j = 1; j <= JOB_COUNT; j++) {
+                for (long step = 1; step <= STEP_PER_NODE; step++) {
+                    jobLogList.add(new TDlJobLog()
+                            .setTag("tag")
+                            .setClusterId(clusterId)
+                            .setJobId(clusterId == 1 ? j : clusterId * 100 + j)
+                            .setNodeId(tDlNode.getId())
+                            .setStageId(j * 10)
+                            .setTaskId(j * 10 + i)
+                            .setStepId(step)
+                            .setLogStdout("step " + step + " done")
+                    );
+                }
+            }
+        }
+        this.tDlComponentService.saveBatch(componentList);
+        this.tDlConfigService.saveBatch(configList);
+        this.tDlJobLogService.saveBatch(jobLogList);
+    }
+
+    private static String sha256(String serviceName, String configPath, int version) {
+        return DigestUtil.sha256Hex(serviceName + configPath + version);
+    }
+
+    /**
+     * 通过 JDBC 元数据读取非唯一索引，<表名.索引名, 索引列>
+     */
+    private static Map<String, List<String>> secondaryIndexes(DataSource dataSource) throws SQLException {
+        Map<String, List<String>> indexMap = new TreeMap<>();
+        try (Connection connection = dataSource.getConnection()) {
+            DatabaseMetaData metaData = connection.getMetaData();
+            for (String table : EmbeddedMysqlDatabase.tables(connection)) {
+                try (ResultSet resultSet = metaData.getIndexInfo(null, connection.getSchema(), table, false, false)) {
+                    while (resultSet.next()) {
+                        if (!resultSet.getBoolean("NON_UNIQUE")) continue;
+                        indexMap.computeIfAbsent(
+                                table + "." + resultSet.getString("INDEX_NAME").toLowerCase(Locale.ROOT),
+                                k -> new ArrayList<>()
+                        ).add(resultSet.getString("COLUMN_NAME").toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+        }
+        return indexMap;
+    }
+
+    private static int columnBytes(String type, String length, String charset) {
+        switch (type) {
+            case "bigint":
+                return 8;
+            case "int":
+                return 4;
+            case "tinyint":
+                return 1;
+            case "varchar":
+                return Integer.parseInt(length) * ("utf8mb4".equals(charset) ? 4 : 3) + 2;
+            default:
+                // TEXT 等类型不能直接建立索引
+                return Integer.MAX_VALUE / 4;
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.orm;
+
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.session.ResultHandler;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Description: 记录经由 MyBatis 发往数据库的语句。
+ * 查询与非批量更新各计一次往返，批量写入按 flushStatements 返回的 BatchResult 计数（每个 BatchResult 对应一次 executeBatch）；
+ * 每条 SELECT 在同一连接上以相同参数执行一次 EXPLAIN，并按表别名解析出使用的索引（相当于 MySQL EXPLAIN 的 key 列）
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/7/4
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Intercepts({
+        @Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}),
+        @Signature(type = StatementHandler.class, method = "query", args = {Statement.class, ResultHandler.class}),
+        @Signature(type = StatementHandler.class, method = "update", args = {Statement.class}),
+        @Signature(type = Executor.class, method = "flushStatements", args = {})
+})
+public class SqlRecorder implements Interceptor {
+
+    // 全表扫描在 key 列中的取值
+    public static final String FULL_SCAN = "ALL";
+
+    public static final String PRIMARY = "PRIMARY";
+
+    // H2 执行计划中的表访问："public"."t_dl_config" "t2" /* public.idx_config_cluster_service_path: ... */
+    private static final Pattern TABLE_ACCESS_PATTERN = Pattern.compile(
+            "\"\\w+\"\\.\"(\\w+)\"(?:\\s+\"(\\w+)\")?\\s*/\\*\\s*\\w+\\.([\\w.]+)",
+            Pattern.CASE_INSENSITIVE
+    );
+
+    private final List<String> sqlList = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<Plan> planList = Collections.synchronizedList(new ArrayList<>());
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        Object result = invocation.proceed();
+
+        if (invocation.getTarget() instanceof Executor) {
+            @SuppressWarnings("unchecked")
+            List<BatchResult> batchResultList = (List<BatchResult>) result;
+            batchResultList.forEach(batchResult -> this.sqlList.add(batchResult.getSql().trim()));
+            return result;
+        }
+
+        StatementHandler handler = (StatementHandler) invocation.getTarget();
+        String sql = handler.getBoundSql().getSql().trim();
+        switch (invocation.getMethod().getName()) {
+            case "prepare":
+                if (sql.toUpperCase(Locale.ROOT).startsWith("SELECT")) {
+                    this.planList.add(this.explain((Connection) invocation.getArgs()[0], handler, sql));
+                }
+                break;
+            case "query":
+            case "update":
+                this.sqlList.add(sql);
+                break;
+            default:
+                break;
+        }
+
+        return result;
+    }
+
+    /**
+     * Description: 清空已记录的语句与执行计划
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/4
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    public void reset() {
+        this.sqlList.clear();
+        this.planList.clear();
+    }
+
+    /**
+     * Description: 发往数据库的语句次数
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/4
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @return 查询、更新与 executeBatch 的总次数
+     */
+    public int count() {
+        return this.sqlList.size();
+    }
+
+    /**
+     * Description: 匹配指定正则的语句次数，例如 "^SELECT .* FROM t_dl_config\\b"
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/4
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param regex 正则表达式，忽略大小写，. 可匹配换行
+     * @return 语句次数
+     */
+    public int count(String regex) {
+        Pattern pattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+        synchronized (this.sqlList) {
+            return (int) this.sqlList.stream()
+                    .filter(sql -> pattern.matcher(sql).find())
+                    .count();
+        }
+    }
+
+    public List<String> getSqlList() {
+        synchronized (this.sqlList) {
+            return new ArrayList<>(this.sqlList);
+        }
+    }
+
+    public List<Plan> getPlanList() {
+        synchronized (this.planList) {
+            return new ArrayList<>(this.planList);
+        }
+    }
+
+    private Plan explain(Connection connection, StatementHandler handler, String sql) throws SQLException {
+        String explainSql = "EXPLAIN " + sql.replaceAll(";\\s*$", "");
+        try (PreparedStatement preparedStatement = connection.prepareStatement(explainSql)) {
+            handler.parameterize(preparedStatement);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                StringBuilder sb = new StringBuilder();
+                while (resultSet.next()) {
+                    sb.append(resultSet.getString(1)).append("\n");
+                }
+                return new Plan(sql, sb.toString());
+            }
+        }
+    }
+
+    /**
+     * Description: 一条 SELECT 的执行计划
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/4
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Version: V1.0
+     */
+    public static class Plan {
+
+        private final String sql;
+
+        private final String text;
+
+        // <表别名（无别名时为表名）, 使用的索引>
+        private final Map<String, String> keyMap = new LinkedHashMap<>();
+
+        Plan(String sql, String text) {
+            this.sql = sql;
+            this.text = text;
+
+            Matcher matcher = TABLE_ACCESS_PATTERN.matcher(text);
+            while (matcher.find()) {
+                String alias = matcher.group(2) == null ? matcher.group(1) : matcher.group(2);
+                this.keyMap.put(alias.toLowerCase(Locale.ROOT), normalize(matcher.group(3)));
+            }
+        }
+
+        private static String normalize(String index) {
+            String lowerIndex = index.toLowerCase(Locale.ROOT);
+            if (lowerIndex.endsWith(".tablescan")) {
+                return FULL_SCAN;
+            }
+            if (lowerIndex.startsWith("primary_key")) {
+                return PRIMARY;
+            }
+            return lowerIndex;
+        }
+
+        /**
+         * 指定表别名使用的索引，全表扫描时为 ALL
+         */
+        public String key(String alias) {
+            return this.keyMap.get(alias.toLowerCase(Locale.ROOT));
+        }
+
+        public Map<String, String> getKeyMap() {
+            return this.keyMap;
+        }
+
+        public String getSql() {
+            return this.sql;
+        }
+
+        public String getText() {
+            return this.text;
+        }
+
+        @Override
+        public String toString() {
+            return this.keyMap + "\n" + this.text;
+        }
+    }
+}
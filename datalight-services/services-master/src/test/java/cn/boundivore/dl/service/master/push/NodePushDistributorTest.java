@@ -0,0 +1,347 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.master.push;
+
+import cn.boundivore.dl.service.master.manage.node.bean.NodeJobMeta;
+import cn.boundivore.dl.service.master.manage.node.bean.NodeStepMeta;
+import cn.boundivore.dl.service.master.manage.node.bean.NodeTaskMeta;
+import cn.boundivore.dl.service.master.manage.node.job.NodeJobService;
+import cn.boundivore.dl.service.master.manage.node.job.NodePushDistributor;
+import cn.boundivore.dl.service.master.manage.node.job.NodePushSwarm;
+import cn.boundivore.dl.ssh.bean.TransferProgress;
+import cn.boundivore.dl.ssh.service.SshService;
+import cn.boundivore.dl.ssh.tools.SshConnectionPool;
+import cn.boundivore.dl.ssh.tools.SshTool;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Description: 通过 NodePushDistributor 向多个节点并发推送安装包，分发源调度、节点间转发、校验与退化逻辑均为生产代码，
+ * 仅将 Master 推送与节点上执行的命令替换为在本机记录分发关系：
+ * 校验每个分发源的并发不超过扇出上限、转发仅来自已接收完成的节点、转发时校验主机公钥且逐个文件更新进度，
+ * 以及转发失败后退化为由 Master 推送
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/15
+ * Modification description: 改为驱动 NodePushDistributor，不再单独模拟调度与耗时
+ * Modified by: Boundivore
+ * Modification time: 2024/7/6
+ * Version: V1.0
+ */
+@Slf4j
+public class NodePushDistributorTest {
+
+    private static final int FAN_OUT = 2;
+
+    private static final long TRANSFER_MILLIS = 50L;
+
+    private static final long NODE_JOB_ID = 1L;
+
+    private static final String MASTER = "master";
+
+    private static final String KNOWN_HOSTS = "/etc/datalight/known_hosts";
+
+    @TempDir
+    Path tempDir;
+
+    private String localPath;
+
+    private SshTool sshTool;
+
+    private NodeJobService nodeJobService;
+
+    private SshService sshService;
+
+    // 当前线程借用连接的目标主机，节点上执行的命令据此确定执行节点
+    private final ThreadLocal<String> currentHost = new ThreadLocal<>();
+
+    // <目标节点, 分发源>
+    private final Map<String, String> receivedMap = new ConcurrentHashMap<>();
+
+    // <分发源, 同时分发的节点数>
+    private final Map<String, Integer> activeMap = new ConcurrentHashMap<>();
+
+    // <分发源, 同时分发的最大节点数>
+    private final Map<String, Integer> maxActiveMap = new ConcurrentHashMap<>();
+
+    private final List<String> relayCmdList = new CopyOnWriteArrayList<>();
+
+    // 调度异常：由未接收完成的节点转发、重复接收
+    private final List<String> errorList = new CopyOnWriteArrayList<>();
+
+    // <节点, 每次更新数据库时的文件数进度>
+    private final Map<String, List<Long>> progressMap = new ConcurrentHashMap<>();
+
+    private volatile boolean isRelayFailed;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        File localDir = this.tempDir.resolve("master/datalight").toFile();
+        FileUtil.writeString("#!/bin/bash\necho hello\n", FileUtil.file(localDir, "node/scripts/a.sh"), CharsetUtil.UTF_8);
+        FileUtil.writeString("key=value\n", FileUtil.file(localDir, "conf/b.conf"), CharsetUtil.UTF_8);
+        FileUtil.writeBytes(RandomUtil.randomBytes(64 * 1024), FileUtil.file(localDir, "pkg/c.bin"));
+        FileUtil.writeBytes(RandomUtil.randomBytes(64 * 1024), FileUtil.file(localDir, "pkg/d.bin"));
+        FileUtil.mkdir(FileUtil.file(localDir, "logs/empty"));
+        this.localPath = this.tempDir.resolve("master").toFile().getAbsolutePath();
+
+        this.sshTool = Mockito.spy(SshTool.getInstance());
+        // 节点间转发
+        Mockito.doAnswer(invocation -> this.relay(
+                        invocation.getArgument(1),
+                        invocation.getArgument(2),
+                        invocation.getArgument(5)
+                ))
+                .when(this.sshTool)
+                .exec(Mockito.any(), Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any(), Mockito.any());
+        // 目标节点上的校验
+        Mockito.doAnswer(invocation -> new SshTool.ExecResult(
+                        this.receivedMap.containsKey(this.currentHost.get()) ? 0 : 1,
+                        ""
+                ))
+                .when(this.sshTool)
+                .exec(Mockito.any(), Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any());
+
+        SshConnectionPool sshConnectionPool = Mockito.mock(SshConnectionPool.class);
+        SshConnectionPool.Lease lease = Mockito.mock(SshConnectionPool.Lease.class);
+        Mockito.doAnswer(invocation -> {
+                    this.currentHost.set(invocation.getArgument(0));
+                    return lease;
+                })
+                .when(sshConnectionPool)
+                .borrow(Mockito.anyString(), Mockito.anyInt(), Mockito.anyString(), Mockito.anyString());
+
+        this.sshService = Mockito.mock(SshService.class);
+        Mockito.when(this.sshService.sshTool()).thenReturn(this.sshTool);
+        Mockito.when(this.sshService.sshConnectionPool()).thenReturn(sshConnectionPool);
+
+        // Master 直接推送
+        this.nodeJobService = Mockito.mock(NodeJobService.class);
+        Mockito.doAnswer(invocation -> {
+                    TransferProgress transferProgress = invocation.getArgument(0);
+                    String hostname = invocation.getArgument(1);
+                    this.transfer(MASTER, hostname, () -> transferProgress.complete());
+                    return null;
+                })
+                .when(this.nodeJobService)
+                .push(
+                        Mockito.any(TransferProgress.class),
+                        Mockito.anyString(),
+                        Mockito.anyInt(),
+                        Mockito.anyString(),
+                        Mockito.anyString(),
+                        Mockito.anyString()
+                );
+    }
+
+    @Test
+    public void relayDisabledByDefault() throws Exception {
+        Value value = NodePushDistributor.class.getDeclaredField("isRelayEnabled").getAnnotation(Value.class);
+        Assertions.assertTrue(value.value().endsWith(":false}"));
+
+        this.pushAll(this.newDistributor(false), 8);
+
+        Assertions.assertTrue(this.errorList.isEmpty(), this.errorList.toString());
+        Assertions.assertEquals(8, this.receivedMap.size());
+        Assertions.assertTrue(this.receivedMap.values().stream().allMatch(MASTER::equals));
+        Assertions.assertTrue(this.relayCmdList.isEmpty());
+    }
+
+    @Test
+    public void relayFromReceivedNodes() throws Exception {
+        final int nodeCount = 32;
+        long costMillis = this.pushAll(this.newDistributor(true), nodeCount);
+
+        long masterCount = this.receivedMap.values().stream().filter(MASTER::equals).count();
+        log.info("节点数: {}, 由 Master 推送: {}, 由节点转发: {}, 耗时: {} ms",
+                nodeCount,
+                masterCount,
+                nodeCount - masterCount,
+                costMillis
+        );
+
+        Assertions.assertTrue(this.errorList.isEmpty(), this.errorList.toString());
+        Assertions.assertEquals(nodeCount, this.receivedMap.size());
+        // Master 同时最多推送 FAN_OUT 个节点，其余节点由已接收完成的节点逐轮转发
+        Assertions.assertTrue(masterCount < nodeCount / 2);
+        Assertions.assertEquals(nodeCount - masterCount, this.relayCmdList.size());
+        this.maxActiveMap.forEach((source, maxActive) ->
+                Assertions.assertTrue(maxActive <= FAN_OUT, source + " 同时分发 " + maxActive + " 个节点")
+        );
+
+        this.relayCmdList.forEach(cmd -> {
+            Assertions.assertTrue(cmd.contains("-o StrictHostKeyChecking=yes -o UserKnownHostsFile=" + KNOWN_HOSTS));
+            Assertions.assertFalse(cmd.contains("StrictHostKeyChecking=no"));
+        });
+
+        // 转发的节点逐个文件更新进度，而非仅在结束时标记完成
+        this.receivedMap.forEach((hostname, source) -> {
+            if (MASTER.equals(source)) return;
+
+            List<Long> progressList = this.progressMap.get(hostname);
+            Assertions.assertTrue(progressList.stream().anyMatch(i -> i > 0 && i < 100), hostname + ": " + progressList);
+            for (int i = 1; i < progressList.size(); i++) {
+                Assertions.assertTrue(progressList.get(i - 1) <= progressList.get(i));
+            }
+            Assertions.assertEquals(100L, progressList.get(progressList.size() - 1));
+        });
+    }
+
+    @Test
+    public void fallbackToMasterWhenRelayFails() throws Exception {
+        this.isRelayFailed = true;
+
+        final int nodeCount = 16;
+        this.pushAll(this.newDistributor(true), nodeCount);
+
+        Assertions.assertTrue(this.errorList.isEmpty(), this.errorList.toString());
+        Assertions.assertEquals(nodeCount, this.receivedMap.size());
+        Assertions.assertTrue(this.receivedMap.values().stream().allMatch(MASTER::equals));
+        // 首次转发失败后不再尝试转发，仅首批种子节点上已开始的转发会失败
+        Assertions.assertTrue(this.relayCmdList.size() <= FAN_OUT * FAN_OUT, this.relayCmdList.size() + "");
+    }
+
+    @Test
+    public void fallbackToMasterWhenRelayDisabled() throws Exception {
+        NodePushSwarm swarm = new NodePushSwarm(FAN_OUT);
+
+        NodePushSwarm.Source master = swarm.acquire(1, TimeUnit.SECONDS);
+        Assertions.assertTrue(master.isMaster());
+        swarm.release(master, new NodePushSwarm.Source("node01", 22, "id_rsa"));
+
+        NodePushSwarm.Source seed = swarm.acquire(1, TimeUnit.SECONDS);
+        Assertions.assertFalse(seed.isMaster());
+
+        // 转发失败后不再使用种子节点，且 Master 不再受扇出限制
+        swarm.disableRelay();
+        swarm.release(seed, null);
+
+        List<NodePushSwarm.Source> sourceList = new ArrayList<>();
+        for (int i = 0; i < FAN_OUT * 4; i++) {
+            NodePushSwarm.Source source = swarm.acquire(0, TimeUnit.SECONDS);
+            Assertions.assertTrue(source.isMaster());
+            sourceList.add(source);
+        }
+        sourceList.forEach(i -> swarm.release(i, null));
+    }
+
+    private NodePushDistributor newDistributor(boolean isRelayEnabled) {
+        NodePushDistributor distributor = new NodePushDistributor(this.nodeJobService, this.sshService);
+        ReflectionTestUtils.setField(distributor, "isRelayEnabled", isRelayEnabled);
+        ReflectionTestUtils.setField(distributor, "fanOut", FAN_OUT);
+        ReflectionTestUtils.setField(distributor, "relayKnownHosts", KNOWN_HOSTS);
+        return distributor;
+    }
+
+    /**
+     * 所有节点同时开始推送，与 NodeJob 中各节点 NodeTask 并发执行一致
+     *
+     * @return 全部节点接收完成的耗时(毫秒)
+     */
+    private long pushAll(NodePushDistributor distributor, int nodeCount) throws Exception {
+        NodeJobMeta nodeJobMeta = new NodeJobMeta().setId(NODE_JOB_ID);
+        ExecutorService executor = Executors.newFixedThreadPool(nodeCount);
+        try {
+            long start = System.currentTimeMillis();
+
+            List<Future<?>> futureList = new ArrayList<>();
+            for (int i = 0; i < nodeCount; i++) {
+                String hostname = String.format("node%02d", i);
+                List<Long> progressList = new CopyOnWriteArrayList<>();
+                this.progressMap.put(hostname, progressList);
+
+                futureList.add(executor.submit(() -> {
+                    TransferProgress transferProgress = this.sshTool.initNodePushProgress(this.localPath, null, true);
+                    transferProgress.setUpdateDatabaseCallback(p -> progressList.add(p.getTotalFileCountProgress()));
+
+                    distributor.push(
+                            new NodeTaskMeta()
+                                    .setNodeJobMeta(nodeJobMeta)
+                                    .setHostname(hostname)
+                                    .setSshPort(22)
+                                    .setPrivateKeyPath("id_rsa"),
+                            new NodeStepMeta().setTimeout(60L),
+                            transferProgress,
+                            this.localPath,
+                            "/opt"
+                    );
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futureList) {
+                future.get();
+            }
+
+            return System.currentTimeMillis() - start;
+        } finally {
+            distributor.release(NODE_JOB_ID);
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 分发源节点上执行的转发命令：目标节点按 tar -v 的输出逐个回调已解压的路径
+     */
+    private SshTool.ExecResult relay(String cmd, String input, Consumer<String> lineConsumer) throws Exception {
+        this.relayCmdList.add(cmd);
+        if (this.isRelayFailed) {
+            return new SshTool.ExecResult(255, "Host key verification failed.");
+        }
+
+        String source = this.currentHost.get();
+        String hostname = ReUtil.get("root@(\\S+)", cmd, 1);
+        if (!this.receivedMap.containsKey(source)) {
+            this.errorList.add(String.format("%s 未接收完成即转发到 %s", source, hostname));
+        }
+
+        this.transfer(source, hostname, () -> StrUtil.split(input, '\n', true, true).forEach(lineConsumer));
+        return new SshTool.ExecResult(0, "");
+    }
+
+    private void transfer(String source, String hostname, Runnable onTransfer) throws InterruptedException {
+        int active = this.activeMap.merge(source, 1, Integer::sum);
+        this.maxActiveMap.merge(source, active, Math::max);
+        try {
+            TimeUnit.MILLISECONDS.sleep(TRANSFER_MILLIS);
+            onTransfer.run();
+            if (this.receivedMap.putIfAbsent(hostname, source) != null) {
+                this.errorList.add(String.format("%s 重复接收", hostname));
+            }
+        } finally {
+            this.activeMap.merge(source, -1, Integer::sum);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.worker.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * Description: 日志文件的稀疏行索引：每隔 INTERVAL 行记录一次该行起始的字节偏移量，
+ * 定位第 N 行时只需从最近的检查点向后扫描不超过 INTERVAL 行；日志文件持续追加时，索引从上次扫描的位置继续构建
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/18
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+public class LogFileLineIndex {
+
+    // 相邻检查点之间的行数
+    public static final int INTERVAL = 1024;
+
+    // 每次扫描读取的字节数
+    private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+
+    // 文件标识（inode 或创建时间），用于判断文件是否已被滚动替换
+    private final Object fileKey;
+
+    // checkpoints[i] 为第 i * INTERVAL + 1 行起始的字节偏移量
+    private long[] checkpoints = new long[64];
+
+    private int checkpointCount = 1;
+
+    // 已扫描到的字节偏移量
+    private long scannedOffset;
+
+    // 已扫描范围内的换行符数量
+    private long scannedLines;
+
+    public LogFileLineIndex(Object fileKey) {
+        this.fileKey = fileKey;
+    }
+
+    /**
+     * Description: 判断当前索引是否仍适用于该文件：文件未被替换且未被截断
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/18
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param fileKey  当前文件标识
+     * @param fileSize 当前文件大小
+     * @return 是否仍然有效
+     */
+    public synchronized boolean isValid(Object fileKey, long fileSize) {
+        return this.fileKey.equals(fileKey) && fileSize >= this.scannedOffset;
+    }
+
+    /**
+     * Description: 获取第 lineNumber 行起始的字节偏移量
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/18
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: IOException 读取文件失败
+     *
+     * @param channel    日志文件通道
+     * @param lineNumber 行号，从 1 开始
+     * @return 该行起始的字节偏移量，文件行数不足时返回 -1
+     */
+    public synchronized long lineOffset(FileChannel channel, long lineNumber) throws IOException {
+        // 第 lineNumber 行之前的换行符数量
+        final long lineIndex = lineNumber - 1;
+        if (lineIndex == 0) return 0L;
+
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+
+        if (this.scannedLines < lineIndex) {
+            this.scanForward(channel, lineIndex, buffer);
+            if (this.scannedLines < lineIndex) return -1L;
+        }
+
+        int checkpoint = (int) (lineIndex / INTERVAL);
+        long offset = this.checkpoints[checkpoint];
+        long lines = (long) checkpoint * INTERVAL;
+
+        // 从检查点向后扫描，直到遇到第 lineIndex 个换行符
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) return lines == lineIndex ? offset : -1L;
+            buffer.flip();
+            for (int i = 0; i < read; i++) {
+                if (lines == lineIndex) return offset + i;
+                if (buffer.get(i) == '\n') lines++;
+            }
+            if (lines == lineIndex) return offset + read;
+            offset += read;
+        }
+    }
+
+    /**
+     * Description: 从上次扫描的位置继续扫描，直到换行符数量达到 lineIndex 或到达文件末尾，并沿途记录检查点
+     */
+    private void scanForward(FileChannel channel, long lineIndex, ByteBuffer buffer) throws IOException {
+        while (this.scannedLines < lineIndex) {
+            buffer.clear();
+            int read = channel.read(buffer, this.scannedOffset);
+            if (read <= 0) return;
+            buffer.flip();
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) != '\n') continue;
+                this.scannedLines++;
+                if (this.scannedLines % INTERVAL == 0) {
+                    this.addCheckpoint(this.scannedOffset + i + 1);
+                }
+            }
+            this.scannedOffset += read;
+        }
+    }
+
+    private void addCheckpoint(long offset) {
+        if (this.checkpointCount == this.checkpoints.length) {
+            this.checkpoints = Arrays.copyOf(this.checkpoints, this.checkpoints.length * 2);
+        }
+        this.checkpoints[this.checkpointCount++] = offset;
+    }
+}
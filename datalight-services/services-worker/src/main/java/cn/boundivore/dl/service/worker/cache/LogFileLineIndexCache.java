@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.worker.cache;
+
+import cn.hutool.cache.Cache;
+import cn.hutool.cache.CacheUtil;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Description: 日志文件稀疏行索引缓存，按文件路径缓存最近使用的若干个文件的行索引，
+ * 文件被滚动替换或被截断时重新构建
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/18
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Component
+public class LogFileLineIndexCache {
+
+    // 最多缓存的文件数量
+    private static final int CAPACITY = 64;
+
+    private final Cache<String, LogFileLineIndex> lineIndexCache = CacheUtil.newLRUCache(CAPACITY);
+
+    /**
+     * Description: 获取指定文件的行索引，不存在或已失效时创建新的索引
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/18
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: IOException 读取文件属性失败
+     *
+     * @param path 日志文件路径
+     * @return LogFileLineIndex 行索引
+     */
+    public LogFileLineIndex get(Path path) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Object fileKey = attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+
+        String key = path.toAbsolutePath().toString();
+        synchronized (this.lineIndexCache) {
+            LogFileLineIndex lineIndex = this.lineIndexCache.get(key, false);
+            if (lineIndex == null || !lineIndex.isValid(fileKey, attributes.size())) {
+                lineIndex = new LogFileLineIndex(fileKey);
+                this.lineIndexCache.put(key, lineIndex);
+            }
+            return lineIndex;
+        }
+    }
+}
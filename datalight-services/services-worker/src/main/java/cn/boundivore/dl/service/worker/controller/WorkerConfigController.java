@@ -19,8 +19,10 @@ package cn.boundivore.dl.service.worker.controller;
 import cn.boundivore.dl.api.worker.define.IWorkerConfigAPI;
 import cn.boundivore.dl.api.worker.define.IWorkerExecAPI;
 import cn.boundivore.dl.base.request.impl.common.TestRequest;
+import cn.boundivore.dl.base.request.impl.worker.ConfigFileDigestRequest;
 import cn.boundivore.dl.base.request.impl.worker.ConfigFileRequest;
 import cn.boundivore.dl.base.request.impl.worker.ExecRequest;
+import cn.boundivore.dl.base.response.impl.common.AbstractConfigFileVo;
 import cn.boundivore.dl.base.result.Result;
 import cn.boundivore.dl.service.worker.service.WorkerConfigService;
 import cn.boundivore.dl.service.worker.service.WorkerExecService;
@@ -47,4 +49,9 @@ public class WorkerConfigController implements IWorkerConfigAPI {
     public Result<String> config(ConfigFileRequest request) {
         return workerConfigService.config(request);
     }
+
+    @Override
+    public Result<AbstractConfigFileVo.ConfigFileDigestVo> digest(ConfigFileDigestRequest request) {
+        return workerConfigService.digest(request);
+    }
 }
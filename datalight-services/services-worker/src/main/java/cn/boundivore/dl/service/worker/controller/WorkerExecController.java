@@ -17,8 +17,10 @@
 package cn.boundivore.dl.service.worker.controller;
 
 import cn.boundivore.dl.api.worker.define.IWorkerExecAPI;
+import cn.boundivore.dl.base.request.impl.worker.ExecBatchRequest;
 import cn.boundivore.dl.base.request.impl.worker.ExecRequest;
 import cn.boundivore.dl.base.request.impl.common.TestRequest;
+import cn.boundivore.dl.base.response.impl.common.AbstractExecVo;
 import cn.boundivore.dl.base.result.Result;
 import cn.boundivore.dl.service.worker.service.WorkerExecService;
 import lombok.RequiredArgsConstructor;
@@ -45,6 +47,11 @@ public class WorkerExecController implements IWorkerExecAPI {
         return workerExecService.exec(request);
     }
 
+    @Override
+    public Result<AbstractExecVo.ExecBatchVo> execBatch(ExecBatchRequest request) {
+        return workerExecService.execBatch(request);
+    }
+
     @Override
     public Result<String> test(TestRequest request) {
 //        throw new BException("出错咯");
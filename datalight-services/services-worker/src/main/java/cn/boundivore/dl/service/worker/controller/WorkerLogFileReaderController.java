@@ -48,4 +48,14 @@ public class WorkerLogFileReaderController implements IWorkerLogFileReaderAPI {
     public Result<AbstractLogFileVo.LogFileContentVo> loadFileContent(String filePath, Long startOffset, Long endOffset) throws Exception {
         return this.workerLogFileReaderService.loadFileContent(filePath, startOffset, endOffset);
     }
+
+    @Override
+    public Result<AbstractLogFileVo.LogFileContentVo> tailFileContent(String filePath, Long tailBytes) throws Exception {
+        return this.workerLogFileReaderService.tailFileContent(filePath, tailBytes);
+    }
+
+    @Override
+    public Result<AbstractLogFileVo.LogFileContentVo> loadFileContentByLine(String filePath, Long lineNumber, Long length) throws Exception {
+        return this.workerLogFileReaderService.loadFileContentByLine(filePath, lineNumber, length);
+    }
 }
@@ -0,0 +1,212 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.worker.service;
+
+import cn.boundivore.dl.base.request.impl.master.ExecOutputRequest;
+import cn.hutool.core.exceptions.ExceptionUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * Description: 将一次脚本执行过程中的输出按行累积为有限大小的分块，并按序推送。
+ * 待推送的分块数量有上限，推送跟不上输出速度时丢弃最早的分块，并在下一个推送的分块中注明丢弃的字符数，
+ * 因此无论脚本输出多少，占用的内存都是有限的
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/25
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class ExecOutputChunker implements Consumer<String>, Closeable {
+
+    @Getter
+    private final String streamId;
+
+    // 单个分块的最大字符数
+    private final int chunkChars;
+
+    // 最多积压的分块数量
+    private final int maxPendingChunks;
+
+    // 推送分块，抛出异常视为推送失败，分块将在下次推送时重试
+    private final Consumer<ExecOutputRequest> sender;
+
+    // 保护 currentChunk、pendingChunks、pendingDroppedChars
+    private final Object bufferLock = new Object();
+
+    // 保证同一输出流的分块按序推送
+    private final Object sendLock = new Object();
+
+    private final StringBuilder currentChunk = new StringBuilder();
+
+    private final Deque<String> pendingChunks = new ArrayDeque<>();
+
+    // 尚未告知 Master 的已丢弃字符数
+    private long pendingDroppedChars;
+
+    // 累计丢弃的字符数
+    @Getter
+    private volatile long droppedChars;
+
+    // 下一个推送的分块序号，仅在 sendLock 内访问
+    private long nextSeq;
+
+    public ExecOutputChunker(String streamId,
+                             int chunkChars,
+                             int maxPendingChunks,
+                             Consumer<ExecOutputRequest> sender) {
+        this.streamId = streamId;
+        this.chunkChars = chunkChars;
+        this.maxPendingChunks = maxPendingChunks;
+        this.sender = sender;
+    }
+
+    /**
+     * Description: 接收一行输出，累积满一个分块后放入待推送队列
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param line 一行输出
+     */
+    @Override
+    public void accept(String line) {
+        synchronized (this.bufferLock) {
+            int offset = 0;
+            while (offset < line.length()) {
+                int count = Math.min(this.chunkChars - this.currentChunk.length(), line.length() - offset);
+                this.currentChunk.append(line, offset, offset + count);
+                offset += count;
+
+                if (this.currentChunk.length() >= this.chunkChars) this.sealCurrentChunk();
+            }
+        }
+    }
+
+    /**
+     * Description: 将当前累积的输出作为一个分块放入待推送队列，队列已满时丢弃最早的分块
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    private void sealCurrentChunk() {
+        if (this.currentChunk.length() == 0) return;
+
+        this.offerPendingChunk(this.currentChunk.toString(), false);
+        this.currentChunk.setLength(0);
+    }
+
+    private void offerPendingChunk(String chunk, boolean isFirst) {
+        if (this.pendingChunks.size() >= this.maxPendingChunks) {
+            String dropped = isFirst ? chunk : this.pendingChunks.pollFirst();
+            this.pendingDroppedChars += dropped.length();
+            this.droppedChars += dropped.length();
+            if (isFirst) return;
+        }
+
+        if (isFirst) {
+            this.pendingChunks.offerFirst(chunk);
+        } else {
+            this.pendingChunks.offerLast(chunk);
+        }
+    }
+
+    /**
+     * Description: 按序推送当前所有积压的输出，推送失败时保留分块，等待下次推送
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @return int 本次推送成功的分块数量
+     */
+    public int push() {
+        int sentCount = 0;
+
+        synchronized (this.sendLock) {
+            while (true) {
+                final String chunk;
+                final long droppedChars;
+                synchronized (this.bufferLock) {
+                    if (this.pendingChunks.isEmpty()) this.sealCurrentChunk();
+
+                    chunk = this.pendingChunks.pollFirst();
+                    if (chunk == null) break;
+
+                    droppedChars = this.pendingDroppedChars;
+                    this.pendingDroppedChars = 0L;
+                }
+
+                try {
+                    this.sender.accept(
+                            new ExecOutputRequest(
+                                    this.streamId,
+                                    this.nextSeq,
+                                    droppedChars,
+                                    chunk
+                            )
+                    );
+                    this.nextSeq++;
+                    sentCount++;
+                } catch (Exception e) {
+                    log.warn("推送执行输出失败: {}, {}", this.streamId, ExceptionUtil.getMessage(e));
+                    synchronized (this.bufferLock) {
+                        this.pendingDroppedChars += droppedChars;
+                        this.offerPendingChunk(chunk, true);
+                    }
+                    break;
+                }
+            }
+        }
+
+        return sentCount;
+    }
+
+    /**
+     * Description: 执行结束后推送剩余的输出
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    @Override
+    public void close() {
+        this.push();
+    }
+}
@@ -17,7 +17,9 @@
 package cn.boundivore.dl.service.worker.service;
 
 import cn.boundivore.dl.base.bash.BashResult;
+import cn.boundivore.dl.base.request.impl.worker.ConfigFileDigestRequest;
 import cn.boundivore.dl.base.request.impl.worker.ConfigFileRequest;
+import cn.boundivore.dl.base.response.impl.common.AbstractConfigFileVo;
 import cn.boundivore.dl.base.result.Result;
 import cn.boundivore.dl.boot.bash.BashExecutor;
 import cn.boundivore.dl.cloud.utils.SpringContextUtil;
@@ -27,12 +29,15 @@ import cn.hutool.core.codec.Base64;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.lang.Assert;
 import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.crypto.SecureUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Description: Worker 修改配置文件相关
@@ -117,6 +122,37 @@ public class WorkerConfigService {
         return Result.success();
     }
 
+    /**
+     * Description: 获取 Worker 所在节点上配置文件内容的 SHA256，供 Master 仅下发内容发生变化的配置文件
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/16
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param request 获取配置文件摘要请求体
+     * @return Result<ConfigFileDigestVo> 不存在或不是文件的路径不会出现在结果中
+     */
+    public Result<AbstractConfigFileVo.ConfigFileDigestVo> digest(ConfigFileDigestRequest request) {
+
+        // <配置文件路径, SHA256>
+        final Map<String, String> pathSha256Map = new LinkedHashMap<>();
+
+        request.getPathList()
+                .stream()
+                .distinct()
+                .filter(i -> FileUtil.isFile(FileUtil.file(i)))
+                .forEach(i -> pathSha256Map.put(i, SecureUtil.sha256(FileUtil.file(i))));
+
+        return Result.success(
+                AbstractConfigFileVo.ConfigFileDigestVo.builder()
+                        .pathSha256Map(pathSha256Map)
+                        .build()
+        );
+    }
+
     /**
      * Description: 查找本次操作将会创建的多级父目录的最高一级
      * Created by: Boundivore
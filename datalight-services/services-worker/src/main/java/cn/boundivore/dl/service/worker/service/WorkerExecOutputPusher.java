@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.worker.service;
+
+import cn.boundivore.dl.api.master.define.IMasterManageAPI;
+import cn.boundivore.dl.base.request.impl.master.ExecOutputRequest;
+import cn.boundivore.dl.exception.BException;
+import cn.boundivore.dl.service.worker.cache.MetaCache;
+import cn.hutool.core.exceptions.ExceptionUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description: 执行脚本过程中，周期性地将输出分块推送至 Master，使 Master 在 Step 结束前即可查看输出
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/25
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class WorkerExecOutputPusher {
+
+    // 单个分块的最大字符数
+    private static final int CHUNK_CHARS = 16 * 1024;
+
+    // 每个输出流最多积压的分块数量
+    private static final int MAX_PENDING_CHUNKS = 32;
+
+    // 推送间隔，单位：毫秒
+    private static final long PUSH_INTERVAL_MILLIS = 1000L;
+
+    private final MetaCache metaCache;
+
+    private final RemoteInvokeMasterService remoteInvokeMasterService;
+
+    // 执行中的输出流
+    private final Set<ExecOutputChunker> chunkerSet = ConcurrentHashMap.newKeySet();
+
+    // <MasterIp, IMasterManageAPI>
+    private final Map<String, IMasterManageAPI> masterManageAPIMap = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService pushScheduler;
+
+    @PostConstruct
+    public void init() {
+        this.pushScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "exec-output-pusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.pushScheduler.scheduleWithFixedDelay(
+                this::pushAll,
+                PUSH_INTERVAL_MILLIS,
+                PUSH_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    @PreDestroy
+    public void destroy() {
+        this.pushScheduler.shutdownNow();
+    }
+
+    /**
+     * Description: 开始一次需要推送输出的脚本执行
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param streamId 输出流标识
+     * @return ExecOutputChunker 逐行接收输出，执行结束后须调用 finish
+     */
+    public ExecOutputChunker open(String streamId) {
+        final ExecOutputChunker chunker = new ExecOutputChunker(
+                streamId,
+                CHUNK_CHARS,
+                MAX_PENDING_CHUNKS,
+                this::send
+        );
+
+        this.chunkerSet.add(chunker);
+        return chunker;
+    }
+
+    /**
+     * Description: 脚本执行结束，推送剩余的输出
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/25
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param chunker 输出流
+     */
+    public void finish(ExecOutputChunker chunker) {
+        this.chunkerSet.remove(chunker);
+        chunker.close();
+
+        if (chunker.getDroppedChars() > 0) {
+            log.warn("推送执行输出积压, 已丢弃 {} 个字符: {}", chunker.getDroppedChars(), chunker.getStreamId());
+        }
+    }
+
+    private void pushAll() {
+        try {
+            this.chunkerSet.forEach(ExecOutputChunker::push);
+        } catch (Exception e) {
+            log.error(ExceptionUtil.stacktraceToString(e));
+        }
+    }
+
+    private void send(ExecOutputRequest request) {
+        final MetaCache.MasterMeta masterMeta = this.metaCache.getMasterMeta();
+        if (masterMeta == null) throw new BException("尚未获取到 Master 信息");
+
+        try {
+            this.masterManageAPIMap.computeIfAbsent(
+                    masterMeta.getIp(),
+                    this.remoteInvokeMasterService::iMasterManageAPI
+            ).execOutput(request);
+        } catch (Exception e) {
+            throw new BException(ExceptionUtil.getMessage(e));
+        }
+    }
+}
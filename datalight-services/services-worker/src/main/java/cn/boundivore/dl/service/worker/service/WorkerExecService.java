@@ -18,23 +18,31 @@ package cn.boundivore.dl.service.worker.service;
 
 import cn.boundivore.dl.base.bash.BashResult;
 import cn.boundivore.dl.base.constants.Constants;
+import cn.boundivore.dl.base.request.impl.worker.ExecBatchRequest;
 import cn.boundivore.dl.base.request.impl.worker.ExecRequest;
+import cn.boundivore.dl.base.response.impl.common.AbstractExecVo;
 import cn.boundivore.dl.base.result.Result;
 import cn.boundivore.dl.boot.bash.BashExecutor;
 import cn.boundivore.dl.exception.BashException;
+import cn.hutool.core.exceptions.ExceptionUtil;
 import cn.hutool.core.lang.Assert;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Description: 工作节点执行脚本 Service
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2023/5/5
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 请求中携带 StreamId 时，执行过程中将输出分块推送至 Master；新增批量执行
+ * Modified by: Boundivore
+ * Modification time: 2024/6/26
  * Version: V1.0
  */
 @Service
@@ -44,6 +52,8 @@ public class WorkerExecService {
 
     protected final BashExecutor bashExecutor;
 
+    protected final WorkerExecOutputPusher workerExecOutputPusher;
+
 
     /**
      * Description: 执行 Worker 所在节点的 Bash 命令
@@ -65,14 +75,24 @@ public class WorkerExecService {
                 Constants.SCRIPT_DEFAULT_TIMEOUT :
                 request.getTimeout();
 
-        BashResult bashResult = bashExecutor.execute(
-                request.getExec(),
-                request.getExpectExitCode(),
-                timeout,
-                request.getArgs(),
-                request.getInteractArgs(),
-                printLog
-        );
+        final ExecOutputChunker chunker = StrUtil.isNotBlank(request.getStreamId()) ?
+                this.workerExecOutputPusher.open(request.getStreamId()) :
+                null;
+
+        final BashResult bashResult;
+        try {
+            bashResult = bashExecutor.execute(
+                    request.getExec(),
+                    request.getExpectExitCode(),
+                    timeout,
+                    request.getArgs(),
+                    request.getInteractArgs(),
+                    printLog,
+                    chunker
+            );
+        } finally {
+            if (chunker != null) this.workerExecOutputPusher.finish(chunker);
+        }
 
         Assert.isTrue(
                 bashResult.isSuccess(),
@@ -93,4 +113,59 @@ public class WorkerExecService {
                 )
         );
     }
+
+    /**
+     * Description: 按顺序批量执行 Worker 所在节点的 Bash 命令，每个命令执行结束后按需休眠；
+     * 某个命令执行失败时不再执行后续命令，已返回的结果与请求中的命令按顺序一一对应
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/26
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param request 批量执行命令请求体
+     * @return Result<AbstractExecVo.ExecBatchVo> 已执行命令的结果
+     */
+    public Result<AbstractExecVo.ExecBatchVo> execBatch(ExecBatchRequest request) {
+        final List<AbstractExecVo.ExecResultVo> execResultList = new ArrayList<>();
+
+        for (ExecBatchRequest.ExecStep execStep : request.getExecStepList()) {
+            final long startTime = System.currentTimeMillis();
+
+            boolean isSuccess;
+            String output;
+            try {
+                output = this.exec(execStep.getExec()).getData();
+                isSuccess = true;
+            } catch (Exception e) {
+                output = ExceptionUtil.getMessage(e);
+                isSuccess = false;
+            }
+
+            // 等待进程初始化等场景需要在执行后休眠，在 Worker 端休眠可省去 Master 的一次远程调用
+            if (execStep.getSleep() != null && execStep.getSleep() > 0) {
+                ThreadUtil.safeSleep(execStep.getSleep());
+            }
+
+            execResultList.add(
+                    AbstractExecVo.ExecResultVo.builder()
+                            .name(execStep.getExec().getName())
+                            .isSuccess(isSuccess)
+                            .output(output)
+                            .duration(System.currentTimeMillis() - startTime)
+                            .build()
+            );
+
+            // Master 按结果顺序对应 Step，执行失败时不再执行后续脚本
+            if (!isSuccess) break;
+        }
+
+        return Result.success(
+                AbstractExecVo.ExecBatchVo.builder()
+                        .execResultList(execResultList)
+                        .build()
+        );
+    }
 }
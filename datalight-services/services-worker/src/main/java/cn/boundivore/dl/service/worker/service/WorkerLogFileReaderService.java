@@ -19,14 +19,21 @@ package cn.boundivore.dl.service.worker.service;
 import cn.boundivore.dl.base.response.impl.common.AbstractLogFileVo;
 import cn.boundivore.dl.base.result.Result;
 import cn.boundivore.dl.exception.BException;
+import cn.boundivore.dl.service.worker.cache.LogFileLineIndexCache;
 import cn.hutool.core.exceptions.ExceptionUtil;
 import cn.hutool.core.lang.Assert;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.io.*;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 
 /**
@@ -44,6 +51,10 @@ import java.util.ArrayList;
 @RequiredArgsConstructor
 public class WorkerLogFileReaderService {
 
+    // 单次读取的最大字节数
+    private static final long MAX_READ_BYTES = 4 * 1024 * 1024L;
+
+    private final LogFileLineIndexCache logFileLineIndexCache;
 
     /**
      * Description: 递归查找指定目录下的所有文件及文件夹，并返回一个树形结构的文件目录视图对象。
@@ -109,7 +120,8 @@ public class WorkerLogFileReaderService {
 
 
     /**
-     * Description: 分步加载文件内容
+     * Description: 分步加载文件内容，偏移量为字节偏移量，通过 FileChannel 按位置随机读取，耗时与文件大小无关；
+     * 读取范围的首尾会对齐到 UTF-8 字符边界，单次最多读取 MAX_READ_BYTES 字节，实际读取的范围以响应体中的偏移量为准
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
      * Creation time: 2024/4/12
@@ -136,61 +148,163 @@ public class WorkerLogFileReaderService {
                 () -> new IllegalArgumentException("非法的参数")
         );
 
-        long maxOffset;
-        try (FileInputStream fis = new FileInputStream(filePath);
-             InputStreamReader isr = new InputStreamReader(fis, StandardCharsets.UTF_8);
-             BufferedReader br = new BufferedReader(isr)) {
-
-            // 尝试跳过一个极大的数字来获取文件的总字符数
-            maxOffset = br.skip(Long.MAX_VALUE);
-
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            return Result.success(this.readRange(filePath, channel, startOffset, endOffset, false));
         } catch (IOException e) {
             String error = ExceptionUtil.stacktraceToString(e);
             log.error(error);
             throw new BException(error);
         }
+    }
 
-        try (FileInputStream fis = new FileInputStream(filePath);
-             InputStreamReader isr = new InputStreamReader(fis, StandardCharsets.UTF_8);
-             BufferedReader br = new BufferedReader(isr)) {
-
-            // 尝试跳过 startOffset 之前的字符
-            long actuallySkipped = br.skip(startOffset);
-            if (actuallySkipped < startOffset) {
-                // 如果实际跳过的字符数小于 startOffset，说明文件不够长，返回空内容
-                AbstractLogFileVo.LogFileContentVo contentVo = AbstractLogFileVo.LogFileContentVo.builder()
-                        .filePath(filePath)
-                        .startOffset(startOffset)
-                        .endOffset(startOffset) // 没有读取内容，endOffset 等于 startOffset
-                        .content("")
-                        .maxOffset(maxOffset)
-                        .build();
-                return Result.success(contentVo);
-            }
+    /**
+     * Description: 读取文件末尾最多 tailBytes 字节的内容，并从其中第一个完整行开始返回
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/18
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param filePath  文件绝对路径
+     * @param tailBytes 读取末尾的字节数
+     * @return Result<AbstractLogFileVo.LogFileContentVo> 文件内容响应体
+     */
+    public Result<AbstractLogFileVo.LogFileContentVo> tailFileContent(String filePath,
+                                                                      Long tailBytes) {
+        Assert.isFalse(
+                filePath == null
+                        || tailBytes == null
+                        || tailBytes < 0,
+                () -> new IllegalArgumentException("非法的参数")
+        );
 
-            StringBuilder contentBuilder = new StringBuilder();
-            long charactersToRead = endOffset - startOffset;
-            int character;
-            while (charactersToRead > 0 && (character = br.read()) != -1) {
-                contentBuilder.append((char) character);
-                charactersToRead--;
-            }
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            long maxOffset = channel.size();
+            return Result.success(
+                    this.readRange(
+                            filePath,
+                            channel,
+                            Math.max(0L, maxOffset - Math.min(tailBytes, MAX_READ_BYTES)),
+                            maxOffset,
+                            true
+                    )
+            );
+        } catch (IOException e) {
+            String error = ExceptionUtil.stacktraceToString(e);
+            log.error(error);
+            throw new BException(error);
+        }
+    }
 
-            String content = contentBuilder.toString();
+    /**
+     * Description: 从第 lineNumber 行开始读取最多 length 字节的内容，通过稀疏行索引定位该行的字节偏移量
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/18
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param filePath   文件绝对路径
+     * @param lineNumber 起始行号，从 1 开始
+     * @param length     读取的字节数
+     * @return Result<AbstractLogFileVo.LogFileContentVo> 文件内容响应体，文件行数不足时内容为空且偏移量均为文件末尾
+     */
+    public Result<AbstractLogFileVo.LogFileContentVo> loadFileContentByLine(String filePath,
+                                                                            Long lineNumber,
+                                                                            Long length) {
+        Assert.isFalse(
+                filePath == null
+                        || lineNumber == null
+                        || length == null
+                        || lineNumber < 1
+                        || length < 0,
+                () -> new IllegalArgumentException("非法的参数")
+        );
 
-            AbstractLogFileVo.LogFileContentVo contentVo = AbstractLogFileVo.LogFileContentVo.builder()
-                    .filePath(filePath)
-                    .startOffset(startOffset)
-                    .endOffset(startOffset + content.length())
-                    .content(content)
-                    .maxOffset(maxOffset)
-                    .build();
+        Path path = Paths.get(filePath);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long lineOffset = this.logFileLineIndexCache.get(path).lineOffset(channel, lineNumber);
+            long startOffset = lineOffset < 0 ? channel.size() : lineOffset;
 
-            return Result.success(contentVo);
+            return Result.success(this.readRange(filePath, channel, startOffset, startOffset + length, false));
         } catch (IOException e) {
             String error = ExceptionUtil.stacktraceToString(e);
             log.error(error);
             throw new BException(error);
         }
     }
+
+    /**
+     * Description: 按字节偏移量读取 [startOffset, endOffset) 范围内的内容，并将首尾对齐到 UTF-8 字符边界
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/18
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: IOException 读取文件失败
+     *
+     * @param filePath      文件绝对路径
+     * @param channel       文件通道
+     * @param startOffset   起始字节偏移量(包含)
+     * @param endOffset     结束字节偏移量(不包含)
+     * @param isAlignToLine 起始位置不在文件开头时，是否跳过第一个不完整的行
+     * @return AbstractLogFileVo.LogFileContentVo 文件内容响应体
+     */
+    private AbstractLogFileVo.LogFileContentVo readRange(String filePath,
+                                                         FileChannel channel,
+                                                         long startOffset,
+                                                         long endOffset,
+                                                         boolean isAlignToLine) throws IOException {
+        final long maxOffset = channel.size();
+        final long start = Math.min(startOffset, maxOffset);
+        final long end = Math.min(Math.min(endOffset, maxOffset), start + MAX_READ_BYTES);
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) <= 0) break;
+        }
+        byte[] bytes = buffer.array();
+        int limit = buffer.position();
+
+        // 跳过被截断的多字节字符的后续字节
+        int from = 0;
+        while (from < limit && isContinuationByte(bytes[from])) from++;
+
+        if (isAlignToLine && start > 0) {
+            int lineStart = from;
+            while (lineStart < limit && bytes[lineStart] != '\n') lineStart++;
+            if (lineStart < limit) from = lineStart + 1;
+        }
+
+        // 末尾多字节字符不完整时，留待下次读取
+        int to = limit;
+        int lead = to - 1;
+        while (lead >= from && lead > to - 4 && isContinuationByte(bytes[lead])) lead--;
+        if (lead >= from && lead + utf8Length(bytes[lead]) > to) to = lead;
+
+        return AbstractLogFileVo.LogFileContentVo.builder()
+                .filePath(filePath)
+                .startOffset(start + from)
+                .endOffset(start + Math.max(from, to))
+                .content(to > from ? new String(bytes, from, to - from, StandardCharsets.UTF_8) : "")
+                .maxOffset(maxOffset)
+                .build();
+    }
+
+    private static boolean isContinuationByte(byte b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    private static int utf8Length(byte lead) {
+        if ((lead & 0x80) == 0) return 1;
+        if ((lead & 0xE0) == 0xC0) return 2;
+        if ((lead & 0xF0) == 0xE0) return 3;
+        if ((lead & 0xF8) == 0xF0) return 4;
+        return 1;
+    }
 }
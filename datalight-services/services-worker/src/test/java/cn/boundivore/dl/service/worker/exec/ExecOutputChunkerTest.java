@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.worker.exec;
+
+import cn.boundivore.dl.base.bash.BashLogOutputStream;
+import cn.boundivore.dl.base.request.impl.master.ExecOutputRequest;
+import cn.boundivore.dl.service.worker.service.ExecOutputChunker;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Description: 测试执行输出的分块推送：分块有序且内容完整、推送跟不上时内存占用有限且丢弃量可追溯，
+ * 以及脚本持续大量输出时 BashLogOutputStream 在内存中仅保留有限的输出
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/25
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class ExecOutputChunkerTest {
+
+    private static final int CHUNK_CHARS = 1024;
+
+    private static final int MAX_PENDING_CHUNKS = 8;
+
+    @Test
+    public void pushInOrderAndComplete() {
+        final List<ExecOutputRequest> sentList = new ArrayList<>();
+        final ExecOutputChunker chunker = new ExecOutputChunker("1", CHUNK_CHARS, MAX_PENDING_CHUNKS, sentList::add);
+
+        final StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            String line = String.format("line-%s\n", i);
+            expected.append(line);
+            chunker.accept(line);
+
+            // 模拟周期性推送
+            if (i % 500 == 0) chunker.push();
+        }
+        chunker.close();
+
+        final StringBuilder actual = new StringBuilder();
+        for (int i = 0; i < sentList.size(); i++) {
+            ExecOutputRequest request = sentList.get(i);
+            Assertions.assertEquals(i, request.getSeq().longValue());
+            Assertions.assertEquals(0L, request.getDroppedChars().longValue());
+            Assertions.assertTrue(request.getContent().length() <= CHUNK_CHARS);
+            actual.append(request.getContent());
+        }
+
+        Assertions.assertEquals(expected.toString(), actual.toString());
+        Assertions.assertEquals(0L, chunker.getDroppedChars());
+    }
+
+    @Test
+    public void boundedWhenMasterUnavailable() {
+        final AtomicBoolean isMasterAvailable = new AtomicBoolean(false);
+        final List<ExecOutputRequest> sentList = new ArrayList<>();
+        final ExecOutputChunker chunker = new ExecOutputChunker("2", CHUNK_CHARS, MAX_PENDING_CHUNKS, request -> {
+            if (!isMasterAvailable.get()) throw new IllegalStateException("Master 不可用");
+            sentList.add(request);
+        });
+
+        // Master 不可用期间输出 8 MB
+        final String line = repeat('x', 127) + "\n";
+        long totalChars = 0L;
+        for (int i = 0; i < 64 * 1024; i++) {
+            chunker.accept(line);
+            totalChars += line.length();
+            if (i % 1024 == 0) Assertions.assertEquals(0, chunker.push());
+        }
+
+        isMasterAvailable.set(true);
+        chunker.close();
+
+        long sentChars = sentList.stream().mapToLong(i -> i.getContent().length()).sum();
+        long reportedDroppedChars = sentList.stream().mapToLong(ExecOutputRequest::getDroppedChars).sum();
+
+        log.info("输出: {} 字符, 推送: {} 字符, 丢弃: {} 字符", totalChars, sentChars, chunker.getDroppedChars());
+
+        // 积压的输出不超过 MAX_PENDING_CHUNKS 个分块
+        Assertions.assertTrue(sentChars <= (long) CHUNK_CHARS * (MAX_PENDING_CHUNKS + 1));
+        // 丢弃的字符数如实告知 Master，推送与丢弃之和等于全部输出
+        Assertions.assertEquals(chunker.getDroppedChars(), reportedDroppedChars);
+        Assertions.assertEquals(totalChars, sentChars + reportedDroppedChars);
+        // 保留的是最新的输出
+        Assertions.assertTrue(sentList.get(0).getDroppedChars() > 0);
+        for (int i = 1; i < sentList.size(); i++) {
+            Assertions.assertEquals(0L, sentList.get(i).getDroppedChars().longValue());
+        }
+    }
+
+    @Test
+    public void logOutputStreamRetainsBoundedOutput() throws IOException {
+        final int maxRetainedChars = 64 * 1024;
+        final List<ExecOutputRequest> sentList = new ArrayList<>();
+        final ExecOutputChunker chunker = new ExecOutputChunker("3", CHUNK_CHARS, Integer.MAX_VALUE, sentList::add);
+
+        // 模拟脚本持续输出 16 MB，其中混杂较长的行
+        final byte[] shortLine = (repeat('a', 99) + "\n").getBytes(StandardCharsets.UTF_8);
+        final byte[] longLine = (repeat('b', 4095) + "\n").getBytes(StandardCharsets.UTF_8);
+        long totalBytes = 0L;
+
+        try (BashLogOutputStream logOutputStream = new BashLogOutputStream(maxRetainedChars, chunker)) {
+            for (int i = 0; totalBytes < 16L * 1024 * 1024; i++) {
+                byte[] line = i % 100 == 0 ? longLine : shortLine;
+                logOutputStream.write(line, 0, line.length);
+                totalBytes += line.length;
+
+                if (i % 10_000 == 0) chunker.push();
+            }
+
+            final byte[] lastLine = "done\n".getBytes(StandardCharsets.UTF_8);
+            logOutputStream.write(lastLine, 0, lastLine.length);
+            totalBytes += lastLine.length;
+            chunker.close();
+
+            String output = logOutputStream.getOutput();
+            log.info("输出: {} 字节, 内存中保留: {} 字符", totalBytes, output.length());
+
+            // 内存中仅保留最新的输出，并注明省略的字符数
+            Assertions.assertTrue(output.length() <= maxRetainedChars + 64);
+            Assertions.assertTrue(output.startsWith("[... 已省略 "));
+            Assertions.assertTrue(output.endsWith("done\n"));
+        }
+
+        // 逐行转交的输出完整推送
+        long sentChars = sentList.stream().mapToLong(i -> i.getContent().length()).sum();
+        Assertions.assertEquals(totalBytes, sentChars);
+        Assertions.assertTrue(sentList.get(sentList.size() - 1).getContent().endsWith("done\n"));
+    }
+
+    private static String repeat(char c, int count) {
+        final StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++) sb.append(c);
+        return sb.toString();
+    }
+}
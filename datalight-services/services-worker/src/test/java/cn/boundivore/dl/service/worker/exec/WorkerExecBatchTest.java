@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.worker.exec;
+
+import cn.boundivore.dl.base.enumeration.impl.ExecTypeEnum;
+import cn.boundivore.dl.base.request.impl.worker.ExecBatchRequest;
+import cn.boundivore.dl.base.request.impl.worker.ExecRequest;
+import cn.boundivore.dl.base.response.impl.common.AbstractExecVo;
+import cn.boundivore.dl.boot.bash.BashExecutor;
+import cn.boundivore.dl.service.worker.service.WorkerExecService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Description: 测试 Worker 端批量执行在失败时停止执行后续命令
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/26
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class WorkerExecBatchTest {
+
+    private final WorkerExecService workerExecService = new WorkerExecService(new BashExecutor(), null);
+
+    @Test
+    public void execBatchStopsOnFailure() {
+        List<AbstractExecVo.ExecResultVo> execResultList = this.workerExecService.execBatch(
+                new ExecBatchRequest(this.steps())
+        ).getData().getExecResultList();
+
+        Assertions.assertEquals(2, execResultList.size());
+        Assertions.assertTrue(execResultList.get(0).getIsSuccess());
+        Assertions.assertTrue(execResultList.get(0).getOutput().contains("step-1"));
+        Assertions.assertFalse(execResultList.get(1).getIsSuccess());
+    }
+
+    private List<ExecBatchRequest.ExecStep> steps() {
+        List<ExecBatchRequest.ExecStep> execStepList = new ArrayList<>();
+        execStepList.add(new ExecBatchRequest.ExecStep(this.exec("echo step-1"), 0L));
+        execStepList.add(new ExecBatchRequest.ExecStep(this.exec("ls /datalight-not-exist-dir"), 0L));
+        execStepList.add(new ExecBatchRequest.ExecStep(this.exec("echo step-3"), 0L));
+        return execStepList;
+    }
+
+    private ExecRequest exec(String cmd) {
+        return new ExecRequest(
+                ExecTypeEnum.COMMAND,
+                cmd,
+                cmd,
+                0,
+                10 * 1000L,
+                new String[0],
+                new String[0],
+                false
+        );
+    }
+}
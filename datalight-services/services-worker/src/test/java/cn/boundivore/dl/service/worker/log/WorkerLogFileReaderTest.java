@@ -0,0 +1,244 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.service.worker.log;
+
+import cn.boundivore.dl.base.response.impl.common.AbstractLogFileVo;
+import cn.boundivore.dl.service.worker.cache.LogFileLineIndexCache;
+import cn.boundivore.dl.service.worker.service.WorkerLogFileReaderService;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Description: 测试按字节偏移量读取日志文件、稀疏行索引以及读取末尾内容，
+ * 并对比 8 MB 日志与 2 GB 日志（中间为稀疏空洞）的读取耗时
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/18
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class WorkerLogFileReaderTest {
+
+    private static final int LINE_COUNT = 100_000;
+
+    private static final long LARGE_FILE_SIZE = 2L * 1024 * 1024 * 1024;
+
+    private static final long READ_BYTES = 64 * 1024L;
+
+    private static final int ROUNDS = 200;
+
+    private static Path tempDir;
+
+    private static Path smallLog;
+
+    private static Path largeLog;
+
+    private final WorkerLogFileReaderService workerLogFileReaderService = new WorkerLogFileReaderService(
+            new LogFileLineIndexCache()
+    );
+
+    @BeforeAll
+    public static void init() throws IOException {
+        tempDir = Files.createTempDirectory("datalight-log-reader");
+
+        smallLog = tempDir.resolve("small.log");
+        appendLines(smallLog, 1, LINE_COUNT);
+
+        // 2 GB 日志：开头与结尾为真实日志，中间通过 setLength 生成稀疏空洞，避免实际写入 2 GB 数据
+        largeLog = tempDir.resolve("large.log");
+        appendLines(largeLog, 1, LINE_COUNT);
+        try (RandomAccessFile file = new RandomAccessFile(largeLog.toFile(), "rw")) {
+            file.setLength(LARGE_FILE_SIZE);
+        }
+        appendLines(largeLog, 1, LINE_COUNT);
+    }
+
+    @AfterAll
+    public static void destroy() throws IOException {
+        try (Stream<Path> stream = Files.walk(tempDir)) {
+            stream.sorted(Comparator.reverseOrder()).forEach(i -> i.toFile().delete());
+        }
+    }
+
+    @Test
+    public void loadFileContentAlignsToCharBoundary() throws IOException {
+        long fileSize = Files.size(smallLog);
+        Random random = new Random(7);
+
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = (long) (random.nextDouble() * (fileSize - READ_BYTES));
+            AbstractLogFileVo.LogFileContentVo contentVo = this.workerLogFileReaderService
+                    .loadFileContent(smallLog.toString(), start, start + 1000)
+                    .getData();
+
+            Assertions.assertFalse(contentVo.getContent().contains("�"));
+            Assertions.assertTrue(contentVo.getStartOffset() >= start);
+            Assertions.assertTrue(contentVo.getEndOffset() <= start + 1000);
+            Assertions.assertEquals(
+                    contentVo.getEndOffset() - contentVo.getStartOffset(),
+                    contentVo.getContent().getBytes(StandardCharsets.UTF_8).length
+            );
+            Assertions.assertEquals(fileSize, contentVo.getMaxOffset());
+        }
+
+        // 连续分页读取拼接后与原文件一致
+        StringBuilder builder = new StringBuilder();
+        long offset = 0;
+        while (offset < fileSize) {
+            AbstractLogFileVo.LogFileContentVo contentVo = this.workerLogFileReaderService
+                    .loadFileContent(smallLog.toString(), offset, offset + 4099)
+                    .getData();
+            builder.append(contentVo.getContent());
+            offset = contentVo.getEndOffset();
+        }
+        Assertions.assertEquals(new String(Files.readAllBytes(smallLog), StandardCharsets.UTF_8), builder.toString());
+    }
+
+    @Test
+    public void loadFileContentByLine() throws IOException {
+        for (long lineNumber : new long[]{1, 2, 1023, 1024, 1025, 54321, LINE_COUNT}) {
+            String content = this.workerLogFileReaderService
+                    .loadFileContentByLine(smallLog.toString(), lineNumber, 200L)
+                    .getData()
+                    .getContent();
+            Assertions.assertTrue(content.startsWith(line(lineNumber)), content);
+        }
+
+        // 超出文件行数
+        AbstractLogFileVo.LogFileContentVo contentVo = this.workerLogFileReaderService
+                .loadFileContentByLine(smallLog.toString(), LINE_COUNT + 2L, 200L)
+                .getData();
+        Assertions.assertEquals("", contentVo.getContent());
+        Assertions.assertEquals(contentVo.getMaxOffset(), contentVo.getStartOffset());
+
+        // 文件追加后，索引从上次扫描的位置继续构建
+        Path growingLog = tempDir.resolve("growing.log");
+        appendLines(growingLog, 1, 5000);
+        Assertions.assertTrue(
+                this.workerLogFileReaderService.loadFileContentByLine(growingLog.toString(), 4000L, 200L)
+                        .getData()
+                        .getContent()
+                        .startsWith(line(4000))
+        );
+        appendLines(growingLog, 5001, 10000);
+        Assertions.assertTrue(
+                this.workerLogFileReaderService.loadFileContentByLine(growingLog.toString(), 9000L, 200L)
+                        .getData()
+                        .getContent()
+                        .startsWith(line(9000))
+        );
+    }
+
+    @Test
+    public void tailFileContent() throws IOException {
+        AbstractLogFileVo.LogFileContentVo contentVo = this.workerLogFileReaderService
+                .tailFileContent(largeLog.toString(), READ_BYTES)
+                .getData();
+
+        Assertions.assertTrue(contentVo.getContent().startsWith("line "));
+        Assertions.assertTrue(contentVo.getContent().endsWith(line(LINE_COUNT) + "\n"));
+        Assertions.assertEquals(Files.size(largeLog), contentVo.getEndOffset());
+    }
+
+    @Test
+    public void benchmarkSmallVersusLargeFile() throws IOException {
+        // 预热
+        this.benchmark(smallLog);
+
+        long[] small = this.benchmark(smallLog);
+        long[] large = this.benchmark(largeLog);
+
+        log.info("8 MB 日志: 随机读取平均耗时 {} 微秒, 读取末尾平均耗时 {} 微秒; 2 GB 日志: 随机读取平均耗时 {} 微秒, 读取末尾平均耗时 {} 微秒",
+                small[0] / 1000,
+                small[1] / 1000,
+                large[0] / 1000,
+                large[1] / 1000
+        );
+
+        // 读取耗时与文件大小无关，允许 1 毫秒的波动
+        Assertions.assertTrue(large[0] < small[0] * 3 + 1_000_000L);
+        Assertions.assertTrue(large[1] < small[1] * 3 + 1_000_000L);
+    }
+
+    /**
+     * @return [随机位置读取 READ_BYTES 的平均耗时, 读取末尾 READ_BYTES 的平均耗时]，单位：纳秒
+     */
+    private long[] benchmark(Path logPath) throws IOException {
+        long fileSize = Files.size(logPath);
+        Random random = new Random(17);
+
+        long randomRead = average(() -> {
+            long start = (long) (random.nextDouble() * (fileSize - READ_BYTES));
+            return this.workerLogFileReaderService
+                    .loadFileContent(logPath.toString(), start, start + READ_BYTES)
+                    .getData()
+                    .getEndOffset();
+        });
+
+        long tailRead = average(() -> this.workerLogFileReaderService
+                .tailFileContent(logPath.toString(), READ_BYTES)
+                .getData()
+                .getEndOffset()
+        );
+
+        return new long[]{randomRead, tailRead};
+    }
+
+    private static long average(LongSupplier reader) {
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            Assertions.assertTrue(reader.getAsLong() > 0);
+        }
+        return (System.nanoTime() - start) / ROUNDS;
+    }
+
+    private static String line(long lineNumber) {
+        return String.format("line %d 2024-06-18 12:00:00 INFO 数据节点心跳正常 DataNode heartbeat ok", lineNumber);
+    }
+
+    private static void appendLines(Path path, long from, long to) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(
+                path,
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND
+        )) {
+            for (long i = from; i <= to; i++) {
+                writer.write(line(i));
+                writer.write('\n');
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.ssh.bean;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+/**
+ * Description: SSH 连接池统计信息快照
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/14
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Data
+@Accessors(chain = true)
+public class SshPoolStats {
+
+    // 复用已有连接的次数
+    private long hitCount;
+
+    // 需要新建连接的次数
+    private long missCount;
+
+    // 新建连接失败的次数
+    private long handshakeFailCount;
+
+    // 新建成功的连接数
+    private long createdCount;
+
+    // 新建连接（连接 + 认证）的累计耗时，单位：毫秒
+    private long handshakeTotalMillis;
+
+    // 新建连接的最大耗时，单位：毫秒
+    private long handshakeMaxMillis;
+
+    // 因空闲超时或失活被关闭的连接数
+    private long evictCount;
+
+    // 当前打开的连接数
+    private int openConnections;
+
+    // 当前正在使用的会话数
+    private int activeSessions;
+
+    public double getHitRate() {
+        long total = this.hitCount + this.missCount;
+        return total == 0 ? 0D : this.hitCount * 1.0D / total;
+    }
+
+    public long getHandshakeAvgMillis() {
+        return this.createdCount <= 0 ? 0L : this.handshakeTotalMillis / this.createdCount;
+    }
+}
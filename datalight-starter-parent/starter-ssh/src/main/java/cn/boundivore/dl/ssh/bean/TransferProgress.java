@@ -26,6 +26,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.Serializable;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
 /**
@@ -82,6 +83,11 @@ public class TransferProgress implements Serializable {
 
     private LinkedHashMap<FilePath, FileProgress> fileProgressMap = new LinkedHashMap<>();
 
+    /**
+     * 待传输文件相对于传输目录的路径（如 ./node/conf/a.conf），为 null 时传输整个目录
+     */
+    private List<String> transferFileList;
+
     @Data
     @EqualsAndHashCode(callSuper = false)
     @AllArgsConstructor
@@ -255,6 +261,63 @@ public class TransferProgress implements Serializable {
         return this;
     }
 
+    /**
+     * Description: 将单个文件标记为已接收，并累加总进度，用于由其他节点转发、无法获取字节级进度的场景
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/6
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param filePath 文件路径
+     * @return 文件进度，文件不在进度信息中时返回 null
+     */
+    public FileProgress completeFile(FilePath filePath) {
+        FileProgress fileProgress = this.fileProgressMap.get(filePath);
+        if (fileProgress == null || fileProgress.getFileProgress() == 100) {
+            return null;
+        }
+
+        long deltaTransferBytes = fileProgress.getFileBytes() - fileProgress.getFileTransferBytes().get();
+        fileProgress.updateFileProgress(deltaTransferBytes, fileProgress.getPrintSpeed());
+        fileProgress.setFileProgress(100);
+
+        this.updateTotalProgress(deltaTransferBytes);
+        this.updateTotalTransferFileCount();
+        this.currentFileProgress = fileProgress;
+
+        return fileProgress;
+    }
+
+    /**
+     * Description: 将总进度与各个文件进度直接标记为 100，用于无需逐个文件传输（如跳过推送或由其他节点转发）的场景
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @return 更新后的进度对象
+     */
+    public TransferProgress complete() {
+        this.totalProgress = 100;
+        this.totalTransferBytes.set(this.totalBytes);
+
+        this.totalFileCountProgress = 100;
+        this.totalTransferFileCount.set(this.totalFileCount);
+
+        this.fileProgressMap.forEach((filePath, fileProgress) -> {
+                    fileProgress.setFileProgress(100);
+                    fileProgress.getFileTransferBytes().set(fileProgress.getFileBytes());
+                }
+        );
+        return this;
+    }
+
     /**
      * Description: 将传输进度更新到数据库
      * Created by: Boundivore
@@ -35,4 +35,25 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @Getter
 @ConfigurationProperties(prefix = "ssh-tools")
 public class SshProperties {
+
+    // 单个节点最多保持的 SSH 连接数
+    private int maxConnectionsPerHost = 2;
+
+    // 单个 SSH 连接上最多同时开启的会话数，不应超过节点 sshd 的 MaxSessions（默认为 10）
+    private int maxSessionsPerConnection = 8;
+
+    // 空闲连接的最长保留时间，单位：秒
+    private long idleTimeoutSeconds = 300L;
+
+    // 空闲连接的检查间隔，单位：秒
+    private long evictIntervalSeconds = 30L;
+
+    // 获取连接的最长等待时间，单位：秒
+    private long borrowTimeoutSeconds = 120L;
+
+    // 连接保活心跳间隔，单位：秒
+    private int keepAliveSeconds = 30;
+
+    // 是否启用 zlib 传输压缩，带宽受限时可开启
+    private boolean compression = false;
 }
@@ -16,11 +16,15 @@
  */
 package cn.boundivore.dl.ssh.service;
 
+import cn.boundivore.dl.ssh.properties.SshProperties;
+import cn.boundivore.dl.ssh.tools.SshConnectionPool;
 import cn.boundivore.dl.ssh.tools.SshTool;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 /**
  * Description: Ssh 工具服务
@@ -34,17 +38,34 @@ import javax.annotation.PostConstruct;
  */
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class SshService {
+
+    private final SshProperties sshProperties;
+
     private SshTool sshTool;
 
+    private SshConnectionPool sshConnectionPool;
+
     @PostConstruct
     public void init() {
         this.sshTool = SshTool.getInstance();
+        this.sshConnectionPool = new SshConnectionPool(this.sshProperties);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        log.info("关闭 SSH 连接池, 连接池状态: {}", this.sshConnectionPool.getStats());
+        this.sshConnectionPool.close();
     }
 
     public SshTool sshTool() {
         return this.sshTool;
     }
 
+    public SshConnectionPool sshConnectionPool() {
+        return this.sshConnectionPool;
+    }
+
 
 }
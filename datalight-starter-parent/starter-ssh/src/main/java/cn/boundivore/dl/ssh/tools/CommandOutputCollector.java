@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.ssh.tools;
+
+import cn.hutool.core.thread.ThreadUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * Description: 同时读取命令的标准输出与标准错误，避免其中一个流写满通道窗口后远端进程阻塞；
+ * 每个流仅在内存中保留最新的部分输出，并可通过回调逐行获取输出
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/28
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class CommandOutputCollector {
+
+    // 每个流默认最多保留的字符数
+    public static final int DEFAULT_MAX_RETAINED_CHARS = 1024 * 1024;
+
+    // 读取标准错误的线程，空闲后自动回收
+    private static final ExecutorService ERROR_STREAM_READER = Executors.newCachedThreadPool(
+            ThreadUtil.newNamedThreadFactory("ssh-stderr-reader-", true)
+    );
+
+    private final InputStream inputStream;
+
+    private final InputStream errorStream;
+
+    private final int maxRetainedChars;
+
+    // 标准输出与标准错误的每一行均会回调，两个流在不同线程中读取，回调须线程安全
+    private final Consumer<String> lineConsumer;
+
+    public CommandOutputCollector(InputStream inputStream,
+                                  InputStream errorStream,
+                                  int maxRetainedChars,
+                                  Consumer<String> lineConsumer) {
+        if (maxRetainedChars <= 0) throw new IllegalArgumentException("保留的字符数必须大于 0");
+
+        this.inputStream = inputStream;
+        this.errorStream = errorStream;
+        this.maxRetainedChars = maxRetainedChars;
+        this.lineConsumer = lineConsumer;
+    }
+
+    /**
+     * Description: 在后台线程读取标准错误，同时在当前线程读取标准输出，直到两个流均结束
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/28
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: IOException 读取流异常
+     *
+     * @return String 标准输出与标准错误，以换行分隔
+     */
+    public String collect() throws IOException {
+        final Future<String> errorFuture = ERROR_STREAM_READER.submit(() -> this.read(this.errorStream));
+
+        final String output;
+        try {
+            output = this.read(this.inputStream);
+        } catch (IOException e) {
+            errorFuture.cancel(true);
+            throw e;
+        }
+
+        try {
+            return output + "\n" + errorFuture.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待读取标准错误时被中断", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ?
+                    (IOException) e.getCause() :
+                    new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Description: 逐行读取输入流，超出容量时丢弃最早的输出，并在开头注明丢弃的字符数
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/28
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: IOException 读取流异常
+     *
+     * @param stream 输入流
+     * @return String 保留的输出
+     */
+    private String read(InputStream stream) throws IOException {
+        final StringBuilder buffer = new StringBuilder();
+        long droppedChars = 0;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                this.accept(line);
+
+                buffer.append(line).append("\n");
+
+                // 允许暂时超出容量的 1/4 后再批量丢弃，避免每行都移动整个缓冲区
+                if (buffer.length() > this.maxRetainedChars + (this.maxRetainedChars >> 2)) {
+                    int overflow = buffer.length() - this.maxRetainedChars;
+                    buffer.delete(0, overflow);
+                    droppedChars += overflow;
+                }
+            }
+        }
+
+        int overflow = buffer.length() - this.maxRetainedChars;
+        if (overflow > 0) {
+            buffer.delete(0, overflow);
+            droppedChars += overflow;
+        }
+
+        if (droppedChars == 0) return buffer.toString();
+
+        return String.format(
+                "[... 已省略 %s 个字符 ...]\n%s",
+                droppedChars,
+                buffer
+        );
+    }
+
+    private void accept(String line) {
+        if (this.lineConsumer == null) return;
+
+        try {
+            this.lineConsumer.accept(line);
+        } catch (Exception e) {
+            // 回调异常不能中断读取，否则远端进程会因通道窗口写满而阻塞
+            log.warn("处理命令输出行时出现异常: {}", e.getMessage());
+        }
+    }
+}
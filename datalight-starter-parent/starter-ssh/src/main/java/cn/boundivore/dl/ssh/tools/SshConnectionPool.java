@@ -0,0 +1,425 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.ssh.tools;
+
+import cn.boundivore.dl.ssh.bean.SshPoolStats;
+import cn.boundivore.dl.ssh.properties.SshProperties;
+import cn.hutool.core.exceptions.ExceptionUtil;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import net.schmizz.sshj.SSHClient;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Description: 按节点划分的 SSH 连接池。
+ * 同一节点的多次操作复用已认证的 SSH 连接，每次操作在连接上开启独立的会话（Session/SFTP 通道），从而避免重复握手与认证；
+ * 每个节点的连接数与单连接的会话数均有上限，超出上限的请求将等待，以此限制单个节点的并发；
+ * 空闲超时或已失活的连接将被定时关闭
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/14
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class SshConnectionPool implements Closeable {
+
+    private final SshProperties sshProperties;
+
+    // <user@host:port, 节点连接>
+    private final Map<String, HostPool> hostPoolMap = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService evictExecutor;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder handshakeFailCount = new LongAdder();
+
+    private final LongAdder createdCount = new LongAdder();
+
+    private final LongAdder handshakeTotalMillis = new LongAdder();
+
+    private final LongAccumulator handshakeMaxMillis = new LongAccumulator(Math::max, 0L);
+
+    private final LongAdder evictCount = new LongAdder();
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+
+    private final AtomicInteger activeSessions = new AtomicInteger();
+
+    public SshConnectionPool(SshProperties sshProperties) {
+        this.sshProperties = sshProperties;
+
+        this.evictExecutor = new ScheduledThreadPoolExecutor(
+                1,
+                ThreadFactoryBuilder.create()
+                        .setNamePrefix("ssh-pool-evictor-")
+                        .setDaemon(true)
+                        .build()
+        );
+
+        this.evictExecutor.scheduleWithFixedDelay(
+                this::evict,
+                sshProperties.getEvictIntervalSeconds(),
+                sshProperties.getEvictIntervalSeconds(),
+                TimeUnit.SECONDS
+        );
+    }
+
+    /**
+     * Description: 获取指定节点的 SSH 连接，使用完毕后必须调用 Lease.close() 归还，连接本身不应被断开
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/14
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: IOException 新建连接失败或等待超时
+     *
+     * @param host           主机地址
+     * @param port           端口号
+     * @param username       用户名
+     * @param privateKeyPath 私钥路径
+     * @return Lease 连接租约
+     */
+    public Lease borrow(String host, int port, String username, String privateKeyPath) throws IOException {
+        final HostPool hostPool = this.hostPoolMap.computeIfAbsent(
+                String.format("%s@%s:%s", username, host, port),
+                k -> new HostPool()
+        );
+
+        final long deadline = System.currentTimeMillis()
+                + TimeUnit.SECONDS.toMillis(this.sshProperties.getBorrowTimeoutSeconds());
+
+        final List<SSHClient> deadClientList = new ArrayList<>();
+        try {
+            synchronized (hostPool) {
+                while (true) {
+                    PooledConnection connection = hostPool.pick(
+                            deadClientList,
+                            this.sshProperties.getMaxSessionsPerConnection()
+                    );
+                    if (connection != null) {
+                        connection.activeSessions++;
+                        this.hitCount.increment();
+                        this.activeSessions.incrementAndGet();
+                        return new Lease(hostPool, connection);
+                    }
+
+                    if (hostPool.connectionList.size() + hostPool.connectingCount < this.sshProperties.getMaxConnectionsPerHost()) {
+                        hostPool.connectingCount++;
+                        break;
+                    }
+
+                    long waitMillis = deadline - System.currentTimeMillis();
+                    if (waitMillis <= 0) {
+                        throw new IOException(String.format("等待 %s@%s:%s 的 SSH 连接超时", username, host, port));
+                    }
+
+                    try {
+                        hostPool.wait(waitMillis);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("等待 SSH 连接时被中断", e);
+                    }
+                }
+            }
+        } finally {
+            this.disconnectAll(deadClientList);
+        }
+
+        // 握手与认证在锁外进行，不阻塞该节点上已有连接的复用
+        this.missCount.increment();
+        PooledConnection connection = null;
+        try {
+            connection = new PooledConnection(this.handshake(host, port, username, privateKeyPath));
+            connection.activeSessions = 1;
+            this.createdCount.increment();
+            this.openConnections.incrementAndGet();
+            this.activeSessions.incrementAndGet();
+            return new Lease(hostPool, connection);
+        } catch (IOException | RuntimeException e) {
+            this.handshakeFailCount.increment();
+            throw e;
+        } finally {
+            synchronized (hostPool) {
+                hostPool.connectingCount--;
+                if (connection != null) hostPool.connectionList.add(connection);
+                hostPool.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Description: 新建并认证 SSH 连接，记录握手耗时
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/14
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws: IOException 连接或认证失败
+     *
+     * @param host           主机地址
+     * @param port           端口号
+     * @param username       用户名
+     * @param privateKeyPath 私钥路径
+     * @return SSHClient 已认证的客户端
+     */
+    protected SSHClient handshake(String host, int port, String username, String privateKeyPath) throws IOException {
+        long start = System.currentTimeMillis();
+
+        SSHClient sshClient = SshTool.getInstance().connect(
+                host,
+                port,
+                username,
+                privateKeyPath,
+                this.sshProperties.getKeepAliveSeconds(),
+                this.sshProperties.isCompression()
+        );
+
+        long costMillis = System.currentTimeMillis() - start;
+        this.handshakeTotalMillis.add(costMillis);
+        this.handshakeMaxMillis.accumulate(costMillis);
+        log.debug("新建 SSH 连接 {}@{}:{} 耗时: {} ms", username, host, port, costMillis);
+
+        return sshClient;
+    }
+
+    /**
+     * Description: 关闭空闲超时或已失活的连接
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/14
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    public void evict() {
+        try {
+            final long idleTimeoutMillis = TimeUnit.SECONDS.toMillis(this.sshProperties.getIdleTimeoutSeconds());
+            final long now = System.currentTimeMillis();
+            final List<SSHClient> evictClientList = new ArrayList<>();
+
+            this.hostPoolMap.values().forEach(hostPool -> {
+                synchronized (hostPool) {
+                    Iterator<PooledConnection> iterator = hostPool.connectionList.iterator();
+                    while (iterator.hasNext()) {
+                        PooledConnection connection = iterator.next();
+                        if (connection.activeSessions == 0
+                                && (now - connection.lastReturnTime >= idleTimeoutMillis || !connection.isAlive())) {
+                            iterator.remove();
+                            evictClientList.add(connection.sshClient);
+                        }
+                    }
+                }
+            });
+
+            this.disconnectAll(evictClientList);
+
+            if (!evictClientList.isEmpty()) {
+                log.info("关闭空闲 SSH 连接 {} 个, 连接池状态: {}", evictClientList.size(), this.getStats());
+            }
+        } catch (Exception e) {
+            log.error(ExceptionUtil.stacktraceToString(e));
+        }
+    }
+
+    /**
+     * Description: 获取连接池统计信息快照
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/14
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @return SshPoolStats 统计信息
+     */
+    public SshPoolStats getStats() {
+        return new SshPoolStats()
+                .setHitCount(this.hitCount.sum())
+                .setMissCount(this.missCount.sum())
+                .setHandshakeFailCount(this.handshakeFailCount.sum())
+                .setCreatedCount(this.createdCount.sum())
+                .setHandshakeTotalMillis(this.handshakeTotalMillis.sum())
+                .setHandshakeMaxMillis(this.handshakeMaxMillis.get())
+                .setEvictCount(this.evictCount.sum())
+                .setOpenConnections(this.openConnections.get())
+                .setActiveSessions(this.activeSessions.get());
+    }
+
+    /**
+     * Description: 关闭连接池中的所有连接
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/14
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     */
+    @Override
+    public void close() {
+        this.evictExecutor.shutdownNow();
+
+        final List<SSHClient> clientList = new ArrayList<>();
+        this.hostPoolMap.values().forEach(hostPool -> {
+            synchronized (hostPool) {
+                hostPool.connectionList.forEach(i -> clientList.add(i.sshClient));
+                hostPool.connectionList.clear();
+            }
+        });
+
+        this.disconnectAll(clientList);
+    }
+
+    private void release(HostPool hostPool, PooledConnection connection) {
+        boolean isDead;
+        synchronized (hostPool) {
+            connection.activeSessions--;
+            connection.lastReturnTime = System.currentTimeMillis();
+
+            // 连接已失活且不再被使用时，立即移出连接池
+            isDead = connection.activeSessions == 0
+                    && !connection.isAlive()
+                    && hostPool.connectionList.remove(connection);
+
+            hostPool.notifyAll();
+        }
+
+        this.activeSessions.decrementAndGet();
+
+        if (isDead) {
+            this.disconnectAll(Collections.singletonList(connection.sshClient));
+        }
+    }
+
+    private void disconnectAll(List<SSHClient> clientList) {
+        clientList.forEach(sshClient -> {
+            this.evictCount.increment();
+            this.openConnections.decrementAndGet();
+            try {
+                sshClient.disconnect();
+            } catch (IOException e) {
+                log.warn("关闭 SSH 连接失败: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 单个节点上的连接集合，所有字段均在持有该对象锁时访问
+     */
+    private static class HostPool {
+
+        private final List<PooledConnection> connectionList = new ArrayList<>();
+
+        // 正在握手中的连接数，计入该节点的连接数上限
+        private int connectingCount;
+
+        /**
+         * 选出仍有空闲会话名额且活跃会话最少的连接，顺带移出已失活且无人使用的连接
+         */
+        private PooledConnection pick(List<SSHClient> deadClientList, int maxSessionsPerConnection) {
+            PooledConnection picked = null;
+
+            Iterator<PooledConnection> iterator = this.connectionList.iterator();
+            while (iterator.hasNext()) {
+                PooledConnection connection = iterator.next();
+                if (!connection.isAlive()) {
+                    if (connection.activeSessions == 0) {
+                        iterator.remove();
+                        deadClientList.add(connection.sshClient);
+                    }
+                    continue;
+                }
+
+                if (connection.activeSessions < maxSessionsPerConnection
+                        && (picked == null || connection.activeSessions < picked.activeSessions)) {
+                    picked = connection;
+                }
+            }
+
+            return picked;
+        }
+    }
+
+    private static class PooledConnection {
+
+        private final SSHClient sshClient;
+
+        private int activeSessions;
+
+        private long lastReturnTime = System.currentTimeMillis();
+
+        private PooledConnection(SSHClient sshClient) {
+            this.sshClient = sshClient;
+        }
+
+        private boolean isAlive() {
+            return this.sshClient.isConnected() && this.sshClient.isAuthenticated();
+        }
+    }
+
+    /**
+     * 连接租约，通过 try-with-resources 归还连接
+     */
+    public class Lease implements Closeable {
+
+        private final HostPool hostPool;
+
+        private final PooledConnection connection;
+
+        private boolean isReleased;
+
+        private Lease(HostPool hostPool, PooledConnection connection) {
+            this.hostPool = hostPool;
+            this.connection = connection;
+        }
+
+        public SSHClient getSshClient() {
+            return this.connection.sshClient;
+        }
+
+        @Override
+        public void close() {
+            if (this.isReleased) return;
+            this.isReleased = true;
+            release(this.hostPool, this.connection);
+        }
+    }
+}
@@ -22,7 +22,9 @@ import cn.boundivore.dl.ssh.verifier.NoneHostKeyVerifier;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.exceptions.ExceptionUtil;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IORuntimeException;
 import cn.hutool.core.lang.Assert;
+import cn.hutool.crypto.SecureUtil;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -37,23 +39,39 @@ import net.schmizz.sshj.sftp.SFTPFileTransfer;
 import org.aspectj.weaver.BCException;
 
 import java.io.*;
-import java.util.Map;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Description: 用于 SSH 了解到指定主机的工具类
  * Created by: Boundivore
  * E-mail: boundivore@foxmail.com
  * Creation time: 2023/7/3
- * Modification description:
- * Modified by:
- * Modification time:
+ * Modification description: 执行命令时同时读取标准输出与标准错误，并支持逐行回调输出
+ * Modified by: Boundivore
+ * Modification time: 2024/6/28
  * Version: V1.0
  */
 @Slf4j
 public class SshTool {
     private static volatile SshTool instance;
 
+    // 校验清单中目录条目的前缀，sha256sum 的输出中摘要后紧跟两个空格，因此不会与文件条目混淆
+    public static final String MANIFEST_DIRECTORY_PREFIX = "d  ";
+
+    // 校验清单中文件条目的摘要与分隔符长度
+    private static final int MANIFEST_PATH_OFFSET = 64 + 2;
+
+    // <文件绝对路径, 文件摘要>
+    private final Map<String, FileDigest> sha256Cache = new ConcurrentHashMap<>();
+
     private SshTool() {
     }
 
@@ -85,11 +103,49 @@ public class SshTool {
      * @throws IOException 连接异常
      */
     public SSHClient connect(String host, int port, String username, String privateKeyPath) throws IOException {
+        return this.connect(host, port, username, privateKeyPath, 0, false);
+    }
+
+    /**
+     * Description: 创建 SSH 连接并认证，连接建立后按指定间隔发送保活心跳，用于需要长期保持的连接
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/14
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param host             主机地址
+     * @param port             端口号
+     * @param username         用户名
+     * @param privateKeyPath   私钥路径
+     * @param keepAliveSeconds 保活心跳间隔，单位：秒，小于等于 0 时不发送心跳
+     * @param isCompression    是否启用 zlib 传输压缩，适用于带宽受限的网络
+     * @throws IOException 连接异常
+     */
+    public SSHClient connect(String host,
+                             int port,
+                             String username,
+                             String privateKeyPath,
+                             int keepAliveSeconds,
+                             boolean isCompression) throws IOException {
         SSHClient sshClient = new SSHClient();
         sshClient.addHostKeyVerifier(new NoneHostKeyVerifier());
+        if (keepAliveSeconds > 0) {
+            sshClient.getConnection().getKeepAlive().setKeepAliveInterval(keepAliveSeconds);
+        }
+        if (isCompression) {
+            sshClient.useCompression();
+        }
 
         sshClient.connect(host, port);
-        sshClient.authPublickey(username, privateKeyPath);
+        try {
+            sshClient.authPublickey(username, privateKeyPath);
+        } catch (IOException e) {
+            sshClient.disconnect();
+            throw e;
+        }
 
         return sshClient;
     }
@@ -163,36 +219,98 @@ public class SshTool {
      * @throws IOException 执行异常
      */
     public ExecResult exec(SSHClient sshClient, String script, Long timeout, TimeUnit unit) throws IOException {
-        return this.exec(sshClient, script, timeout, unit, false);
+        return this.exec(sshClient, script, null, timeout, unit, null);
     }
 
     /**
-     * Description: 阻塞等待执行结果
+     * Description: 执行脚本命令，执行过程中逐行回调输出，并返回执行结果的输出，用于需要实时获取输出的脚本
      * Created by: Boundivore
      * E-mail: boundivore@foxmail.com
-     * Creation time: 2023/7/5
+     * Creation time: 2024/6/28
      * Modification description:
      * Modified by:
      * Modification time:
      * Throws:
      *
-     * @param sshClient ssh 客户端
-     * @param script    即将执行的命令
+     * @param sshClient    SshClient 客户端
+     * @param script       要执行的脚本命令
+     * @param timeout      超时时间
+     * @param unit         超时单位
+     * @param lineConsumer 输出行回调，标准输出与标准错误在不同线程中回调，须线程安全
+     * @return 执行结果输出
+     * @throws IOException 执行异常
+     */
+    public ExecResult exec(SSHClient sshClient,
+                           String script,
+                           Long timeout,
+                           TimeUnit unit,
+                           Consumer<String> lineConsumer) throws IOException {
+        return this.exec(sshClient, script, null, timeout, unit, lineConsumer);
+    }
+
+    /**
+     * Description: 执行脚本命令，执行前将指定内容写入命令的标准输入，并返回执行结果的输出
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param sshClient SshClient 客户端
+     * @param script    要执行的脚本命令
+     * @param input     写入标准输入的内容
      * @param timeout   超时时间
      * @param unit      超时单位
-     * @param inPTY     是否使用伪终端执行
+     * @return 执行结果输出
+     * @throws IOException 执行异常
+     */
+    public ExecResult exec(SSHClient sshClient, String script, String input, Long timeout, TimeUnit unit) throws IOException {
+        return this.exec(sshClient, script, input, timeout, unit, null);
+    }
+
+    /**
+     * Description: 执行脚本命令并阻塞等待执行结果；标准输出与标准错误同时读取，
+     * 避免远端进程因其中一个流写满通道窗口而阻塞，每个流仅保留最新的部分输出
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2023/7/5
+     * Modification description: 同时读取标准输出与标准错误，限制保留的输出大小，并支持逐行回调
+     * Modified by: Boundivore
+     * Modification time: 2024/6/28
+     * Throws:
+     *
+     * @param sshClient    ssh 客户端
+     * @param script       即将执行的命令
+     * @param input        写入标准输入的内容，为 null 时不写入
+     * @param timeout      超时时间
+     * @param unit         超时单位
+     * @param lineConsumer 输出行回调，为 null 时不回调
      * @return 执行结果
      */
-    private ExecResult exec(SSHClient sshClient, String script, Long timeout, TimeUnit unit, boolean inPTY) throws IOException {
+    public ExecResult exec(SSHClient sshClient,
+                           String script,
+                           String input,
+                           Long timeout,
+                           TimeUnit unit,
+                           Consumer<String> lineConsumer) throws IOException {
         try (Session session = sshClient.startSession()) {
             Session.Command command = session.exec(script);
 
-            if (inPTY) {
-                session.allocateDefaultPTY();
+            if (input != null) {
+                // 关闭输出流即向远端发送 EOF
+                try (OutputStream outputStream = command.getOutputStream()) {
+                    outputStream.write(input.getBytes(StandardCharsets.UTF_8));
+                }
             }
 
-            String output = this.readCommandOutput(command.getInputStream());
-            String error = this.readCommandOutput(command.getErrorStream());
+            String output = new CommandOutputCollector(
+                    command.getInputStream(),
+                    command.getErrorStream(),
+                    CommandOutputCollector.DEFAULT_MAX_RETAINED_CHARS,
+                    lineConsumer
+            ).collect();
 
             if (timeout != null && unit != null) {
                 command.join(timeout, unit);
@@ -202,37 +320,11 @@ public class SshTool {
 
             return new ExecResult(
                     command.getExitStatus(),
-                    output + "\n" + error
+                    output
             );
         }
     }
 
-    /**
-     * Description: 从输入流中获取命令输出，并将其转换为字符串
-     * Created by: Boundivore
-     * E-mail: boundivore@foxmail.com
-     * Creation time: 2023/7/3
-     * Modification description:
-     * Modified by:
-     * Modification time:
-     * Throws:
-     *
-     * @param inputStream 输入流
-     * @return 命令输出字符串
-     * @throws IOException 读取输入流异常
-     */
-    private String readCommandOutput(InputStream inputStream) throws IOException {
-        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
-        StringBuilder output = new StringBuilder();
-        String line;
-        while ((line = reader.readLine()) != null) {
-            output.append(line).append("\n");
-        }
-        reader.close();
-        return output.toString();
-    }
-
-
     /**
      * Description: 执行带有交互功能的脚本，并根据指定的交互输入自动回答
      * Created by: Boundivore
@@ -339,7 +431,9 @@ public class SshTool {
                     new CustomFileTransferListener(transferProgress, sftpClient)
             );
 
-            if (isUpload) {
+            if (isUpload && transferProgress != null && transferProgress.getTransferFileList() != null) {
+                this.uploadFiles(transferProgress, sshClient, sftpClient, localPath, remotePath);
+            } else if (isUpload) {
                 fileTransfer.upload(localPath, remotePath);
                 this.exec(sshClient, "chmod +x -R " + remotePath);
             } else {
@@ -349,6 +443,204 @@ public class SshTool {
         }
     }
 
+    /**
+     * Description: 仅上传 TransferProgress 中列出的文件，并仅为这些文件添加执行权限
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param transferProgress 推送进度信息
+     * @param sshClient        SshClient 客户端
+     * @param sftpClient       SFTPClient 客户端
+     * @param localPath        本地文件夹路径
+     * @param remotePath       远程文件夹路径
+     * @throws IOException 文件传输异常
+     */
+    private void uploadFiles(TransferProgress transferProgress,
+                             SSHClient sshClient,
+                             SFTPClient sftpClient,
+                             String localPath,
+                             String remotePath) throws IOException {
+
+        final List<String> transferFileList = transferProgress.getTransferFileList();
+        if (transferFileList.isEmpty()) return;
+
+        final SFTPFileTransfer fileTransfer = sftpClient.getFileTransfer();
+        final Set<String> remoteDirSet = new HashSet<>();
+
+        for (String relativePath : transferFileList) {
+            File localFile = FileUtil.file(localPath, relativePath);
+            String remoteFile = remotePath + relativePath.substring(1);
+            String remoteDir = remoteFile.substring(0, remoteFile.lastIndexOf('/'));
+
+            if (remoteDirSet.add(remoteDir)) {
+                sftpClient.mkdirs(remoteDir);
+            }
+
+            // 进度以 "datalight/.../" 形式的目录为键，与 initNodePushProgress 保持一致
+            fileTransfer.setTransferListener(
+                    new CustomFileTransferListener(
+                            transferProgress,
+                            sftpClient,
+                            this.convertPath(localFile.getParent()) + "/"
+                    )
+            );
+            fileTransfer.upload(localFile.getAbsolutePath(), remoteFile);
+        }
+
+        this.exec(
+                sshClient,
+                String.format("cd %s && xargs -d '\\n' chmod +x", remotePath),
+                String.join("\n", transferFileList) + "\n",
+                null,
+                null
+        );
+    }
+
+    /**
+     * Description: 对比本地校验清单与远端目录中的文件，返回远端缺失或内容不一致的文件；
+     * 清单中的目录在对比前于远端创建，因此仅包含空目录的部分也会在新节点上出现
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description: 对比前创建清单中的目录
+     * Modified by: Boundivore
+     * Modification time: 2024/7/4
+     * Throws:
+     *
+     * @param sshClient  SshClient 客户端
+     * @param manifest   本地目录的校验清单，见 sha256Manifest
+     * @param remotePath 远程文件夹路径
+     * @return List<String> 需要传输的文件相对路径，顺序与校验清单一致；无法完成对比时返回 null，表示需要传输整个目录
+     * @throws IOException 执行异常
+     */
+    public List<String> diffManifest(SSHClient sshClient, String manifest, String remotePath) throws IOException {
+        // 目录条目交给 mkdir -p，其余条目交给 sha256sum
+        // --quiet 仅输出校验失败的文件，格式为 "./相对路径: FAILED" 或 "./相对路径: FAILED open or read"
+        ExecResult execResult = this.exec(
+                sshClient,
+                String.format(
+                        "mkdir -p %s && cd %s && manifest=$(cat) "
+                                + "&& printf '%%s\\n' \"$manifest\" | sed -n 's#^%s##p' | xargs -r -d '\\n' mkdir -p "
+                                + "&& printf '%%s\\n' \"$manifest\" | grep -v '^%s' | sha256sum --quiet -c - 2>/dev/null",
+                        remotePath,
+                        remotePath,
+                        MANIFEST_DIRECTORY_PREFIX,
+                        MANIFEST_DIRECTORY_PREFIX
+                ),
+                manifest,
+                null,
+                null
+        );
+
+        if (execResult.getExitCode() != null && execResult.getExitCode() == 0) {
+            return new ArrayList<>();
+        }
+
+        final List<String> transferFileList = new ArrayList<>();
+        for (String line : execResult.getOutput().split("\n")) {
+            int index = line.lastIndexOf(": FAILED");
+            if (index > 0) {
+                transferFileList.add(line.substring(0, index));
+            }
+        }
+
+        // 校验失败却未输出任何文件，说明远端命令本身执行失败
+        return transferFileList.isEmpty() ? null : transferFileList;
+    }
+
+    /**
+     * Description: 生成本地目录的校验清单，文件条目的格式与 sha256sum 的输出一致（"摘要  ./相对路径"），
+     * 目录条目的格式为 "d  ./相对路径"，交给 sha256sum -c 校验前须去除目录条目，清单按相对路径排序
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description: 增加目录条目，使空目录同样随增量推送与节点间转发创建
+     * Modified by: Boundivore
+     * Modification time: 2024/7/4
+     * Throws: IORuntimeException 遍历目录失败
+     *
+     * @param localDir 本地目录
+     * @return String 校验清单
+     */
+    public String sha256Manifest(String localDir) {
+        final File rootDir = FileUtil.file(localDir);
+
+        final List<String> relativePathList;
+        try (Stream<Path> pathStream = Files.walk(rootDir.toPath())) {
+            // 第一个元素为根目录本身
+            relativePathList = pathStream.skip(1)
+                    .map(path -> FileUtil.subPath(rootDir.getAbsolutePath(), path.toFile()).replace("\\", "/"))
+                    .sorted()
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new IORuntimeException(e);
+        }
+
+        final StringBuilder manifest = new StringBuilder();
+        relativePathList.forEach(relativePath -> {
+            final File file = FileUtil.file(rootDir, relativePath);
+            manifest.append(file.isDirectory() ? MANIFEST_DIRECTORY_PREFIX : this.sha256(file) + "  ")
+                    .append("./")
+                    .append(relativePath)
+                    .append("\n");
+        });
+
+        return manifest.toString();
+    }
+
+    /**
+     * Description: 从校验清单中解析出全部目录与文件的相对路径，顺序与清单一致，目录位于其中的文件之前
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/7/4
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param manifest 校验清单，见 sha256Manifest
+     * @return List<String> "./相对路径" 形式的目录与文件路径
+     */
+    public List<String> manifestPathList(String manifest) {
+        return Arrays.stream(manifest.split("\n"))
+                .filter(i -> !i.isEmpty())
+                .map(i -> i.startsWith(MANIFEST_DIRECTORY_PREFIX) ?
+                        i.substring(MANIFEST_DIRECTORY_PREFIX.length()) :
+                        i.substring(MANIFEST_PATH_OFFSET)
+                )
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Description: 计算文件的 sha256，文件长度与修改时间未变化时直接使用缓存的结果，避免每个节点推送时重复读取整个安装包
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param file 本地文件
+     * @return String sha256 十六进制摘要
+     */
+    private String sha256(File file) {
+        final long length = file.length();
+        final long lastModified = file.lastModified();
+
+        return this.sha256Cache.compute(
+                file.getAbsolutePath(),
+                (k, v) -> v != null && v.length == length && v.lastModified == lastModified ?
+                        v :
+                        new FileDigest(length, lastModified, SecureUtil.sha256(file))
+        ).sha256;
+    }
+
     /**
      * Description: 初始化节点推送进度
      * Created by: Boundivore
@@ -396,6 +688,46 @@ public class SshTool {
         return transferProgress;
     }
 
+    /**
+     * Description: 初始化节点增量推送进度，仅统计需要传输的文件，因此进度中的总字节数即为实际待传输的字节数
+     * Created by: Boundivore
+     * E-mail: boundivore@foxmail.com
+     * Creation time: 2024/6/15
+     * Modification description:
+     * Modified by:
+     * Modification time:
+     * Throws:
+     *
+     * @param transferPath     本地传输目录
+     * @param transferFileList 需要传输的文件相对路径，见 diffManifest，为 null 时统计整个目录
+     * @return TransferProgress - 节点传输进度
+     */
+    public TransferProgress initNodePushProgress(String transferPath,
+                                                 List<String> transferFileList) throws IOException {
+        if (transferFileList == null) {
+            return this.initNodePushProgress(transferPath, null, true);
+        }
+
+        TransferProgress transferProgress = new TransferProgress();
+        transferProgress.setTransferFileList(transferFileList);
+
+        transferFileList.forEach(relativePath ->
+                this.assembleTransFileLocal(transferProgress, FileUtil.file(transferPath, relativePath))
+        );
+
+        transferProgress.initTotalProgress();
+        transferProgress.initTotalFileCount();
+
+        // 远端已是最新时无需传输任何文件
+        transferProgress.setCurrentFileProgress(
+                transferFileList.isEmpty() ?
+                        new TransferProgress.FileProgress().setFilename("") :
+                        CollUtil.getLast(transferProgress.getFileProgressMap().values())
+        );
+
+        return transferProgress;
+    }
+
     /**
      * Description: 递归获取指定目录下所有文件的绝对路径和文件字节数
      * Created by: Boundivore
@@ -562,6 +894,15 @@ public class SshTool {
     }
 
 
+    @AllArgsConstructor
+    private static class FileDigest {
+        private final long length;
+
+        private final long lastModified;
+
+        private final String sha256;
+    }
+
     @Data
     @AllArgsConstructor
     @NoArgsConstructor
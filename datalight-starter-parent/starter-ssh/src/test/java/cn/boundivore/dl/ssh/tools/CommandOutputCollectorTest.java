@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.ssh.tools;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Description: 以本地进程模拟远端脚本，测试标准错误输出数 MB 时同时读取两个流不会阻塞，且内存中仅保留有限的输出
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/28
+ * Modification description:
+ * Modified by:
+ * Modification time:
+ * Version: V1.0
+ */
+@Slf4j
+public class CommandOutputCollectorTest {
+
+    // 标准错误输出 8 MB，每行 100 个字符（含换行）
+    private static final int STDERR_BYTES = 8 * 1024 * 1024;
+
+    private static final int LINE_WIDTH = 99;
+
+    private static final int MAX_RETAINED_CHARS = 64 * 1024;
+
+    private static final String LARGE_STDERR_SCRIPT = String.format(
+            "head -c %s /dev/zero | tr '\\0' 'e' | fold -w %s >&2; echo stdout-done",
+            STDERR_BYTES,
+            LINE_WIDTH
+    );
+
+    @Test
+    public void collectLargeStderr() throws Exception {
+        Process process = this.start(LARGE_STDERR_SCRIPT);
+        try {
+            AtomicLong lineCount = new AtomicLong();
+
+            String output = Assertions.assertTimeoutPreemptively(
+                    Duration.ofSeconds(30),
+                    () -> new CommandOutputCollector(
+                            process.getInputStream(),
+                            process.getErrorStream(),
+                            MAX_RETAINED_CHARS,
+                            line -> lineCount.incrementAndGet()
+                    ).collect()
+            );
+
+            Assertions.assertTrue(process.waitFor(10, TimeUnit.SECONDS));
+            Assertions.assertEquals(0, process.exitValue());
+
+            // 每一行都回调，包括标准输出的一行
+            long stderrLines = (STDERR_BYTES + LINE_WIDTH - 1) / LINE_WIDTH;
+            Assertions.assertEquals(stderrLines + 1, lineCount.get());
+
+            Assertions.assertTrue(output.startsWith("stdout-done\n"));
+            Assertions.assertTrue(output.contains("[... 已省略 "));
+            Assertions.assertTrue(output.length() < 2 * MAX_RETAINED_CHARS + 100);
+
+            log.info("标准错误输出 {} 字节, 回调 {} 行, 保留 {} 个字符",
+                    STDERR_BYTES,
+                    lineCount.get(),
+                    output.length()
+            );
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    @Test
+    public void sequentialReadBlocks() throws Exception {
+        Process process = this.start(LARGE_STDERR_SCRIPT);
+        try {
+            // 优化前：先读完标准输出再读标准错误，标准错误写满管道后进程阻塞，标准输出永远不会结束
+            Thread reader = new Thread(() -> {
+                try {
+                    this.readFully(process.getInputStream());
+                    this.readFully(process.getErrorStream());
+                } catch (Exception ignored) {
+                }
+            });
+            reader.setDaemon(true);
+            reader.start();
+
+            Assertions.assertFalse(process.waitFor(3, TimeUnit.SECONDS));
+            Assertions.assertTrue(reader.isAlive());
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    @Test
+    public void collectSmallOutput() throws Exception {
+        Process process = this.start("echo out-1; echo err-1 >&2; echo out-2");
+        try {
+            String output = new CommandOutputCollector(
+                    process.getInputStream(),
+                    process.getErrorStream(),
+                    MAX_RETAINED_CHARS,
+                    null
+            ).collect();
+
+            Assertions.assertEquals("out-1\nout-2\n\nerr-1\n", output);
+        } finally {
+            process.destroyForcibly();
+        }
+    }
+
+    private Process start(String script) throws Exception {
+        return new ProcessBuilder("bash", "-c", script).start();
+    }
+
+    private void readFully(InputStream inputStream) throws Exception {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        while (reader.readLine() != null) {
+            // 丢弃输出
+        }
+    }
+}
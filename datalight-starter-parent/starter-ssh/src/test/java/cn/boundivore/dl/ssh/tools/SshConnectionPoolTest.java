@@ -0,0 +1,210 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.ssh.tools;
+
+import cn.boundivore.dl.ssh.bean.SshPoolStats;
+import cn.boundivore.dl.ssh.properties.SshProperties;
+import lombok.extern.slf4j.Slf4j;
+import net.schmizz.sshj.SSHClient;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Description: 测试 SSH 连接池的连接复用、单节点并发上限、失活连接替换与空闲连接回收，握手过程使用模拟连接代替；
+ * 连接复用的收益以握手次数衡量，不依赖耗时
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/14
+ * Modification description: 移至 starter-ssh，以新建连接数替代耗时断言
+ * Modified by: Boundivore
+ * Modification time: 2024/7/8
+ * Version: V1.0
+ */
+@Slf4j
+public class SshConnectionPoolTest {
+
+    // 模拟一次握手与认证的耗时
+    private static final long HANDSHAKE_MILLIS = 20L;
+
+    @Test
+    public void reuseConnection() throws IOException {
+        try (SshConnectionPool pool = new SimulatedPool(this.properties(2, 8, 300L))) {
+            for (int i = 0; i < 100; i++) {
+                try (SshConnectionPool.Lease lease = pool.borrow("node01", 22, "root", "id_rsa")) {
+                    Assertions.assertTrue(lease.getSshClient().isConnected());
+                }
+            }
+
+            SshPoolStats stats = pool.getStats();
+            log.info("连接池状态: {}", stats);
+            Assertions.assertEquals(1L, stats.getMissCount());
+            Assertions.assertEquals(99L, stats.getHitCount());
+            Assertions.assertEquals(1L, stats.getCreatedCount());
+            Assertions.assertEquals(1, stats.getOpenConnections());
+            Assertions.assertEquals(0, stats.getActiveSessions());
+        }
+    }
+
+    @Test
+    public void limitConcurrencyPerHost() throws Exception {
+        final int maxConnections = 2;
+        final int maxSessions = 3;
+
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        try (SshConnectionPool pool = new SimulatedPool(this.properties(maxConnections, maxSessions, 300L))) {
+            List<Future<?>> futureList = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                futureList.add(executor.submit(() -> {
+                    try (SshConnectionPool.Lease lease = pool.borrow("node01", 22, "root", "id_rsa")) {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        TimeUnit.MILLISECONDS.sleep(10L);
+                        running.decrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futureList) {
+                future.get();
+            }
+
+            SshPoolStats stats = pool.getStats();
+            log.info("最大并发: {}, 连接池状态: {}", maxRunning.get(), stats);
+            Assertions.assertTrue(maxRunning.get() <= maxConnections * maxSessions);
+            Assertions.assertTrue(stats.getOpenConnections() <= maxConnections);
+            Assertions.assertEquals(64L, stats.getHitCount() + stats.getMissCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void replaceDeadAndEvictIdle() throws IOException {
+        try (SshConnectionPool pool = new SimulatedPool(this.properties(2, 8, 0L))) {
+            SSHClient first;
+            try (SshConnectionPool.Lease lease = pool.borrow("node01", 22, "root", "id_rsa")) {
+                first = lease.getSshClient();
+            }
+
+            // 模拟节点重启导致连接断开，下次获取时应重新握手
+            ((SimulatedClient) first).isAlive = false;
+            try (SshConnectionPool.Lease lease = pool.borrow("node01", 22, "root", "id_rsa")) {
+                Assertions.assertNotSame(first, lease.getSshClient());
+            }
+            Assertions.assertEquals(2L, pool.getStats().getMissCount());
+            Assertions.assertEquals(2L, pool.getStats().getCreatedCount());
+            Assertions.assertEquals(1, pool.getStats().getOpenConnections());
+
+            // 空闲超时为 0，所有未被使用的连接均应被回收
+            pool.evict();
+            Assertions.assertEquals(0, pool.getStats().getOpenConnections());
+        }
+    }
+
+    @Test
+    public void handshakeOncePerConnection() throws Exception {
+        final int opCount = 100;
+        final int maxConnections = 2;
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        SimulatedPool simulatedPool = new SimulatedPool(this.properties(maxConnections, 8, 300L));
+        try (SshConnectionPool pool = simulatedPool) {
+            List<Future<?>> futureList = new ArrayList<>();
+            for (int i = 0; i < opCount; i++) {
+                futureList.add(executor.submit(() -> {
+                    pool.borrow("node01", 22, "root", "id_rsa").close();
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futureList) {
+                future.get();
+            }
+
+            // 不使用连接池时每次操作均需握手一次，使用连接池后握手次数不超过单节点连接数上限
+            SshPoolStats stats = pool.getStats();
+            log.info("{} 次操作, 握手次数: {}, 连接池状态: {}", opCount, simulatedPool.handshakeCount.get(), stats);
+            Assertions.assertEquals(simulatedPool.handshakeCount.get(), stats.getCreatedCount());
+            Assertions.assertTrue(stats.getCreatedCount() >= 1 && stats.getCreatedCount() <= maxConnections);
+            Assertions.assertEquals(stats.getCreatedCount(), stats.getMissCount());
+            Assertions.assertEquals(opCount - stats.getMissCount(), stats.getHitCount());
+            Assertions.assertEquals(0L, stats.getHandshakeFailCount());
+            Assertions.assertEquals(0, stats.getActiveSessions());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private SshProperties properties(int maxConnections, int maxSessions, long idleTimeoutSeconds) {
+        SshProperties sshProperties = new SshProperties();
+        sshProperties.setMaxConnectionsPerHost(maxConnections);
+        sshProperties.setMaxSessionsPerConnection(maxSessions);
+        sshProperties.setIdleTimeoutSeconds(idleTimeoutSeconds);
+        sshProperties.setBorrowTimeoutSeconds(10L);
+        return sshProperties;
+    }
+
+    private static class SimulatedPool extends SshConnectionPool {
+
+        private final AtomicInteger handshakeCount = new AtomicInteger();
+
+        SimulatedPool(SshProperties sshProperties) {
+            super(sshProperties);
+        }
+
+        @Override
+        protected SSHClient handshake(String host, int port, String username, String privateKeyPath) throws IOException {
+            this.handshakeCount.incrementAndGet();
+            try {
+                TimeUnit.MILLISECONDS.sleep(HANDSHAKE_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            return new SimulatedClient();
+        }
+    }
+
+    private static class SimulatedClient extends SSHClient {
+
+        private volatile boolean isAlive = true;
+
+        @Override
+        public boolean isConnected() {
+            return this.isAlive;
+        }
+
+        @Override
+        public boolean isAuthenticated() {
+            return this.isAlive;
+        }
+
+        @Override
+        public void disconnect() {
+            this.isAlive = false;
+        }
+    }
+}
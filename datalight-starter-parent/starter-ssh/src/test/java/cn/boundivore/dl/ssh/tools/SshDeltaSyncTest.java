@@ -0,0 +1,191 @@
+/**
+ * Copyright (C) <2023> <Boundivore> <boundivore@foxmail.com>
+ * <p>
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the Apache License, Version 2.0
+ * as published by the Apache Software Foundation.
+ * <p>
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * Apache License, Version 2.0 for more details.
+ * <p>
+ * You should have received a copy of the Apache License, Version 2.0
+ * along with this program; if not, you can obtain a copy at
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ */
+package cn.boundivore.dl.ssh.tools;
+
+import cn.boundivore.dl.ssh.bean.TransferProgress;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
+import cn.hutool.core.util.CharsetUtil;
+import cn.hutool.core.util.RandomUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Description: 测试增量推送：校验清单包含目录条目，diffManifest 在远端创建清单中的目录（包括空目录），
+ * 且仅返回远端缺失或内容不一致的文件；远端已是最新时待传输字节数为 0。
+ * 远端命令在本机对模拟的远端目录执行
+ * Created by: Boundivore
+ * E-mail: boundivore@foxmail.com
+ * Creation time: 2024/6/15
+ * Modification description: 直接测试 diffManifest，并覆盖空目录
+ * Modified by: Boundivore
+ * Modification time: 2024/7/4
+ * Version: V1.0
+ */
+@Slf4j
+public class SshDeltaSyncTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SshTool sshTool;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        // 仅将 diffManifest 发往远端的命令改为在本机执行，其余逻辑均为 SshTool 本身
+        this.sshTool = Mockito.spy(SshTool.getInstance());
+        Mockito.doAnswer(invocation -> this.execLocally(invocation.getArgument(1), invocation.getArgument(2)))
+                .when(this.sshTool)
+                .exec(Mockito.any(), Mockito.anyString(), Mockito.anyString(), Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    public void transferOnlyChangedFiles() throws Exception {
+        File localDir = this.tempDir.resolve("local/datalight").toFile();
+        FileUtil.writeString("#!/bin/bash\necho hello\n", FileUtil.file(localDir, "node/scripts/a.sh"), CharsetUtil.UTF_8);
+        FileUtil.writeString("key=value\n", FileUtil.file(localDir, "conf/b.conf"), CharsetUtil.UTF_8);
+        FileUtil.writeBytes(RandomUtil.randomBytes(1024 * 1024), FileUtil.file(localDir, "pkg/c.bin"));
+        FileUtil.mkdir(FileUtil.file(localDir, "logs/empty"));
+
+        String manifest = this.sshTool.sha256Manifest(localDir.getAbsolutePath());
+        File remoteDir = this.tempDir.resolve("remote/datalight").toFile();
+
+        // 新节点：远端目录不存在，全部文件需要传输，空目录在对比时创建
+        List<String> transferFileList = this.sshTool.diffManifest(null, manifest, remoteDir.getAbsolutePath());
+        Assertions.assertEquals(Arrays.asList("./conf/b.conf", "./node/scripts/a.sh", "./pkg/c.bin"), sorted(transferFileList));
+        Assertions.assertTrue(FileUtil.isDirectory(FileUtil.file(remoteDir, "logs/empty")));
+        Assertions.assertTrue(FileUtil.isDirectory(FileUtil.file(remoteDir, "node/scripts")));
+
+        // 远端已有一份相同的目录
+        FileUtil.copyContent(localDir, remoteDir, true);
+        Assertions.assertEquals(
+                Collections.emptyList(),
+                this.sshTool.diffManifest(null, manifest, remoteDir.getAbsolutePath())
+        );
+
+        // 远端一个文件被修改、一个文件缺失
+        FileUtil.writeString("key=other\n", FileUtil.file(remoteDir, "conf/b.conf"), CharsetUtil.UTF_8);
+        FileUtil.del(FileUtil.file(remoteDir, "pkg/c.bin"));
+
+        transferFileList = this.sshTool.diffManifest(null, manifest, remoteDir.getAbsolutePath());
+        Assertions.assertEquals(Arrays.asList("./conf/b.conf", "./pkg/c.bin"), sorted(transferFileList));
+
+        TransferProgress transferProgress = this.sshTool.initNodePushProgress(localDir.getAbsolutePath(), transferFileList);
+        Assertions.assertEquals(2L, transferProgress.getTotalFileCount());
+        Assertions.assertEquals(
+                FileUtil.size(FileUtil.file(localDir, "conf/b.conf")) + FileUtil.size(FileUtil.file(localDir, "pkg/c.bin")),
+                transferProgress.getTotalBytes()
+        );
+
+        TransferProgress unchangedProgress = this.sshTool.initNodePushProgress(localDir.getAbsolutePath(), new ArrayList<>());
+        Assertions.assertEquals(0L, unchangedProgress.getTotalBytes());
+        Assertions.assertNotNull(unchangedProgress.getCurrentFileProgress());
+    }
+
+    @Test
+    public void diffFailsWhenRemoteCommandFails() throws Exception {
+        File localDir = this.tempDir.resolve("local/datalight").toFile();
+        FileUtil.writeString("key=value\n", FileUtil.file(localDir, "conf/b.conf"), CharsetUtil.UTF_8);
+        String manifest = this.sshTool.sha256Manifest(localDir.getAbsolutePath());
+
+        // 远端路径被普通文件占用，无法完成对比，需要传输整个目录
+        File remoteFile = FileUtil.writeString("", this.tempDir.resolve("remote").toFile(), CharsetUtil.UTF_8);
+        Assertions.assertNull(
+                this.sshTool.diffManifest(null, manifest, remoteFile.getAbsolutePath() + "/datalight")
+        );
+    }
+
+    @Test
+    public void manifestListsDirectoriesBeforeFiles() {
+        File localDir = this.tempDir.resolve("datalight").toFile();
+        FileUtil.writeString("v1", FileUtil.file(localDir, "conf/a.conf"), CharsetUtil.UTF_8);
+        FileUtil.writeString("v1", FileUtil.file(localDir, "conf-bak/a.conf"), CharsetUtil.UTF_8);
+        FileUtil.mkdir(FileUtil.file(localDir, "logs"));
+
+        String manifest = this.sshTool.sha256Manifest(localDir.getAbsolutePath());
+        Arrays.stream(manifest.split("\n"))
+                .forEach(i -> Assertions.assertTrue(
+                        i.matches("^[0-9a-f]{64} {2}\\./.+$") || i.startsWith(SshTool.MANIFEST_DIRECTORY_PREFIX + "./"),
+                        i
+                ));
+
+        List<String> pathList = this.sshTool.manifestPathList(manifest);
+        Assertions.assertEquals(
+                Arrays.asList("./conf", "./conf-bak", "./conf-bak/a.conf", "./conf/a.conf", "./logs"),
+                pathList
+        );
+        pathList.forEach(i -> Assertions.assertTrue(FileUtil.exist(FileUtil.file(localDir, i))));
+    }
+
+    @Test
+    public void manifestFollowsFileChanges() {
+        File localDir = this.tempDir.resolve("datalight").toFile();
+        File file = FileUtil.writeString("v1", FileUtil.file(localDir, "a.conf"), CharsetUtil.UTF_8);
+        String before = this.sshTool.sha256Manifest(localDir.getAbsolutePath());
+
+        FileUtil.writeString("v2-changed", file, CharsetUtil.UTF_8);
+        String after = this.sshTool.sha256Manifest(localDir.getAbsolutePath());
+
+        Assertions.assertNotEquals(before, after);
+    }
+
+    private static List<String> sorted(List<String> list) {
+        Assertions.assertNotNull(list);
+        List<String> sortedList = new ArrayList<>(list);
+        Collections.sort(sortedList);
+        return sortedList;
+    }
+
+    /**
+     * 在本机执行原本发往远端的命令，标准输出与标准错误合并，与远端执行结果一致
+     */
+    private SshTool.ExecResult execLocally(String script, String input) throws Exception {
+        Process process;
+        try {
+            process = new ProcessBuilder("bash", "-c", script)
+                    .redirectErrorStream(true)
+                    .start();
+        } catch (Exception e) {
+            Assumptions.assumeTrue(false, "当前环境不存在 bash");
+            return null;
+        }
+
+        try (OutputStream outputStream = process.getOutputStream()) {
+            outputStream.write(input.getBytes(StandardCharsets.UTF_8));
+        }
+        String output = IoUtil.read(process.getInputStream(), StandardCharsets.UTF_8);
+        int exitCode = process.waitFor();
+        Assumptions.assumeFalse(output.contains("sha256sum: command not found"), "当前环境不存在 sha256sum");
+
+        log.info("本机执行: {}, 退出码: {}, 输出: {}", script, exitCode, output);
+        return new SshTool.ExecResult(exitCode, output);
+    }
+}